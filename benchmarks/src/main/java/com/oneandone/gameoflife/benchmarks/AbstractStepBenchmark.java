@@ -0,0 +1,95 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.benchmarks;
+
+import com.oneandone.gameoflife.Engine;
+import com.oneandone.gameoflife.EngineType;
+import com.oneandone.gameoflife.GameOfLife;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Benchmarks {@link GameOfLife#doIteration()} for one engine type and field size.
+ * The random field is filled again before each measurement iteration,
+ * so the iterations see comparable populations.
+ * The subclasses choose the engine types and sizes.
+ * @author Stephan Fuhrmann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public abstract class AbstractStepBenchmark {
+
+    /** The probability of a cell to be alive at the start. */
+    @Param({"0.1", "0.5"})
+    private double density;
+
+    /** The threads of the parallel engine. */
+    @Param({"4"})
+    private int threads;
+
+    private Engine engine;
+
+    private GameOfLife gameOfLife;
+
+    /** The engine type to measure. */
+    protected abstract EngineType getEngineType();
+
+    /** The width and height of the field in cells. */
+    protected abstract int getSize();
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        engine = getEngineType().newEngine(threads);
+        gameOfLife = new GameOfLife(engine);
+        gameOfLife.setSize(getSize(), getSize());
+    }
+
+    @Setup(Level.Iteration)
+    public void fill() {
+        SplittableRandom random = new SplittableRandom(1);
+        gameOfLife.getActiveField().set(() -> random.nextDouble() < density);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        if (engine instanceof AutoCloseable) {
+            ((AutoCloseable) engine).close();
+        }
+    }
+
+    @Benchmark
+    public GameOfLife doIteration() {
+        gameOfLife.doIteration();
+        return gameOfLife;
+    }
+}
@@ -0,0 +1,154 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.benchmarks;
+
+import com.oneandone.gameoflife.BooleanFieldImpl;
+import com.oneandone.gameoflife.Field;
+import com.oneandone.gameoflife.FieldFactory;
+import com.oneandone.gameoflife.HaloFieldImpl;
+import com.oneandone.gameoflife.IntFieldImpl;
+import com.oneandone.gameoflife.LongFieldImpl;
+import com.oneandone.gameoflife.OffHeapFieldImpl;
+import com.oneandone.gameoflife.SparseFieldImpl;
+import com.oneandone.gameoflife.Topology;
+import java.util.SplittableRandom;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Benchmarks the cell operations of the field implementations.
+ * Every operation visits all cells of a square field, so the
+ * result is the time for one pass over the field.
+ * The sizes range from fields fitting into the L1 cache to fields
+ * larger than the last level cache.
+ * @author Stephan Fuhrmann
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = {"-Xmx4g"})
+public class FieldBenchmark {
+
+    /** The field implementations to compare. */
+    public enum Implementation {
+        BOOLEAN(BooleanFieldImpl::new),
+        INT(IntFieldImpl::new),
+        LONG(LongFieldImpl::new),
+        OFF_HEAP(OffHeapFieldImpl::new),
+        SPARSE(SparseFieldImpl::new),
+        HALO((width, height) -> new HaloFieldImpl(width, height, Topology.BOUNDED));
+
+        private final FieldFactory factory;
+
+        Implementation(FieldFactory factory) {
+            this.factory = factory;
+        }
+    }
+
+    @Param
+    private Implementation implementation;
+
+    /** The width and height of the field in cells. */
+    @Param({"64", "512", "4096"})
+    private int size;
+
+    /** The probability of a cell to be alive. */
+    @Param({"0.1", "0.5"})
+    private double density;
+
+    private Field field;
+
+    private Field target;
+
+    private SplittableRandom random;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        field = implementation.factory.newField(size, size);
+        target = implementation.factory.newField(size, size);
+        random = new SplittableRandom(1);
+        field.set(() -> random.nextDouble() < density);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        for (Field f : new Field[] {field, target}) {
+            if (f instanceof AutoCloseable) {
+                ((AutoCloseable) f).close();
+            }
+        }
+    }
+
+    @Benchmark
+    public int get() {
+        int alive = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                if (field.get(x, y)) {
+                    alive++;
+                }
+            }
+        }
+        return alive;
+    }
+
+    @Benchmark
+    public void set() {
+        // a checkerboard so the sparse field keeps its tiles
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                target.set(x, y, ((x ^ y) & 1) != 0);
+            }
+        }
+    }
+
+    @Benchmark
+    public int getNeighborCount() {
+        int sum = 0;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                sum += field.getNeighborCount(x, y);
+            }
+        }
+        return sum;
+    }
+
+    @Benchmark
+    public void copyTo(Blackhole blackhole) {
+        field.copyTo(target);
+        blackhole.consume(target);
+    }
+
+    @Benchmark
+    public void setSupplier() {
+        target.set(() -> random.nextDouble() < density);
+    }
+}
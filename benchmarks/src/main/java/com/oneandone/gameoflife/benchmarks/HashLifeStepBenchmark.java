@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.benchmarks;
+
+import com.oneandone.gameoflife.EngineType;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks one iteration with the {@link EngineType#HASHLIFE} engine.
+ * Filling a random field builds a quadtree node per distinct block,
+ * so a random 16384 field does not fit into the heap and
+ * the sizes stop at 4096.
+ * @author Stephan Fuhrmann
+ */
+public class HashLifeStepBenchmark extends AbstractStepBenchmark {
+
+    /** The width and height of the field in cells. */
+    @Param({"64", "512", "4096"})
+    private int size;
+
+    @Override
+    protected EngineType getEngineType() {
+        return EngineType.HASHLIFE;
+    }
+
+    @Override
+    protected int getSize() {
+        return size;
+    }
+}
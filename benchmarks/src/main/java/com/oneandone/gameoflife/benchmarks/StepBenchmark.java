@@ -0,0 +1,45 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.benchmarks;
+
+import com.oneandone.gameoflife.EngineType;
+import org.openjdk.jmh.annotations.Param;
+
+/**
+ * Benchmarks one iteration with the engines that work on whole fields,
+ * for field sizes from cache resident to larger than the last level cache.
+ * {@link EngineType#HASHLIFE} is measured by {@link HashLifeStepBenchmark}.
+ * @author Stephan Fuhrmann
+ */
+public class StepBenchmark extends AbstractStepBenchmark {
+
+    @Param({"CELL", "PACKED", "PARALLEL", "VECTOR", "LOOKUP", "ACTIVITY", "SPARSE", "HALO"})
+    private EngineType engineType;
+
+    /** The width and height of the field in cells. */
+    @Param({"64", "512", "4096", "16384"})
+    private int size;
+
+    @Override
+    protected EngineType getEngineType() {
+        return engineType;
+    }
+
+    @Override
+    protected int getSize() {
+        return size;
+    }
+}
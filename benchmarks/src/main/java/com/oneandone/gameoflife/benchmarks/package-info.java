@@ -0,0 +1,4 @@
+/**
+ * JMH benchmarks of the fields and engines.
+ */
+package com.oneandone.gameoflife.benchmarks;
@@ -0,0 +1,193 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.nio.LongBuffer;
+
+/**
+ * Base of fields storing packed rows in {@link LongBuffer LongBuffers}
+ * outside of the Java heap.
+ * The layout is the same as in {@link LongFieldImpl}, but the words
+ * are addressed with long indices and split into chunks, so a field
+ * can have more than {@code 2^31} cells.
+ * @author Stephan Fuhrmann
+ */
+public abstract class AbstractBufferFieldImpl implements Field {
+
+    /** The binary logarithm of the number of words in a chunk. */
+    static final int CHUNK_SHIFT = 27;
+
+    /** The number of words in a full chunk, 1 GiB. */
+    static final int CHUNK_WORDS = 1 << CHUNK_SHIFT;
+
+    /** The number of longs per row. */
+    private final int wordsPerRow;
+
+    /** The width in cells. */
+    private final int width;
+
+    /** The height in cells. */
+    private final int height;
+
+    /** The chunks of words. All chunks except the last one have
+     * {@link #CHUNK_WORDS} words.
+     */
+    private LongBuffer[] chunks;
+
+    /**
+     * Creates a new instance. Subclasses need to {@link #setChunks(java.nio.LongBuffer[]) set}
+     * the chunks.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     */
+    protected AbstractBufferFieldImpl(int width, int height) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("width <= 0");
+        }
+        if (height <= 0) {
+            throw new IllegalArgumentException("height <= 0");
+        }
+        this.wordsPerRow = (width + 63) >> 6;
+        this.width = width;
+        this.height = height;
+    }
+
+    /** Get the number of words of a field.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     * @return the number of longs needed for all rows.
+     */
+    static long wordCount(int width, int height) {
+        return (long) ((width + 63) >> 6) * height;
+    }
+
+    /** Get the number of words in each chunk for a total number of words.
+     * @param words the total number of words.
+     * @return the number of words of each chunk.
+     */
+    static int[] chunkSizes(long words) {
+        int count = (int) ((words + CHUNK_WORDS - 1) >>> CHUNK_SHIFT);
+        int[] result = new int[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = (int) Math.min(CHUNK_WORDS, words - ((long) i << CHUNK_SHIFT));
+        }
+        return result;
+    }
+
+    /** Sets the chunks holding the words.
+     * @param chunks the chunks as calculated by {@link #chunkSizes(long)}.
+     */
+    protected final void setChunks(LongBuffer[] chunks) {
+        this.chunks = chunks;
+    }
+
+    /** Get the number of cells.
+     * @return the width multiplied with the height.
+     */
+    public long getCellCount() {
+        return (long) width * height;
+    }
+
+    /** Get the number of longs each row occupies.
+     * @return the number of longs per row.
+     */
+    @Override
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /** Get a word by its index. */
+    long getWord(long index) {
+        return chunks[(int) (index >>> CHUNK_SHIFT)].get((int) index & (CHUNK_WORDS - 1));
+    }
+
+    /** Set a word by its index. */
+    void setWord(long index, long value) {
+        chunks[(int) (index >>> CHUNK_SHIFT)].put((int) index & (CHUNK_WORDS - 1), value);
+    }
+
+    @Override
+    public void getRow(int y, long[] dst) {
+        long offset = (long) y * wordsPerRow;
+        for (int i = 0; i < wordsPerRow; i++) {
+            dst[i] = getWord(offset + i);
+        }
+    }
+
+    @Override
+    public void setRow(int y, long[] src) {
+        long offset = (long) y * wordsPerRow;
+        for (int i = 0; i < wordsPerRow - 1; i++) {
+            setWord(offset + i, src[i]);
+        }
+        setWord(offset + wordsPerRow - 1, src[wordsPerRow - 1] & PackedEngine.lastWordMask(width));
+    }
+
+    @Override
+    public boolean get(int x, int y) {
+        return (getWord((long) y * wordsPerRow + (x >> 6)) & (1L << (x & 0x3f))) != 0;
+    }
+
+    @Override
+    public void set(int x, int y, boolean set) {
+        long index = (long) y * wordsPerRow + (x >> 6);
+        long word = getWord(index);
+        if (set) {
+            word |= 1L << (x & 0x3f);
+        } else {
+            word &= ~(1L << (x & 0x3f));
+        }
+        setWord(index, word);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getNeighborCount(int x, int y) {
+        int sum = 0;
+        for (int yi = -1; yi <= 1; yi++) {
+            for (int xi = -1; xi <= 1; xi++) {
+                if (xi == 0 && yi == 0) {
+                    // don't count cell itself
+                    continue;
+                }
+
+                int xr = x + xi;
+                int yr = y + yi;
+
+                if (xr >= 0 && xr < width && yr >= 0 && yr < height) {
+                    if (get(xr, yr)) {
+                        sum++;
+                    }
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return toStringDefault();
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import lombok.Getter;
+
+/**
+ * Packed engine that only calculates tiles where something can happen.
+ * A tile is one word wide and 64 rows high. The engine remembers
+ * which tiles changed in the last generation and only calculates
+ * tiles that changed or border a changed tile. All other tiles
+ * are still correct in the passive field from the generation before.
+ * Fields with the {@link Topology#TORUS} topology are calculated
+ * completely like in {@link PackedEngine}.
+ * If the fields were modified through the {@link Field} methods,
+ * were not calculated by this engine before or the rule changed,
+ * all tiles are calculated.
+ * @author Stephan Fuhrmann
+ */
+public class ActivityEngine extends PackedEngine {
+
+    /** The binary logarithm of the rows of a tile. */
+    static final int TILE_ROW_SHIFT = 6;
+
+    /** The tiles that changed from the generation before the active one,
+     * indexed by {@code tileY * wordsPerRow + tileX}.
+     */
+    private boolean[] changed;
+
+    /** The tiles that change in the currently calculated generation. */
+    private boolean[] nextChanged;
+
+    /** The field that was read in the last step. */
+    private LongFieldImpl lastFrom;
+
+    /** The modification count of {@link #lastFrom} after the last step. */
+    private int lastFromModifications;
+
+    /** The field that was written in the last step. */
+    private LongFieldImpl lastTo;
+
+    /** The modification count of {@link #lastTo} after the last step. */
+    private int lastToModifications;
+
+    /** The rule of the last step. */
+    private Rule lastRule;
+
+    /** The number of tiles calculated in the last step. */
+    @Getter
+    private int calculatedTiles;
+
+    @Override
+    public void step(Field active, Field passive) {
+        if (!(active instanceof LongFieldImpl && passive instanceof LongFieldImpl) || isTorus(active)) {
+            super.step(active, passive);
+            return;
+        }
+        stepTiles((LongFieldImpl) active, (LongFieldImpl) passive, null);
+    }
+
+    @Override
+    public void step(Field active, Field passive, WordChanges changes) {
+        if (!(active instanceof LongFieldImpl && passive instanceof LongFieldImpl) || isTorus(active)) {
+            super.step(active, passive, changes);
+            return;
+        }
+        stepTiles((LongFieldImpl) active, (LongFieldImpl) passive, changes);
+    }
+
+    /** Calculates the tiles that changed or border a changed tile.
+     * The skipped tiles did not change, so they are not recorded.
+     * @param from the current generation.
+     * @param to the field to write the next generation to.
+     * @param changes the changes to record the changed words in, or {@code null}.
+     */
+    private void stepTiles(LongFieldImpl from, LongFieldImpl to, WordChanges changes) {
+        int words = from.getWordsPerRow();
+        int height = from.getHeight();
+        int tilesY = (height + (1 << TILE_ROW_SHIFT) - 1) >> TILE_ROW_SHIFT;
+        int tiles = words * tilesY;
+
+        boolean known = from == lastTo
+                && to == lastFrom
+                && from.getModifications() == lastToModifications
+                && to.getModifications() == lastFromModifications
+                && getRule().equals(lastRule)
+                && changed != null
+                && changed.length == tiles;
+        if (nextChanged == null || nextChanged.length != tiles) {
+            nextChanged = new boolean[tiles];
+        }
+
+        long lastWordMask = lastWordMask(from.getWidth());
+        int count = 0;
+        for (int tileY = 0; tileY < tilesY; tileY++) {
+            for (int tileX = 0; tileX < words; tileX++) {
+                int index = tileY * words + tileX;
+                if (known && !isNearChange(tileX, tileY, words, tilesY)) {
+                    nextChanged[index] = false;
+                    continue;
+                }
+                long mask = tileX == words - 1 ? lastWordMask : -1L;
+                nextChanged[index] = stepTile(getRule(), from.getWords(), to.getWords(), words, height, tileX, tileY, mask, changes);
+                count++;
+            }
+        }
+        calculatedTiles = count;
+
+        boolean[] swap = changed;
+        changed = nextChanged;
+        nextChanged = swap;
+        lastFrom = from;
+        lastFromModifications = from.getModifications();
+        lastRule = getRule();
+        lastTo = to;
+        lastToModifications = to.getModifications();
+    }
+
+    /** Checks whether a tile or one of its neighbors changed in the last generation. */
+    private boolean isNearChange(int tileX, int tileY, int tilesX, int tilesY) {
+        int minX = Math.max(0, tileX - 1);
+        int maxX = Math.min(tilesX - 1, tileX + 1);
+        int minY = Math.max(0, tileY - 1);
+        int maxY = Math.min(tilesY - 1, tileY + 1);
+        for (int y = minY; y <= maxY; y++) {
+            for (int x = minX; x <= maxX; x++) {
+                if (changed[y * tilesX + x]) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /** Get a word of the packed rows or zero outside of the field. */
+    private static long word(long[] src, int words, int height, int wordX, int y) {
+        if (wordX < 0 || wordX >= words || y < 0 || y >= height) {
+            return 0;
+        }
+        return src[y * words + wordX];
+    }
+
+    /** Calculates the next generation of one tile.
+     * @param changes the changes to record the changed words in, or {@code null}.
+     * @return {@code true} if any cell of the tile changed.
+     */
+    private static boolean stepTile(Rule rule, long[] src, long[] dst, int words, int height,
+            int tileX, int tileY, long mask, WordChanges changes) {
+        int fromY = tileY << TILE_ROW_SHIFT;
+        int toY = Math.min(height, fromY + (1 << TILE_ROW_SHIFT));
+
+        long a0 = word(src, words, height, tileX - 1, fromY - 1);
+        long a1 = word(src, words, height, tileX, fromY - 1);
+        long a2 = word(src, words, height, tileX + 1, fromY - 1);
+        long b0 = word(src, words, height, tileX - 1, fromY);
+        long b1 = word(src, words, height, tileX, fromY);
+        long b2 = word(src, words, height, tileX + 1, fromY);
+        boolean result = false;
+        for (int y = fromY; y < toY; y++) {
+            long c0 = word(src, words, height, tileX - 1, y + 1);
+            long c1 = word(src, words, height, tileX, y + 1);
+            long c2 = word(src, words, height, tileX + 1, y + 1);
+
+            long next = nextWord(rule, a0, a1, a2, b0, b1, b2, c0, c1, c2) & mask;
+            result |= next != b1;
+            dst[y * words + tileX] = next;
+            if (changes != null) {
+                changes.add(y, tileX, next ^ b1);
+            }
+
+            a0 = b0; a1 = b1; a2 = b2;
+            b0 = c0; b1 = c1; b2 = c2;
+        }
+        return result;
+    }
+}
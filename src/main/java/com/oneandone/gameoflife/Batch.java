@@ -0,0 +1,217 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import com.oneandone.gameoflife.io.MacrocellReader;
+import com.oneandone.gameoflife.io.MacrocellWriter;
+import com.oneandone.gameoflife.io.RleReader;
+import com.oneandone.gameoflife.io.RleWriter;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.Locale;
+import java.util.SplittableRandom;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Runs a simulation without user interface as configured by the
+ * {@link Params} and prints statistics and the throughput.
+ * No user interface classes are used, so it runs with
+ * {@code java.awt.headless} on machines without display.
+ * @author Stephan Fuhrmann
+ */
+@Slf4j
+public class Batch {
+
+    /** The width and height of the field of a soup in soup sizes. */
+    private static final int SOUP_FIELD_SCALE = 4;
+
+    /** The command line parameters. */
+    private final Params params;
+
+    /** Where the statistics are printed to. */
+    private final PrintStream out;
+
+    /** The metrics to record the calculation in, or {@code null}. */
+    private final LifeMetrics metrics;
+
+    /** Creates a new instance.
+     * @param params the parsed command line parameters.
+     * @param out the stream to print the statistics to.
+     */
+    public Batch(Params params, PrintStream out) {
+        this(params, out, null);
+    }
+
+    /** Creates a new instance recording metrics.
+     * @param params the parsed command line parameters.
+     * @param out the stream to print the statistics to.
+     * @param metrics the metrics to record the calculation in, or {@code null}.
+     */
+    public Batch(Params params, PrintStream out, LifeMetrics metrics) {
+        this.params = params;
+        this.out = out;
+        this.metrics = metrics;
+    }
+
+    /** Runs the simulation and prints the statistics.
+     * @throws IOException if reading the pattern or writing the output fails.
+     */
+    public void run() throws IOException {
+        if (params.getSoups() > 0) {
+            runSoups();
+            return;
+        }
+        Engine engine = params.getEngine().newEngine(params.getThreads());
+        try {
+            GameOfLife gameOfLife = new GameOfLife(engine, params.getTopology());
+            gameOfLife.setRule(params.getRule());
+            gameOfLife.setSize(params.getWidth(), params.getHeight());
+            if (params.getPattern() != null) {
+                readPattern(params.getPattern(), gameOfLife.getActiveField());
+            } else {
+                SplittableRandom random = new SplittableRandom(params.getSeed());
+                double density = params.getDensity();
+                gameOfLife.getActiveField().set(() -> random.nextDouble() < density);
+            }
+            long aliveBefore = gameOfLife.getActiveField().countAlive();
+
+            int generations = params.getGenerations();
+            long cells = (long) params.getWidth() * params.getHeight();
+            if (metrics != null) {
+                metrics.setThread(Thread.currentThread());
+            }
+            long start = System.nanoTime();
+            // jump engines calculate each power of two in one step
+            for (int bit = 0; bit < Integer.SIZE - 1; bit++) {
+                if ((generations & (1 << bit)) != 0) {
+                    long stepStart = System.nanoTime();
+                    gameOfLife.doIterations(bit);
+                    if (metrics != null) {
+                        metrics.addGenerations(1 << bit, cells, System.nanoTime() - stepStart);
+                    }
+                }
+            }
+            long nanos = System.nanoTime() - start;
+
+            double seconds = nanos / 1e9;
+            print("engine", params.getEngine());
+            print("rule", gameOfLife.getRule());
+            print("topology", gameOfLife.getTopology());
+            print("size", params.getWidth() + "x" + params.getHeight());
+            print("seed", params.getPattern() != null ? "-" : params.getSeed());
+            print("generations", gameOfLife.getIteration());
+            print("alive cells before", aliveBefore);
+            print("alive cells after", gameOfLife.getActiveField().countAlive());
+            print("seconds", String.format(Locale.ROOT, "%.3f", seconds));
+            if (generations > 0 && nanos > 0) {
+                print("generations per second", String.format(Locale.ROOT, "%.1f", generations / seconds));
+                print("cell updates per second", String.format(Locale.ROOT, "%.4g", (double) generations * cells / seconds));
+            } else {
+                print("generations per second", "-");
+                print("cell updates per second", "-");
+            }
+
+            if (params.getOutput() != null) {
+                writePattern(params.getOutput(), gameOfLife);
+            }
+        } finally {
+            if (engine instanceof AutoCloseable) {
+                try {
+                    ((AutoCloseable) engine).close();
+                } catch (Exception e) {
+                    log.warn("Can not close engine", e);
+                }
+            }
+        }
+    }
+
+    /** Runs the soup search and prints the census. */
+    private void runSoups() {
+        SoupSearch search = new SoupSearch(params.getRule(), params.getTopology(),
+                params.getSoupSize(), params.getSoupSize() * SOUP_FIELD_SCALE);
+        search.setMaxGenerations(Math.max(1, params.getGenerations()));
+        search.setDensity(params.getDensity());
+        search.setMetrics(metrics);
+
+        long start = System.nanoTime();
+        SoupCensus census = search.search(params.getSeed(), params.getSoups(), params.getThreads());
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        print("rule", params.getRule());
+        print("topology", params.getTopology());
+        print("soup size", params.getSoupSize() + "x" + params.getSoupSize());
+        print("seed", params.getSeed());
+        print("soups", census.getSoups());
+        print("stabilized", census.getStabilized());
+        print("died", census.getDied());
+        print("unstabilized", census.getUnstabilized());
+        print("average stabilization", String.format(Locale.ROOT, "%.1f", census.getAverageStabilization()));
+        census.getPeriods().forEach((period, count) -> print("period " + period, count));
+        print("generations", census.getGenerations());
+        print("seconds", String.format(Locale.ROOT, "%.3f", seconds));
+        print("soups per second", String.format(Locale.ROOT, "%.1f", census.getSoups() / seconds));
+    }
+
+    private void print(String key, Object value) {
+        out.println(key + ": " + value);
+    }
+
+    private static boolean isMacrocell(Path path) {
+        return path.getFileName().toString().toLowerCase(Locale.ROOT).endsWith(".mc");
+    }
+
+    /** Reads a pattern into the center of a field.
+     * @param path the RLE or Macrocell file.
+     * @param field the field to read the pattern into.
+     */
+    private void readPattern(Path path, Field field) throws IOException {
+        int width = field.getWidth();
+        int height = field.getHeight();
+        Rule patternRule;
+        if (isMacrocell(path)) {
+            try (MacrocellReader reader = MacrocellReader.open(path)) {
+                long size = reader.getSize();
+                reader.read(field, (int) Math.max(0, (width - size) / 2), (int) Math.max(0, (height - size) / 2));
+                patternRule = reader.getRule();
+            }
+        } else {
+            try (RleReader reader = RleReader.open(path)) {
+                reader.read(field, Math.max(0, (width - reader.getWidth()) / 2), Math.max(0, (height - reader.getHeight()) / 2));
+                patternRule = reader.getRule();
+            }
+        }
+        if (patternRule != null && !patternRule.equals(params.getRule())) {
+            log.warn("Pattern has rule {}, calculating with {}", patternRule, params.getRule());
+        }
+    }
+
+    /** Writes the active field to a RLE or Macrocell file.
+     * @param path the file to write.
+     * @param gameOfLife the game to write the active field of.
+     */
+    private static void writePattern(Path path, GameOfLife gameOfLife) throws IOException {
+        if (isMacrocell(path)) {
+            try (MacrocellWriter writer = MacrocellWriter.create(path)) {
+                writer.write(gameOfLife.getActiveField(), gameOfLife.getRule(), gameOfLife.getIteration());
+            }
+        } else {
+            try (RleWriter writer = RleWriter.create(path)) {
+                writer.write(gameOfLife.getActiveField(), gameOfLife.getRule());
+            }
+        }
+    }
+}
@@ -15,7 +15,7 @@
  */
 package com.oneandone.gameoflife;
 
-import java.awt.Dimension;
+import java.util.Arrays;
 
 /**
  * Implementation of a field using a boolean array.
@@ -33,9 +33,6 @@ public class BooleanFieldImpl implements Field {
     /** The height in cells. */
     private final int height;
     
-    /** The dimension object returned by {@link #getDimensions() }. */
-    private final Dimension dimension;
-    
     /**
      * Creates a new instance.
      * @param width the width in cells.
@@ -51,7 +48,6 @@ public class BooleanFieldImpl implements Field {
         alive = new boolean[width][height];
         this.width = width;
         this.height = height;
-        this.dimension = new Dimension(width, height);
     }
     
     @Override
@@ -65,8 +61,30 @@ public class BooleanFieldImpl implements Field {
     }
 
     @Override
-    public Dimension getDimensions() {
-        return dimension;
+    public void getRow(int y, long[] dst) {
+        Arrays.fill(dst, 0, (width + 63) >> 6, 0);
+        for (int x = 0; x < width; x++) {
+            if (alive[x][y]) {
+                dst[x >> 6] |= 1L << (x & 0x3f);
+            }
+        }
+    }
+
+    @Override
+    public void setRow(int y, long[] src) {
+        for (int x = 0; x < width; x++) {
+            alive[x][y] = (src[x >> 6] & (1L << (x & 0x3f))) != 0;
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
     }
 
     @Override
@@ -0,0 +1,72 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Objects;
+
+/**
+ * Engine visiting every cell using {@link Field#get(int, int)}
+ * and {@link Field#getNeighborCount(int, int)}.
+ * Works with every {@link Field} implementation.
+ * @author Stephan Fuhrmann
+ */
+public class CellEngine implements Engine {
+
+    /** The rule to calculate the generations with. */
+    private Rule rule = Rule.CONWAY;
+
+    @Override
+    public Field newField(int width, int height) {
+        return new IntFieldImpl(width, height);
+    }
+
+    @Override
+    public boolean supports(Topology topology) {
+        return true;
+    }
+
+    /** {@inheritDoc}
+     * Other topologies than {@link Topology#BOUNDED} get a {@link HaloFieldImpl}.
+     */
+    @Override
+    public Field newField(int width, int height, Topology topology) {
+        if (topology == Topology.BOUNDED) {
+            return newField(width, height);
+        }
+        return new HaloFieldImpl(width, height, topology);
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public void setRule(Rule rule) {
+        this.rule = Objects.requireNonNull(rule);
+    }
+
+    @Override
+    public void step(Field active, Field passive) {
+        for (int y = 0; y < active.getHeight(); y++) {
+            for (int x = 0; x < active.getWidth(); x++) {
+                boolean current = active.get(x, y);
+                boolean next = rule.next(current, active.getNeighborCount(x, y));
+                passive.set(x, y, next);
+            }
+        }
+    }
+}
@@ -0,0 +1,257 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.BitSet;
+import lombok.Getter;
+
+/**
+ * The tiles of a field that changed between generations.
+ * A tile is a square of {@link #TILE_SIZE} cells, its columns
+ * are one word of the packed rows returned by
+ * {@link Field#getRow(int, long[])}, so finding the changed tiles
+ * only compares words. Change sets of several generations can be
+ * {@link #merge(com.oneandone.gameoflife.ChangeSet) merged}
+ * to render them as one frame.
+ * Change sets are not thread safe.
+ * @see GameOfLife#setTrackChanges(boolean)
+ * @author Stephan Fuhrmann
+ */
+public class ChangeSet {
+
+    /** The binary logarithm of the {@link #TILE_SIZE}. */
+    public static final int TILE_SHIFT = 6;
+
+    /** The width and height of a tile in cells. */
+    public static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+    /** The width of the field in cells. */
+    @Getter
+    private final int width;
+
+    /** The height of the field in cells. */
+    @Getter
+    private final int height;
+
+    /** The number of tile columns. */
+    private final int tilesX;
+
+    /** The changed tiles, indexed by {@code tileY * tilesX + tileX}. */
+    private final BitSet tiles;
+
+    /** Row buffers for comparing fields, allocated on first use. */
+    private long[] rowBefore;
+    private long[] rowAfter;
+
+    /** Represents a rectangle of changed cells.
+     * @see #forEachRegion(com.oneandone.gameoflife.ChangeSet.RegionConsumer)
+     */
+    @FunctionalInterface
+    public interface RegionConsumer {
+        /** Receives a rectangle of changed cells.
+         * @param x the left cell of the rectangle.
+         * @param y the top cell of the rectangle.
+         * @param width the width in cells.
+         * @param height the height in cells.
+         */
+        void accept(int x, int y, int width, int height);
+    }
+
+    /** Creates an empty change set.
+     * @param width the width of the field in cells.
+     * @param height the height of the field in cells.
+     */
+    public ChangeSet(int width, int height) {
+        if (width < 0 || height < 0) {
+            throw new IllegalArgumentException("Illegal size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        this.tilesX = (width + TILE_SIZE - 1) >> TILE_SHIFT;
+        this.tiles = new BitSet(tilesX * ((height + TILE_SIZE - 1) >> TILE_SHIFT));
+    }
+
+    /** Checks whether a field has the size of this change set.
+     * @param field the field to check.
+     * @throws IllegalArgumentException if the sizes differ.
+     */
+    private void checkSize(Field field) {
+        if (field.getWidth() != width || field.getHeight() != height) {
+            throw new IllegalArgumentException("Field size " + field.getWidth() + "x" + field.getHeight()
+                    + " differs from " + width + "x" + height);
+        }
+    }
+
+    /** Adds the tiles that differ between two generations.
+     * @param before the field before the change.
+     * @param after the field after the change.
+     * @throws IllegalArgumentException if a field has another size.
+     */
+    public void add(Field before, Field after) {
+        checkSize(before);
+        checkSize(after);
+        int words = after.getWordsPerRow();
+        if (rowBefore == null || rowBefore.length != words) {
+            rowBefore = new long[words];
+            rowAfter = new long[words];
+        }
+        for (int y = 0; y < height; y++) {
+            before.getRow(y, rowBefore);
+            after.getRow(y, rowAfter);
+            int tileRow = (y >> TILE_SHIFT) * tilesX;
+            for (int i = 0; i < words; i++) {
+                if (rowBefore[i] != rowAfter[i]) {
+                    tiles.set(tileRow + i);
+                }
+            }
+        }
+    }
+
+    /** Adds the tiles of the words recorded by an engine.
+     * @param wordChanges the changed words of a field with the size
+     * of this change set.
+     * @throws IllegalArgumentException if the words are of another size.
+     */
+    public void add(WordChanges wordChanges) {
+        if (wordChanges.getWordsPerRow() != tilesX || wordChanges.getHeight() != height) {
+            throw new IllegalArgumentException("Word changes size " + wordChanges.getWordsPerRow()
+                    + "x" + wordChanges.getHeight() + " differs from " + tilesX + "x" + height);
+        }
+        wordChanges.forEach((y, i, diff) -> tiles.set((y >> TILE_SHIFT) * tilesX + i));
+    }
+
+    /** Adds the tile of a single cell.
+     * @param x the x coordinate of the changed cell.
+     * @param y the y coordinate of the changed cell.
+     */
+    public void add(int x, int y) {
+        if (x < 0 || x >= width || y < 0 || y >= height) {
+            throw new IllegalArgumentException("Illegal coordinates " + x + "," + y);
+        }
+        tiles.set((y >> TILE_SHIFT) * tilesX + (x >> TILE_SHIFT));
+    }
+
+    /** Adds the tiles of a rectangle of cells.
+     * The rectangle is clipped to the field.
+     * @param x the left cell of the rectangle.
+     * @param y the top cell of the rectangle.
+     * @param rectWidth the width of the rectangle in cells.
+     * @param rectHeight the height of the rectangle in cells.
+     */
+    public void add(int x, int y, int rectWidth, int rectHeight) {
+        int fromX = Math.max(0, x);
+        int fromY = Math.max(0, y);
+        int toX = (int) Math.min(width, (long) x + rectWidth);
+        int toY = (int) Math.min(height, (long) y + rectHeight);
+        if (fromX >= toX || fromY >= toY) {
+            return;
+        }
+        for (int tileY = fromY >> TILE_SHIFT; tileY <= (toY - 1) >> TILE_SHIFT; tileY++) {
+            tiles.set(tileY * tilesX + (fromX >> TILE_SHIFT), tileY * tilesX + ((toX - 1) >> TILE_SHIFT) + 1);
+        }
+    }
+
+    /** Marks all tiles as changed. */
+    public void addAll() {
+        tiles.set(0, getTileTotal());
+    }
+
+    /** Adds the changed tiles of another change set.
+     * @param other the change set to add.
+     * @throws IllegalArgumentException if the other change set has
+     * another size.
+     */
+    public void merge(ChangeSet other) {
+        if (other.width != width || other.height != height) {
+            throw new IllegalArgumentException("Size differs");
+        }
+        tiles.or(other.tiles);
+    }
+
+    /** Gets the number of tile columns.
+     * @return the number of tiles in a tile row.
+     */
+    int getTilesX() {
+        return tilesX;
+    }
+
+    /** Gets the number of tiles of the field.
+     * @return the number of tiles, changed or not.
+     */
+    int getTileTotal() {
+        return tilesX * ((height + TILE_SIZE - 1) >> TILE_SHIFT);
+    }
+
+    /** Finds the next changed tile.
+     * @param fromIndex the tile index to start at.
+     * @return the index {@code tileY * tilesX + tileX} of the next
+     * changed tile, or -1 if there is none.
+     */
+    int nextTile(int fromIndex) {
+        return tiles.nextSetBit(fromIndex);
+    }
+
+    /** Marks a tile as changed.
+     * @param index the index {@code tileY * tilesX + tileX} of the tile.
+     */
+    void addTile(int index) {
+        tiles.set(index);
+    }
+
+    /** Removes all changes. */
+    public void clear() {
+        tiles.clear();
+    }
+
+    /** Checks whether no tile changed.
+     * @return {@code true} if there are no changes.
+     */
+    public boolean isEmpty() {
+        return tiles.isEmpty();
+    }
+
+    /** Gets the number of changed tiles.
+     * @return the number of changed tiles.
+     */
+    public int getTileCount() {
+        return tiles.cardinality();
+    }
+
+    /** Reports the changed tiles as rectangles of cells.
+     * Neighboring tiles in a tile row are reported as one rectangle,
+     * the rectangles are clipped to the field.
+     * @param consumer the consumer receiving the rectangles.
+     */
+    public void forEachRegion(RegionConsumer consumer) {
+        int from = tiles.nextSetBit(0);
+        while (from >= 0) {
+            int tileY = from / tilesX;
+            int rowEnd = (tileY + 1) * tilesX;
+            int to = Math.min(rowEnd, tiles.nextClearBit(from));
+            int x = (from - tileY * tilesX) << TILE_SHIFT;
+            int y = tileY << TILE_SHIFT;
+            int right = Math.min(width, (to - tileY * tilesX) << TILE_SHIFT);
+            int bottom = Math.min(height, y + TILE_SIZE);
+            consumer.accept(x, y, right - x, bottom - y);
+            from = tiles.nextSetBit(to);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ChangeSet " + width + "x" + height + " with " + getTileCount() + " changed tiles";
+    }
+}
@@ -0,0 +1,78 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import lombok.Getter;
+
+/**
+ * A repetition of a generation found by a {@link CycleDetector}.
+ * The field stays in the cycle as long as it is not changed
+ * from outside.
+ * A cycle detected after {@link GameOfLife#doIterations(int) jumps}
+ * has the jumped iteration the generation was seen first as first
+ * iteration, the cycle may have started up to one jump earlier.
+ * @see GameOfLife#setCycleWindow(int)
+ * @author Stephan Fuhrmann
+ */
+public class Cycle {
+
+    /** The number of generations after which the field repeats.
+     * 1 for still lifes and empty fields.
+     */
+    @Getter
+    private final int period;
+
+    /** The iteration the repeated generation was seen first.
+     * The generations since this iteration repeat with the period. */
+    @Getter
+    private final int firstIteration;
+
+    /** The iteration the repetition was detected in. */
+    @Getter
+    private final int iteration;
+
+    /** Creates a new instance.
+     * @param firstIteration the iteration the repeated generation was seen first.
+     * @param iteration the iteration the repetition was detected in.
+     */
+    public Cycle(int firstIteration, int iteration) {
+        this(firstIteration, iteration, iteration - firstIteration);
+    }
+
+    /** Creates a new instance with a period shorter than the
+     * distance of the iterations.
+     * @param firstIteration the iteration the repeated generation was seen first.
+     * @param iteration the iteration the repetition was detected in.
+     * @param period the number of generations after which the field
+     * repeats, dividing the distance of the iterations.
+     */
+    public Cycle(int firstIteration, int iteration, int period) {
+        if (iteration <= firstIteration) {
+            throw new IllegalArgumentException("iteration <= firstIteration");
+        }
+        if (period <= 0 || (iteration - firstIteration) % period != 0) {
+            throw new IllegalArgumentException("Illegal period " + period);
+        }
+        this.firstIteration = firstIteration;
+        this.iteration = iteration;
+        this.period = period;
+    }
+
+    @Override
+    public String toString() {
+        return "Cycle with period " + period + " since iteration " + firstIteration;
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+/**
+ * What the {@link LifeRunnable} does when the generations repeat.
+ * @see LifeControl#LifeControl(int, int, com.oneandone.gameoflife.CycleAction, int)
+ * @author Stephan Fuhrmann
+ */
+public enum CycleAction {
+    /** Keep calculating the generations. */
+    CONTINUE,
+    /** Stop the runnable. */
+    STOP,
+    /** Skip to the last iteration of the {@link LifeControl}
+     * without calculating the repeated generations, then stop.
+     */
+    FAST_FORWARD
+}
@@ -0,0 +1,338 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Arrays;
+
+/**
+ * Detects repeated generations by their hash values.
+ * The hash of a field is the XOR of a pseudo random value for every alive
+ * cell, so it can be updated with the births and deaths of a generation
+ * instead of hashing the whole field.
+ * The hashes of the last generations within a window are kept, a
+ * generation whose hash is in the window is a {@link Cycle}.
+ * Two different generations can have the same hash, so the
+ * {@link WordChanges} of the generations in the window are kept, too.
+ * A matching hash is only a cycle if the changes since the matching
+ * generation cancel out, which means the generations are equal.
+ * If the changes need more memory than the budget, the oldest are
+ * dropped and their generations can not be confirmed any more.
+ * @see GameOfLife#setCycleWindow(int)
+ * @author Stephan Fuhrmann
+ */
+public class CycleDetector {
+
+    /** The default maximum number of bytes of the kept changes. */
+    public static final long MEMORY_BUDGET_DEFAULT = 64L << 20;
+
+    /** The estimated bytes of the changes of a generation without its words. */
+    private static final int CHANGES_OVERHEAD = 48;
+
+    /** The hashes of the last generations, used as a ring. */
+    private final long[] hashes;
+
+    /** The iterations of {@link #hashes}. */
+    private final int[] iterations;
+
+    /** The indices {@code y * wordsPerRow + i} of the words changed from the
+     * generation before to the generation of {@link #hashes},
+     * {@code null} if unknown. */
+    private final int[][] indices;
+
+    /** The XOR of the words at {@link #indices}, {@code null} if unknown. */
+    private final long[][] diffs;
+
+    /** The maximum number of bytes of the kept changes. */
+    private final long memoryBudget;
+
+    /** The estimated bytes of the kept changes. */
+    private long memoryUsage;
+
+    /** The words per row of the kept changes. */
+    private int wordsPerRow;
+
+    /** The height of the kept changes. */
+    private int height;
+
+    /** The words of a field to add up changes, allocated on first use. */
+    private long[] sum;
+
+    /** The number of valid entries in the ring. */
+    private int size;
+
+    /** The index of the next entry to write. */
+    private int next;
+
+    /** Creates a new instance with the default memory budget.
+     * @param window the number of generations to compare each
+     * generation with. This is the longest period that can be detected.
+     */
+    public CycleDetector(int window) {
+        this(window, MEMORY_BUDGET_DEFAULT);
+    }
+
+    /** Creates a new instance.
+     * @param window the number of generations to compare each
+     * generation with. This is the longest period that can be detected.
+     * @param memoryBudget the maximum number of bytes of the kept changes.
+     */
+    public CycleDetector(int window, long memoryBudget) {
+        if (window <= 0) {
+            throw new IllegalArgumentException("window <= 0");
+        }
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("memoryBudget <= 0");
+        }
+        this.hashes = new long[window];
+        this.iterations = new int[window];
+        this.indices = new int[window][];
+        this.diffs = new long[window][];
+        this.memoryBudget = memoryBudget;
+    }
+
+    /** Get the number of generations each generation is compared with.
+     * @return the window size.
+     */
+    public int getWindow() {
+        return hashes.length;
+    }
+
+    /** Forgets all generations. */
+    public void clear() {
+        size = 0;
+        next = 0;
+        dropAll();
+    }
+
+    /** Forgets the changes of all entries. */
+    private void dropAll() {
+        Arrays.fill(indices, null);
+        Arrays.fill(diffs, null);
+        memoryUsage = 0;
+    }
+
+    /** Adds the hash of a generation and checks whether it was in the window.
+     * The generations are only compared by their hashes.
+     * @param hash the hash of the generation.
+     * @param iteration the iteration of the generation.
+     * @return the cycle if the hash is in the window, {@code null} otherwise.
+     */
+    public Cycle add(long hash, int iteration) {
+        Cycle result = null;
+        // search from the newest to find the shortest period
+        for (int i = 1; i <= size; i++) {
+            int index = (next - i + hashes.length) % hashes.length;
+            if (hashes[index] == hash) {
+                result = new Cycle(iterations[index], iteration);
+                break;
+            }
+        }
+        store(hash, iteration, null, null);
+        return result;
+    }
+
+    /** Adds the hash of a generation and checks whether the generation
+     * was in the window. A generation with the same hash is only
+     * reported if the changes since then cancel out.
+     * @param hash the hash of the generation.
+     * @param iteration the iteration of the generation.
+     * @param changes the words that changed from the generation added before.
+     * @return the cycle if the generation is in the window, {@code null} otherwise.
+     */
+    public Cycle add(long hash, int iteration, WordChanges changes) {
+        if (changes.getWordsPerRow() != wordsPerRow || changes.getHeight() != height) {
+            // the changes of other dimensions can not be added up
+            dropAll();
+            wordsPerRow = changes.getWordsPerRow();
+            height = changes.getHeight();
+            sum = null;
+        }
+        int[] newIndices = new int[changes.size()];
+        long[] newDiffs = new long[newIndices.length];
+        changes.copyTo(newIndices, newDiffs);
+
+        Cycle result = null;
+        // search from the newest to find the shortest period
+        for (int i = 1; i <= size; i++) {
+            int index = (next - i + hashes.length) % hashes.length;
+            if (hashes[index] == hash && isUnchangedSince(i, newIndices, newDiffs)) {
+                result = new Cycle(iterations[index], iteration);
+                break;
+            }
+        }
+        store(hash, iteration, newIndices, newDiffs);
+        return result;
+    }
+
+    /** Checks whether the changes since a generation in the window
+     * cancel out, including the changes of the new generation.
+     * @param age the number of entries the generation is before the new one.
+     * @return {@code true} if the new generation is equal to the generation,
+     * {@code false} if it differs or a change is unknown.
+     */
+    private boolean isUnchangedSince(int age, int[] newIndices, long[] newDiffs) {
+        for (int i = 1; i < age; i++) {
+            if (indices[(next - i + hashes.length) % hashes.length] == null) {
+                return false;
+            }
+        }
+        if (sum == null) {
+            sum = new long[Math.multiplyExact(wordsPerRow, height)];
+        }
+        addUp(newIndices, newDiffs);
+        for (int i = 1; i < age; i++) {
+            int index = (next - i + hashes.length) % hashes.length;
+            addUp(indices[index], diffs[index]);
+        }
+        // check and clear the touched words
+        boolean result = isZero(newIndices);
+        for (int i = 1; i < age; i++) {
+            result &= isZero(indices[(next - i + hashes.length) % hashes.length]);
+        }
+        return result;
+    }
+
+    /** XORs changes to the {@link #sum}. */
+    private void addUp(int[] wordIndices, long[] wordDiffs) {
+        for (int i = 0; i < wordIndices.length; i++) {
+            sum[wordIndices[i]] ^= wordDiffs[i];
+        }
+    }
+
+    /** Checks whether the words of the {@link #sum} at the indices are zero
+     * and sets them to zero.
+     */
+    private boolean isZero(int[] wordIndices) {
+        boolean result = true;
+        for (int index : wordIndices) {
+            result &= sum[index] == 0;
+            sum[index] = 0;
+        }
+        return result;
+    }
+
+    /** Writes the next entry of the ring and drops the oldest changes
+     * until the budget is met.
+     */
+    private void store(long hash, int iteration, int[] newIndices, long[] newDiffs) {
+        drop(next);
+        hashes[next] = hash;
+        iterations[next] = iteration;
+        indices[next] = newIndices;
+        diffs[next] = newDiffs;
+        memoryUsage += memoryUsage(next);
+        next = (next + 1) % hashes.length;
+        size = Math.min(size + 1, hashes.length);
+
+        for (int i = size; i >= 1 && memoryUsage > memoryBudget; i--) {
+            drop((next - i + hashes.length) % hashes.length);
+        }
+    }
+
+    /** Forgets the changes of an entry. */
+    private void drop(int index) {
+        memoryUsage -= memoryUsage(index);
+        indices[index] = null;
+        diffs[index] = null;
+    }
+
+    /** Get the estimated bytes of the changes of an entry. */
+    private long memoryUsage(int index) {
+        if (indices[index] == null) {
+            return 0;
+        }
+        return CHANGES_OVERHEAD + (long) indices[index].length * Integer.BYTES
+                + (long) diffs[index].length * Long.BYTES;
+    }
+
+    /** The pseudo random value of a cell. */
+    private static long cellHash(int x, int y) {
+        // SplitMix64 finalizer
+        long z = ((long) y << 32 | (x & 0xffffffffL)) + 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /** XORs the values of the cells set in a word of a packed row. */
+    private static long wordHash(long word, int i, int y) {
+        long result = 0;
+        while (word != 0) {
+            int x = (i << 6) + Long.numberOfTrailingZeros(word);
+            result ^= cellHash(x, y);
+            word &= word - 1;
+        }
+        return result;
+    }
+
+    /** XORs the values of the cells set in a packed row. */
+    private static long rowHash(long[] row, int words, int y) {
+        long result = 0;
+        for (int i = 0; i < words; i++) {
+            result ^= wordHash(row[i], i, y);
+        }
+        return result;
+    }
+
+    /** Calculates the hash of a field.
+     * @param field the field to hash.
+     * @return the XOR of the values of all alive cells.
+     */
+    public static long hash(Field field) {
+        int words = field.getWordsPerRow();
+        long[] row = new long[words];
+        long result = 0;
+        for (int y = 0; y < field.getHeight(); y++) {
+            field.getRow(y, row);
+            result ^= rowHash(row, words, y);
+        }
+        return result;
+    }
+
+    /** Updates the hash of a field with the cells that changed.
+     * @param hash the {@link #hash(com.oneandone.gameoflife.Field) hash} of {@code before}.
+     * @param before the field the hash is for.
+     * @param after a field with the same dimensions.
+     * @return the hash of {@code after}.
+     */
+    public static long update(long hash, Field before, Field after) {
+        int words = before.getWordsPerRow();
+        long[] beforeRow = new long[words];
+        long[] afterRow = new long[words];
+        long result = hash;
+        for (int y = 0; y < before.getHeight(); y++) {
+            before.getRow(y, beforeRow);
+            after.getRow(y, afterRow);
+            for (int i = 0; i < words; i++) {
+                // the births and deaths
+                beforeRow[i] ^= afterRow[i];
+            }
+            result ^= rowHash(beforeRow, words, y);
+        }
+        return result;
+    }
+
+    /** Updates the hash of a field with the words an engine recorded.
+     * @param hash the {@link #hash(com.oneandone.gameoflife.Field) hash} of the field before.
+     * @param changes the words that changed from the field before.
+     * @return the hash of the field after.
+     */
+    public static long update(long hash, WordChanges changes) {
+        long[] result = {hash};
+        changes.forEach((y, i, diff) -> result[0] ^= wordHash(diff, i, y));
+        return result[0];
+    }
+}
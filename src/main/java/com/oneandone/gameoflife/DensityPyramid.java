@@ -0,0 +1,238 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * The population of a field in blocks of {@code 2^level} by
+ * {@code 2^level} cells for all levels from {@link #BASE_LEVEL}
+ * up to one block covering the whole field.
+ * Zoomed out views read one block per pixel instead of all
+ * cells, so their cost depends on the size of the view only.
+ * The pyramid is updated incrementally with the
+ * {@link ChangeSet changes} of a generation.
+ * @author Stephan Fuhrmann
+ */
+public class DensityPyramid {
+
+    /** The lowest level, blocks of 8 by 8 cells.
+     * A block is one byte of a packed row word.
+     */
+    public static final int BASE_LEVEL = 3;
+
+    /** The width of the field in cells. */
+    @Getter
+    private final int width;
+
+    /** The height of the field in cells. */
+    @Getter
+    private final int height;
+
+    /** The level with a single block covering the field. */
+    @Getter
+    private final int maxLevel;
+
+    /** The population of the {@link #BASE_LEVEL} blocks, at most 64. */
+    private final byte[] base;
+
+    /** The population of the levels above the base,
+     * indexed by {@code level - BASE_LEVEL - 1}. */
+    private final int[][] levels;
+
+    /** The packed row buffer for counting. */
+    private long[] row;
+
+    /** The left cell and the width of the regions to count,
+     * two entries per region. All regions share one tile row. */
+    private int[] regions = new int[16];
+
+    /** The number of regions in {@link #regions}. */
+    private int regionCount;
+
+    /** The top cell of the regions to count. */
+    private int regionY;
+
+    /** The height of the regions to count. */
+    private int regionHeight;
+
+    /** Creates a pyramid of an empty field.
+     * @param width the width of the field in cells.
+     * @param height the height of the field in cells.
+     */
+    public DensityPyramid(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Illegal size " + width + "x" + height);
+        }
+        this.width = width;
+        this.height = height;
+        int top = BASE_LEVEL;
+        while (levelWidth(top) > 1 || levelHeight(top) > 1) {
+            top++;
+        }
+        this.maxLevel = top;
+        this.base = new byte[levelWidth(BASE_LEVEL) * levelHeight(BASE_LEVEL)];
+        this.levels = new int[maxLevel - BASE_LEVEL][];
+        for (int level = BASE_LEVEL + 1; level <= maxLevel; level++) {
+            levels[level - BASE_LEVEL - 1] = new int[levelWidth(level) * levelHeight(level)];
+        }
+    }
+
+    /** Creates the pyramid of a field.
+     * @param field the field to count.
+     * @return the pyramid with the population of the field.
+     */
+    public static DensityPyramid of(Field field) {
+        DensityPyramid result = new DensityPyramid(field.getWidth(), field.getHeight());
+        result.addRegion(field, 0, 0, field.getWidth(), field.getHeight());
+        result.updateRegions(field);
+        return result;
+    }
+
+    /** The number of blocks in a row of a level.
+     * @param level the level, at least {@link #BASE_LEVEL}.
+     * @return the number of block columns.
+     */
+    public int levelWidth(int level) {
+        return (int) ((width + (1L << level) - 1) >> level);
+    }
+
+    /** The number of block rows of a level.
+     * @param level the level, at least {@link #BASE_LEVEL}.
+     * @return the number of block rows.
+     */
+    public int levelHeight(int level) {
+        return (int) ((height + (1L << level) - 1) >> level);
+    }
+
+    /** Gets the population of a block.
+     * @param level the level of the block, from {@link #BASE_LEVEL}
+     * to the maximum level.
+     * @param blockX the block column.
+     * @param blockY the block row.
+     * @return the number of alive cells in the block.
+     */
+    public int getPopulation(int level, int blockX, int blockY) {
+        if (level < BASE_LEVEL || level > maxLevel) {
+            throw new IllegalArgumentException("Illegal level " + level);
+        }
+        int index = blockY * levelWidth(level) + blockX;
+        return level == BASE_LEVEL ? base[index] : levels[level - BASE_LEVEL - 1][index];
+    }
+
+    /** Counts the blocks of the changed tiles again.
+     * @param field the field with the changes.
+     * @param changes the tiles that changed.
+     * @throws IllegalArgumentException if the field or the changes
+     * have another size.
+     */
+    public void update(Field field, ChangeSet changes) {
+        if (field.getWidth() != width || field.getHeight() != height
+                || changes.getWidth() != width || changes.getHeight() != height) {
+            throw new IllegalArgumentException("Size differs");
+        }
+        changes.forEachRegion((x, y, width, height) -> addRegion(field, x, y, width, height));
+        if (regionCount > 0) {
+            updateRegions(field);
+        }
+    }
+
+    /** Collects a rectangle to count. The rectangles of a tile row
+     * are counted together once the next tile row starts.
+     * @param field the field to count.
+     * @param x the left cell of the rectangle.
+     * @param y the top cell of the rectangle.
+     * @param width the width of the rectangle.
+     * @param height the height of the rectangle.
+     */
+    private void addRegion(Field field, int x, int y, int width, int height) {
+        if (regionCount > 0 && y != regionY) {
+            updateRegions(field);
+        }
+        if (regionCount * 2 == regions.length) {
+            regions = Arrays.copyOf(regions, regions.length * 2);
+        }
+        regions[regionCount * 2] = x;
+        regions[regionCount * 2 + 1] = width;
+        regionCount++;
+        regionY = y;
+        regionHeight = height;
+    }
+
+    /** Counts the blocks of the collected rectangles again.
+     * Each scan line is read once for all rectangles of the tile row.
+     * The rectangles need to be aligned to base blocks.
+     * @param field the field to count.
+     */
+    private void updateRegions(Field field) {
+        if (row == null || row.length != field.getWordsPerRow()) {
+            row = new long[field.getWordsPerRow()];
+        }
+        int baseWidth = levelWidth(BASE_LEVEL);
+        for (int blockY = regionY >> BASE_LEVEL; blockY <= (regionY + regionHeight - 1) >> BASE_LEVEL; blockY++) {
+            int offset = blockY * baseWidth;
+            for (int i = 0; i < regionCount; i++) {
+                int fromBlockX = regions[i * 2] >> BASE_LEVEL;
+                int toBlockX = (regions[i * 2] + regions[i * 2 + 1] - 1) >> BASE_LEVEL;
+                Arrays.fill(base, offset + fromBlockX, offset + toBlockX + 1, (byte) 0);
+            }
+            int toY = Math.min(height, (blockY + 1) << BASE_LEVEL);
+            for (int yi = blockY << BASE_LEVEL; yi < toY; yi++) {
+                field.getRow(yi, row);
+                for (int i = 0; i < regionCount; i++) {
+                    int fromBlockX = regions[i * 2] >> BASE_LEVEL;
+                    int toBlockX = (regions[i * 2] + regions[i * 2 + 1] - 1) >> BASE_LEVEL;
+                    for (int blockX = fromBlockX; blockX <= toBlockX; blockX++) {
+                        // a base block is one byte of a word
+                        long bits = (row[blockX >> 3] >>> ((blockX & 7) << 3)) & 0xff;
+                        base[offset + blockX] += Long.bitCount(bits);
+                    }
+                }
+            }
+        }
+        for (int i = 0; i < regionCount; i++) {
+            updateLevels(regions[i * 2], regionY, regions[i * 2 + 1], regionHeight);
+        }
+        regionCount = 0;
+    }
+
+    /** Sums the blocks above the base level of a rectangle again.
+     * @param x the left cell of the rectangle.
+     * @param y the top cell of the rectangle.
+     * @param regionWidth the width of the rectangle.
+     * @param regionHeight the height of the rectangle.
+     */
+    private void updateLevels(int x, int y, int regionWidth, int regionHeight) {
+        for (int level = BASE_LEVEL + 1; level <= maxLevel; level++) {
+            int levelWidth = levelWidth(level);
+            int childWidth = levelWidth(level - 1);
+            int childHeight = levelHeight(level - 1);
+            int[] blocks = levels[level - BASE_LEVEL - 1];
+            for (int blockY = y >> level; blockY <= (y + regionHeight - 1) >> level; blockY++) {
+                for (int blockX = x >> level; blockX <= (x + regionWidth - 1) >> level; blockX++) {
+                    int sum = 0;
+                    for (int childY = blockY << 1; childY < Math.min(childHeight, (blockY << 1) + 2); childY++) {
+                        for (int childX = blockX << 1; childX < Math.min(childWidth, (blockX << 1) + 2); childX++) {
+                            sum += getPopulation(level - 1, childX, childY);
+                        }
+                    }
+                    blocks[blockY * levelWidth + blockX] = sum;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Frees the memory of direct and mapped buffers without waiting
+ * for the garbage collector.
+ * Uses {@code sun.misc.Unsafe.invokeCleaner} if available.
+ * @author Stephan Fuhrmann
+ */
+@Slf4j
+final class DirectBuffers {
+
+    /** The unsafe instance or {@code null} if not available. */
+    private static final Object UNSAFE;
+
+    /** The invokeCleaner method or {@code null} if not available. */
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe = null;
+        Method invokeCleaner = null;
+        try {
+            Class<?> unsafeClass = Class.forName("sun.misc.Unsafe");
+            java.lang.reflect.Field theUnsafe = unsafeClass.getDeclaredField("theUnsafe");
+            theUnsafe.setAccessible(true);
+            unsafe = theUnsafe.get(null);
+            invokeCleaner = unsafeClass.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Can not free direct buffers explicitly", e);
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    private DirectBuffers() {
+    }
+
+    /** Frees the memory of a direct buffer. The buffer must not be used
+     * afterwards. If freeing is not possible, the memory is freed
+     * by the garbage collector.
+     * @param buffer the direct buffer to free.
+     */
+    static void free(ByteBuffer buffer) {
+        if (INVOKE_CLEANER == null || !buffer.isDirect()) {
+            return;
+        }
+        try {
+            INVOKE_CLEANER.invoke(UNSAFE, buffer);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            log.debug("Can not free direct buffer", e);
+        }
+    }
+}
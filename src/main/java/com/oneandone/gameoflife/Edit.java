@@ -0,0 +1,147 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Objects;
+import java.util.Random;
+
+/**
+ * A change of a game that is applied between two generations.
+ * Edits can be {@link GameOfLife#enqueue(com.oneandone.gameoflife.Edit) enqueued}
+ * from any thread while the game is calculated, the thread
+ * calculating applies them in the order they were enqueued.
+ * Edits changing the active field report the changed cells with
+ * {@link GameOfLife#fieldChanged(int, int, int, int)}.
+ * @author Stephan Fuhrmann
+ */
+@FunctionalInterface
+public interface Edit {
+
+    /** Applies the edit. Called by the thread calculating the game.
+     * @param gameOfLife the game to change.
+     */
+    void apply(GameOfLife gameOfLife);
+
+    /** Inverts a cell.
+     * @param x the x coordinate of the cell.
+     * @param y the y coordinate of the cell.
+     * @return the edit inverting the cell, ignored outside of the field.
+     */
+    static Edit toggle(int x, int y) {
+        return gameOfLife -> {
+            Field field = gameOfLife.getActiveField();
+            if (field.isLegalCoordinates(x, y)) {
+                field.set(x, y, !field.get(x, y));
+                gameOfLife.fieldChanged(x, y, 1, 1);
+            }
+        };
+    }
+
+    /** Sets a rectangle of cells alive or dead.
+     * @param x the left cell of the rectangle.
+     * @param y the top cell of the rectangle.
+     * @param width the width of the rectangle.
+     * @param height the height of the rectangle.
+     * @param alive whether to set the cells alive.
+     * @return the edit filling the rectangle, clipped to the field.
+     */
+    static Edit fill(int x, int y, int width, int height, boolean alive) {
+        return gameOfLife -> {
+            Field field = gameOfLife.getActiveField();
+            int fromX = Math.max(0, x);
+            int fromY = Math.max(0, y);
+            int toX = (int) Math.min(field.getWidth(), (long) x + width);
+            int toY = (int) Math.min(field.getHeight(), (long) y + height);
+            if (fromX < toX && fromY < toY) {
+                field.fill(fromX, fromY, toX - fromX, toY - fromY, alive);
+                gameOfLife.fieldChanged(fromX, fromY, toX - fromX, toY - fromY);
+            }
+        };
+    }
+
+    /** Kills all cells.
+     * @return the edit clearing the field.
+     */
+    static Edit clear() {
+        return gameOfLife -> fill(0, 0, Integer.MAX_VALUE, Integer.MAX_VALUE, false).apply(gameOfLife);
+    }
+
+    /** Sets every cell alive or dead at random.
+     * @param seed the seed of the random numbers.
+     * @param density the probability of a cell to be alive.
+     * @return the edit filling the field randomly.
+     */
+    static Edit random(long seed, double density) {
+        if (density < 0 || density > 1) {
+            throw new IllegalArgumentException("Illegal density " + density);
+        }
+        return gameOfLife -> {
+            Random random = new Random(seed);
+            Field field = gameOfLife.getActiveField();
+            field.set(() -> random.nextDouble() < density);
+            gameOfLife.fieldChanged(0, 0, field.getWidth(), field.getHeight());
+        };
+    }
+
+    /** Copies a pattern into the field, dead cells of the
+     * pattern included.
+     * @param pattern the pattern to copy. Must not be changed until
+     * the edit is applied.
+     * @param x the x coordinate of the top left cell of the pattern.
+     * @param y the y coordinate of the top left cell of the pattern.
+     * @return the edit copying the pattern, clipped to the field.
+     */
+    static Edit stamp(Field pattern, int x, int y) {
+        Objects.requireNonNull(pattern);
+        return gameOfLife -> {
+            Field field = gameOfLife.getActiveField();
+            int fromX = Math.max(0, x);
+            int fromY = Math.max(0, y);
+            int toX = (int) Math.min(field.getWidth(), (long) x + pattern.getWidth());
+            int toY = (int) Math.min(field.getHeight(), (long) y + pattern.getHeight());
+            for (int yi = fromY; yi < toY; yi++) {
+                for (int xi = fromX; xi < toX; xi++) {
+                    field.set(xi, yi, pattern.get(xi - x, yi - y));
+                }
+            }
+            if (fromX < toX && fromY < toY) {
+                gameOfLife.fieldChanged(fromX, fromY, toX - fromX, toY - fromY);
+            }
+        };
+    }
+
+    /** Changes the size of the field.
+     * @param width the new width.
+     * @param height the new height.
+     * @return the edit resizing the field.
+     * @see GameOfLife#setSize(int, int)
+     */
+    static Edit resize(int width, int height) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("Illegal size " + width + "x" + height);
+        }
+        return gameOfLife -> gameOfLife.setSize(width, height);
+    }
+
+    /** Sets the iteration number.
+     * @param iteration the new iteration number.
+     * @return the edit setting the iteration.
+     * @see GameOfLife#setIteration(int)
+     */
+    static Edit iteration(int iteration) {
+        return gameOfLife -> gameOfLife.setIteration(iteration);
+    }
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+/**
+ * Calculates the next generation of a life world.
+ * An engine decides which {@link Field} implementation
+ * it works best with.
+ * @see GameOfLife#GameOfLife(com.oneandone.gameoflife.Engine)
+ * @author Stephan Fuhrmann
+ */
+public interface Engine {
+
+    /** Creates a new empty field suited for this engine.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     * @return a new field with all cells dead.
+     */
+    public Field newField(int width, int height);
+
+    /** Checks whether the engine can calculate fields of a topology.
+     * Engines only support {@link Topology#BOUNDED} unless they
+     * override this method and {@link #newField(int, int, com.oneandone.gameoflife.Topology)}.
+     * @param topology the topology to check.
+     * @return {@code true} if fields of the topology can be created.
+     */
+    public default boolean supports(Topology topology) {
+        return topology == Topology.BOUNDED;
+    }
+
+    /** Creates a new empty field with a topology.
+     * Engines only support {@link Topology#BOUNDED} unless they
+     * override this method.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     * @param topology what the border cells see as neighbors.
+     * @return a new field with all cells dead.
+     * @throws IllegalArgumentException if the engine doesn't
+     * {@link #supports(com.oneandone.gameoflife.Topology) support} the topology.
+     */
+    public default Field newField(int width, int height, Topology topology) {
+        if (topology != Topology.BOUNDED) {
+            throw new IllegalArgumentException("Topology " + topology + " not supported by " + getClass().getSimpleName());
+        }
+        return newField(width, height);
+    }
+
+    /** Calculates the generation following {@code active} and
+     * writes it to {@code passive}. Both fields have the same dimensions
+     * and were created by {@link #newField(int, int)}.
+     * @param active the current generation, will only be read.
+     * @param passive the field to write the next generation to.
+     */
+    public void step(Field active, Field passive);
+
+    /** Calculates the generation following {@code active} like
+     * {@link #step(com.oneandone.gameoflife.Field, com.oneandone.gameoflife.Field)}
+     * and records the words that changed.
+     * The default implementation compares the fields after stepping,
+     * engines calculating whole words record them while stepping.
+     * @param active the current generation, will only be read.
+     * @param passive the field to write the next generation to.
+     * @param changes the changes to record the changed words in,
+     * {@link WordChanges#clear(com.oneandone.gameoflife.Field) cleared}
+     * for the dimensions of the fields.
+     */
+    public default void step(Field active, Field passive, WordChanges changes) {
+        step(active, passive);
+        changes.compare(active, passive);
+    }
+
+    /** Get the rule the generations are calculated with.
+     * @return the rule, initially {@link Rule#CONWAY}.
+     */
+    public Rule getRule();
+
+    /** Set the rule the following generations are calculated with.
+     * @param rule the new rule.
+     * @throws IllegalArgumentException if the engine can not
+     * calculate the rule.
+     */
+    public void setRule(Rule rule);
+}
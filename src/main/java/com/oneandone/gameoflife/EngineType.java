@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+/**
+ * The engines that can be chosen on the command line.
+ * @see Params
+ * @author Stephan Fuhrmann
+ */
+public enum EngineType {
+    /** The {@link CellEngine}. */
+    CELL(true),
+    /** The {@link PackedEngine}. */
+    PACKED(true),
+    /** The {@link ParallelEngine}, using the thread count. */
+    PARALLEL(true),
+    /** The {@link VectorEngine}. */
+    VECTOR(true),
+    /** The {@link LookupTableEngine}. */
+    LOOKUP(true),
+    /** The {@link ActivityEngine}. */
+    ACTIVITY(true),
+    /** The {@link SparseEngine}. */
+    SPARSE(false),
+    /** The {@link HaloEngine}. */
+    HALO(true),
+    /** The {@link HashLifeEngine}. */
+    HASHLIFE(false);
+
+    /** Whether the engines support the {@link Topology#TORUS}. */
+    private final boolean torus;
+
+    EngineType(boolean torus) {
+        this.torus = torus;
+    }
+
+    /** Checks whether the engines of this type support a topology
+     * without creating one.
+     * @param topology the topology to check.
+     * @return {@code true} if the engines can calculate fields of the topology.
+     * @see Engine#supports(com.oneandone.gameoflife.Topology)
+     */
+    public boolean supports(Topology topology) {
+        return topology == Topology.BOUNDED || torus;
+    }
+
+    /** Creates a new engine of this type.
+     * @param threads the number of threads for engines calculating
+     * in parallel, ignored by the others.
+     * @return the new engine. Engines that are {@link AutoCloseable}
+     * need to be closed.
+     */
+    public Engine newEngine(int threads) {
+        switch (this) {
+            case CELL:
+                return new CellEngine();
+            case PACKED:
+                return new PackedEngine();
+            case PARALLEL:
+                return new ParallelEngine(threads);
+            case VECTOR:
+                return new VectorEngine();
+            case LOOKUP:
+                return new LookupTableEngine();
+            case ACTIVITY:
+                return new ActivityEngine();
+            case SPARSE:
+                return new SparseEngine();
+            case HALO:
+                return new HaloEngine();
+            case HASHLIFE:
+                return new HashLifeEngine();
+            default:
+                throw new IllegalStateException("Unknown engine " + this);
+        }
+    }
+}
@@ -16,6 +16,7 @@
 package com.oneandone.gameoflife;
 
 import java.awt.Dimension;
+import java.util.Arrays;
 import java.util.function.BooleanSupplier;
 
 /**
@@ -56,19 +57,126 @@ public interface Field {
      * Iteration order is left to right and row by row.
      */
     public default void set(BooleanSupplier supplier) {
-        Dimension dim = getDimensions();
-        for (int y = 0; y < dim.height; y++) {
-            for (int x = 0; x < dim.width; x++) {
-                set(x, y, supplier.getAsBoolean());
+        int width = getWidth();
+        int height = getHeight();
+        long[] row = new long[getWordsPerRow()];
+        for (int y = 0; y < height; y++) {
+            Arrays.fill(row, 0);
+            for (int x = 0; x < width; x++) {
+                if (supplier.getAsBoolean()) {
+                    row[x >> 6] |= 1L << (x & 0x3f);
+                }
+            }
+            setRow(y, row);
+        }
+    }
+
+    /** Get the number of longs of a packed row as used by
+     * {@link #getRow(int, long[])} and {@link #setRow(int, long[])}.
+     * @return the number of longs needed for the width of the field.
+     */
+    public default int getWordsPerRow() {
+        return (getWidth() + 63) >> 6;
+    }
+
+    /** Get the status of all cells of a row as packed bits.
+     * The cell with the x coordinate {@code x} is bit {@code x & 63}
+     * of word {@code x >> 6}. Bits right of the last column are zero.
+     * @param y the y coordinate of the row.
+     * @param dst the array of at least {@link #getWordsPerRow()} longs
+     * to write the row to.
+     */
+    public default void getRow(int y, long[] dst) {
+        int width = getWidth();
+        Arrays.fill(dst, 0, getWordsPerRow(), 0);
+        for (int x = 0; x < width; x++) {
+            if (get(x, y)) {
+                dst[x >> 6] |= 1L << (x & 0x3f);
+            }
+        }
+    }
+
+    /** Set the status of all cells of a row from packed bits.
+     * The layout is the same as in {@link #getRow(int, long[])}.
+     * Bits right of the last column are ignored.
+     * @param y the y coordinate of the row.
+     * @param src the array of at least {@link #getWordsPerRow()} longs
+     * to read the row from.
+     */
+    public default void setRow(int y, long[] src) {
+        int width = getWidth();
+        for (int x = 0; x < width; x++) {
+            set(x, y, (src[x >> 6] & (1L << (x & 0x3f))) != 0);
+        }
+    }
+
+    /** Set the status of all cells in a rectangle.
+     * The rectangle is clipped to the field.
+     * @param x the x coordinate of the upper left cell.
+     * @param y the y coordinate of the upper left cell.
+     * @param width the width of the rectangle in cells.
+     * @param height the height of the rectangle in cells.
+     * @param set the new status of the cells. {@code true} if the cells are alive,
+     * {@code false} if the cells are dead.
+     */
+    public default void fill(int x, int y, int width, int height, boolean set) {
+        int fromX = Math.max(0, x);
+        int toX = (int) Math.min(getWidth(), (long) x + width);
+        int fromY = Math.max(0, y);
+        int toY = (int) Math.min(getHeight(), (long) y + height);
+        if (fromX >= toX || fromY >= toY) {
+            return;
+        }
+        long[] row = new long[getWordsPerRow()];
+        for (int yi = fromY; yi < toY; yi++) {
+            getRow(yi, row);
+            setBits(row, fromX, toX, set);
+            setRow(yi, row);
+        }
+    }
+
+    /** Set or clear a range of bits in packed words.
+     * @param words the packed words.
+     * @param fromX the first bit to change, inclusive.
+     * @param toX the last bit to change, exclusive.
+     * @param set {@code true} to set the bits, {@code false} to clear them.
+     */
+    private static void setBits(long[] words, int fromX, int toX, boolean set) {
+        for (int i = fromX >> 6; i <= (toX - 1) >> 6; i++) {
+            long mask = -1L;
+            if (i == fromX >> 6) {
+                mask &= -1L << (fromX & 0x3f);
+            }
+            if (i == (toX - 1) >> 6) {
+                mask &= -1L >>> (63 - ((toX - 1) & 0x3f));
+            }
+            if (set) {
+                words[i] |= mask;
+            } else {
+                words[i] &= ~mask;
             }
         }
     }
     
+    /** Get the width of the field.
+     * @return the width in cells.
+     */
+    public int getWidth();
+
+    /** Get the height of the field.
+     * @return the height in cells.
+     */
+    public int getHeight();
+
     /** Get the dimensions of the field.
-     * @return a dimension object with the width and height of the Field
+     * Creating the dimension loads AWT classes, calculations use
+     * {@link #getWidth()} and {@link #getHeight()} instead.
+     * @return a new dimension object with the width and height of the Field
      * in cells.
      */
-    public Dimension getDimensions();
+    public default Dimension getDimensions() {
+        return new Dimension(getWidth(), getHeight());
+    }
 
     /** Checks whether the given coordinates are inside the field.
      * @param dimension the {@link #getDimensions() dimension} of the field.
@@ -88,36 +196,61 @@ public interface Field {
      * {@code false} otherwise.
      */
     default boolean isLegalCoordinates(int x, int y) {
-        Dimension dimension = getDimensions();
-        return x >= 0 && y >= 0 && x < dimension.width && y < dimension.height;
+        return x >= 0 && y >= 0 && x < getWidth() && y < getHeight();
     }
     
     /** Copy content to a field with possibly other dimensions.
      * @param target the field to copy to.
      */
     default void copyTo(Field target) {
-        Dimension dimension = getDimensions();
-        Dimension otherDimension = target.getDimensions();
-        for (int y = 0; y < dimension.height; y++) {
-            for (int x = 0; x < dimension.width; x++) {
-                if (target.isLegalCoordinates(otherDimension, x, y)) {
-                    target.set(x, y, get(x, y));
+        int height = Math.min(getHeight(), target.getHeight());
+        int words = Math.max(getWordsPerRow(), target.getWordsPerRow());
+        long[] row = new long[words];
+        long[] targetRow = target.getWidth() > getWidth() ? new long[words] : null;
+        for (int y = 0; y < height; y++) {
+            getRow(y, row);
+            if (targetRow != null) {
+                Arrays.fill(row, getWordsPerRow(), words, 0);
+                // keep the target cells right of this field
+                target.getRow(y, targetRow);
+                setBits(targetRow, 0, getWidth(), false);
+                for (int i = 0; i < words; i++) {
+                    row[i] |= targetRow[i];
                 }
             }
+            target.setRow(y, row);
         }
     }
     
+    /** Count the alive cells.
+     * @return the number of alive cells in the field.
+     */
+    default long countAlive() {
+        long[] row = new long[getWordsPerRow()];
+        long result = 0;
+        for (int y = 0; y < getHeight(); y++) {
+            getRow(y, row);
+            for (long word : row) {
+                result += Long.bitCount(word);
+            }
+        }
+        return result;
+    }
+
     /** Convert the field to a String. Will put each row in a linefeed terminated
      * row. 
      * @return linefeed terminated rows with alive cells written as a '1' and dead cells with '0'.
      */
     default String toStringDefault() {
-        Dimension dimension = getDimensions();
-        StringBuilder sb = new StringBuilder();
-        for (int y = 0; y < dimension.height; y++) {
-            for (int x = 0; x < dimension.width; x++) {
+        int width = getWidth();
+        int height = getHeight();
+        StringBuilder sb = new StringBuilder((width + 1) * height);
+        long[] row = new long[getWordsPerRow()];
+        for (int y = 0; y < height; y++) {
+            getRow(y, row);
+            for (int x = 0; x < width; x++) {
                 char c = '0';
-                if (get(x, y)) {
+                if ((row[x >> 6] & (1L << (x & 0x3f))) != 0) {
                     c = '1';
                 }
                 sb.append(c);
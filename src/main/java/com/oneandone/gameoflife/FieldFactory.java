@@ -0,0 +1,32 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+/**
+ * Creates empty fields, for example {@code OffHeapFieldImpl::new}.
+ * @see PackedEngine#PackedEngine(com.oneandone.gameoflife.FieldFactory)
+ * @author Stephan Fuhrmann
+ */
+@FunctionalInterface
+public interface FieldFactory {
+
+    /** Creates a new empty field.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     * @return a new field with all cells dead.
+     */
+    public Field newField(int width, int height);
+}
@@ -15,14 +15,17 @@
  */
 package com.oneandone.gameoflife;
 
-import java.awt.Dimension;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import lombok.Getter;
-import lombok.Setter;
+import lombok.extern.slf4j.Slf4j;
 
 /**
  * The game of life logic.
  * @author Stephan Fuhrmann
  */
+@Slf4j
 public class GameOfLife {
     /** The active and inactive field as an array.
      * The array has the size 2.
@@ -35,13 +38,116 @@ public class GameOfLife {
     private int activeFieldIndex;
     
     /** The current iteration number. */
-    @Getter @Setter
+    @Getter
     private int iteration;
 
+    /** The engine calculating the generations and creating the fields. */
+    @Getter
+    private final Engine engine;
+
+    /** What the border cells see as neighbors. */
+    @Getter
+    private final Topology topology;
+
+    /** Detects repeated generations, {@code null} if disabled. */
+    private CycleDetector cycleDetector;
+
+    /** The {@link CycleDetector#hash(com.oneandone.gameoflife.Field) hash}
+     * of the active field if cycles are detected.
+     */
+    private long activeHash;
+
+    /** The cycle the active field is in, or {@code null} if no cycle
+     * was detected.
+     */
+    @Getter
+    private Cycle cycle;
+
+    /** The past generations, {@code null} if they are not stored. */
+    @Getter
+    private History history;
+
+    /** The tiles changed since the changes were last
+     * {@link ChangeSet#clear() cleared}, {@code null} if the
+     * changes are not tracked.
+     */
+    @Getter
+    private ChangeSet changes;
+
+    /** The words changed by the last iterations, reused for each iteration. */
+    private final WordChanges wordChanges = new WordChanges();
+
+    /** The field the history stored last, {@code null} if unknown. */
+    private Field historyField;
+
+    /** The {@link LongFieldImpl#getModifications() modifications} of
+     * {@link #historyField} when it was stored. */
+    private int historyModifications;
+
+    /** The edits waiting to be applied before the next iteration. */
+    private final Queue<Edit> edits = new ConcurrentLinkedQueue<>();
+
+    /** Whether the active field was changed from outside since
+     * the cycle detection was reset. */
+    private boolean edited;
+
+    /** The file the fields are mapped from, or {@code null} if the
+     * fields are created by the {@link #engine}.
+     */
+    @Getter
+    private final MappedFieldFile fieldFile;
+
+    /** Creates a game calculated by a {@link CellEngine}.
+     */
     public GameOfLife() {
+        this(new CellEngine());
+    }
+
+    /** Creates a game calculated by the given engine.
+     * @param engine the engine to calculate the generations with.
+     */
+    public GameOfLife(Engine engine) {
+        this(engine, Topology.BOUNDED);
+    }
+
+    /** Creates a game calculated by the given engine.
+     * @param engine the engine to calculate the generations with.
+     * @param topology what the border cells see as neighbors.
+     * @throws IllegalArgumentException if the engine doesn't support
+     * the topology.
+     */
+    public GameOfLife(Engine engine, Topology topology) {
+        this.engine = Objects.requireNonNull(engine);
+        this.topology = Objects.requireNonNull(topology);
         fields = new Field[2];
-        fields[0] = new IntFieldImpl(Field.FIELD_SIZE_DEFAULT, Field.FIELD_SIZE_DEFAULT);
-        fields[1] = new IntFieldImpl(Field.FIELD_SIZE_DEFAULT, Field.FIELD_SIZE_DEFAULT);
+        fields[0] = engine.newField(Field.FIELD_SIZE_DEFAULT, Field.FIELD_SIZE_DEFAULT, topology);
+        fields[1] = engine.newField(Field.FIELD_SIZE_DEFAULT, Field.FIELD_SIZE_DEFAULT, topology);
+        fieldFile = null;
+    }
+
+    /** Creates a game continuing the generation stored in a file.
+     * The active index and the iteration are written to the file
+     * header after each iteration.
+     * The size of the field can not be changed.
+     * @param engine the engine to calculate the generations with.
+     * @param fieldFile the file holding both fields, opened for writing.
+     * @throws IllegalArgumentException if the file is read only or
+     * its generation is too large for an iteration number.
+     */
+    public GameOfLife(Engine engine, MappedFieldFile fieldFile) {
+        this.engine = Objects.requireNonNull(engine, "engine");
+        this.fieldFile = Objects.requireNonNull(fieldFile, "fieldFile");
+        if (fieldFile.isReadOnly()) {
+            throw new IllegalArgumentException("File is read only: " + fieldFile.getPath());
+        }
+        long generation = fieldFile.getGeneration();
+        if (generation > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Generation " + generation + " too large: " + fieldFile.getPath());
+        }
+        this.topology = Topology.BOUNDED;
+        fields = new Field[] {fieldFile.getField(0), fieldFile.getField(1)};
+        activeFieldIndex = fieldFile.getActiveIndex();
+        iteration = (int) generation;
     }
     
     /** Sets the size of the field. 
@@ -54,18 +160,290 @@ public class GameOfLife {
      */
     public void setSize(int width, int height) {
         boolean needChange = 
-                getActiveField().getDimensions().width != width ||
-                getActiveField().getDimensions().height != height;
+                getActiveField().getWidth() != width ||
+                getActiveField().getHeight() != height;
         
         if (needChange) {
+            if (fieldFile != null) {
+                throw new IllegalStateException("Size of mapped file can not be changed");
+            }
             for (int i = 0; i < fields.length; i++) {
-                Field newField = new IntFieldImpl(width, height);
+                Field newField = engine.newField(width, height, topology);
                 fields[i].copyTo(newField);
+                close(fields[i]);
                 fields[i] = newField;
             }
+            if (changes != null) {
+                changes = new ChangeSet(width, height);
+                changes.addAll();
+            }
+            resetCycleDetection();
         }
     }
     
+    /** Releases the resources of a field that is no longer used,
+     * for example the memory of an {@link OffHeapFieldImpl}.
+     * @param field the field to close if it is {@link AutoCloseable}.
+     */
+    private static void close(Field field) {
+        if (field instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) field).close();
+            } catch (Exception e) {
+                log.warn("Can not close field", e);
+            }
+        }
+    }
+
+    /** Sets the current iteration number.
+     * @param iteration the iteration number.
+     */
+    public void setIteration(int iteration) {
+        this.iteration = iteration;
+        storeState();
+        resetCycleDetection();
+    }
+
+    /** Enables the detection of repeated generations.
+     * The hash of each generation is compared with the hashes
+     * of the generations in the window, a matching hash is confirmed
+     * with the changed words since the matching generation.
+     * @param window the number of generations to compare with, which
+     * is the longest detectable period, or 0 to disable the detection.
+     * @see #fastForward(int)
+     */
+    public void setCycleWindow(int window) {
+        if (window < 0) {
+            throw new IllegalArgumentException("window < 0");
+        }
+        cycleDetector = window > 0 ? new CycleDetector(window) : null;
+        resetCycleDetection();
+    }
+
+    /** Get the number of generations each generation is compared with.
+     * @return the window or 0 if cycles are not detected.
+     */
+    public int getCycleWindow() {
+        return cycleDetector != null ? cycleDetector.getWindow() : 0;
+    }
+
+    /** Forgets the detected cycle and the generations seen before.
+     * Needs to be called after changing the active field from outside,
+     * changes are otherwise only noticed when a cycle is detected.
+     */
+    public void resetCycleDetection() {
+        cycle = null;
+        if (cycleDetector != null) {
+            cycleDetector.clear();
+            activeHash = CycleDetector.hash(getActiveField());
+            cycleDetector.add(activeHash, iteration);
+        }
+    }
+
+    /** Updates the hash with the births and deaths of the last
+     * iterations and checks for a repetition.
+     * @param after the field after the iterations.
+     * @param generations the number of generations the iterations calculated.
+     */
+    private void detectCycle(Field after, int generations) {
+        if (!isDetectingCycles()) {
+            return;
+        }
+        activeHash = CycleDetector.update(activeHash, wordChanges);
+        Cycle found = cycleDetector.add(activeHash, iteration, wordChanges);
+        if (found != null) {
+            // the changes cancel out, but the fields may have been changed from outside
+            long hash = CycleDetector.hash(after);
+            if (hash == activeHash) {
+                cycle = generations > 1 ? shortestPeriod(found, after) : found;
+            } else {
+                resetCycleDetection();
+            }
+        }
+    }
+
+    /** Finds the shortest period of a cycle detected after jumping
+     * over generations. The generations were only compared at the
+     * jumped iterations, so the detected period is a multiple of the
+     * shortest one. A copy of the field is stepped one generation
+     * after the other to find the shortest period dividing it.
+     * @param found the cycle detected at the jumped iterations.
+     * @param after the active field.
+     * @return the cycle with the shortest period.
+     */
+    private Cycle shortestPeriod(Cycle found, Field after) {
+        int period = found.getPeriod();
+        Field current = engine.newField(after.getWidth(), after.getHeight(), topology);
+        Field next = engine.newField(after.getWidth(), after.getHeight(), topology);
+        after.copyTo(current);
+        WordChanges diff = new WordChanges();
+        for (int generations = 1; generations < period; generations++) {
+            engine.step(current, next);
+            Field swap = current;
+            current = next;
+            next = swap;
+            if (period % generations == 0) {
+                diff.compare(after, current);
+                if (diff.isEmpty()) {
+                    return new Cycle(found.getFirstIteration(), found.getIteration(), generations);
+                }
+            }
+        }
+        return found;
+    }
+
+    /** Checks whether the next generations are compared for cycles.
+     * @return {@code true} if cycles are detected and none was found yet.
+     */
+    private boolean isDetectingCycles() {
+        return cycleDetector != null && cycle == null;
+    }
+
+    /** Skips the iterations of a detected cycle up to a target iteration.
+     * The active field is not changed, the iteration is advanced by a
+     * multiple of the period so that the active field still belongs to it.
+     * Less than one period of iterations needs to be calculated to reach
+     * the target.
+     * @param targetIteration the iteration to skip to.
+     * @throws IllegalStateException if there is no detected cycle.
+     */
+    public void fastForward(int targetIteration) {
+        if (cycle == null) {
+            throw new IllegalStateException("No cycle detected");
+        }
+        if (targetIteration > iteration) {
+            int period = cycle.getPeriod();
+            iteration += (targetIteration - iteration) / period * period;
+            storeState();
+        }
+    }
+
+    /** Tracks the tiles changed by the following iterations.
+     * The changes are accumulated until they are cleared by the
+     * consumer, for example after repainting the changed tiles.
+     * When tracking starts, all tiles are marked as changed.
+     * @param track whether to track the changes.
+     */
+    public void setTrackChanges(boolean track) {
+        if (!track) {
+            changes = null;
+        } else if (changes == null) {
+            changes = new ChangeSet(getActiveField().getWidth(), getActiveField().getHeight());
+            changes.addAll();
+        }
+    }
+
+    /** Stores the past generations in a history from now on.
+     * The active field is the first generation stored.
+     * @param history the history to store the generations in,
+     * or {@code null} to stop storing generations.
+     * @see #seek(int)
+     */
+    public void setHistory(History history) {
+        this.history = history;
+        if (history != null) {
+            history.add(getActiveField(), iteration);
+            historyStored(getActiveField());
+        }
+    }
+
+    /** Remembers the field the history stored last.
+     * @param field the stored field.
+     */
+    private void historyStored(Field field) {
+        historyField = field;
+        historyModifications = field instanceof LongFieldImpl ? ((LongFieldImpl) field).getModifications() : 0;
+    }
+
+    /** Checks whether the history stored a field last and the field was
+     * not modified since, so the history can store the changed words only.
+     * Only the modifications of a {@link LongFieldImpl} are counted,
+     * other fields are always stored completely.
+     * @param field the field before the iterations.
+     * @return {@code true} if the field is the unmodified field the
+     * history stored last.
+     */
+    private boolean isHistoryBase(Field field) {
+        return field == historyField
+                && field instanceof LongFieldImpl
+                && ((LongFieldImpl) field).getModifications() == historyModifications;
+    }
+
+    /** Makes a generation of the {@link #setHistory(com.oneandone.gameoflife.History) history} the active
+     * field. Iterating continues from there, the later generations are
+     * replaced in the history.
+     * @param targetIteration the iteration to go to.
+     * @throws IllegalStateException if there is no history.
+     * @throws IllegalArgumentException if the history doesn't contain
+     * the iteration.
+     */
+    public void seek(int targetIteration) {
+        if (history == null) {
+            throw new IllegalStateException("No history");
+        }
+        history.seek(targetIteration, getActiveField());
+        iteration = targetIteration;
+        if (changes != null) {
+            changes.addAll();
+        }
+        storeState();
+        resetCycleDetection();
+    }
+
+    /** Enqueues an edit to be applied before the next iteration.
+     * Can be called from any thread, also while another thread
+     * is calculating.
+     * @param edit the edit to apply.
+     * @see #applyEdits()
+     */
+    public void enqueue(Edit edit) {
+        edits.add(Objects.requireNonNull(edit));
+    }
+
+    /** Applies the enqueued edits in the order they were enqueued.
+     * Called by the iterations, so it only needs to be called by the
+     * thread owning the game to see edits before the next iteration,
+     * for example while the game is not running.
+     * @return the number of applied edits.
+     */
+    public int applyEdits() {
+        int count = 0;
+        Edit edit;
+        while ((edit = edits.poll()) != null) {
+            edit.apply(this);
+            count++;
+        }
+        if (edited) {
+            edited = false;
+            resetCycleDetection();
+        }
+        return count;
+    }
+
+    /** Reports cells of the active field changed from outside.
+     * The cells are added to the {@link #changes} and the cycle
+     * detection is reset when the edits are applied.
+     * @param x the left cell of the changed rectangle.
+     * @param y the top cell of the changed rectangle.
+     * @param width the width of the changed rectangle.
+     * @param height the height of the changed rectangle.
+     */
+    public void fieldChanged(int x, int y, int width, int height) {
+        edited = true;
+        if (changes != null) {
+            changes.add(x, y, width, height);
+        }
+    }
+
+    /** Stores the active field index and the iteration in the
+     * header of the {@link #fieldFile}, if there is one.
+     */
+    private void storeState() {
+        if (fieldFile != null) {
+            fieldFile.setState(activeFieldIndex, iteration);
+        }
+    }
+
     /** Gets the active field.
      * @return the active field containing the alive cell generation.
      */
@@ -73,39 +451,120 @@ public class GameOfLife {
         return fields[activeFieldIndex];
     }
     
-    /** Calculates the alive status for the next iteration.
+    /** Calculates the alive status for the next iteration
+     * with the {@link Rule#CONWAY} rule.
      * @param currentAlive whether the reference cell is at the moment alive.
      * @param currentNeighborsAlive the number of neighours currently alive.
      * @return the new status of the cell. {@code true} if the cell is alive, 
      * {@code false} if the cell is dead.
+     * @see Rule#next(boolean, int)
      */
-    private static boolean calculateAliveStatusFor(boolean currentAlive, int currentNeighborsAlive) {
-        boolean result;
-        if (currentAlive) {
-            result = currentNeighborsAlive >= 2 && currentNeighborsAlive <= 3;
-        } else {
-            result = currentNeighborsAlive == 3;
-        }
-        return result;
+    static boolean calculateAliveStatusFor(boolean currentAlive, int currentNeighborsAlive) {
+        return Rule.CONWAY.next(currentAlive, currentNeighborsAlive);
+    }
+
+    /** Get the rule the engine calculates the generations with.
+     * @return the rule of the {@link #engine}.
+     */
+    public Rule getRule() {
+        return engine.getRule();
+    }
+
+    /** Set the rule the engine calculates the following generations with.
+     * @param rule the new rule.
+     * @throws IllegalArgumentException if the engine can not
+     * calculate the rule.
+     */
+    public void setRule(Rule rule) {
+        engine.setRule(rule);
     }
     
-    /** Calculates one iteration. After the call the active field
+    /** Calculates one iteration. The enqueued edits are applied before.
+     * After the call the active field
      * can be received using {@link #getActiveField()}.
      */
     public void doIteration() {
+        applyEdits();
         Field active  = fields[activeFieldIndex];
         Field passive = fields[1 - activeFieldIndex];
         
-        Dimension dimension = active.getDimensions();
-        for (int y = 0; y < dimension.height; y++) {
-            for (int x = 0; x < dimension.width; x++) {
-                boolean current = active.get(x, y);
-                boolean next = calculateAliveStatusFor(current, active.getNeighborCount(x, y));
-                passive.set(x, y, next);
-            }
+        boolean recording = isRecordingChanges();
+        if (recording) {
+            wordChanges.clear(active);
+            engine.step(active, passive, wordChanges);
+        } else {
+            engine.step(active, passive);
         }
         
         activeFieldIndex = 1 - activeFieldIndex;
         iteration++;
+        afterIterations(active, passive, recording, 1);
+    }
+
+    /** Checks whether the words changed by the next iterations are needed.
+     * @return {@code true} if cycles are detected, changes are tracked
+     * or the history stores the generations.
+     */
+    private boolean isRecordingChanges() {
+        return isDetectingCycles() || changes != null || history != null;
+    }
+
+    /** Stores the state, the hash, the changes and the history of a new generation.
+     * @param before the field before the iterations.
+     * @param after the new active field.
+     * @param recorded whether the {@link #wordChanges} hold the words changed
+     * by the iterations.
+     * @param generations the number of generations the iterations calculated.
+     */
+    private void afterIterations(Field before, Field after, boolean recorded, int generations) {
+        storeState();
+        if (!recorded) {
+            return;
+        }
+        detectCycle(after, generations);
+        if (changes != null) {
+            changes.add(wordChanges);
+        }
+        if (history != null) {
+            history.add(after, isHistoryBase(before) ? wordChanges : null, iteration);
+            historyStored(after);
+        }
+    }
+
+    /** Calculates {@code 2^log2Generations} iterations.
+     * A {@link JumpEngine} calculates them in one step, other engines
+     * one iteration after the other.
+     * A jump is compared with the generations of earlier jumps only,
+     * so the cycle is detected on the jumped
+     * iterations. Its period is reduced to the shortest one, its first
+     * iteration is the first jumped iteration in the cycle.
+     * After the call the active field
+     * can be received using {@link #getActiveField()}.
+     * @param log2Generations the binary logarithm of the number of
+     * iterations, ranging from 0 to 30.
+     */
+    public void doIterations(int log2Generations) {
+        if (log2Generations < 0 || log2Generations > 30) {
+            throw new IllegalArgumentException("Illegal log2Generations " + log2Generations);
+        }
+        if (engine instanceof JumpEngine) {
+            applyEdits();
+            Field active  = fields[activeFieldIndex];
+            Field passive = fields[1 - activeFieldIndex];
+
+            ((JumpEngine) engine).jump(active, passive, log2Generations);
+
+            boolean recording = isRecordingChanges();
+            if (recording) {
+                wordChanges.compare(active, passive);
+            }
+            activeFieldIndex = 1 - activeFieldIndex;
+            iteration += 1 << log2Generations;
+            afterIterations(active, passive, recording, 1 << log2Generations);
+        } else {
+            for (int i = 0; i < 1 << log2Generations; i++) {
+                doIteration();
+            }
+        }
     }
 }
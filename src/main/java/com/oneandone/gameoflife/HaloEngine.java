@@ -0,0 +1,103 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+/**
+ * Engine for {@link HaloFieldImpl} fields. The halo is refreshed once
+ * per generation, after that every cell is calculated by adding its
+ * eight neighbors and looking up the result without any checks for
+ * the border.
+ * Fields of other types are calculated cell by cell like
+ * in {@link CellEngine}.
+ * @author Stephan Fuhrmann
+ */
+public class HaloEngine implements Engine {
+
+    /** Fallback for fields that are not halo fields. */
+    private final CellEngine cellEngine = new CellEngine();
+
+    /** The rule to calculate the generations with. */
+    private Rule rule = Rule.CONWAY;
+
+    /** The next status of a cell, indexed by {@code 9 * alive + neighbors}. */
+    private byte[] table = buildTable(Rule.CONWAY);
+
+    /** Builds the table of the next cell status of a rule. */
+    private static byte[] buildTable(Rule rule) {
+        byte[] result = new byte[18];
+        for (int neighbors = 0; neighbors <= 8; neighbors++) {
+            result[neighbors] = (byte) (rule.next(false, neighbors) ? 1 : 0);
+            result[9 + neighbors] = (byte) (rule.next(true, neighbors) ? 1 : 0);
+        }
+        return result;
+    }
+
+    @Override
+    public Field newField(int width, int height) {
+        return new HaloFieldImpl(width, height, Topology.BOUNDED);
+    }
+
+    @Override
+    public boolean supports(Topology topology) {
+        return true;
+    }
+
+    @Override
+    public Field newField(int width, int height, Topology topology) {
+        return new HaloFieldImpl(width, height, topology);
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public void setRule(Rule rule) {
+        cellEngine.setRule(rule);
+        this.table = buildTable(rule);
+        this.rule = rule;
+    }
+
+    @Override
+    public void step(Field active, Field passive) {
+        if (!(active instanceof HaloFieldImpl && passive instanceof HaloFieldImpl)) {
+            cellEngine.step(active, passive);
+            return;
+        }
+        HaloFieldImpl from = (HaloFieldImpl) active;
+        HaloFieldImpl to = (HaloFieldImpl) passive;
+        from.refreshHalo();
+        byte[] src = from.getCells();
+        byte[] dst = to.getCells();
+        byte[] next = table;
+        int stride = from.getStride();
+        int width = from.getWidth();
+        int height = from.getHeight();
+
+        for (int y = 1; y <= height; y++) {
+            int start = y * stride + 1;
+            int end = start + width;
+            for (int i = start; i < end; i++) {
+                int neighbors = src[i - stride - 1] + src[i - stride] + src[i - stride + 1]
+                        + src[i - 1] + src[i + 1]
+                        + src[i + stride - 1] + src[i + stride] + src[i + stride + 1];
+                dst[i] = next[9 * src[i] + neighbors];
+            }
+        }
+        to.invalidateHalo();
+    }
+}
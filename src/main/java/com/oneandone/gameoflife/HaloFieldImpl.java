@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Arrays;
+import java.util.Objects;
+import lombok.Getter;
+
+/**
+ * Implementation of a field using one byte per cell surrounded by a
+ * halo of one cell. The halo contains the cells the border cells see
+ * as neighbors: dead cells for {@link Topology#BOUNDED} or a copy of the
+ * opposite border for {@link Topology#TORUS}.
+ * Counting neighbors then needs no checks for the border.
+ * The halo is refreshed when the neighbors are counted after
+ * cells changed.
+ * @see HaloEngine
+ * @author Stephan Fuhrmann
+ */
+public class HaloFieldImpl implements Field {
+
+    /** The cells including the halo, 0 for dead and 1 for alive.
+     * Rows of {@link #stride} cells are stored one after another,
+     * the cell {@code (x, y)} is at {@code (y + 1) * stride + x + 1}.
+     */
+    private final byte[] cells;
+
+    /** The number of cells in a row including the halo. */
+    private final int stride;
+
+    /** The width in cells. */
+    private final int width;
+
+    /** The height in cells. */
+    private final int height;
+
+    /** What the halo contains. */
+    @Getter
+    private final Topology topology;
+
+    /** Whether the halo matches the cells. */
+    private boolean haloValid;
+
+    /**
+     * Creates a new instance.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     * @param topology what the border cells see as neighbors.
+     */
+    public HaloFieldImpl(int width, int height, Topology topology) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("width <= 0");
+        }
+        if (height <= 0) {
+            throw new IllegalArgumentException("height <= 0");
+        }
+        this.stride = width + 2;
+        this.cells = new byte[Math.multiplyExact(stride, height + 2)];
+        this.width = width;
+        this.height = height;
+        this.topology = Objects.requireNonNull(topology);
+        this.haloValid = true;
+    }
+
+    /** Get the cells including the halo.
+     * @return the backing array, not a copy.
+     */
+    byte[] getCells() {
+        return cells;
+    }
+
+    /** Get the number of cells in a row including the halo.
+     * @return the width plus two.
+     */
+    int getStride() {
+        return stride;
+    }
+
+    /** Marks the halo as outdated after the cells were written
+     * through {@link #getCells()}.
+     */
+    void invalidateHalo() {
+        haloValid = false;
+    }
+
+    /** Copies the opposite borders into the halo if it is outdated.
+     * The halo of a {@link Topology#BOUNDED} field always stays dead.
+     */
+    void refreshHalo() {
+        if (haloValid) {
+            return;
+        }
+        if (topology == Topology.TORUS) {
+            // the rows first, so the columns copy the corners
+            System.arraycopy(cells, height * stride, cells, 0, stride);
+            System.arraycopy(cells, stride, cells, (height + 1) * stride, stride);
+            for (int offset = 0; offset < cells.length; offset += stride) {
+                cells[offset] = cells[offset + width];
+                cells[offset + width + 1] = cells[offset + 1];
+            }
+        }
+        haloValid = true;
+    }
+
+    @Override
+    public boolean get(int x, int y) {
+        return cells[(y + 1) * stride + x + 1] != 0;
+    }
+
+    @Override
+    public void set(int x, int y, boolean set) {
+        cells[(y + 1) * stride + x + 1] = (byte) (set ? 1 : 0);
+        haloValid = false;
+    }
+
+    @Override
+    public void getRow(int y, long[] dst) {
+        Arrays.fill(dst, 0, (width + 63) >> 6, 0);
+        int offset = (y + 1) * stride + 1;
+        for (int x = 0; x < width; x++) {
+            dst[x >> 6] |= (long) cells[offset + x] << (x & 0x3f);
+        }
+    }
+
+    @Override
+    public void setRow(int y, long[] src) {
+        int offset = (y + 1) * stride + 1;
+        for (int x = 0; x < width; x++) {
+            cells[offset + x] = (byte) ((src[x >> 6] >>> (x & 0x3f)) & 1);
+        }
+        haloValid = false;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /** Get the number of alive neighbors. Neighbors outside of the
+     * field are dead or wrap around depending on the topology.
+     * @param x the x coordinate of the reference cell.
+     * @param y the y coordinate of the reference cell.
+     * @return the number of alive neighbors ranging from 0 to 8.
+     */
+    @Override
+    public int getNeighborCount(int x, int y) {
+        refreshHalo();
+        int i = (y + 1) * stride + x + 1;
+        return cells[i - stride - 1] + cells[i - stride] + cells[i - stride + 1]
+                + cells[i - 1] + cells[i + 1]
+                + cells[i + stride - 1] + cells[i + stride] + cells[i + stride + 1];
+    }
+
+    @Override
+    public String toString() {
+        return toStringDefault();
+    }
+}
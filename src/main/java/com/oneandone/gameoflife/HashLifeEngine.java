@@ -0,0 +1,576 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Set;
+import java.util.WeakHashMap;
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * HashLife engine working on a hash-consed quadtree.
+ * Equal sub-trees are shared, and the future of every
+ * tree node is memoized in the node, so regular patterns
+ * can be advanced by huge numbers of generations at once.
+ * The world is an infinite plane, cells outside of the
+ * {@link Field#getDimensions() dimensions} of a {@link HashLifeField}
+ * are kept.
+ * If the node table grows beyond the memory limit, it is collected,
+ * also in the middle of a jump or while cells are set.
+ * The collection keeps the trees of all fields of the engine and
+ * of the calculation in progress, and the memoized results within them.
+ * If these still fill most of the limit, the limit is raised to avoid
+ * collecting over and over again.
+ * @see GameOfLife#doIterations(int)
+ * @author Stephan Fuhrmann
+ */
+@Slf4j
+public class HashLifeEngine implements JumpEngine {
+
+    /** The default memory limit in bytes. */
+    public static final long MEMORY_LIMIT_DEFAULT = 256L << 20;
+
+    /** The estimated heap usage of one node in bytes, including its table slot. */
+    static final int BYTES_PER_NODE = 72;
+
+    /** The highest level a tree may have. */
+    static final int MAX_LEVEL = 62;
+
+    /** The initial size of the node table. */
+    private static final int TABLE_SIZE_INITIAL = 1 << 16;
+
+    /** A node of the quadtree. A node of level {@code n} contains
+     * {@code 2^n * 2^n} cells, level 0 nodes are single cells.
+     * Nodes are immutable except for the table chaining and the memoized
+     * result.
+     */
+    static final class Node {
+        /** The level of the node. */
+        final int level;
+        /** The upper left quadrant. */
+        final Node nw;
+        /** The upper right quadrant. */
+        final Node ne;
+        /** The lower left quadrant. */
+        final Node sw;
+        /** The lower right quadrant. */
+        final Node se;
+        /** The number of alive cells. */
+        final long population;
+        /** The structural hash code. */
+        final int hash;
+        /** The next node in the same table bucket. */
+        Node next;
+        /** The memoized center of this node in the future. */
+        Node result;
+        /** The number of the collection that found the node alive. */
+        long mark;
+
+        Node(int level, Node nw, Node ne, Node sw, Node se, long population, int hash) {
+            this.level = level;
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+            this.population = population;
+            this.hash = hash;
+        }
+    }
+
+    /** The dead cell. */
+    static final Node DEAD = new Node(0, null, null, null, null, 0, 0);
+
+    /** The alive cell. */
+    static final Node ALIVE = new Node(0, null, null, null, null, 1, 1);
+
+    /** The number of nodes the memory limit allows. */
+    private final long maxNodes;
+
+    /** The number of nodes above which the table gets collected. */
+    private long collectThreshold;
+
+    /** The fields of this engine, whose trees survive a collection. */
+    private final Set<HashLifeField> fields = Collections.newSetFromMap(new WeakHashMap<>());
+
+    /** The nodes the calculation in progress still needs,
+     * they survive a collection. */
+    private Node[] stack = new Node[16 * MAX_LEVEL];
+
+    /** The number of nodes in {@link #stack}. */
+    private int stackSize;
+
+    /** The hash table of all canonical nodes. */
+    private Node[] table;
+
+    /** The number of nodes in {@link #table}. */
+    private int size;
+
+    /** The canonical empty nodes indexed by level. */
+    private Node[] emptyNodes;
+
+    /** The binary logarithm of the generations the memoized results are for. */
+    private int memoLog2 = -1;
+
+    /** The rule to calculate the generations with. */
+    private Rule rule = Rule.CONWAY;
+
+    /** The number of times the node table was collected. */
+    @Getter
+    private long collections;
+
+    /** Creates an engine with the {@link #MEMORY_LIMIT_DEFAULT default memory limit}.
+     */
+    public HashLifeEngine() {
+        this(MEMORY_LIMIT_DEFAULT);
+    }
+
+    /** Creates an engine.
+     * @param memoryLimit the approximate heap in bytes the node table
+     * may use before memoized results are dropped.
+     */
+    public HashLifeEngine(long memoryLimit) {
+        if (memoryLimit <= 0) {
+            throw new IllegalArgumentException("memoryLimit <= 0");
+        }
+        this.maxNodes = Math.max(TABLE_SIZE_INITIAL, memoryLimit / BYTES_PER_NODE);
+        this.collectThreshold = maxNodes;
+        this.table = new Node[TABLE_SIZE_INITIAL];
+        this.emptyNodes = new Node[MAX_LEVEL + 1];
+    }
+
+    /** Get the number of nodes in the node table.
+     * @return the number of canonical nodes.
+     */
+    public int getNodeCount() {
+        return size;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    /** {@inheritDoc}
+     * Rules giving birth to cells without neighbors are not supported,
+     * they would fill the infinite plane.
+     * Changing the rule drops all memoized results.
+     */
+    @Override
+    public void setRule(Rule rule) {
+        if (rule.isBirthWithoutNeighbors()) {
+            throw new IllegalArgumentException("Rule " + rule + " not supported on the infinite plane");
+        }
+        if (!rule.equals(this.rule)) {
+            clearResults();
+            this.rule = rule;
+        }
+    }
+
+    @Override
+    public Field newField(int width, int height) {
+        HashLifeField field = new HashLifeField(this, width, height);
+        fields.add(field);
+        return field;
+    }
+
+    @Override
+    public void jump(Field active, Field passive, int log2Generations) {
+        if (log2Generations < 0 || log2Generations > MAX_LEVEL - 3) {
+            throw new IllegalArgumentException("Illegal log2Generations " + log2Generations);
+        }
+        HashLifeField from = checkField(active);
+        HashLifeField to = checkField(passive);
+
+        collectIfFull();
+        if (memoLog2 != log2Generations) {
+            clearResults();
+            memoLog2 = log2Generations;
+        }
+
+        Node root = from.getRoot();
+        while (root.level < log2Generations + 3 || centerPopulation(root) != root.population) {
+            root = expand(root);
+        }
+        Node result = successor(root, log2Generations);
+        to.setRoot(shrink(result, levelFor(to)));
+    }
+
+    /** Checks that the field belongs to this engine. */
+    private HashLifeField checkField(Field field) {
+        if (!(field instanceof HashLifeField) || ((HashLifeField) field).getEngine() != this) {
+            throw new IllegalArgumentException("Field was not created by this engine");
+        }
+        return (HashLifeField) field;
+    }
+
+    /** The smallest level whose root contains the field dimensions. */
+    static int levelFor(Field field) {
+        int max = Math.max(field.getWidth(), field.getHeight());
+        int level = 3;
+        while ((1L << (level - 1)) < max) {
+            level++;
+        }
+        return level;
+    }
+
+    /** Get the canonical node for the given quadrants.
+     * @return the existing node or a new node that is added to the table.
+     */
+    Node join(Node nw, Node ne, Node sw, Node se) {
+        int hash = hash(nw.level + 1, nw, ne, sw, se);
+        int index = hash & (table.length - 1);
+        for (Node n = table[index]; n != null; n = n.next) {
+            if (n.nw == nw && n.ne == ne && n.sw == sw && n.se == se) {
+                return n;
+            }
+        }
+        Node n = new Node(nw.level + 1, nw, ne, sw, se,
+                nw.population + ne.population + sw.population + se.population,
+                hash);
+        n.next = table[index];
+        table[index] = n;
+        size++;
+        if (size > (table.length >> 1) + (table.length >> 2) && table.length < (1 << 30)) {
+            resize(table.length << 1);
+        }
+        return n;
+    }
+
+    /** Calculates the structural hash of a node. */
+    private static int hash(int level, Node nw, Node ne, Node sw, Node se) {
+        int h = level;
+        h = h * 31 + nw.hash;
+        h = h * 31 + ne.hash;
+        h = h * 31 + sw.hash;
+        h = h * 31 + se.hash;
+        h ^= h >>> 16;
+        h *= 0x85ebca6b;
+        h ^= h >>> 13;
+        return h;
+    }
+
+    /** Rehashes the node table to a new size. */
+    private void resize(int newSize) {
+        Node[] newTable = new Node[newSize];
+        for (Node head : table) {
+            Node n = head;
+            while (n != null) {
+                Node next = n.next;
+                int index = n.hash & (newSize - 1);
+                n.next = newTable[index];
+                newTable[index] = n;
+                n = next;
+            }
+        }
+        table = newTable;
+    }
+
+    /** Get the canonical empty node of a level. */
+    Node empty(int level) {
+        Node result = emptyNodes[level];
+        if (result == null) {
+            if (level == 0) {
+                result = DEAD;
+            } else {
+                Node e = empty(level - 1);
+                result = join(e, e, e, e);
+            }
+            emptyNodes[level] = result;
+        }
+        return result;
+    }
+
+    /** Wraps the node in a node of the next level, keeping it centered. */
+    Node expand(Node node) {
+        if (node.level >= MAX_LEVEL) {
+            throw new IllegalStateException("World exceeds level " + MAX_LEVEL);
+        }
+        Node e = empty(node.level - 1);
+        return join(
+                join(e, e, e, node.nw),
+                join(e, e, node.ne, e),
+                join(e, node.sw, e, e),
+                join(node.se, e, e, e));
+    }
+
+    /** Get the centered node of the next lower level. */
+    private Node center(Node node) {
+        return join(node.nw.se, node.ne.sw, node.sw.ne, node.se.nw);
+    }
+
+    /** Get the population of the centered quarter sized square of a node
+     * with at least level 3. */
+    private static long centerPopulation(Node node) {
+        return node.nw.se.se.population
+                + node.ne.sw.sw.population
+                + node.sw.ne.ne.population
+                + node.se.nw.nw.population;
+    }
+
+    /** Removes empty borders of a root as long as it stays above a level. */
+    private Node shrink(Node root, int minLevel) {
+        while (root.level > minLevel && centerPopulation(root) == root.population) {
+            root = center(root);
+        }
+        return root;
+    }
+
+    /** Get a cell of a root node centered at the origin. */
+    boolean getCell(Node root, long x, long y) {
+        long half = 1L << (root.level - 1);
+        x += half;
+        y += half;
+        if (x < 0 || y < 0 || x >= 2 * half || y >= 2 * half) {
+            return false;
+        }
+        Node n = root;
+        while (n.level > 0) {
+            if (n.population == 0) {
+                return false;
+            }
+            half = 1L << (n.level - 1);
+            boolean east = x >= half;
+            boolean south = y >= half;
+            n = south ? (east ? n.se : n.sw) : (east ? n.ne : n.nw);
+            if (east) {
+                x -= half;
+            }
+            if (south) {
+                y -= half;
+            }
+        }
+        return n == ALIVE;
+    }
+
+    /** Set a cell of a root node centered at the origin.
+     * @return the new root containing the changed cell.
+     */
+    Node setCell(Node root, long x, long y, boolean alive) {
+        push(root);
+        collectIfFull();
+        stackSize--;
+        while (true) {
+            long half = 1L << (root.level - 1);
+            if (x >= -half && y >= -half && x < half && y < half) {
+                return setCellAt(root, x + half, y + half, alive);
+            }
+            root = expand(root);
+        }
+    }
+
+    /** Set a cell of a node with coordinates relative to the upper left. */
+    private Node setCellAt(Node n, long x, long y, boolean alive) {
+        if (n.level == 0) {
+            return alive ? ALIVE : DEAD;
+        }
+        long half = 1L << (n.level - 1);
+        if (y < half) {
+            if (x < half) {
+                return join(setCellAt(n.nw, x, y, alive), n.ne, n.sw, n.se);
+            } else {
+                return join(n.nw, setCellAt(n.ne, x - half, y, alive), n.sw, n.se);
+            }
+        } else {
+            if (x < half) {
+                return join(n.nw, n.ne, setCellAt(n.sw, x, y - half, alive), n.se);
+            } else {
+                return join(n.nw, n.ne, n.sw, setCellAt(n.se, x - half, y - half, alive));
+            }
+        }
+    }
+
+    /** Calculates the centered node of the next lower level
+     * {@code 2^min(log2Generations, level - 2)} generations in the future.
+     * @param n a node of at least level 2.
+     * @param log2Generations the binary logarithm of the generations.
+     * @return the future center of the node.
+     */
+    private Node successor(Node n, int log2Generations) {
+        if (n.population == 0) {
+            return empty(n.level - 1);
+        }
+        if (n.result != null) {
+            return n.result;
+        }
+        int base = stackSize;
+        push(n);
+        // all nodes needed later are on the stack from here on
+        collectIfFull();
+        Node result;
+        if (n.level == 2) {
+            result = successorOfLevel2(n);
+        } else {
+            Node c00 = push(successor(n.nw, log2Generations));
+            Node c01 = push(successor(join(n.nw.ne, n.ne.nw, n.nw.se, n.ne.sw), log2Generations));
+            Node c02 = push(successor(n.ne, log2Generations));
+            Node c10 = push(successor(join(n.nw.sw, n.nw.se, n.sw.nw, n.sw.ne), log2Generations));
+            Node c11 = push(successor(join(n.nw.se, n.ne.sw, n.sw.ne, n.se.nw), log2Generations));
+            Node c12 = push(successor(join(n.ne.sw, n.ne.se, n.se.nw, n.se.ne), log2Generations));
+            Node c20 = push(successor(n.sw, log2Generations));
+            Node c21 = push(successor(join(n.sw.ne, n.se.nw, n.sw.se, n.se.sw), log2Generations));
+            Node c22 = push(successor(n.se, log2Generations));
+
+            if (log2Generations < n.level - 2) {
+                // only the first half of the generations, take the centers
+                result = join(
+                        join(c00.se, c01.sw, c10.ne, c11.nw),
+                        join(c01.se, c02.sw, c11.ne, c12.nw),
+                        join(c10.se, c11.sw, c20.ne, c21.nw),
+                        join(c11.se, c12.sw, c21.ne, c22.nw));
+            } else {
+                Node nw = push(successor(join(c00, c01, c10, c11), log2Generations));
+                Node ne = push(successor(join(c01, c02, c11, c12), log2Generations));
+                Node sw = push(successor(join(c10, c11, c20, c21), log2Generations));
+                Node se = successor(join(c11, c12, c21, c22), log2Generations);
+                result = join(nw, ne, sw, se);
+            }
+        }
+        stackSize = base;
+        n.result = result;
+        return result;
+    }
+
+    /** Keeps a node alive during a collection until the calculation
+     * needing it returns.
+     * @return the node.
+     */
+    private Node push(Node node) {
+        if (stackSize == stack.length) {
+            stack = Arrays.copyOf(stack, stack.length * 2);
+        }
+        stack[stackSize++] = node;
+        return node;
+    }
+
+    /** Get a cell of a level 2 node. */
+    private static boolean cellOfLevel2(Node n, int x, int y) {
+        Node quadrant = y < 2 ? (x < 2 ? n.nw : n.ne) : (x < 2 ? n.sw : n.se);
+        Node leaf = (y & 1) == 0
+                ? ((x & 1) == 0 ? quadrant.nw : quadrant.ne)
+                : ((x & 1) == 0 ? quadrant.sw : quadrant.se);
+        return leaf == ALIVE;
+    }
+
+    /** Calculates the next generation of the center cell of a level 2 node. */
+    private Node nextCellOfLevel2(Node n, int x, int y) {
+        int count = 0;
+        for (int yi = -1; yi <= 1; yi++) {
+            for (int xi = -1; xi <= 1; xi++) {
+                if ((xi != 0 || yi != 0) && cellOfLevel2(n, x + xi, y + yi)) {
+                    count++;
+                }
+            }
+        }
+        return rule.next(cellOfLevel2(n, x, y), count) ? ALIVE : DEAD;
+    }
+
+    /** Calculates the center of a level 2 node one generation in the future. */
+    private Node successorOfLevel2(Node n) {
+        return join(
+                nextCellOfLevel2(n, 1, 1),
+                nextCellOfLevel2(n, 2, 1),
+                nextCellOfLevel2(n, 1, 2),
+                nextCellOfLevel2(n, 2, 2));
+    }
+
+    /** Drops all memoized results. */
+    private void clearResults() {
+        for (Node head : table) {
+            for (Node n = head; n != null; n = n.next) {
+                n.result = null;
+            }
+        }
+    }
+
+    /** Collects the node table if it grew beyond the threshold. */
+    private void collectIfFull() {
+        if (size > collectThreshold) {
+            collect();
+        }
+    }
+
+    /** Removes the nodes from the table that are not part of the trees
+     * of the fields, of the calculation in progress or of the empty nodes.
+     * The memoized results of the remaining nodes are kept if the
+     * result nodes remain, too.
+     * The remaining nodes stay the same objects, so the calculation
+     * in progress can continue with them.
+     */
+    private void collect() {
+        log.debug("Collecting {} nodes, threshold is {}", size, collectThreshold);
+        collections++;
+        long mark = collections;
+        long live = 0;
+        for (HashLifeField field : fields) {
+            live += mark(field.getRoot(), mark);
+        }
+        for (int i = 0; i < stackSize; i++) {
+            live += mark(stack[i], mark);
+        }
+        for (Node e : emptyNodes) {
+            if (e != null) {
+                live += mark(e, mark);
+            }
+        }
+
+        Node[] oldTable = table;
+        int newSize = TABLE_SIZE_INITIAL;
+        while (newSize < oldTable.length && (long) newSize * 3 / 4 < live) {
+            newSize <<= 1;
+        }
+        table = new Node[newSize];
+        size = 0;
+        for (Node head : oldTable) {
+            Node n = head;
+            while (n != null) {
+                Node next = n.next;
+                if (n.mark == mark) {
+                    if (n.result != null && n.result.mark != mark) {
+                        n.result = null;
+                    }
+                    int index = n.hash & (table.length - 1);
+                    n.next = table[index];
+                    table[index] = n;
+                    size++;
+                } else {
+                    n.result = null;
+                    n.next = null;
+                }
+                n = next;
+            }
+        }
+        // the live nodes alone fill the limit, collecting again soon would not help
+        collectThreshold = Math.max(maxNodes, 2L * size);
+        if (collectThreshold > maxNodes) {
+            log.warn("HashLife keeps {} live nodes, collecting at {} instead of {}",
+                    size, collectThreshold, maxNodes);
+        }
+        log.debug("Collected to {} nodes", size);
+    }
+
+    /** Marks a node and its sub-trees as alive.
+     * @return the number of nodes that were not marked before.
+     */
+    private static long mark(Node n, long mark) {
+        if (n.level == 0 || n.mark == mark) {
+            return 0;
+        }
+        n.mark = mark;
+        return 1 + mark(n.nw, mark) + mark(n.ne, mark) + mark(n.sw, mark) + mark(n.se, mark);
+    }
+}
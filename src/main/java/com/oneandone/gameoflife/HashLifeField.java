@@ -0,0 +1,135 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Objects;
+
+/**
+ * Implementation of a field using a quadtree of a {@link HashLifeEngine}.
+ * The field is a window of the size {@link #getDimensions()} into an
+ * infinite plane, cells outside of the window can also be read and written.
+ * Neighbors outside of the window are counted like all other cells.
+ * @author Stephan Fuhrmann
+ */
+public class HashLifeField implements Field {
+
+    /** The engine owning the nodes. */
+    private final HashLifeEngine engine;
+
+    /** The width in cells. */
+    private final int width;
+
+    /** The height in cells. */
+    private final int height;
+
+    /** The root node, centered at the origin. */
+    private HashLifeEngine.Node root;
+
+    /**
+     * Creates a new instance.
+     * @param engine the engine owning the nodes.
+     * @param width the width of the window in cells.
+     * @param height the height of the window in cells.
+     */
+    HashLifeField(HashLifeEngine engine, int width, int height) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("width <= 0");
+        }
+        if (height <= 0) {
+            throw new IllegalArgumentException("height <= 0");
+        }
+        this.engine = Objects.requireNonNull(engine);
+        this.width = width;
+        this.height = height;
+        this.root = engine.empty(HashLifeEngine.levelFor(this));
+    }
+
+    HashLifeEngine getEngine() {
+        return engine;
+    }
+
+    HashLifeEngine.Node getRoot() {
+        return root;
+    }
+
+    void setRoot(HashLifeEngine.Node root) {
+        this.root = root;
+    }
+
+    /** Get the number of alive cells in the whole plane.
+     * @return the number of alive cells including the cells outside
+     * of the window.
+     */
+    public long getPopulation() {
+        return root.population;
+    }
+
+    @Override
+    public boolean get(int x, int y) {
+        return engine.getCell(root, x, y);
+    }
+
+    @Override
+    public void set(int x, int y, boolean set) {
+        root = engine.setCell(root, x, y, set);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getNeighborCount(int x, int y) {
+        int sum = 0;
+        for (int yi = -1; yi <= 1; yi++) {
+            for (int xi = -1; xi <= 1; xi++) {
+                if (xi == 0 && yi == 0) {
+                    // don't count cell itself
+                    continue;
+                }
+                if (get(x + xi, y + yi)) {
+                    sum++;
+                }
+            }
+        }
+        return sum;
+    }
+
+    /** Copy content to a field with possibly other dimensions.
+     * A field of the same engine gets the complete plane, including
+     * the cells outside of the window.
+     * @param target the field to copy to.
+     */
+    @Override
+    public void copyTo(Field target) {
+        if (target instanceof HashLifeField && ((HashLifeField) target).engine == engine) {
+            ((HashLifeField) target).root = root;
+        } else {
+            Field.super.copyTo(target);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toStringDefault();
+    }
+}
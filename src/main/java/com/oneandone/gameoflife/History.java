@@ -0,0 +1,385 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * Bounded history of past generations.
+ * Every generation is stored as the words of its packed rows that
+ * differ from the previous generation, which is little for
+ * mostly stable fields. Every keyframe interval
+ * generations a keyframe with the alive words of the whole generation is stored,
+ * so seeking needs to apply a limited number of differences only.
+ * If the history needs more memory than the budget, the oldest
+ * keyframe and its differences are dropped.
+ * @see GameOfLife#setHistory(com.oneandone.gameoflife.History)
+ * @author Stephan Fuhrmann
+ */
+public class History {
+
+    /** The estimated bytes of a frame without its words. */
+    private static final int FRAME_OVERHEAD = 64;
+
+    /** One stored generation. */
+    private static class Frame {
+        /** The iteration of the generation. */
+        private final int iteration;
+        /** Whether the words are relative to an empty field
+         * instead of the previous frame. */
+        private final boolean keyframe;
+        /** The indices of the words in the flat array of packed rows. */
+        private final int[] indices;
+        /** The words to XOR at the indices. */
+        private final long[] words;
+
+        Frame(int iteration, boolean keyframe, int[] indices, long[] words) {
+            this.iteration = iteration;
+            this.keyframe = keyframe;
+            this.indices = indices;
+            this.words = words;
+        }
+
+        long memoryUsage() {
+            return FRAME_OVERHEAD + (long) indices.length * Integer.BYTES + (long) words.length * Long.BYTES;
+        }
+
+        void applyTo(long[] target) {
+            for (int i = 0; i < indices.length; i++) {
+                target[indices[i]] ^= words[i];
+            }
+        }
+    }
+
+    /** The number of frames from one keyframe to the next. */
+    @Getter
+    private final int keyframeInterval;
+
+    /** The maximum number of bytes of the stored frames. */
+    @Getter
+    private final long memoryBudget;
+
+    /** The frames ordered by iteration, the first is a keyframe. */
+    private final List<Frame> frames = new ArrayList<>();
+
+    /** The estimated bytes of the stored frames. */
+    @Getter
+    private long memoryUsage;
+
+    /** The number of frames since the last keyframe. */
+    private int sinceKeyframe;
+
+    /** The width of the stored generations, 0 if empty. */
+    private int width;
+
+    /** The height of the stored generations, 0 if empty. */
+    private int height;
+
+    /** The words per row of the stored generations. */
+    private int wordsPerRow;
+
+    /** The packed rows of the last stored generation. */
+    private long[] last;
+
+    /** Whether the last stored generation is the last one added,
+     * which is the base of the next {@link WordChanges}. */
+    private boolean lastAdded;
+
+    /** The packed rows of the generation being stored. */
+    private long[] current;
+
+    /** Creates a new instance.
+     * @param keyframeInterval the number of frames from one keyframe to the next.
+     * @param memoryBudget the maximum number of bytes for the frames.
+     * At least one keyframe is kept even if it exceeds the budget.
+     */
+    public History(int keyframeInterval, long memoryBudget) {
+        if (keyframeInterval <= 0) {
+            throw new IllegalArgumentException("keyframeInterval <= 0");
+        }
+        if (memoryBudget <= 0) {
+            throw new IllegalArgumentException("memoryBudget <= 0");
+        }
+        this.keyframeInterval = keyframeInterval;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /** Forgets all generations. */
+    public void clear() {
+        frames.clear();
+        memoryUsage = 0;
+        width = 0;
+        height = 0;
+        last = null;
+        current = null;
+        lastAdded = false;
+    }
+
+    /** Get the number of stored generations.
+     * @return the number of generations that can be seeked to.
+     */
+    public int size() {
+        return frames.size();
+    }
+
+    /** Get the oldest stored iteration.
+     * @return the oldest iteration.
+     * @throws IllegalStateException if the history is empty.
+     */
+    public int getFirstIteration() {
+        if (frames.isEmpty()) {
+            throw new IllegalStateException("History is empty");
+        }
+        return frames.get(0).iteration;
+    }
+
+    /** Get the newest stored iteration.
+     * @return the newest iteration.
+     * @throws IllegalStateException if the history is empty.
+     */
+    public int getLastIteration() {
+        if (frames.isEmpty()) {
+            throw new IllegalStateException("History is empty");
+        }
+        return frames.get(frames.size() - 1).iteration;
+    }
+
+    /** Checks whether a generation is stored.
+     * @param iteration the iteration of the generation.
+     * @return {@code true} if the history contains the iteration.
+     */
+    public boolean contains(int iteration) {
+        return indexOf(iteration) >= 0;
+    }
+
+    /** Stores a generation. Stored generations with the same or a later
+     * iteration are dropped first, so the history can continue after
+     * seeking back.
+     * @param field the generation to store.
+     * @param iteration the iteration of the generation.
+     */
+    public void add(Field field, int iteration) {
+        if (width != 0 && (width != field.getWidth() || height != field.getHeight())) {
+            clear();
+        }
+        if (!frames.isEmpty() && iteration <= getLastIteration()) {
+            truncate(iteration - 1);
+        }
+        if (width == 0) {
+            width = field.getWidth();
+            height = field.getHeight();
+            wordsPerRow = field.getWordsPerRow();
+            last = new long[Math.multiplyExact(wordsPerRow, height)];
+            current = new long[last.length];
+        }
+        readField(field, current);
+
+        boolean keyframe = frames.isEmpty() || sinceKeyframe + 1 >= keyframeInterval;
+        Frame frame = keyframe
+                ? encode(iteration, true, current, null)
+                : encode(iteration, false, current, last);
+        sinceKeyframe = keyframe ? 0 : sinceKeyframe + 1;
+        frames.add(frame);
+        memoryUsage += frame.memoryUsage();
+
+        long[] swap = last;
+        last = current;
+        current = swap;
+        lastAdded = true;
+
+        evict();
+    }
+
+    /** Stores a generation that follows the last added generation.
+     * The changed words are stored without reading the field.
+     * The field is read like in {@link #add(com.oneandone.gameoflife.Field, int)}
+     * if the history was truncated or is empty, or if the changes are unknown.
+     * @param field the generation to store.
+     * @param changes the words that differ from the last added generation,
+     * or {@code null} if unknown.
+     * @param iteration the iteration of the generation.
+     */
+    public void add(Field field, WordChanges changes, int iteration) {
+        if (changes == null
+                || !lastAdded
+                || iteration <= getLastIteration()
+                || width != field.getWidth()
+                || height != field.getHeight()
+                || wordsPerRow != changes.getWordsPerRow()
+                || height != changes.getHeight()) {
+            add(field, iteration);
+            return;
+        }
+        Frame frame;
+        int[] indices = new int[changes.size()];
+        long[] values = new long[indices.length];
+        changes.copyTo(indices, values);
+        for (int i = 0; i < indices.length; i++) {
+            last[indices[i]] ^= values[i];
+        }
+        if (sinceKeyframe + 1 >= keyframeInterval) {
+            frame = encode(iteration, true, last, null);
+            sinceKeyframe = 0;
+        } else {
+            frame = new Frame(iteration, false, indices, values);
+            sinceKeyframe++;
+        }
+        frames.add(frame);
+        memoryUsage += frame.memoryUsage();
+        evict();
+    }
+
+    /** Restores a stored generation into a field.
+     * @param iteration the iteration of the generation.
+     * @param target the field with the dimensions of the stored generations
+     * to write the generation to.
+     * @throws IllegalArgumentException if the iteration is not stored or
+     * the field has other dimensions.
+     */
+    public void seek(int iteration, Field target) {
+        int index = indexOf(iteration);
+        if (index < 0) {
+            throw new IllegalArgumentException("Iteration not in history: " + iteration);
+        }
+        if (width != target.getWidth() || height != target.getHeight()) {
+            throw new IllegalArgumentException("Dimensions differ: "
+                    + target.getWidth() + "x" + target.getHeight());
+        }
+        int keyframe = index;
+        while (!frames.get(keyframe).keyframe) {
+            keyframe--;
+        }
+        long[] words = new long[last.length];
+        for (int i = keyframe; i <= index; i++) {
+            frames.get(i).applyTo(words);
+        }
+        long[] row = new long[wordsPerRow];
+        for (int y = 0; y < height; y++) {
+            System.arraycopy(words, y * wordsPerRow, row, 0, wordsPerRow);
+            target.setRow(y, row);
+        }
+    }
+
+    /** Drops the generations after an iteration.
+     * @param iteration the last iteration to keep.
+     */
+    public void truncate(int iteration) {
+        int keep = frames.size();
+        while (keep > 0 && frames.get(keep - 1).iteration > iteration) {
+            keep--;
+        }
+        if (keep == frames.size()) {
+            return;
+        }
+        if (keep == 0) {
+            clear();
+            return;
+        }
+        List<Frame> dropped = frames.subList(keep, frames.size());
+        for (Frame frame : dropped) {
+            memoryUsage -= frame.memoryUsage();
+        }
+        dropped.clear();
+        lastAdded = false;
+
+        // rebuild the last generation and the distance to its keyframe
+        int keyframe = keep - 1;
+        while (!frames.get(keyframe).keyframe) {
+            keyframe--;
+        }
+        Arrays.fill(last, 0);
+        for (int i = keyframe; i < keep; i++) {
+            frames.get(i).applyTo(last);
+        }
+        sinceKeyframe = keep - 1 - keyframe;
+    }
+
+    /** Drops the oldest keyframes with their differences
+     * until the budget is met or only one keyframe is left.
+     */
+    private void evict() {
+        while (memoryUsage > memoryBudget) {
+            int next = 1;
+            while (next < frames.size() && !frames.get(next).keyframe) {
+                next++;
+            }
+            if (next == frames.size()) {
+                return;
+            }
+            List<Frame> dropped = frames.subList(0, next);
+            for (Frame frame : dropped) {
+                memoryUsage -= frame.memoryUsage();
+            }
+            dropped.clear();
+        }
+    }
+
+    /** Finds the index of a frame.
+     * @return the index in {@link #frames} or a negative value.
+     */
+    private int indexOf(int iteration) {
+        int low = 0;
+        int high = frames.size() - 1;
+        while (low <= high) {
+            int middle = (low + high) >>> 1;
+            int value = frames.get(middle).iteration;
+            if (value < iteration) {
+                low = middle + 1;
+            } else if (value > iteration) {
+                high = middle - 1;
+            } else {
+                return middle;
+            }
+        }
+        return -1;
+    }
+
+    /** Reads the packed rows of a field into one array. */
+    private void readField(Field field, long[] target) {
+        long[] row = new long[wordsPerRow];
+        for (int y = 0; y < height; y++) {
+            field.getRow(y, row);
+            System.arraycopy(row, 0, target, y * wordsPerRow, wordsPerRow);
+        }
+    }
+
+    /** Encodes the words that differ from a base.
+     * @param base the previous generation or {@code null} for a keyframe.
+     */
+    private static Frame encode(int iteration, boolean keyframe, long[] words, long[] base) {
+        int count = 0;
+        for (int i = 0; i < words.length; i++) {
+            if ((base != null ? words[i] ^ base[i] : words[i]) != 0) {
+                count++;
+            }
+        }
+        int[] indices = new int[count];
+        long[] values = new long[count];
+        int j = 0;
+        for (int i = 0; i < words.length; i++) {
+            long value = base != null ? words[i] ^ base[i] : words[i];
+            if (value != 0) {
+                indices[j] = i;
+                values[j] = value;
+                j++;
+            }
+        }
+        return new Frame(iteration, keyframe, indices, values);
+    }
+}
@@ -15,8 +15,6 @@
  */
 package com.oneandone.gameoflife;
 
-import java.awt.Dimension;
-
 /**
  * Implementation of a field using a two-dimensional int array.
  * @author Stephan Fuhrmann
@@ -33,9 +31,6 @@ public class IntFieldImpl implements Field {
     /** The height in cells. */
     private final int height;
     
-    /** The dimension object returned by {@link #getDimensions() }. */
-    private final Dimension dimension;
-    
     /**
      * Creates a new instance.
      * @param width the width in cells.
@@ -51,7 +46,6 @@ public class IntFieldImpl implements Field {
         alive = new int[(width >> 5) + 1][height];
         this.width = width;
         this.height = height;
-        this.dimension = new Dimension(width, height);
     }
         
     @Override
@@ -69,8 +63,38 @@ public class IntFieldImpl implements Field {
     }
 
     @Override
-    public Dimension getDimensions() {
-        return dimension;
+    public void getRow(int y, long[] dst) {
+        int words = (width + 63) >> 6;
+        for (int i = 0; i < words; i++) {
+            int column = i << 1;
+            long word = alive[column][y] & 0xffffffffL;
+            if (column + 1 < alive.length) {
+                word |= (long) alive[column + 1][y] << 32;
+            }
+            dst[i] = word;
+        }
+    }
+
+    @Override
+    public void setRow(int y, long[] src) {
+        int columns = (width + 31) >> 5;
+        for (int column = 0; column < columns; column++) {
+            int value = (int) (src[column >> 1] >>> ((column & 1) << 5));
+            if (column == columns - 1 && (width & 0x1f) != 0) {
+                value &= (1 << (width & 0x1f)) - 1;
+            }
+            alive[column][y] = value;
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
     }
 
     @Override
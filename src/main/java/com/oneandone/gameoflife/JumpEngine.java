@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+/**
+ * An engine that can calculate many generations in one step.
+ * @see GameOfLife#doIterations(int)
+ * @author Stephan Fuhrmann
+ */
+public interface JumpEngine extends Engine {
+
+    /** Calculates the generation that is {@code 2^log2Generations}
+     * generations after {@code active} and writes it to {@code passive}.
+     * @param active the current generation, will only be read.
+     * @param passive the field to write the resulting generation to.
+     * @param log2Generations the binary logarithm of the number of
+     * generations to calculate.
+     */
+    public void jump(Field active, Field passive, int log2Generations);
+
+    @Override
+    public default void step(Field active, Field passive) {
+        jump(active, passive, 0);
+    }
+}
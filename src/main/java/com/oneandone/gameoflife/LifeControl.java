@@ -13,27 +13,179 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package com.oneandone.gameoflife;
 
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
 import lombok.Getter;
 
 /**
  * Parameter for the {@link LifeRunnable}.
+ * The pacing can be changed while the runnable is running.
+ * A runnable waiting for its next generation is woken up
+ * and reschedules with the new values.
  * @author Stephan Fuhrmann
  */
 public class LifeControl {
-    /** The interval between two generation calculations.
-     * The time is in milliseconds.
+    /** The interval between two generation calculations
+     * in nanoseconds, 0 to calculate without waiting.
+     */
+    private volatile long intervalNanos;
+
+    /** How to keep the interval. */
+    private volatile Pacing pacing;
+
+    /** The number of generations calculated between two
+     * notifications of the consumers when {@link Pacing#UNTHROTTLED}.
+     */
+    private volatile int batchGenerations = 1;
+
+    /** The thread waiting for its next generation, or {@code null}. */
+    private volatile Thread sleeper;
+
+    /** The number of generations to look back for repetitions,
+     * 0 to not look for repetitions.
+     * @see GameOfLife#setCycleWindow(int)
      */
     @Getter
-    private final int intervalMillis;    
+    private final int cycleWindow;
+
+    /** What to do when the generations repeat. */
+    @Getter
+    private final CycleAction cycleAction;
+
+    /** The iteration to stop at, 0 to run until stopped. */
+    @Getter
+    private final int maxIterations;
 
     /** Constructor.
      * @param intervalMillis the time interval in milliseonds between
      * two generations.
      */
     public LifeControl(int intervalMillis) {
-        this.intervalMillis = intervalMillis;
+        this(intervalMillis, 0, CycleAction.CONTINUE, 0);
+    }
+
+    /** Constructor.
+     * @param intervalMillis the time interval in milliseonds between
+     * two generations, 0 to calculate {@link Pacing#UNTHROTTLED unthrottled}.
+     * @param cycleWindow the number of generations to look back for
+     * repetitions, 0 to not look for repetitions.
+     * @param cycleAction what to do when the generations repeat.
+     * @param maxIterations the iteration to stop at, 0 to run until stopped.
+     * Needed for {@link CycleAction#FAST_FORWARD}.
+     */
+    public LifeControl(int intervalMillis, int cycleWindow, CycleAction cycleAction, int maxIterations) {
+        if (cycleWindow < 0) {
+            throw new IllegalArgumentException("cycleWindow < 0");
+        }
+        if (maxIterations < 0) {
+            throw new IllegalArgumentException("maxIterations < 0");
+        }
+        if (cycleAction == CycleAction.FAST_FORWARD && maxIterations == 0) {
+            throw new IllegalArgumentException("FAST_FORWARD needs maxIterations");
+        }
+        setIntervalMillis(intervalMillis);
+        this.pacing = intervalMillis > 0 ? Pacing.CATCH_UP : Pacing.UNTHROTTLED;
+        this.cycleWindow = cycleWindow;
+        this.cycleAction = Objects.requireNonNull(cycleAction);
+        this.maxIterations = maxIterations;
+    }
+
+    /** Get the interval between two generations.
+     * @return the interval in milliseconds, rounded down.
+     */
+    public int getIntervalMillis() {
+        return (int) TimeUnit.NANOSECONDS.toMillis(intervalNanos);
+    }
+
+    /** Set the interval between two generations.
+     * @param intervalMillis the interval in milliseconds, 0 to not wait.
+     */
+    public void setIntervalMillis(int intervalMillis) {
+        if (intervalMillis < 0) {
+            throw new IllegalArgumentException("intervalMillis < 0");
+        }
+        intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+        wakeUp();
+    }
+
+    /** Get the interval between two generations.
+     * @return the interval in nanoseconds, 0 to not wait.
+     */
+    public long getIntervalNanos() {
+        return intervalNanos;
+    }
+
+    /** Get the target rate.
+     * @return the generations per second, or infinity if the
+     * generations are calculated without waiting.
+     */
+    public double getGenerationsPerSecond() {
+        long interval = intervalNanos;
+        return interval == 0 ? Double.POSITIVE_INFINITY : 1e9 / interval;
+    }
+
+    /** Set the target rate.
+     * @param generationsPerSecond the generations per second, infinity
+     * to not wait between the generations.
+     */
+    public void setGenerationsPerSecond(double generationsPerSecond) {
+        if (!(generationsPerSecond > 0)) {
+            throw new IllegalArgumentException("Illegal rate " + generationsPerSecond);
+        }
+        intervalNanos = Math.round(1e9 / generationsPerSecond);
+        wakeUp();
+    }
+
+    /** Get how the interval is kept.
+     * @return the pacing mode.
+     */
+    public Pacing getPacing() {
+        return pacing;
+    }
+
+    /** Set how the interval is kept.
+     * @param pacing the pacing mode.
+     */
+    public void setPacing(Pacing pacing) {
+        this.pacing = Objects.requireNonNull(pacing);
+        wakeUp();
+    }
+
+    /** Get the number of generations between two notifications
+     * when {@link Pacing#UNTHROTTLED}.
+     * @return the number of generations per batch.
+     */
+    public int getBatchGenerations() {
+        return batchGenerations;
+    }
+
+    /** Set the number of generations between two notifications
+     * when {@link Pacing#UNTHROTTLED}.
+     * @param batchGenerations the number of generations per batch.
+     */
+    public void setBatchGenerations(int batchGenerations) {
+        if (batchGenerations <= 0) {
+            throw new IllegalArgumentException("batchGenerations <= 0");
+        }
+        this.batchGenerations = batchGenerations;
+    }
+
+    /** Registers the thread waiting for its next generation.
+     * @param thread the waiting thread, or {@code null} when it
+     * stopped waiting.
+     */
+    void setSleeper(Thread thread) {
+        sleeper = thread;
+    }
+
+    /** Wakes up the waiting thread after a change of the pacing. */
+    private void wakeUp() {
+        Thread thread = sleeper;
+        if (thread != null) {
+            LockSupport.unpark(thread);
+        }
     }
 }
@@ -0,0 +1,329 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import lombok.Getter;
+
+/**
+ * Runtime metrics of a calculation, readable over JMX.
+ * The calculating thread only adds to {@link LongAdder} counters,
+ * so the metrics can stay enabled. The rates are sampled once
+ * {@link #SAMPLE_NANOS} passed, when generations are added or the
+ * attributes are read. Averages are calculated when read.
+ * @see LifeRunnable
+ * @author Stephan Fuhrmann
+ */
+public class LifeMetrics implements LifeMetricsMBean {
+
+    /** The domain of the JMX object names. */
+    public static final String DOMAIN = "com.oneandone.gameoflife";
+
+    /** The minimum time between two samples of the rates. */
+    private static final long SAMPLE_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** The time between two population counts. */
+    private static final long POPULATION_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** The number of calculated generations. */
+    private final LongAdder generations = new LongAdder();
+
+    /** The number of calculated cells over all generations. */
+    private final LongAdder cellUpdates = new LongAdder();
+
+    /** The time spent calculating the generations. */
+    private final LongAdder stepNanos = new LongAdder();
+
+    /** The time spent in the consumers. */
+    private final LongAdder consumerNanos = new LongAdder();
+
+    /** The number of times the consumers were called. */
+    private final LongAdder consumerCalls = new LongAdder();
+
+    /** The number of sleeps until a deadline. */
+    private final LongAdder sleeps = new LongAdder();
+
+    /** The time the sleeps ended after their deadlines. */
+    private final LongAdder sleepOvershootNanos = new LongAdder();
+
+    /** The longest time a sleep ended after its deadline. */
+    private final LongAccumulator maxSleepOvershootNanos = new LongAccumulator(Math::max, 0);
+
+    /** The name of the JMX object. */
+    @Getter
+    private final ObjectName objectName;
+
+    /** The last counted population, -1 if not counted yet. */
+    private volatile long population = -1;
+
+    /** The time of the last population count. */
+    private volatile long populationNanos;
+
+    /** The id of the calculating thread, -1 if unknown. */
+    private volatile long threadId = -1;
+
+    /** The {@link System#nanoTime()} of the last sample, 0 if not sampled yet. */
+    private volatile long sampleNanos;
+
+    /** The generations at the last sample. */
+    private long sampleGenerations;
+
+    /** The cell updates at the last sample. */
+    private long sampleCellUpdates;
+
+    /** The bytes allocated by the calculating thread at the last sample. */
+    private long sampleAllocatedBytes;
+
+    /** The generations per second between the last two samples. */
+    private double generationsPerSecond;
+
+    /** The cell updates per second between the last two samples. */
+    private double cellUpdatesPerSecond;
+
+    /** The allocated bytes per second between the last two samples, or -1. */
+    private double allocatedBytesPerSecond = -1;
+
+    /** Creates a new instance.
+     * @param name the name to distinguish multiple calculations in
+     * the JMX object name.
+     * @throws IllegalArgumentException if the name is not valid in
+     * an object name.
+     */
+    public LifeMetrics(String name) {
+        try {
+            objectName = new ObjectName(DOMAIN + ":type=LifeMetrics,name=" + ObjectName.quote(name));
+        } catch (JMException e) {
+            throw new IllegalArgumentException("Illegal name " + name, e);
+        }
+    }
+
+    /** Registers the metrics at the platform MBean server.
+     * @throws JMException if registering fails, for example
+     * because the name is already registered.
+     */
+    public void register() throws JMException {
+        ManagementFactory.getPlatformMBeanServer().registerMBean(this, objectName);
+    }
+
+    /** Removes the metrics from the platform MBean server.
+     * @throws JMException if the metrics are not registered.
+     */
+    public void unregister() throws JMException {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        server.unregisterMBean(objectName);
+    }
+
+    /** Sets the thread whose allocations are measured.
+     * @param thread the calculating thread.
+     */
+    public void setThread(Thread thread) {
+        threadId = thread.getId();
+    }
+
+    /** Adds calculated generations.
+     * @param count the number of generations.
+     * @param cells the number of cells per generation.
+     * @param nanos the time of the calculation.
+     */
+    public void addGenerations(long count, long cells, long nanos) {
+        addGenerations(count, cells, nanos, System.nanoTime());
+    }
+
+    /** Adds calculated generations and samples the rates if
+     * the last sample is old enough.
+     * @param count the number of generations.
+     * @param cells the number of cells per generation.
+     * @param nanos the time of the calculation.
+     * @param now the current {@link System#nanoTime()}.
+     */
+    void addGenerations(long count, long cells, long nanos, long now) {
+        generations.add(count);
+        cellUpdates.add(count * cells);
+        stepNanos.add(nanos);
+        if (isSampleDue(now)) {
+            sample(now);
+        }
+    }
+
+    /** Adds the time of one call of the consumers.
+     * @param nanos the time spent in the consumers.
+     */
+    public void addConsumerTime(long nanos) {
+        consumerNanos.add(nanos);
+        consumerCalls.increment();
+    }
+
+    /** Adds a sleep until a deadline.
+     * @param nanos the time the sleep ended after the deadline.
+     */
+    public void addSleepOvershoot(long nanos) {
+        long overshoot = Math.max(0, nanos);
+        sleeps.increment();
+        sleepOvershootNanos.add(overshoot);
+        maxSleepOvershootNanos.accumulate(overshoot);
+    }
+
+    /** Checks whether the population should be counted again.
+     * @param nanos the current {@link System#nanoTime()}.
+     * @return {@code true} if {@link #setPopulation(long, long)} is due.
+     */
+    public boolean isPopulationDue(long nanos) {
+        return population < 0 || nanos - populationNanos >= POPULATION_NANOS;
+    }
+
+    /** Sets the counted population.
+     * @param population the number of alive cells.
+     * @param nanos the {@link System#nanoTime()} of counting.
+     */
+    public void setPopulation(long population, long nanos) {
+        this.population = population;
+        this.populationNanos = nanos;
+    }
+
+    @Override
+    public long getGenerations() {
+        return generations.sum();
+    }
+
+    @Override
+    public long getCellUpdates() {
+        return cellUpdates.sum();
+    }
+
+    @Override
+    public synchronized double getGenerationsPerSecond() {
+        sample(System.nanoTime());
+        return generationsPerSecond;
+    }
+
+    @Override
+    public synchronized double getCellUpdatesPerSecond() {
+        sample(System.nanoTime());
+        return cellUpdatesPerSecond;
+    }
+
+    @Override
+    public long getStepMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(stepNanos.sum());
+    }
+
+    @Override
+    public long getConsumerMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(consumerNanos.sum());
+    }
+
+    @Override
+    public double getAverageStepMicros() {
+        return average(stepNanos, generations);
+    }
+
+    @Override
+    public double getAverageConsumerMicros() {
+        return average(consumerNanos, consumerCalls);
+    }
+
+    @Override
+    public double getAverageSleepOvershootMicros() {
+        return average(sleepOvershootNanos, sleeps);
+    }
+
+    @Override
+    public long getMaxSleepOvershootMicros() {
+        return TimeUnit.NANOSECONDS.toMicros(maxSleepOvershootNanos.get());
+    }
+
+    @Override
+    public long getPopulation() {
+        return population;
+    }
+
+    @Override
+    public synchronized double getAllocatedBytesPerSecond() {
+        sample(System.nanoTime());
+        return allocatedBytesPerSecond;
+    }
+
+    @Override
+    public synchronized void reset() {
+        generations.reset();
+        cellUpdates.reset();
+        stepNanos.reset();
+        consumerNanos.reset();
+        consumerCalls.reset();
+        sleeps.reset();
+        sleepOvershootNanos.reset();
+        maxSleepOvershootNanos.reset();
+        sampleNanos = 0;
+        generationsPerSecond = 0;
+        cellUpdatesPerSecond = 0;
+        allocatedBytesPerSecond = -1;
+    }
+
+    /** The average of a time per count in microseconds. */
+    private static double average(LongAdder nanos, LongAdder count) {
+        long n = count.sum();
+        return n == 0 ? 0 : nanos.sum() / 1000.0 / n;
+    }
+
+    /** The bytes allocated by the calculating thread, or -1. */
+    private long allocatedBytes() {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        if (threadId < 0 || !(threads instanceof com.sun.management.ThreadMXBean)) {
+            return -1;
+        }
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(threadId);
+    }
+
+    /** Checks whether the last sample is old enough for a new one.
+     * @param now the current {@link System#nanoTime()}.
+     * @return {@code true} if there is no sample or it is at least
+     * {@link #SAMPLE_NANOS} old.
+     */
+    private boolean isSampleDue(long now) {
+        return sampleNanos == 0 || now - sampleNanos >= SAMPLE_NANOS;
+    }
+
+    /** Calculates the rates since the last sample if it is old enough.
+     * @param now the current {@link System#nanoTime()}.
+     */
+    private synchronized void sample(long now) {
+        if (!isSampleDue(now)) {
+            return;
+        }
+        long currentGenerations = generations.sum();
+        long currentCellUpdates = cellUpdates.sum();
+        long currentAllocatedBytes = allocatedBytes();
+        if (sampleNanos != 0) {
+            double seconds = (now - sampleNanos) / 1e9;
+            generationsPerSecond = (currentGenerations - sampleGenerations) / seconds;
+            cellUpdatesPerSecond = (currentCellUpdates - sampleCellUpdates) / seconds;
+            allocatedBytesPerSecond = currentAllocatedBytes >= 0 && sampleAllocatedBytes >= 0
+                    ? (currentAllocatedBytes - sampleAllocatedBytes) / seconds
+                    : -1;
+        }
+        sampleNanos = now;
+        sampleGenerations = currentGenerations;
+        sampleCellUpdates = currentCellUpdates;
+        sampleAllocatedBytes = currentAllocatedBytes;
+    }
+}
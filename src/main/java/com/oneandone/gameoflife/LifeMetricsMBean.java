@@ -0,0 +1,93 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+/**
+ * The JMX management interface of {@link LifeMetrics}.
+ * Rates are calculated over the time between two reads that are
+ * at least a second apart.
+ * @author Stephan Fuhrmann
+ */
+public interface LifeMetricsMBean {
+
+    /** Get the number of calculated generations.
+     * @return the generations since the start or the last reset.
+     */
+    long getGenerations();
+
+    /** Get the number of calculated cells.
+     * @return the cell updates since the start or the last reset.
+     */
+    long getCellUpdates();
+
+    /** Get the recent calculation speed.
+     * @return the generations per second.
+     */
+    double getGenerationsPerSecond();
+
+    /** Get the recent calculation speed in cells.
+     * @return the cell updates per second.
+     */
+    double getCellUpdatesPerSecond();
+
+    /** Get the time spent calculating generations.
+     * @return the time in milliseconds.
+     */
+    long getStepMillis();
+
+    /** Get the time spent in the repaint and iteration consumers.
+     * @return the time in milliseconds.
+     */
+    long getConsumerMillis();
+
+    /** Get the average time of calculating one generation.
+     * @return the time in microseconds.
+     */
+    double getAverageStepMicros();
+
+    /** Get the average time of one call of the consumers.
+     * The consumers are called once for all generations of a step.
+     * @return the time in microseconds.
+     */
+    double getAverageConsumerMicros();
+
+    /** Get how much longer the sleeps between generations were than
+     * the interval of the {@link LifeControl}, on average.
+     * @return the time in microseconds.
+     */
+    double getAverageSleepOvershootMicros();
+
+    /** Get how much longer the longest sleep between generations was
+     * than the interval of the {@link LifeControl}.
+     * @return the time in microseconds.
+     */
+    long getMaxSleepOvershootMicros();
+
+    /** Get the number of alive cells, counted at most once a second.
+     * @return the population of a recent generation, or -1 if
+     * not counted yet.
+     */
+    long getPopulation();
+
+    /** Get the recent allocation rate of the calculating thread.
+     * @return the allocated bytes per second, or -1 if the
+     * Java runtime can't measure it.
+     */
+    double getAllocatedBytesPerSecond();
+
+    /** Sets all counters to zero. */
+    void reset();
+}
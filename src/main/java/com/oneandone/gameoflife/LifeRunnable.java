@@ -16,12 +16,16 @@
 package com.oneandone.gameoflife;
 
 import java.util.Objects;
+import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import lombok.Getter;
 import lombok.Setter;
 
 /**
- * A runnable calculating a game of life until interrupted.
+ * A runnable calculating a game of life paced by the {@link LifeControl}
+ * until interrupted,
+ * until the last iteration of the {@link LifeControl}
+ * or until the generations repeat, depending on the {@link LifeControl}.
  * @author Stephan Fuhrmann
  */
 public class LifeRunnable implements Runnable {
@@ -31,7 +35,7 @@ public class LifeRunnable implements Runnable {
      */
     @Getter
     @Setter
-    private boolean run;
+    private volatile boolean run;
     
     /** The configuration for the runnable. */
     private final LifeControl control;
@@ -47,6 +51,23 @@ public class LifeRunnable implements Runnable {
     @Setter
     private Consumer<Field> repaintConsumer = f -> {};
     
+    /** Consumer for the tiles changed since the last generation.
+     * Will receive the currently active field and the changes
+     * after each generation, the changes are cleared afterwards.
+     * Changes are only tracked if the consumer is set.
+     */
+    @Getter
+    @Setter
+    private BiConsumer<Field, ChangeSet> changeConsumer;
+
+    /** The ring to publish every generation to, or {@code null}.
+     * Readers acquire the newest generation from the ring at their
+     * own rate instead of being called for every generation.
+     */
+    @Getter
+    @Setter
+    private SnapshotRing snapshotRing;
+
     /** Consumer for iteration count. Will receive the current iteration.
      * Is pre-initialized with a no-operation
      * instance.
@@ -55,6 +76,19 @@ public class LifeRunnable implements Runnable {
     @Setter
     private Consumer<Integer> iterationConsumer = f -> {};
 
+    /** Consumer for detected cycles. Will receive the cycle once when the
+     * generations start to repeat. Is pre-initialized with a no-operation
+     * instance.
+     */
+    @Getter
+    @Setter
+    private Consumer<Cycle> cycleConsumer = c -> {};
+
+    /** The metrics to record the timing in, or {@code null}. */
+    @Getter
+    @Setter
+    private LifeMetrics metrics;
+
     /** Constructor.
      * @param control the configuration for the runnable.
      * @param gameOfLife the game to calculate.
@@ -67,16 +101,99 @@ public class LifeRunnable implements Runnable {
     
     @Override
     public void run() {
-        while (run) {
+        if (control.getCycleWindow() != gameOfLife.getCycleWindow()) {
+            gameOfLife.setCycleWindow(control.getCycleWindow());
+        }
+        Cycle reported = null;
+        int maxIterations = control.getMaxIterations();
+        if (metrics != null) {
+            metrics.setThread(Thread.currentThread());
+        }
+        gameOfLife.setTrackChanges(changeConsumer != null || snapshotRing != null);
+        if (snapshotRing != null) {
+            // readers see the first generation before the first step
+            snapshotRing.publish(gameOfLife.getActiveField(), gameOfLife.getIteration(), gameOfLife.getChanges());
+            gameOfLife.getChanges().clear();
+        }
+        Pacer pacer = new Pacer(control);
+        while (run && (maxIterations == 0 || gameOfLife.getIteration() < maxIterations)) {
             try {
-                gameOfLife.doIteration();
-                repaintConsumer.accept(gameOfLife.getActiveField());
-                iterationConsumer.accept(gameOfLife.getIteration());
-                Thread.sleep(control.getIntervalMillis());
+                long start = System.nanoTime();
+                int due = pacer.due(start);
+                if (due == 0) {
+                    if (pacer.sleep() && metrics != null) {
+                        metrics.addSleepOvershoot(System.nanoTime() - pacer.getDeadline());
+                    }
+                    continue;
+                }
+                int generations = 0;
+                while (generations < due && run
+                        && (maxIterations == 0 || gameOfLife.getIteration() < maxIterations)) {
+                    gameOfLife.doIteration();
+                    generations++;
+                    reported = handleCycle(reported, maxIterations);
+                }
+                long stepped = System.nanoTime();
+                notifyConsumers();
+                long consumed = System.nanoTime();
+                if (metrics != null) {
+                    record(generations, stepped - start, consumed - stepped, consumed);
+                }
             } catch (InterruptedException ex) {
                 break;
             }
         }
     }
+
+    /** Reports a newly detected cycle and acts on it.
+     * @param reported the cycle reported before, or {@code null}.
+     * @param maxIterations the iteration to stop at, 0 to run until stopped.
+     * @return the cycle reported now or before.
+     */
+    private Cycle handleCycle(Cycle reported, int maxIterations) {
+        Cycle cycle = gameOfLife.getCycle();
+        if (cycle == null || cycle == reported) {
+            return reported;
+        }
+        cycleConsumer.accept(cycle);
+        if (control.getCycleAction() == CycleAction.STOP) {
+            run = false;
+        } else if (control.getCycleAction() == CycleAction.FAST_FORWARD) {
+            gameOfLife.fastForward(maxIterations);
+        }
+        return cycle;
+    }
+
+    /** Passes the active field and the changes of the last
+     * generations to the consumers.
+     */
+    private void notifyConsumers() {
+        repaintConsumer.accept(gameOfLife.getActiveField());
+        if (changeConsumer != null) {
+            changeConsumer.accept(gameOfLife.getActiveField(), gameOfLife.getChanges());
+        }
+        if (snapshotRing != null) {
+            snapshotRing.publish(gameOfLife.getActiveField(), gameOfLife.getIteration(), gameOfLife.getChanges());
+        }
+        if (gameOfLife.getChanges() != null) {
+            gameOfLife.getChanges().clear();
+        }
+        iterationConsumer.accept(gameOfLife.getIteration());
+    }
+
+    /** Records the timing of a batch of generations in the {@link #metrics}.
+     * @param generations the number of calculated generations.
+     * @param stepNanos the time of calculating the generations.
+     * @param consumerNanos the time of the consumers.
+     * @param now the current {@link System#nanoTime()}.
+     */
+    private void record(int generations, long stepNanos, long consumerNanos, long now) {
+        Field field = gameOfLife.getActiveField();
+        metrics.addGenerations(generations, (long) field.getWidth() * field.getHeight(), stepNanos);
+        metrics.addConsumerTime(consumerNanos);
+        if (metrics.isPopulationDue(now)) {
+            metrics.setPopulation(field.countAlive(), now);
+        }
+    }
     
 }
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Objects;
+import lombok.Getter;
+
+/**
+ * Implementation of a field using one long array with packed rows.
+ * Each row consists of {@link #getWordsPerRow()} longs, the cell
+ * with the x coordinate {@code x} is bit {@code x & 63} of word
+ * {@code x >> 6}. Bits right of the last column are always zero.
+ * The {@link PackedEngine} wraps the borders of a field with the
+ * {@link Topology#TORUS} topology.
+ * @see PackedEngine
+ * @author Stephan Fuhrmann
+ */
+public class LongFieldImpl implements Field {
+
+    /** The cell status. Rows are stored one after another.
+     */
+    private final long alive[];
+
+    /** The number of longs per row. */
+    private final int wordsPerRow;
+
+    /** The width in cells. */
+    private final int width;
+
+    /** The height in cells. */
+    private final int height;
+
+    /** What the border cells see as neighbors. */
+    @Getter
+    private final Topology topology;
+
+    /** Counts the calls to {@link #set(int, int, boolean)} and
+     * {@link #setRow(int, long[])}.
+     * Engines writing {@link #getWords()} directly don't count.
+     */
+    private int modifications;
+
+    /**
+     * Creates a new instance with the {@link Topology#BOUNDED} topology.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     */
+    public LongFieldImpl(int width, int height) {
+        this(width, height, Topology.BOUNDED);
+    }
+
+    /**
+     * Creates a new instance.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     * @param topology what the border cells see as neighbors.
+     */
+    public LongFieldImpl(int width, int height, Topology topology) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("width <= 0");
+        }
+        if (height <= 0) {
+            throw new IllegalArgumentException("height <= 0");
+        }
+        wordsPerRow = (width + 63) >> 6;
+        alive = new long[Math.multiplyExact(wordsPerRow, height)];
+        this.width = width;
+        this.height = height;
+        this.topology = Objects.requireNonNull(topology);
+    }
+
+    /** Get the packed rows. Row {@code y} starts at
+     * index {@code y * getWordsPerRow()}.
+     * @return the backing array, not a copy.
+     */
+    long[] getWords() {
+        return alive;
+    }
+
+    /** Get the number of longs each row occupies.
+     * @return the number of longs per row.
+     */
+    @Override
+    public int getWordsPerRow() {
+        return wordsPerRow;
+    }
+
+    /** Get the number of modifications through the {@link Field} methods.
+     * Used to detect changes done outside of an engine.
+     * @return the modification counter.
+     */
+    int getModifications() {
+        return modifications;
+    }
+
+    @Override
+    public boolean get(int x, int y) {
+        return (alive[y * wordsPerRow + (x >> 6)] & (1L << (x & 0x3f))) != 0;
+    }
+
+    @Override
+    public void set(int x, int y, boolean set) {
+        modifications++;
+        if (set) {
+            alive[y * wordsPerRow + (x >> 6)] |= 1L << (x & 0x3f);
+        } else {
+            alive[y * wordsPerRow + (x >> 6)] &= ~(1L << (x & 0x3f));
+        }
+    }
+
+    @Override
+    public void getRow(int y, long[] dst) {
+        System.arraycopy(alive, y * wordsPerRow, dst, 0, wordsPerRow);
+    }
+
+    @Override
+    public void setRow(int y, long[] src) {
+        modifications++;
+        int offset = y * wordsPerRow;
+        System.arraycopy(src, 0, alive, offset, wordsPerRow);
+        alive[offset + wordsPerRow - 1] &= PackedEngine.lastWordMask(width);
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getNeighborCount(int x, int y) {
+        int sum = 0;
+        for (int yi = -1; yi <= 1; yi++) {
+            for (int xi = -1; xi <= 1; xi++) {
+                if (xi == 0 && yi == 0) {
+                    // don't count cell itself
+                    continue;
+                }
+
+                int xr = x + xi;
+                int yr = y + yi;
+                if (topology == Topology.TORUS) {
+                    xr = Math.floorMod(xr, width);
+                    yr = Math.floorMod(yr, height);
+                }
+
+                if (xr >= 0 && xr < width && yr >= 0 && yr < height) {
+                    if (get(xr, yr)) {
+                        sum++;
+                    }
+                }
+            }
+        }
+        return sum;
+    }
+
+    @Override
+    public String toString() {
+        return toStringDefault();
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Arrays;
+
+/**
+ * Open addressing hash map from primitive long keys to tiles.
+ * Avoids the boxing and entry objects of a {@link java.util.HashMap}.
+ * Iteration is done by slot index, see {@link #capacity()}.
+ * @author Stephan Fuhrmann
+ */
+class LongTileMap {
+
+    /** The initial number of slots. */
+    private static final int CAPACITY_INITIAL = 16;
+
+    /** The keys of the slots. */
+    private long[] keys;
+
+    /** The tiles of the slots, {@code null} for free slots. */
+    private long[][] values;
+
+    /** The number of used slots. */
+    private int size;
+
+    LongTileMap() {
+        keys = new long[CAPACITY_INITIAL];
+        values = new long[CAPACITY_INITIAL][];
+    }
+
+    /** Builds the key for tile coordinates.
+     * @param tileX the x coordinate of the tile.
+     * @param tileY the y coordinate of the tile.
+     * @return the key of the tile.
+     */
+    static long key(int tileX, int tileY) {
+        return ((long) tileX << 32) | (tileY & 0xffffffffL);
+    }
+
+    /** Get the x coordinate of a tile key. */
+    static int tileX(long key) {
+        return (int) (key >> 32);
+    }
+
+    /** Get the y coordinate of a tile key. */
+    static int tileY(long key) {
+        return (int) key;
+    }
+
+    /** Get the start slot of a key. */
+    private static int slot(long key, int mask) {
+        long h = key * 0x9e3779b97f4a7c15L;
+        return (int) (h ^ (h >>> 32)) & mask;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Get the number of slots for iterating with {@link #keyAt(int)}
+     * and {@link #valueAt(int)}.
+     */
+    int capacity() {
+        return values.length;
+    }
+
+    long keyAt(int slot) {
+        return keys[slot];
+    }
+
+    /** Get the tile of a slot.
+     * @return the tile or {@code null} if the slot is free.
+     */
+    long[] valueAt(int slot) {
+        return values[slot];
+    }
+
+    /** Get the tile for a key.
+     * @return the tile or {@code null} if there is no tile.
+     */
+    long[] get(long key) {
+        int mask = values.length - 1;
+        for (int i = slot(key, mask); values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                return values[i];
+            }
+        }
+        return null;
+    }
+
+    /** Puts a tile for a key, replacing any previous tile. */
+    void put(long key, long[] tile) {
+        int mask = values.length - 1;
+        int i = slot(key, mask);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                values[i] = tile;
+                return;
+            }
+        }
+        keys[i] = key;
+        values[i] = tile;
+        size++;
+        if (size > (values.length >> 1) + (values.length >> 2)) {
+            resize(values.length << 1);
+        }
+    }
+
+    /** Removes the tile for a key.
+     * @return the removed tile or {@code null} if there was none.
+     */
+    long[] remove(long key) {
+        int mask = values.length - 1;
+        int i = slot(key, mask);
+        for (; values[i] != null; i = (i + 1) & mask) {
+            if (keys[i] == key) {
+                long[] result = values[i];
+                shiftBack(i, mask);
+                size--;
+                return result;
+            }
+        }
+        return null;
+    }
+
+    /** Closes the gap at a slot by moving following entries of the cluster back. */
+    private void shiftBack(int gap, int mask) {
+        int i = gap;
+        while (true) {
+            i = (i + 1) & mask;
+            if (values[i] == null) {
+                break;
+            }
+            int home = slot(keys[i], mask);
+            // move if the home slot is not cyclically in (gap, i]
+            boolean move = gap <= i ? (home <= gap || home > i) : (home <= gap && home > i);
+            if (move) {
+                keys[gap] = keys[i];
+                values[gap] = values[i];
+                gap = i;
+            }
+        }
+        values[gap] = null;
+    }
+
+    /** Removes all tiles. */
+    void clear() {
+        Arrays.fill(values, null);
+        size = 0;
+    }
+
+    /** Rehashes to a new number of slots. */
+    private void resize(int newCapacity) {
+        long[] oldKeys = keys;
+        long[][] oldValues = values;
+        keys = new long[newCapacity];
+        values = new long[newCapacity][];
+        int mask = newCapacity - 1;
+        for (int j = 0; j < oldValues.length; j++) {
+            if (oldValues[j] != null) {
+                int i = slot(oldKeys[j], mask);
+                while (values[i] != null) {
+                    i = (i + 1) & mask;
+                }
+                keys[i] = oldKeys[j];
+                values[i] = oldValues[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,171 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+/**
+ * Packed engine looking up the next generation of 2x2 cell blocks
+ * in a precomputed table instead of counting neighbors.
+ * The 4x4 cells around a 2x2 block form a 16 bit index into a table
+ * of 65536 entries, each holding the four next generation cells
+ * of the block. The table of the {@link Rule#CONWAY} rule is built once when
+ * the class is loaded, tables of other rules when the rule is set.
+ * Fields of other types than {@link LongFieldImpl} and fields with the
+ * {@link Topology#TORUS} topology are calculated like in {@link PackedEngine}.
+ * @author Stephan Fuhrmann
+ */
+public class LookupTableEngine extends PackedEngine {
+
+    /** The table of the {@link Rule#CONWAY} rule. */
+    private static final byte[] CONWAY_TABLE = buildTable(Rule.CONWAY);
+
+    /** The next generation of the 2x2 center of each 4x4 block.
+     * Bit {@code 4 * row + column} of the index is the cell in the block,
+     * bit {@code 2 * row + column} of the entry is the cell of the center.
+     */
+    private byte[] table = CONWAY_TABLE;
+
+    /** Builds the table of the 2x2 centers of all 4x4 blocks.
+     * @param rule the rule to calculate the centers with.
+     * @return the table with 65536 entries.
+     */
+    static byte[] buildTable(Rule rule) {
+        byte[] table = new byte[1 << 16];
+        for (int index = 0; index < table.length; index++) {
+            int result = 0;
+            for (int cy = 1; cy <= 2; cy++) {
+                for (int cx = 1; cx <= 2; cx++) {
+                    int neighbors = 0;
+                    for (int dy = -1; dy <= 1; dy++) {
+                        for (int dx = -1; dx <= 1; dx++) {
+                            if (dx != 0 || dy != 0) {
+                                neighbors += (index >>> ((cy + dy) * 4 + cx + dx)) & 1;
+                            }
+                        }
+                    }
+                    boolean alive = ((index >>> (cy * 4 + cx)) & 1) != 0;
+                    if (rule.next(alive, neighbors)) {
+                        result |= 1 << ((cy - 1) * 2 + cx - 1);
+                    }
+                }
+            }
+            table[index] = (byte) result;
+        }
+        return table;
+    }
+
+    @Override
+    public void setRule(Rule rule) {
+        if (!rule.equals(getRule())) {
+            table = rule.isConway() ? CONWAY_TABLE : buildTable(rule);
+        }
+        super.setRule(rule);
+    }
+
+    @Override
+    void stepRows(LongFieldImpl from, LongFieldImpl to, int fromRow, int toRow, WordChanges changes) {
+        if (isTorus(from)) {
+            super.stepRows(from, to, fromRow, toRow, changes);
+            return;
+        }
+        int words = from.getWordsPerRow();
+        int height = from.getHeight();
+        long lastWordMask = lastWordMask(from.getWidth());
+        long[] src = from.getWords();
+        long[] dst = to.getWords();
+        byte[] table = this.table;
+
+        // two rows at a time, reading the rows y-1 to y+2
+        for (int y = fromRow; y < toRow; y += 2) {
+            int offset0 = y > 0 ? (y - 1) * words : -1;
+            int offset1 = y * words;
+            int offset2 = y + 1 < height ? (y + 1) * words : -1;
+            int offset3 = y + 2 < height ? (y + 2) * words : -1;
+            boolean second = y + 1 < toRow;
+
+            for (int i = 0; i < words; i++) {
+                // bit j of lo is the cell at x = 64 * i + j - 1,
+                // bit j of hi is the cell at x = 64 * i + j + 63
+                long lo0 = lo(src, offset0, i), hi0 = hi(src, offset0, i, words);
+                long lo1 = lo(src, offset1, i), hi1 = hi(src, offset1, i, words);
+                long lo2 = lo(src, offset2, i), hi2 = hi(src, offset2, i, words);
+                long lo3 = lo(src, offset3, i), hi3 = hi(src, offset3, i, words);
+
+                long out0 = 0;
+                long out1 = 0;
+                for (int k = 0; k < 62; k += 2) {
+                    int index = (int) ((lo0 >>> k) & 0xf)
+                            | (int) ((lo1 >>> k) & 0xf) << 4
+                            | (int) ((lo2 >>> k) & 0xf) << 8
+                            | (int) ((lo3 >>> k) & 0xf) << 12;
+                    int result = table[index];
+                    out0 |= (long) (result & 3) << k;
+                    out1 |= (long) ((result >>> 2) & 3) << k;
+                }
+                int index = (int) ((lo0 >>> 62) | ((hi0 & 3) << 2))
+                        | (int) ((lo1 >>> 62) | ((hi1 & 3) << 2)) << 4
+                        | (int) ((lo2 >>> 62) | ((hi2 & 3) << 2)) << 8
+                        | (int) ((lo3 >>> 62) | ((hi3 & 3) << 2)) << 12;
+                int result = table[index];
+                out0 |= (long) (result & 3) << 62;
+                out1 |= (long) ((result >>> 2) & 3) << 62;
+
+                if (i == words - 1) {
+                    out0 &= lastWordMask;
+                    out1 &= lastWordMask;
+                }
+                dst[offset1 + i] = out0;
+                if (second) {
+                    dst[offset1 + words + i] = out1;
+                }
+                if (changes != null) {
+                    changes.add(y, i, out0 ^ src[offset1 + i]);
+                    if (second) {
+                        changes.add(y + 1, i, out1 ^ src[offset1 + words + i]);
+                    }
+                }
+            }
+        }
+    }
+
+    /** Get the word {@code i} of a row shifted left by one cell, with the
+     * last cell of the word before in bit 0.
+     * @param src the words of the field.
+     * @param offset the start index of the row or -1 for an empty row.
+     * @param i the index of the word in the row.
+     */
+    private static long lo(long[] src, int offset, int i) {
+        if (offset < 0) {
+            return 0;
+        }
+        long before = i > 0 ? src[offset + i - 1] : 0;
+        return (src[offset + i] << 1) | (before >>> 63);
+    }
+
+    /** Get the last cell of word {@code i} of a row in bit 0, followed
+     * by the cells of the word after.
+     * @param src the words of the field.
+     * @param offset the start index of the row or -1 for an empty row.
+     * @param i the index of the word in the row.
+     * @param words the number of words in a row.
+     */
+    private static long hi(long[] src, int offset, int i, int words) {
+        if (offset < 0) {
+            return 0;
+        }
+        long after = i + 1 < words ? src[offset + i + 1] : 0;
+        return (src[offset + i] >>> 63) | (after << 1);
+    }
+}
@@ -18,6 +18,7 @@ package com.oneandone.gameoflife;
 import com.oneandone.gameoflife.ui.LifeFrame;
 import java.io.IOException;
 import java.util.Locale;
+import javax.management.JMException;
 
 import lombok.extern.slf4j.Slf4j;
 
@@ -33,8 +34,27 @@ public class Main {
         if (params == null) {
             return;
         }
+        LifeMetrics metrics = new LifeMetrics("main");
+        try {
+            metrics.register();
+        } catch (JMException ex) {
+            log.warn("Can not register metrics", ex);
+        }
+        if (params.isHeadless()) {
+            System.setProperty("java.awt.headless", "true");
+            new Batch(params, System.out, metrics).run();
+            return;
+        }
+        showFrame(params, metrics);
+    }
+
+    /** Shows the user interface. Only this method references the
+     * user interface classes, so they are not loaded in headless mode.
+     */
+    private static void showFrame(Params params, LifeMetrics metrics) {
         Locale.setDefault(new Locale("en"));
-        LifeFrame lifeFrame = new LifeFrame();
+        LifeFrame lifeFrame = new LifeFrame(params.getRule(), params.getTopology());
+        lifeFrame.setMetrics(metrics);
         lifeFrame.setSize(640, 480);
         lifeFrame.pack();
         lifeFrame.setVisible(true);
@@ -0,0 +1,291 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import lombok.Getter;
+
+/**
+ * A file holding the two generation buffers of a {@link GameOfLife}
+ * mapped into memory.
+ * The file starts with a header of {@link #HEADER_BYTES} bytes
+ * containing the dimensions and the state, followed by the two
+ * buffers in the layout of {@link AbstractBufferFieldImpl}.
+ * The state holds the generation number shifted left by one and the
+ * index of the active buffer in the lowest bit. It is written as one
+ * aligned long after the generation is complete, so a reader or a
+ * crash never sees the index of one generation with the number of
+ * another.
+ * All numbers are stored little endian.
+ * The world survives a restart without serialization, and other processes
+ * can {@link #openReadOnly(java.nio.file.Path) map} the same file
+ * to look at the active generation.
+ * @see GameOfLife#GameOfLife(com.oneandone.gameoflife.Engine, com.oneandone.gameoflife.MappedFieldFile)
+ * @author Stephan Fuhrmann
+ */
+public class MappedFieldFile implements AutoCloseable {
+
+    /** The magic number at the start of the file, "GOLFIELD". */
+    static final long MAGIC = 0x474f4c4649454c44L;
+
+    /** The version of the file layout. */
+    static final int VERSION = 2;
+
+    /** The size of the header in bytes. */
+    static final int HEADER_BYTES = 64;
+
+    private static final int MAGIC_OFFSET = 0;
+    private static final int VERSION_OFFSET = 8;
+    private static final int WIDTH_OFFSET = 12;
+    private static final int HEIGHT_OFFSET = 16;
+    private static final int STATE_OFFSET = 24;
+
+    /** The largest generation number the state can hold. */
+    static final long MAX_GENERATION = Long.MAX_VALUE >> 1;
+
+    /** Reads and writes the state as one access with memory ordering. */
+    private static final VarHandle STATE = MethodHandles.byteBufferViewVarHandle(long[].class, ByteOrder.LITTLE_ENDIAN);
+
+    /** The path of the file. */
+    @Getter
+    private final Path path;
+
+    /** Whether the file was mapped read only. */
+    @Getter
+    private final boolean readOnly;
+
+    /** The mapped header. */
+    private final MappedByteBuffer header;
+
+    /** All mapped buffers including the header. */
+    private final List<MappedByteBuffer> mappings;
+
+    /** The two fields. */
+    private final MappedFieldImpl[] fields;
+
+    /** Whether the file was closed. */
+    private boolean closed;
+
+    private MappedFieldFile(Path path, FileChannel channel, boolean readOnly) throws IOException {
+        this.path = path;
+        this.readOnly = readOnly;
+        this.mappings = new ArrayList<>();
+        FileChannel.MapMode mode = readOnly ? FileChannel.MapMode.READ_ONLY : FileChannel.MapMode.READ_WRITE;
+
+        if (channel.size() < HEADER_BYTES) {
+            throw new IOException("File too short for header: " + path);
+        }
+        header = map(channel, mode, 0, HEADER_BYTES);
+        if (header.getLong(MAGIC_OFFSET) != MAGIC) {
+            throw new IOException("Not a field file: " + path);
+        }
+        if (header.getInt(VERSION_OFFSET) != VERSION) {
+            throw new IOException("Unsupported version " + header.getInt(VERSION_OFFSET) + ": " + path);
+        }
+        int width = header.getInt(WIDTH_OFFSET);
+        int height = header.getInt(HEIGHT_OFFSET);
+        if (width <= 0 || height <= 0) {
+            throw new IOException("Illegal dimensions " + width + "x" + height + ": " + path);
+        }
+        long words = AbstractBufferFieldImpl.wordCount(width, height);
+        if (channel.size() < fileSize(width, height)) {
+            throw new IOException("File too short for " + width + "x" + height + ": " + path);
+        }
+
+        fields = new MappedFieldImpl[2];
+        int[] sizes = AbstractBufferFieldImpl.chunkSizes(words);
+        long offset = HEADER_BYTES;
+        for (int i = 0; i < fields.length; i++) {
+            LongBuffer[] chunks = new LongBuffer[sizes.length];
+            for (int j = 0; j < sizes.length; j++) {
+                long bytes = (long) sizes[j] * Long.BYTES;
+                chunks[j] = map(channel, mode, offset, bytes).asLongBuffer();
+                offset += bytes;
+            }
+            fields[i] = new MappedFieldImpl(width, height, chunks);
+        }
+    }
+
+    /** Maps a region of the file and remembers the mapping for closing. */
+    private MappedByteBuffer map(FileChannel channel, FileChannel.MapMode mode, long offset, long size) throws IOException {
+        MappedByteBuffer buffer = channel.map(mode, offset, size);
+        buffer.order(ByteOrder.LITTLE_ENDIAN);
+        mappings.add(buffer);
+        return buffer;
+    }
+
+    /** Get the size of a file for a field size.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     * @return the size of the file in bytes.
+     */
+    static long fileSize(int width, int height) {
+        return HEADER_BYTES + 2 * AbstractBufferFieldImpl.wordCount(width, height) * Long.BYTES;
+    }
+
+    /** Creates a new file with two empty fields, overwriting an
+     * existing file.
+     * @param path the path of the file to create.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     * @return the mapped file, opened for reading and writing.
+     * @throws IOException if creating the file fails.
+     */
+    public static MappedFieldFile create(Path path, int width, int height) throws IOException {
+        if (width <= 0) {
+            throw new IllegalArgumentException("width <= 0");
+        }
+        if (height <= 0) {
+            throw new IllegalArgumentException("height <= 0");
+        }
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            buffer.putLong(MAGIC_OFFSET, MAGIC);
+            buffer.putInt(VERSION_OFFSET, VERSION);
+            buffer.putInt(WIDTH_OFFSET, width);
+            buffer.putInt(HEIGHT_OFFSET, height);
+            channel.write(buffer, 0);
+            // the file system fills the rest with zeros, the dead cells
+            channel.write(ByteBuffer.allocate(1), fileSize(width, height) - 1);
+            return new MappedFieldFile(path, channel, false);
+        }
+    }
+
+    /** Opens an existing file for reading and writing.
+     * @param path the path of the file to open.
+     * @return the mapped file.
+     * @throws IOException if the file can not be read or has
+     * the wrong format.
+     */
+    public static MappedFieldFile open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE)) {
+            return new MappedFieldFile(path, channel, false);
+        }
+    }
+
+    /** Opens an existing file for reading only, for example to
+     * look at the file another process is calculating.
+     * Writing to the fields will throw a
+     * {@link java.nio.ReadOnlyBufferException}.
+     * @param path the path of the file to open.
+     * @return the mapped file.
+     * @throws IOException if the file can not be read or has
+     * the wrong format.
+     */
+    public static MappedFieldFile openReadOnly(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path,
+                StandardOpenOption.READ)) {
+            return new MappedFieldFile(path, channel, true);
+        }
+    }
+
+    /** Get one of the two fields.
+     * @param index the index of the field, 0 or 1.
+     * @return the field.
+     */
+    public MappedFieldImpl getField(int index) {
+        return fields[index];
+    }
+
+    /** Get the field containing the current generation.
+     * @return the active field.
+     */
+    public MappedFieldImpl getActiveField() {
+        return fields[getActiveIndex()];
+    }
+
+    /** Get the index of the active field as stored in the header.
+     * @return the index of the active field, 0 or 1.
+     */
+    public int getActiveIndex() {
+        return (int) getState() & 1;
+    }
+
+    /** Get the generation number as stored in the header.
+     * @return the number of the generation in the active field.
+     */
+    public long getGeneration() {
+        return getState() >>> 1;
+    }
+
+    /** Reads the state after the writes that preceded storing it. */
+    private long getState() {
+        return (long) STATE.getAcquire(header, STATE_OFFSET);
+    }
+
+    /** Stores the active index and the generation number in the header.
+     * Both are written in one store that is ordered after the writes
+     * to the fields.
+     * @param activeIndex the index of the active field, 0 or 1.
+     * @param generation the number of the generation in the active field,
+     * from 0 to {@link #MAX_GENERATION}.
+     */
+    public void setState(int activeIndex, long generation) {
+        if (activeIndex != 0 && activeIndex != 1) {
+            throw new IllegalArgumentException("Illegal activeIndex " + activeIndex);
+        }
+        if (generation < 0 || generation > MAX_GENERATION) {
+            throw new IllegalArgumentException("Illegal generation " + generation);
+        }
+        STATE.setRelease(header, STATE_OFFSET, generation << 1 | activeIndex);
+    }
+
+    /** Writes all changes to the storage device. */
+    public void force() {
+        if (readOnly) {
+            return;
+        }
+        for (MappedByteBuffer buffer : mappings) {
+            buffer.force();
+        }
+    }
+
+    /** Writes all changes and unmaps the file. The fields must not be used
+     * afterwards.
+     */
+    @Override
+    public void close() {
+        if (closed) {
+            return;
+        }
+        force();
+        closed = true;
+        for (MappedFieldImpl field : fields) {
+            field.unmap();
+        }
+        for (MappedByteBuffer buffer : mappings) {
+            DirectBuffers.free(buffer);
+        }
+        mappings.clear();
+    }
+}
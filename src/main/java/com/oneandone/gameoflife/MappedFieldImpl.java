@@ -0,0 +1,43 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.nio.LongBuffer;
+
+/**
+ * Implementation of a field using one of the two buffers of
+ * a {@link MappedFieldFile}.
+ * Changes are written to the file by the operating system.
+ * @author Stephan Fuhrmann
+ */
+public class MappedFieldImpl extends AbstractBufferFieldImpl {
+
+    /**
+     * Creates a new instance.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     * @param chunks the mapped chunks holding the rows.
+     */
+    MappedFieldImpl(int width, int height, LongBuffer[] chunks) {
+        super(width, height);
+        setChunks(chunks);
+    }
+
+    /** Unmaps the field. The field must not be used afterwards. */
+    void unmap() {
+        setChunks(new LongBuffer[0]);
+    }
+}
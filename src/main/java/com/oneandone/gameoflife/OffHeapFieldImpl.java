@@ -0,0 +1,67 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.LongBuffer;
+
+/**
+ * Implementation of a field using direct buffers outside of the Java heap.
+ * The garbage collector doesn't need to scan or move the cells, so
+ * huge fields don't cause long pauses.
+ * The memory is freed with {@link #close()}, or by the garbage
+ * collector if the field is not closed.
+ * @see PackedEngine#PackedEngine(com.oneandone.gameoflife.FieldFactory)
+ * @author Stephan Fuhrmann
+ */
+public class OffHeapFieldImpl extends AbstractBufferFieldImpl implements AutoCloseable {
+
+    /** The direct buffers, {@code null} after closing. */
+    private ByteBuffer[] buffers;
+
+    /**
+     * Creates a new instance.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     */
+    public OffHeapFieldImpl(int width, int height) {
+        super(width, height);
+        int[] sizes = chunkSizes(wordCount(width, height));
+        buffers = new ByteBuffer[sizes.length];
+        LongBuffer[] chunks = new LongBuffer[sizes.length];
+        for (int i = 0; i < sizes.length; i++) {
+            buffers[i] = ByteBuffer.allocateDirect(sizes[i] * Long.BYTES).order(ByteOrder.nativeOrder());
+            chunks[i] = buffers[i].asLongBuffer();
+        }
+        setChunks(chunks);
+    }
+
+    /** Frees the memory of the field. The field must not be used
+     * afterwards.
+     */
+    @Override
+    public void close() {
+        if (buffers == null) {
+            return;
+        }
+        setChunks(new LongBuffer[0]);
+        for (ByteBuffer buffer : buffers) {
+            DirectBuffers.free(buffer);
+        }
+        buffers = null;
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Schedules the generations of a {@link LifeRunnable} by
+ * {@link System#nanoTime()} deadlines, so the rate doesn't drift
+ * by the time the generations take.
+ * The {@link LifeControl} is read for every batch and while
+ * waiting, so changes of the rate and the pacing take effect right away.
+ * @author Stephan Fuhrmann
+ */
+final class Pacer {
+
+    /** The maximum number of late generations calculated without
+     * notifying the consumers in between. */
+    static final int MAX_CATCH_UP = 64;
+
+    /** The lag after which {@link Pacing#CATCH_UP} gives up and starts
+     * the schedule over instead of calculating all late generations. */
+    static final long MAX_LAG_NANOS = TimeUnit.SECONDS.toNanos(1);
+
+    /** The time below which the sleep is finished by spinning. */
+    private static final long SPIN_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    /** The control to read the rate and pacing from. */
+    private final LifeControl control;
+
+    /** The time the next generation is due. */
+    private long deadline;
+
+    /** The interval the {@link #deadline} was scheduled with,
+     * 0 if there is no schedule. */
+    private long interval;
+
+    /** Creates a pacer.
+     * @param control the control to read the rate and pacing from.
+     */
+    Pacer(LifeControl control) {
+        this.control = control;
+    }
+
+    /** Gets the time the next generation is due.
+     * @return the deadline in {@link System#nanoTime()} time.
+     */
+    long getDeadline() {
+        return deadline;
+    }
+
+    /** Calculates the number of generations due.
+     * The returned generations are expected to be calculated.
+     * @param now the current {@link System#nanoTime()}.
+     * @return the number of generations to calculate now, or 0 if
+     * the next generation is due at the {@link #getDeadline() deadline}.
+     */
+    int due(long now) {
+        Pacing pacing = control.getPacing();
+        long newInterval = control.getIntervalNanos();
+        if (pacing == Pacing.UNTHROTTLED || newInterval == 0) {
+            interval = 0;
+            return control.getBatchGenerations();
+        }
+        if (interval == 0) {
+            deadline = now;
+        } else if (newInterval != interval) {
+            // the next generation is due one new interval after the last,
+            // the time before the change is not caught up
+            deadline = Math.max(deadline + newInterval - interval, now);
+        }
+        interval = newInterval;
+        long late = now - deadline;
+        if (late < 0) {
+            return 0;
+        }
+        if (pacing == Pacing.SKIP) {
+            if (late >= interval) {
+                deadline = now;
+            }
+            deadline += interval;
+            return 1;
+        }
+        if (late >= MAX_LAG_NANOS) {
+            deadline = now;
+            late = 0;
+        }
+        int count = (int) Math.min(MAX_CATCH_UP, late / interval + 1);
+        deadline += count * interval;
+        return count;
+    }
+
+    /** Waits until the {@link #getDeadline() deadline}.
+     * Parks for most of the time and spins shortly before the deadline
+     * to not oversleep. Returns early if the rate or the pacing of the
+     * control changes, so the next {@link #due(long)} reschedules
+     * with the new values.
+     * @return {@code true} if the deadline was reached, {@code false}
+     * if the control changed.
+     * @throws InterruptedException if the thread is interrupted.
+     */
+    boolean sleep() throws InterruptedException {
+        Pacing pacing = control.getPacing();
+        control.setSleeper(Thread.currentThread());
+        try {
+            long remaining;
+            while ((remaining = deadline - System.nanoTime()) > 0) {
+                if (control.getIntervalNanos() != interval || control.getPacing() != pacing) {
+                    return false;
+                }
+                if (remaining > SPIN_NANOS) {
+                    LockSupport.parkNanos(remaining - SPIN_NANOS);
+                } else {
+                    Thread.onSpinWait();
+                }
+                if (Thread.interrupted()) {
+                    throw new InterruptedException();
+                }
+            }
+            return true;
+        } finally {
+            control.setSleeper(null);
+        }
+    }
+}
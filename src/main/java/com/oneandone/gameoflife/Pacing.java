@@ -0,0 +1,38 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+/**
+ * How the {@link LifeRunnable} paces the generations.
+ * @see LifeControl#setPacing(com.oneandone.gameoflife.Pacing)
+ * @author Stephan Fuhrmann
+ */
+public enum Pacing {
+    /** Calculate at the target rate. Generations that are late
+     * are calculated back to back until the schedule is reached again,
+     * so the average rate is the target rate.
+     */
+    CATCH_UP,
+    /** Calculate at the target rate. If a generation is late, the
+     * schedule starts over from now, so the missed time is lost
+     * instead of being caught up.
+     */
+    SKIP,
+    /** Calculate as fast as possible and notify the consumers
+     * after a batch of generations.
+     */
+    UNTHROTTLED
+}
@@ -0,0 +1,350 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * Engine calculating 64 cells at once on the packed rows of a
+ * {@link LongFieldImpl} or an {@link AbstractBufferFieldImpl}.
+ * The eight neighbors of every bit are summed up with bitwise
+ * full adders into four bit planes holding the neighbor count,
+ * the rule is then applied to the bit planes.
+ * Fields of other types are calculated cell by cell like
+ * in {@link CellEngine}.
+ * Fields with the {@link Topology#TORUS} topology wrap the first and
+ * last row and carry the border cells across the first and last word
+ * of a row. They are only supported with {@link LongFieldImpl} fields
+ * of an engine created without a field factory.
+ * @author Stephan Fuhrmann
+ */
+public class PackedEngine implements Engine {
+
+    /** The factory of the engines created without a field factory. */
+    static final FieldFactory LONG_FIELDS = LongFieldImpl::new;
+
+    /** Fallback for fields that are not packed. */
+    private final CellEngine cellEngine = new CellEngine();
+
+    /** Creates the fields of this engine. */
+    private final FieldFactory fieldFactory;
+
+    /** The rule to calculate the generations with. */
+    private Rule rule = Rule.CONWAY;
+
+    /** Creates an engine working on {@link LongFieldImpl} fields.
+     */
+    public PackedEngine() {
+        this(LONG_FIELDS);
+    }
+
+    /** Creates an engine working on fields of the given factory.
+     * @param fieldFactory the factory for new fields, for example
+     * {@code OffHeapFieldImpl::new}.
+     */
+    public PackedEngine(FieldFactory fieldFactory) {
+        this.fieldFactory = Objects.requireNonNull(fieldFactory);
+    }
+
+    @Override
+    public Field newField(int width, int height) {
+        return fieldFactory.newField(width, height);
+    }
+
+    /** {@inheritDoc}
+     * The {@link Topology#TORUS} is only supported if the engine
+     * creates {@link LongFieldImpl} fields without a field factory.
+     */
+    @Override
+    public boolean supports(Topology topology) {
+        return topology == Topology.BOUNDED || fieldFactory == LONG_FIELDS;
+    }
+
+    @Override
+    public Field newField(int width, int height, Topology topology) {
+        if (topology == Topology.BOUNDED) {
+            return newField(width, height);
+        }
+        if (!supports(topology)) {
+            throw new IllegalArgumentException("Topology " + topology + " not supported by the field factory of "
+                    + getClass().getSimpleName());
+        }
+        return new LongFieldImpl(width, height, topology);
+    }
+
+    /** Checks whether a field wraps around at its borders.
+     * @param field the field to check.
+     * @return {@code true} for a {@link LongFieldImpl} with the
+     * {@link Topology#TORUS} topology.
+     */
+    static boolean isTorus(Field field) {
+        return field instanceof LongFieldImpl && ((LongFieldImpl) field).getTopology() == Topology.TORUS;
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    @Override
+    public void setRule(Rule rule) {
+        cellEngine.setRule(rule);
+        this.rule = rule;
+    }
+
+    @Override
+    public void step(Field active, Field passive) {
+        if (!isPacked(active, passive)) {
+            cellEngine.step(active, passive);
+            return;
+        }
+        stepBand(active, passive, 0, active.getHeight(), null);
+    }
+
+    @Override
+    public void step(Field active, Field passive, WordChanges changes) {
+        if (!isPacked(active, passive)) {
+            cellEngine.step(active, passive, changes);
+            return;
+        }
+        stepBand(active, passive, 0, active.getHeight(), changes);
+    }
+
+    /** Checks whether both fields have the same packed layout.
+     * @param from the field to read.
+     * @param to the field to write.
+     * @return {@code true} if {@link #stepBand(com.oneandone.gameoflife.Field, com.oneandone.gameoflife.Field, int, int, com.oneandone.gameoflife.WordChanges)}
+     * can calculate the fields.
+     */
+    static boolean isPacked(Field from, Field to) {
+        return (from instanceof LongFieldImpl && to instanceof LongFieldImpl)
+                || (from instanceof AbstractBufferFieldImpl && to instanceof AbstractBufferFieldImpl);
+    }
+
+    /** Calculates a band of rows of the next generation of two
+     * {@link #isPacked(com.oneandone.gameoflife.Field, com.oneandone.gameoflife.Field) packed} fields.
+     * @param from the current generation.
+     * @param to the field to write the next generation to.
+     * @param fromRow the first row to calculate, inclusive.
+     * @param toRow the last row to calculate, exclusive.
+     * @param changes the changes to record the changed words of the rows in,
+     * or {@code null}.
+     */
+    void stepBand(Field from, Field to, int fromRow, int toRow, WordChanges changes) {
+        if (from instanceof LongFieldImpl) {
+            stepRows((LongFieldImpl) from, (LongFieldImpl) to, fromRow, toRow, changes);
+        } else {
+            stepRows((AbstractBufferFieldImpl) from, (AbstractBufferFieldImpl) to, fromRow, toRow, changes);
+        }
+    }
+
+    /** Calculates a band of rows of the next generation by copying
+     * the rows from and to the buffers.
+     * @param from the current generation.
+     * @param to the field to write the next generation to.
+     * @param fromRow the first row to calculate, inclusive.
+     * @param toRow the last row to calculate, exclusive.
+     * @param changes the changes to record the changed words in, or {@code null}.
+     */
+    void stepRows(AbstractBufferFieldImpl from, AbstractBufferFieldImpl to, int fromRow, int toRow,
+            WordChanges changes) {
+        int words = from.getWordsPerRow();
+        int height = from.getHeight();
+        long lastWordMask = lastWordMask(from.getWidth());
+        long[] above = new long[words];
+        long[] row = new long[words];
+        long[] below = new long[words];
+        long[] out = new long[words];
+
+        if (fromRow > 0) {
+            from.getRow(fromRow - 1, above);
+        }
+        from.getRow(fromRow, row);
+        for (int y = fromRow; y < toRow; y++) {
+            if (y < height - 1) {
+                from.getRow(y + 1, below);
+            } else {
+                Arrays.fill(below, 0);
+            }
+            stepRow(rule, above, 0, row, 0, below, 0, out, 0, words, lastWordMask, false, changes, y);
+            to.setRow(y, out);
+
+            long[] swap = above;
+            above = row;
+            row = below;
+            below = swap;
+        }
+    }
+
+    /** Calculates a band of rows of the next generation.
+     * @param from the current generation.
+     * @param to the field to write the next generation to.
+     * @param fromRow the first row to calculate, inclusive.
+     * @param toRow the last row to calculate, exclusive.
+     * @param changes the changes to record the changed words in, or {@code null}.
+     */
+    void stepRows(LongFieldImpl from, LongFieldImpl to, int fromRow, int toRow, WordChanges changes) {
+        int words = from.getWordsPerRow();
+        int height = from.getHeight();
+        long lastWordMask = lastWordMask(from.getWidth());
+        long[] src = from.getWords();
+        long[] dst = to.getWords();
+        long[] empty = new long[words];
+        boolean torus = isTorus(from);
+        // the first and last row see the other one on a torus
+        long[] outside = torus ? src : empty;
+        int lastRowOffset = torus ? (height - 1) * words : 0;
+
+        for (int y = fromRow; y < toRow; y++) {
+            int rowOffset = y * words;
+            long[] above = y > 0 ? src : outside;
+            int aboveOffset = y > 0 ? rowOffset - words : lastRowOffset;
+            long[] below = y < height - 1 ? src : outside;
+            int belowOffset = y < height - 1 ? rowOffset + words : 0;
+            stepRow(rule, above, aboveOffset, src, rowOffset, below, belowOffset,
+                    dst, rowOffset, words, lastWordMask, torus, changes, y);
+        }
+    }
+
+    /** Mask for the bits of the last word in a row that are inside the field.
+     * @param width the width of the field in cells.
+     * @return the bit mask with one bits for each valid cell.
+     */
+    static long lastWordMask(int width) {
+        int rest = width & 0x3f;
+        return rest == 0 ? -1L : (1L << rest) - 1;
+    }
+
+    /** Calculates the next generation of one packed row.
+     * @param rule the rule to calculate with.
+     * @param above the array containing the row above.
+     * @param aboveOffset the start index of the row above.
+     * @param row the array containing the row to calculate.
+     * @param rowOffset the start index of the row to calculate.
+     * @param below the array containing the row below.
+     * @param belowOffset the start index of the row below.
+     * @param out the array to write the next generation row to.
+     * @param outOffset the start index to write to.
+     * @param words the number of words in a row.
+     * @param lastWordMask the mask for valid bits in the last word.
+     * @param torus whether the first and last cell of the rows are neighbors.
+     * @param changes the changes to record the changed words in, or {@code null}.
+     * @param y the row recorded in {@code changes}.
+     */
+    static void stepRow(Rule rule, long[] above, int aboveOffset,
+            long[] row, int rowOffset,
+            long[] below, int belowOffset,
+            long[] out, int outOffset,
+            int words, long lastWordMask, boolean torus,
+            WordChanges changes, int y) {
+        // sliding window of the previous, current and next word
+        long a0 = 0, a1 = above[aboveOffset];
+        long b0 = 0, b1 = row[rowOffset];
+        long c0 = 0, c1 = below[belowOffset];
+        // the bit of the last cell in the last word
+        int lastBit = 63 - Long.numberOfLeadingZeros(lastWordMask);
+        if (torus) {
+            // the last cell is the left neighbor of the first cell
+            int last = words - 1;
+            a0 = (above[aboveOffset + last] >>> lastBit) << 63;
+            b0 = (row[rowOffset + last] >>> lastBit) << 63;
+            c0 = (below[belowOffset + last] >>> lastBit) << 63;
+        }
+        for (int i = 0; i < words; i++) {
+            long a2 = 0, b2 = 0, c2 = 0;
+            if (i + 1 < words) {
+                a2 = above[aboveOffset + i + 1];
+                b2 = row[rowOffset + i + 1];
+                c2 = below[belowOffset + i + 1];
+            } else if (torus) {
+                // the first cell is the right neighbor of the last cell,
+                // right of it in the last word or in the word after
+                long aFirst = above[aboveOffset] & 1;
+                long bFirst = row[rowOffset] & 1;
+                long cFirst = below[belowOffset] & 1;
+                if (lastBit == 63) {
+                    a2 = aFirst;
+                    b2 = bFirst;
+                    c2 = cFirst;
+                } else {
+                    a1 |= aFirst << (lastBit + 1);
+                    b1 |= bFirst << (lastBit + 1);
+                    c1 |= cFirst << (lastBit + 1);
+                }
+            }
+            long next = nextWord(rule, a0, a1, a2, b0, b1, b2, c0, c1, c2);
+            if (i + 1 == words) {
+                next &= lastWordMask;
+            }
+            out[outOffset + i] = next;
+            if (changes != null) {
+                changes.add(y, i, next ^ row[rowOffset + i]);
+            }
+            a0 = a1; a1 = a2;
+            b0 = b1; b1 = b2;
+            c0 = c1; c1 = c2;
+        }
+    }
+
+    /** Calculates the next generation of the 64 cells in word {@code b1}.
+     * The parameters are the words left, at and right of the calculated
+     * word in the row above ({@code a}), the row itself ({@code b})
+     * and the row below ({@code c}).
+     * @param rule the rule to calculate with.
+     * @return the next generation of the 64 cells in {@code b1}.
+     */
+    static long nextWord(Rule rule, long a0, long a1, long a2,
+            long b0, long b1, long b2,
+            long c0, long c1, long c2) {
+        // neighbors at x-1 and x+1 moved to the bit position of x
+        long aL = (a1 << 1) | (a0 >>> 63);
+        long aR = (a1 >>> 1) | (a2 << 63);
+        long bL = (b1 << 1) | (b0 >>> 63);
+        long bR = (b1 >>> 1) | (b2 << 63);
+        long cL = (c1 << 1) | (c0 >>> 63);
+        long cR = (c1 >>> 1) | (c2 << 63);
+
+        // full adder for the row above, weights 1 and 2
+        long aX = aL ^ a1;
+        long aSum = aX ^ aR;
+        long aCarry = (aL & a1) | (aR & aX);
+        // full adder for the row below
+        long cX = cL ^ c1;
+        long cSum = cX ^ cR;
+        long cCarry = (cL & c1) | (cR & cX);
+        // half adder for the left and right neighbor
+        long bSum = bL ^ bR;
+        long bCarry = bL & bR;
+
+        // add the weight 1 sums
+        long onesX = aSum ^ cSum;
+        long ones = onesX ^ bSum;
+        long onesCarry = (aSum & cSum) | (bSum & onesX);
+
+        // add the four weight 2 carries
+        long twosX = aCarry ^ cCarry;
+        long twosSum = twosX ^ bCarry;
+        long twosCarry = (aCarry & cCarry) | (bCarry & twosX);
+        long twos = twosSum ^ onesCarry;
+        long foursCarry = twosSum & onesCarry;
+
+        long fours = twosCarry ^ foursCarry;
+        long eights = twosCarry & foursCarry;
+
+        return rule.next(b1, ones, twos, fours, eights);
+    }
+}
@@ -0,0 +1,140 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import lombok.Getter;
+
+/**
+ * Packed engine calculating bands of rows on multiple threads.
+ * The active field is only read and every band writes its own
+ * rows of the passive field, so the bands need no synchronization.
+ * Each step waits for all bands to finish before returning.
+ * The result is the same as the one of the {@link PackedEngine}.
+ * The engine owns a thread pool and needs to be {@link #close() closed}.
+ * @author Stephan Fuhrmann
+ */
+public class ParallelEngine extends PackedEngine implements AutoCloseable {
+
+    /** The number of bands per thread, more bands balance the load better. */
+    private static final int BANDS_PER_THREAD = 4;
+
+    /** The minimum number of rows in a band. */
+    static final int BAND_ROWS_MIN = 16;
+
+    /** The number of threads calculating. */
+    @Getter
+    private final int threads;
+
+    /** The pool running the bands. */
+    private final ForkJoinPool pool;
+
+    /** Creates an engine with one thread per available processor.
+     */
+    public ParallelEngine() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /** Creates an engine.
+     * @param threads the number of threads to calculate with.
+     */
+    public ParallelEngine(int threads) {
+        this(threads, LONG_FIELDS);
+    }
+
+    /** Creates an engine working on fields of the given factory.
+     * @param threads the number of threads to calculate with.
+     * @param fieldFactory the factory for new fields, for example
+     * {@code OffHeapFieldImpl::new}.
+     */
+    public ParallelEngine(int threads, FieldFactory fieldFactory) {
+        super(fieldFactory);
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads <= 0");
+        }
+        this.threads = threads;
+        this.pool = new ForkJoinPool(threads);
+    }
+
+    @Override
+    public void step(Field active, Field passive) {
+        if (!isPacked(active, passive)) {
+            super.step(active, passive);
+            return;
+        }
+        stepBands(active, passive, null);
+    }
+
+    @Override
+    public void step(Field active, Field passive, WordChanges changes) {
+        if (!isPacked(active, passive)) {
+            super.step(active, passive, changes);
+            return;
+        }
+        stepBands(active, passive, changes);
+    }
+
+    /** Calculates the bands of two packed fields on the pool.
+     * The bands record disjoint rows of the changes.
+     */
+    private void stepBands(Field active, Field passive, WordChanges changes) {
+        int height = active.getHeight();
+        int bandRows = Math.max(BAND_ROWS_MIN, height / (threads * BANDS_PER_THREAD));
+        if (threads == 1 || height <= bandRows) {
+            stepBand(active, passive, 0, height, changes);
+        } else {
+            pool.invoke(new Band(active, passive, 0, height, bandRows, changes));
+        }
+    }
+
+    /** Releases the threads of the pool. */
+    @Override
+    public void close() {
+        pool.shutdown();
+    }
+
+    /** A band of rows, split in halves until it is small enough. */
+    private class Band extends RecursiveAction {
+        private final Field from;
+        private final Field to;
+        private final int fromRow;
+        private final int toRow;
+        private final int bandRows;
+        private final WordChanges changes;
+
+        Band(Field from, Field to, int fromRow, int toRow, int bandRows, WordChanges changes) {
+            this.from = from;
+            this.to = to;
+            this.fromRow = fromRow;
+            this.toRow = toRow;
+            this.bandRows = bandRows;
+            this.changes = changes;
+        }
+
+        @Override
+        protected void compute() {
+            if (toRow - fromRow <= bandRows) {
+                stepBand(from, to, fromRow, toRow, changes);
+            } else {
+                int middle = (fromRow + toRow) >>> 1;
+                invokeAll(
+                        new Band(from, to, fromRow, middle, bandRows, changes),
+                        new Band(from, to, middle, toRow, bandRows, changes));
+            }
+        }
+    }
+}
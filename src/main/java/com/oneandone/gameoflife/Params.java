@@ -15,6 +15,7 @@
  */
 package com.oneandone.gameoflife;
 
+import java.nio.file.Path;
 import java.util.Arrays;
 import lombok.Getter;
 import lombok.extern.slf4j.Slf4j;
@@ -34,6 +35,71 @@ public class Params {
     @Getter
     @Option(name = "-help", aliases = {"-h"}, usage = "Show this command line help.", help = true)
     private boolean help;
+
+    @Option(name = "-rule", aliases = {"-r"}, usage = "The rule as rulestring, for example B3/S23 or B36/S23.")
+    private String rulestring = Rule.CONWAY.toString();
+
+    @Getter
+    @Option(name = "-topology", aliases = {"-t"}, usage = "What the border cells see as neighbors.")
+    private Topology topology = Topology.BOUNDED;
+
+    @Getter
+    @Option(name = "-headless", usage = "Run the simulation without user interface and print statistics.")
+    private boolean headless;
+
+    @Getter
+    @Option(name = "-pattern", aliases = {"-p"}, usage = "Headless: RLE or Macrocell (.mc) pattern file to start with instead of a random field.")
+    private Path pattern;
+
+    @Option(name = "-seed", usage = "Headless: seed of the random field, random if not given.")
+    private Long seed;
+
+    @Getter
+    @Option(name = "-density", usage = "Headless: probability of a cell of the random field to be alive.")
+    private double density = 0.5;
+
+    @Getter
+    @Option(name = "-width", usage = "Headless: width of the field in cells.")
+    private int width = 1024;
+
+    @Getter
+    @Option(name = "-height", usage = "Headless: height of the field in cells.")
+    private int height = 1024;
+
+    @Getter
+    @Option(name = "-generations", aliases = {"-g"}, usage = "Headless: number of generations to calculate.")
+    private int generations = 1000;
+
+    @Getter
+    @Option(name = "-engine", aliases = {"-e"}, usage = "Headless: engine to calculate with.")
+    private EngineType engine = EngineType.PACKED;
+
+    @Getter
+    @Option(name = "-threads", usage = "Headless: number of threads of the PARALLEL engine and the soup search.")
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    @Getter
+    @Option(name = "-output", aliases = {"-o"}, usage = "Headless: RLE or Macrocell (.mc) file to write the last generation to.")
+    private Path output;
+
+    @Getter
+    @Option(name = "-soups", usage = "Headless: number of random soups to run until they stabilize, instead of one field.")
+    private long soups;
+
+    @Getter
+    @Option(name = "-soupSize", usage = "Headless: width and height of a soup in cells.")
+    private int soupSize = SoupSearch.SOUP_SIZE_DEFAULT;
+
+    /** The parsed {@link #rulestring}. */
+    @Getter
+    private Rule rule;
+    
+    /** Get the seed of the random field.
+     * @return the given seed, or a random one if no seed was given.
+     */
+    public long getSeed() {
+        return seed;
+    }
     
     /** Parse the command line options. 
      * @param args the command line args as passed to the main method of the
@@ -57,6 +123,37 @@ public class Params {
                 cmdLineParser.printUsage(System.err);
                 return null;
             }
+
+            try {
+                result.rule = Rule.parse(result.rulestring);
+            } catch (IllegalArgumentException ex) {
+                throw new CmdLineException(cmdLineParser, ex.getMessage(), ex);
+            }
+            if (result.density < 0 || result.density > 1) {
+                throw new CmdLineException(cmdLineParser, "Density must be between 0 and 1", null);
+            }
+            if (result.width <= 0 || result.height <= 0) {
+                throw new CmdLineException(cmdLineParser, "Width and height must be positive", null);
+            }
+            if (result.generations < 0) {
+                throw new CmdLineException(cmdLineParser, "Generations must not be negative", null);
+            }
+            if (result.threads <= 0) {
+                throw new CmdLineException(cmdLineParser, "Threads must be positive", null);
+            }
+            if (result.soups < 0) {
+                throw new CmdLineException(cmdLineParser, "Soups must not be negative", null);
+            }
+            if (result.soupSize <= 0) {
+                throw new CmdLineException(cmdLineParser, "Soup size must be positive", null);
+            }
+            if (!result.engine.supports(result.topology)) {
+                throw new CmdLineException(cmdLineParser,
+                        "Engine " + result.engine + " does not support topology " + result.topology, null);
+            }
+            if (result.seed == null) {
+                result.seed = System.nanoTime();
+            }
                         
             return result;
         } catch (CmdLineException ex) {
@@ -0,0 +1,243 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Locale;
+
+/**
+ * A Life-like rule telling which dead cells are born and which
+ * alive cells survive depending on the number of alive neighbors.
+ * Rules are written as rulestrings like {@code B3/S23} for the
+ * original game of life or {@code B36/S23} for HighLife.
+ * The engines evaluate rules without branches on bit planes
+ * of neighbor counts, see {@link #next(long, long, long, long, long)}.
+ * Instances are immutable.
+ * @author Stephan Fuhrmann
+ */
+public final class Rule {
+
+    /** The original game of life, {@code B3/S23}. */
+    public static final Rule CONWAY = new Rule(1 << 3, 1 << 2 | 1 << 3);
+
+    /** The number of possible neighbor counts, 0 to 8. */
+    private static final int COUNTS = 9;
+
+    /** The neighbor counts giving birth, bit {@code n} for {@code n} neighbors. */
+    private final int birth;
+
+    /** The neighbor counts for surviving, bit {@code n} for {@code n} neighbors. */
+    private final int survival;
+
+    /** Whether this is the {@link #CONWAY} rule with its shorter formula. */
+    private final boolean conway;
+
+    /** All bits set for each neighbor count giving birth, else zero. */
+    private final long[] birthMasks;
+
+    /** All bits set for each neighbor count for surviving, else zero. */
+    private final long[] survivalMasks;
+
+    private Rule(int birth, int survival) {
+        this.birth = birth;
+        this.survival = survival;
+        this.conway = birth == 1 << 3 && survival == (1 << 2 | 1 << 3);
+        this.birthMasks = new long[COUNTS];
+        this.survivalMasks = new long[COUNTS];
+        for (int n = 0; n < COUNTS; n++) {
+            birthMasks[n] = (birth & 1 << n) != 0 ? -1L : 0;
+            survivalMasks[n] = (survival & 1 << n) != 0 ? -1L : 0;
+        }
+    }
+
+    /** Creates a rule from neighbor count bit masks.
+     * @param birth bit {@code n} is set if a dead cell with {@code n}
+     * alive neighbors is born.
+     * @param survival bit {@code n} is set if an alive cell with {@code n}
+     * alive neighbors survives.
+     * @return the rule.
+     */
+    public static Rule of(int birth, int survival) {
+        if ((birth | survival) >>> COUNTS != 0) {
+            throw new IllegalArgumentException("Neighbor counts above 8");
+        }
+        return new Rule(birth, survival);
+    }
+
+    /** Parses a rulestring. Accepted are the B/S notation like
+     * {@code B36/S23}, also in the order {@code S23/B36}, and the
+     * S/B notation like {@code 23/36}.
+     * @param rulestring the rulestring to parse.
+     * @return the rule.
+     * @throws IllegalArgumentException if the rulestring is malformed.
+     */
+    public static Rule parse(String rulestring) {
+        String[] parts = rulestring.trim().toUpperCase(Locale.ROOT).split("/", -1);
+        if (parts.length != 2) {
+            throw new IllegalArgumentException("Rulestring needs two parts: " + rulestring);
+        }
+        int birth;
+        int survival;
+        if (parts[0].startsWith("B") && parts[1].startsWith("S")) {
+            birth = counts(parts[0].substring(1), rulestring);
+            survival = counts(parts[1].substring(1), rulestring);
+        } else if (parts[0].startsWith("S") && parts[1].startsWith("B")) {
+            survival = counts(parts[0].substring(1), rulestring);
+            birth = counts(parts[1].substring(1), rulestring);
+        } else {
+            survival = counts(parts[0], rulestring);
+            birth = counts(parts[1], rulestring);
+        }
+        return new Rule(birth, survival);
+    }
+
+    /** Parses the digits of a rulestring part to a bit mask. */
+    private static int counts(String digits, String rulestring) {
+        int result = 0;
+        for (int i = 0; i < digits.length(); i++) {
+            char c = digits.charAt(i);
+            if (c < '0' || c > '8') {
+                throw new IllegalArgumentException("Illegal neighbor count '" + c + "' in " + rulestring);
+            }
+            result |= 1 << (c - '0');
+        }
+        return result;
+    }
+
+    /** Get the neighbor counts giving birth.
+     * @return bit {@code n} is set if a dead cell with {@code n}
+     * alive neighbors is born.
+     */
+    public int getBirth() {
+        return birth;
+    }
+
+    /** Get the neighbor counts for surviving.
+     * @return bit {@code n} is set if an alive cell with {@code n}
+     * alive neighbors survives.
+     */
+    public int getSurvival() {
+        return survival;
+    }
+
+    /** Checks whether dead cells without alive neighbors are born.
+     * Such rules fill an infinite plane in one generation.
+     * @return {@code true} if the rule contains {@code B0}.
+     */
+    public boolean isBirthWithoutNeighbors() {
+        return (birth & 1) != 0;
+    }
+
+    /** Calculates the next status of one cell.
+     * @param alive whether the cell is alive at the moment.
+     * @param neighbors the number of alive neighbors, 0 to 8.
+     * @return {@code true} if the cell is alive in the next generation.
+     */
+    public boolean next(boolean alive, int neighbors) {
+        return ((alive ? survival : birth) & 1 << neighbors) != 0;
+    }
+
+    /** Calculates the next status of 64 cells from the bit planes of
+     * their neighbor counts.
+     * @param alive the cells at the moment.
+     * @param ones bit 0 of the neighbor counts.
+     * @param twos bit 1 of the neighbor counts.
+     * @param fours bit 2 of the neighbor counts.
+     * @param eights bit 3 of the neighbor counts.
+     * @return the cells in the next generation.
+     */
+    long next(long alive, long ones, long twos, long fours, long eights) {
+        if (conway) {
+            // alive with 3 neighbors, or with 2 neighbors if alive before
+            return ~eights & ~fours & twos & (ones | alive);
+        }
+        // the neighbor counts modulo 4
+        long notOnes = ~ones;
+        long notTwos = ~twos;
+        long mod0 = notTwos & notOnes;
+        long mod1 = notTwos & ones;
+        long mod2 = twos & notOnes;
+        long mod3 = twos & ones;
+        long low = ~fours & ~eights;
+        long born = select(birthMasks, mod0, mod1, mod2, mod3, low, fours, eights);
+        long survives = select(survivalMasks, mod0, mod1, mod2, mod3, low, fours, eights);
+        return (alive & survives) | (~alive & born);
+    }
+
+    /** Selects the cells whose neighbor count is in the masks. */
+    private static long select(long[] masks, long mod0, long mod1, long mod2, long mod3,
+            long low, long fours, long eights) {
+        return (low & ((mod0 & masks[0]) | (mod1 & masks[1]) | (mod2 & masks[2]) | (mod3 & masks[3])))
+                | (fours & ((mod0 & masks[4]) | (mod1 & masks[5]) | (mod2 & masks[6]) | (mod3 & masks[7])))
+                | (eights & masks[8]);
+    }
+
+    /** Get the masks for the neighbor counts giving birth.
+     * @return all bits set at index {@code n} if a cell with {@code n}
+     * neighbors is born, else zero. Not a copy, must not be modified.
+     */
+    long[] getBirthMasks() {
+        return birthMasks;
+    }
+
+    /** Get the masks for the neighbor counts for surviving.
+     * @return all bits set at index {@code n} if a cell with {@code n}
+     * neighbors survives, else zero. Not a copy, must not be modified.
+     */
+    long[] getSurvivalMasks() {
+        return survivalMasks;
+    }
+
+    /** Checks whether this is the {@link #CONWAY} rule.
+     * @return {@code true} for {@code B3/S23}.
+     */
+    boolean isConway() {
+        return conway;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Rule)) {
+            return false;
+        }
+        Rule other = (Rule) o;
+        return birth == other.birth && survival == other.survival;
+    }
+
+    @Override
+    public int hashCode() {
+        return birth << COUNTS | survival;
+    }
+
+    /** Get the rulestring in B/S notation.
+     * @return the rulestring like {@code B3/S23}.
+     */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder("B");
+        appendCounts(sb, birth);
+        sb.append("/S");
+        appendCounts(sb, survival);
+        return sb.toString();
+    }
+
+    private static void appendCounts(StringBuilder sb, int counts) {
+        for (int n = 0; n < COUNTS; n++) {
+            if ((counts & 1 << n) != 0) {
+                sb.append(n);
+            }
+        }
+    }
+}
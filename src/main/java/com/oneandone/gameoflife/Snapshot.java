@@ -0,0 +1,138 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+
+/**
+ * A generation published by a {@link SnapshotRing}.
+ * The field of a snapshot is not changed as long as the snapshot
+ * is retained, so it can be read while the next generations are
+ * calculated. Snapshots are {@link SnapshotRing#acquire() acquired}
+ * from the ring and need to be {@link #release() released} when
+ * they are no longer read, the buffer is then recycled.
+ * @author Stephan Fuhrmann
+ */
+public final class Snapshot {
+
+    /** The ring the snapshot is recycled to. */
+    private final SnapshotRing ring;
+
+    /** The copy of the generation. Must not be modified. */
+    private final LongFieldImpl field;
+
+    /** The publish sequence number of the last change of each tile
+     * up to this snapshot. */
+    private final long[] tileSequences;
+
+    /** The number of holders, including the ring while this is
+     * the latest snapshot. 0 while the buffer is free or written. */
+    private final AtomicInteger references = new AtomicInteger();
+
+    /** The publish sequence number, starting at 1 for the first snapshot. */
+    @Getter
+    private long sequence;
+
+    /** The iteration of the generation. */
+    @Getter
+    private int iteration;
+
+    /** Creates an unpublished buffer.
+     * @param ring the ring the snapshot is recycled to.
+     * @param width the width of the field.
+     * @param height the height of the field.
+     * @param tiles the number of {@link ChangeSet} tiles of the field.
+     */
+    Snapshot(SnapshotRing ring, int width, int height, int tiles) {
+        this.ring = ring;
+        this.field = new LongFieldImpl(width, height);
+        this.tileSequences = new long[tiles];
+    }
+
+    /** Gets the generation. The field must not be modified.
+     * @return the field of the generation.
+     */
+    public Field getField() {
+        return field;
+    }
+
+    /** Gets the tiles that changed after an earlier snapshot.
+     * @param previousSequence the sequence number of the
+     * earlier snapshot, or 0 to get all tiles.
+     * @return the tiles changed since the earlier snapshot.
+     */
+    public ChangeSet changesSince(long previousSequence) {
+        ChangeSet result = new ChangeSet(field.getWidth(), field.getHeight());
+        for (int i = 0; i < tileSequences.length; i++) {
+            if (tileSequences[i] > previousSequence) {
+                result.addTile(i);
+            }
+        }
+        return result;
+    }
+
+    /** Stops reading the snapshot. The snapshot must not be used
+     * afterwards.
+     */
+    public void release() {
+        int count = references.decrementAndGet();
+        if (count == 0) {
+            ring.recycle(this);
+        } else if (count < 0) {
+            throw new IllegalStateException("Released too often");
+        }
+    }
+
+    /** Retains the snapshot if it is still published.
+     * @return {@code true} if the snapshot was retained.
+     */
+    boolean tryRetain() {
+        int count = references.get();
+        while (count > 0) {
+            if (references.compareAndSet(count, count + 1)) {
+                return true;
+            }
+            count = references.get();
+        }
+        return false;
+    }
+
+    /** Makes the written buffer a published snapshot held by the ring.
+     * @param newSequence the publish sequence number.
+     * @param newIteration the iteration of the generation.
+     */
+    void publish(long newSequence, int newIteration) {
+        this.sequence = newSequence;
+        this.iteration = newIteration;
+        references.set(1);
+    }
+
+    /** Gets the copy of the generation to write to. */
+    LongFieldImpl getBuffer() {
+        return field;
+    }
+
+    /** Gets the publish sequence numbers of the tiles to write to. */
+    long[] getTileSequences() {
+        return tileSequences;
+    }
+
+    @Override
+    public String toString() {
+        return "Snapshot " + sequence + " of iteration " + iteration;
+    }
+}
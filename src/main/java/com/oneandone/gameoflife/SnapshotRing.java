@@ -0,0 +1,226 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import lombok.Getter;
+
+/**
+ * Hands generations from the calculating thread to readers
+ * without locks.
+ * The calculating thread {@link #publish(com.oneandone.gameoflife.Field, int, com.oneandone.gameoflife.ChangeSet) publishes}
+ * a copy of each generation into a recycled buffer, readers
+ * {@link #acquire() acquire} the newest one at their own rate.
+ * A buffer is only written while no reader holds it, so readers
+ * never see a half written generation. A recycled buffer only
+ * needs the tiles copied that changed since it was published
+ * the last time.
+ * If all buffers are held by readers, the generation is skipped
+ * instead of waiting.
+ * Only one thread may publish, any number of threads may acquire.
+ * @see LifeRunnable
+ * @author Stephan Fuhrmann
+ */
+public class SnapshotRing {
+
+    /** The maximum number of buffers. */
+    @Getter
+    private final int capacity;
+
+    /** The newest snapshot, {@code null} before the first publication. */
+    private final AtomicReference<Snapshot> latest = new AtomicReference<>();
+
+    /** The buffers no reader holds. */
+    private final Queue<Snapshot> free = new ConcurrentLinkedQueue<>();
+
+    /** The number of published generations. */
+    private final LongAdder published = new LongAdder();
+
+    /** The number of generations skipped because all buffers were held. */
+    private final LongAdder skipped = new LongAdder();
+
+    /** The number of buffers allocated for the current size,
+     * only used by the publishing thread. */
+    private int allocated;
+
+    /** The sequence number of the last publication. */
+    private long sequence;
+
+    /** The sequence number of the last change of each tile. */
+    private long[] tileSequences;
+
+    /** The size of the published fields. */
+    private int width;
+    private int height;
+
+    /** The packed row buffer for copying. */
+    private long[] row;
+
+    /** Creates a ring.
+     * @param capacity the maximum number of buffers. The ring holds
+     * the newest snapshot and writes the next one, so there need to be
+     * two more buffers than readers holding a snapshot at the same time.
+     */
+    public SnapshotRing(int capacity) {
+        if (capacity < 2) {
+            throw new IllegalArgumentException("capacity < 2");
+        }
+        this.capacity = capacity;
+    }
+
+    /** Gets the number of published generations.
+     * @return the number of generations readers could acquire.
+     */
+    public long getPublished() {
+        return published.sum();
+    }
+
+    /** Gets the number of skipped generations.
+     * @return the number of generations not published because
+     * all buffers were held by readers.
+     */
+    public long getSkipped() {
+        return skipped.sum();
+    }
+
+    /** Publishes a copy of a generation.
+     * Must only be called by one thread.
+     * @param field the generation to copy.
+     * @param iteration the iteration of the generation.
+     * @param changes the tiles changed since the last call, or
+     * {@code null} if unknown. Tiles of skipped generations are
+     * remembered and copied with the next published generation.
+     * @return {@code true} if the generation was published,
+     * {@code false} if it was skipped.
+     */
+    public boolean publish(Field field, int iteration, ChangeSet changes) {
+        if (tileSequences == null || field.getWidth() != width || field.getHeight() != height) {
+            resize(field.getWidth(), field.getHeight());
+        } else if (changes == null) {
+            Arrays.fill(tileSequences, sequence + 1);
+        } else {
+            for (int tile = changes.nextTile(0); tile >= 0; tile = changes.nextTile(tile + 1)) {
+                tileSequences[tile] = sequence + 1;
+            }
+        }
+        Snapshot buffer = take();
+        if (buffer == null) {
+            skipped.increment();
+            return false;
+        }
+        copy(field, buffer);
+        buffer.publish(++sequence, iteration);
+        published.increment();
+        Snapshot old = latest.getAndSet(buffer);
+        if (old != null) {
+            old.release();
+        }
+        return true;
+    }
+
+    /** Starts over with a new field size. All tiles are changed. */
+    private void resize(int newWidth, int newHeight) {
+        width = newWidth;
+        height = newHeight;
+        tileSequences = new long[new ChangeSet(width, height).getTileTotal()];
+        Arrays.fill(tileSequences, sequence + 1);
+        allocated = 0;
+        free.clear();
+    }
+
+    /** Gets a free buffer of the current size.
+     * @return the buffer or {@code null} if all are held by readers.
+     */
+    private Snapshot take() {
+        Snapshot buffer;
+        while ((buffer = free.poll()) != null) {
+            if (buffer.getBuffer().getWidth() == width && buffer.getBuffer().getHeight() == height) {
+                return buffer;
+            }
+        }
+        if (allocated < capacity) {
+            allocated++;
+            return new Snapshot(this, width, height, tileSequences.length);
+        }
+        return null;
+    }
+
+    /** Copies the tiles that changed since the buffer was published
+     * the last time.
+     * @param field the generation to copy.
+     * @param buffer the buffer to copy to.
+     */
+    private void copy(Field field, Snapshot buffer) {
+        LongFieldImpl target = buffer.getBuffer();
+        long[] words = target.getWords();
+        long[] bufferSequences = buffer.getTileSequences();
+        long bufferSequence = buffer.getSequence();
+        int wordsPerRow = target.getWordsPerRow();
+        if (row == null || row.length != wordsPerRow) {
+            row = new long[wordsPerRow];
+        }
+        int tilesX = wordsPerRow;
+        for (int tileRow = 0; tileRow * tilesX < tileSequences.length; tileRow++) {
+            int first = tileRow * tilesX;
+            int from = -1;
+            int to = -1;
+            for (int tile = first; tile < first + tilesX; tile++) {
+                if (tileSequences[tile] > bufferSequence) {
+                    if (from < 0) {
+                        from = tile - first;
+                    }
+                    to = tile - first + 1;
+                }
+            }
+            if (from < 0) {
+                continue;
+            }
+            int toY = Math.min(height, (tileRow + 1) << ChangeSet.TILE_SHIFT);
+            for (int y = tileRow << ChangeSet.TILE_SHIFT; y < toY; y++) {
+                field.getRow(y, row);
+                // a tile column is one word of the packed row
+                System.arraycopy(row, from, words, y * wordsPerRow + from, to - from);
+            }
+        }
+        System.arraycopy(tileSequences, 0, bufferSequences, 0, tileSequences.length);
+    }
+
+    /** Returns a buffer no reader holds anymore.
+     * @param snapshot the free buffer.
+     */
+    void recycle(Snapshot snapshot) {
+        free.offer(snapshot);
+    }
+
+    /** Gets the newest generation. The snapshot stays unchanged until
+     * it is {@link Snapshot#release() released}.
+     * @return the newest snapshot or {@code null} if nothing was
+     * published yet.
+     */
+    public Snapshot acquire() {
+        while (true) {
+            Snapshot snapshot = latest.get();
+            if (snapshot == null || snapshot.tryRetain()) {
+                return snapshot;
+            }
+            // recycled in the meantime, the next one is published
+        }
+    }
+}
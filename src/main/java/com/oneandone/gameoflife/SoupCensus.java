@@ -0,0 +1,131 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The results of a {@link SoupSearch}.
+ * The soups are counted by the period they stabilized with.
+ * The workers only add to {@link LongAdder} counters, so
+ * they don't block each other.
+ * @author Stephan Fuhrmann
+ */
+public class SoupCensus {
+
+    private final LongAdder soups = new LongAdder();
+    private final LongAdder died = new LongAdder();
+    private final LongAdder unstabilized = new LongAdder();
+    private final LongAdder generations = new LongAdder();
+    private final LongAdder stabilizationGenerations = new LongAdder();
+    private final LongAdder aliveCells = new LongAdder();
+
+    /** The number of stabilized soups per period. */
+    private final Map<Integer, LongAdder> periods = new ConcurrentHashMap<>();
+
+    /** Adds a soup that stabilized.
+     * @param cycle the cycle the soup ended in.
+     * @param alive the number of alive cells in the last generation.
+     */
+    void addStabilized(Cycle cycle, long alive) {
+        soups.increment();
+        generations.add(cycle.getIteration());
+        stabilizationGenerations.add(cycle.getFirstIteration());
+        aliveCells.add(alive);
+        if (alive == 0) {
+            died.increment();
+        }
+        periods.computeIfAbsent(cycle.getPeriod(), k -> new LongAdder()).increment();
+    }
+
+    /** Adds a soup that did not stabilize within the generation limit.
+     * @param generationCount the number of calculated generations.
+     * @param alive the number of alive cells in the last generation.
+     */
+    void addUnstabilized(int generationCount, long alive) {
+        soups.increment();
+        unstabilized.increment();
+        generations.add(generationCount);
+        aliveCells.add(alive);
+    }
+
+    /** Get the number of searched soups.
+     * @return the number of soups.
+     */
+    public long getSoups() {
+        return soups.sum();
+    }
+
+    /** Get the number of soups that stabilized.
+     * @return the number of soups with a detected cycle.
+     */
+    public long getStabilized() {
+        return soups.sum() - unstabilized.sum();
+    }
+
+    /** Get the number of soups that stabilized without alive cells.
+     * @return the number of empty soups.
+     */
+    public long getDied() {
+        return died.sum();
+    }
+
+    /** Get the number of soups that did not stabilize within
+     * the generation limit or with a period longer than the window.
+     * @return the number of soups without a detected cycle.
+     */
+    public long getUnstabilized() {
+        return unstabilized.sum();
+    }
+
+    /** Get the number of generations calculated for all soups.
+     * @return the sum of the calculated generations.
+     */
+    public long getGenerations() {
+        return generations.sum();
+    }
+
+    /** Get the average number of generations until a soup
+     * entered its cycle.
+     * @return the average of the first iterations of the stabilized
+     * soups, or 0 if no soup stabilized.
+     */
+    public double getAverageStabilization() {
+        long stabilized = getStabilized();
+        return stabilized != 0 ? (double) stabilizationGenerations.sum() / stabilized : 0;
+    }
+
+    /** Get the number of alive cells in the last generations of all soups.
+     * @return the sum of the alive cells.
+     */
+    public long getAliveCells() {
+        return aliveCells.sum();
+    }
+
+    /** Get the number of stabilized soups per period.
+     * @return a new map from the period to the number of soups,
+     * sorted by the period.
+     */
+    public SortedMap<Integer, Long> getPeriods() {
+        SortedMap<Integer, Long> result = new TreeMap<>();
+        periods.forEach((period, count) -> result.put(period, count.sum()));
+        return result;
+    }
+}
@@ -0,0 +1,290 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Objects;
+import java.util.Queue;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import lombok.Getter;
+import lombok.Setter;
+
+/**
+ * Runs many small random soups until they stabilize and counts
+ * the results in a {@link SoupCensus}.
+ * Each soup is a random square in the center of its own small field.
+ * The soups are independent and are calculated on the threads of a
+ * work stealing pool. The random cells of a soup only depend on the
+ * seed of the search and the index of the soup, so a search gives the
+ * same census with any number of threads.
+ * The games and their fields are reused for the next soup instead of
+ * being allocated for each soup.
+ * @author Stephan Fuhrmann
+ */
+public class SoupSearch {
+
+    /** The default width and height of a soup in cells. */
+    public static final int SOUP_SIZE_DEFAULT = 16;
+
+    /** The default cycle window, the longest period detected. */
+    public static final int CYCLE_WINDOW_DEFAULT = 64;
+
+    /** The engine the soups are calculated with. */
+    static final EngineType ENGINE = EngineType.PACKED;
+
+    /** The number of soups a task calculates without splitting. */
+    static final int SOUPS_PER_TASK = 16;
+
+    /** The rule to calculate the soups with. */
+    @Getter
+    private final Rule rule;
+
+    /** What the border cells see as neighbors. */
+    @Getter
+    private final Topology topology;
+
+    /** The width and height of the random square. */
+    @Getter
+    private final int soupSize;
+
+    /** The width and height of the field the soup evolves in. */
+    @Getter
+    private final int fieldSize;
+
+    /** The number of generations after which a soup counts as unstabilized. */
+    @Getter
+    private int maxGenerations = 1000;
+
+    /** The number of generations each generation is compared with. */
+    @Getter
+    private int cycleWindow = CYCLE_WINDOW_DEFAULT;
+
+    /** The probability of a soup cell to be alive. */
+    @Getter
+    private double density = 0.5;
+
+    /** The metrics to record the calculation in, or {@code null}. */
+    @Getter @Setter
+    private LifeMetrics metrics;
+
+    /** The games not used by a task at the moment. */
+    private final Queue<GameOfLife> freeGames = new ConcurrentLinkedQueue<>();
+
+    /** The number of games created. */
+    private final AtomicInteger gameCount = new AtomicInteger();
+
+    /** Creates a new instance.
+     * @param rule the rule to calculate the soups with.
+     * @param topology what the border cells see as neighbors.
+     * @param soupSize the width and height of the random square.
+     * @param fieldSize the width and height of the field the soup
+     * evolves in, at least the soup size.
+     * @throws IllegalArgumentException if the {@link #ENGINE} does not
+     * support the topology.
+     */
+    public SoupSearch(Rule rule, Topology topology, int soupSize, int fieldSize) {
+        if (soupSize <= 0) {
+            throw new IllegalArgumentException("soupSize <= 0");
+        }
+        if (fieldSize < soupSize) {
+            throw new IllegalArgumentException("fieldSize < soupSize");
+        }
+        if (!ENGINE.supports(topology)) {
+            throw new IllegalArgumentException("Topology " + topology + " not supported by " + ENGINE);
+        }
+        this.rule = Objects.requireNonNull(rule);
+        this.topology = Objects.requireNonNull(topology);
+        this.soupSize = soupSize;
+        this.fieldSize = fieldSize;
+    }
+
+    /** Sets the number of generations after which a soup counts as unstabilized.
+     * @param maxGenerations the generation limit, at least 1.
+     */
+    public void setMaxGenerations(int maxGenerations) {
+        if (maxGenerations <= 0) {
+            throw new IllegalArgumentException("maxGenerations <= 0");
+        }
+        this.maxGenerations = maxGenerations;
+    }
+
+    /** Sets the number of generations each generation is compared with.
+     * Soups with longer periods count as unstabilized.
+     * @param cycleWindow the longest detectable period, at least 1.
+     */
+    public void setCycleWindow(int cycleWindow) {
+        if (cycleWindow <= 0) {
+            throw new IllegalArgumentException("cycleWindow <= 0");
+        }
+        this.cycleWindow = cycleWindow;
+        freeGames.clear();
+    }
+
+    /** Sets the probability of a soup cell to be alive.
+     * @param density the probability between 0 and 1.
+     */
+    public void setDensity(double density) {
+        if (density < 0 || density > 1) {
+            throw new IllegalArgumentException("Illegal density " + density);
+        }
+        this.density = density;
+    }
+
+    /** Calculates the seed of a soup. Neighboring indices give
+     * unrelated seeds.
+     * @param seed the seed of the search.
+     * @param index the index of the soup in the search.
+     * @return the seed of the random cells of the soup.
+     */
+    public static long soupSeed(long seed, long index) {
+        // SplitMix64 finalizer
+        long z = seed + (index + 1) * 0x9e3779b97f4a7c15L;
+        z = (z ^ (z >>> 30)) * 0xbf58476d1ce4e5b9L;
+        z = (z ^ (z >>> 27)) * 0x94d049bb133111ebL;
+        return z ^ (z >>> 31);
+    }
+
+    /** Searches a number of soups.
+     * @param seed the seed of the search.
+     * @param soups the number of soups to calculate.
+     * @param threads the number of threads to calculate with.
+     * @return the census of the soups.
+     */
+    public SoupCensus search(long seed, long soups, int threads) {
+        if (soups < 0) {
+            throw new IllegalArgumentException("soups < 0");
+        }
+        if (threads <= 0) {
+            throw new IllegalArgumentException("threads <= 0");
+        }
+        SoupCensus census = new SoupCensus();
+        if (threads == 1) {
+            runSoups(seed, 0, soups, census);
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(threads);
+            try {
+                pool.invoke(new Soups(seed, 0, soups, census));
+            } finally {
+                pool.shutdown();
+            }
+        }
+        return census;
+    }
+
+    /** Get the number of games created so far. The games are reused,
+     * so this is at most the number of threads.
+     * @return the number of created games.
+     */
+    int getGameCount() {
+        return gameCount.get();
+    }
+
+    /** Takes a free game or creates a new one. */
+    private GameOfLife takeGame() {
+        GameOfLife gameOfLife = freeGames.poll();
+        if (gameOfLife == null) {
+            gameOfLife = new GameOfLife(ENGINE.newEngine(1), topology);
+            gameOfLife.setRule(rule);
+            gameOfLife.setSize(fieldSize, fieldSize);
+            gameOfLife.setCycleWindow(cycleWindow);
+            gameCount.incrementAndGet();
+        }
+        return gameOfLife;
+    }
+
+    /** Calculates a range of soups in one game.
+     * @param seed the seed of the search.
+     * @param from the index of the first soup, inclusive.
+     * @param to the index of the last soup, exclusive.
+     * @param census the census to add the results to.
+     */
+    private void runSoups(long seed, long from, long to, SoupCensus census) {
+        GameOfLife gameOfLife = takeGame();
+        try {
+            for (long i = from; i < to; i++) {
+                runSoup(gameOfLife, soupSeed(seed, i), census);
+            }
+        } finally {
+            freeGames.add(gameOfLife);
+        }
+    }
+
+    /** Calculates one soup until it stabilizes or reaches the
+     * generation limit.
+     * @param gameOfLife the game to calculate the soup in.
+     * @param soupSeed the seed of the random cells.
+     * @param census the census to add the result to.
+     */
+    private void runSoup(GameOfLife gameOfLife, long soupSeed, SoupCensus census) {
+        Field field = gameOfLife.getActiveField();
+        field.fill(0, 0, fieldSize, fieldSize, false);
+        SplittableRandom random = new SplittableRandom(soupSeed);
+        int offset = (fieldSize - soupSize) / 2;
+        for (int y = 0; y < soupSize; y++) {
+            for (int x = 0; x < soupSize; x++) {
+                field.set(offset + x, offset + y, random.nextDouble() < density);
+            }
+        }
+        gameOfLife.setIteration(0);
+
+        long start = System.nanoTime();
+        while (gameOfLife.getCycle() == null && gameOfLife.getIteration() < maxGenerations) {
+            gameOfLife.doIteration();
+        }
+        if (metrics != null) {
+            metrics.addGenerations(gameOfLife.getIteration(),
+                    (long) fieldSize * fieldSize, System.nanoTime() - start);
+        }
+
+        long alive = gameOfLife.getActiveField().countAlive();
+        Cycle cycle = gameOfLife.getCycle();
+        if (cycle != null) {
+            census.addStabilized(cycle, alive);
+        } else {
+            census.addUnstabilized(gameOfLife.getIteration(), alive);
+        }
+    }
+
+    /** A range of soups, split in halves until it is small enough. */
+    private class Soups extends RecursiveAction {
+        private final long seed;
+        private final long from;
+        private final long to;
+        private final SoupCensus census;
+
+        Soups(long seed, long from, long to, SoupCensus census) {
+            this.seed = seed;
+            this.from = from;
+            this.to = to;
+            this.census = census;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from <= SOUPS_PER_TASK) {
+                runSoups(seed, from, to, census);
+            } else {
+                long middle = (from + to) >>> 1;
+                invokeAll(
+                        new Soups(seed, from, middle, census),
+                        new Soups(seed, middle, to, census));
+            }
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+import static com.oneandone.gameoflife.SparseFieldImpl.TILE_SIZE;
+
+/**
+ * Engine for the infinite plane of a {@link SparseFieldImpl}.
+ * Only tiles with alive cells and the neighbor tiles their
+ * border cells can spread to are calculated, so the cost
+ * grows with the alive area and not with the bounding rectangle.
+ * Every tile row is calculated like a word of the
+ * {@link PackedEngine}.
+ * Fields of other types are calculated cell by cell like
+ * in {@link CellEngine}.
+ * @author Stephan Fuhrmann
+ */
+public class SparseEngine implements Engine {
+
+    /** Marker value for {@link #visited}. */
+    private static final long[] MARK = new long[0];
+
+    /** A tile with all cells dead. */
+    private static final long[] EMPTY = new long[TILE_SIZE];
+
+    /** Fallback for fields that are not sparse. */
+    private final CellEngine cellEngine = new CellEngine();
+
+    /** Tiles that can be reused instead of allocating new ones. */
+    private final Deque<long[]> pool = new ArrayDeque<>();
+
+    /** The absent tiles already calculated in the current step. */
+    private final LongTileMap visited = new LongTileMap();
+
+    /** The rule to calculate the generations with. */
+    private Rule rule = Rule.CONWAY;
+
+    @Override
+    public Field newField(int width, int height) {
+        return new SparseFieldImpl(width, height);
+    }
+
+    @Override
+    public Rule getRule() {
+        return rule;
+    }
+
+    /** {@inheritDoc}
+     * Rules giving birth to cells without neighbors are not supported,
+     * they would fill the infinite plane.
+     */
+    @Override
+    public void setRule(Rule rule) {
+        if (rule.isBirthWithoutNeighbors()) {
+            throw new IllegalArgumentException("Rule " + rule + " not supported on the infinite plane");
+        }
+        cellEngine.setRule(rule);
+        this.rule = rule;
+    }
+
+    @Override
+    public void step(Field active, Field passive) {
+        if (!(active instanceof SparseFieldImpl && passive instanceof SparseFieldImpl)) {
+            cellEngine.step(active, passive);
+            return;
+        }
+        LongTileMap from = ((SparseFieldImpl) active).getTiles();
+        LongTileMap to = ((SparseFieldImpl) passive).getTiles();
+
+        for (int i = 0; i < to.capacity(); i++) {
+            long[] tile = to.valueAt(i);
+            if (tile != null) {
+                pool.push(tile);
+            }
+        }
+        to.clear();
+        visited.clear();
+
+        for (int i = 0; i < from.capacity(); i++) {
+            long[] tile = from.valueAt(i);
+            if (tile == null) {
+                continue;
+            }
+            long key = from.keyAt(i);
+            int tileX = LongTileMap.tileX(key);
+            int tileY = LongTileMap.tileY(key);
+            stepTile(from, to, tileX, tileY);
+
+            long columns = 0;
+            for (long row : tile) {
+                columns |= row;
+            }
+            boolean hasWest = (columns & 1) != 0;
+            boolean hasEast = (columns >>> 63) != 0;
+            boolean hasNorth = tile[0] != 0;
+            boolean hasSouth = tile[TILE_SIZE - 1] != 0;
+
+            stepAbsent(from, to, tileX - 1, tileY, hasWest);
+            stepAbsent(from, to, tileX + 1, tileY, hasEast);
+            stepAbsent(from, to, tileX, tileY - 1, hasNorth);
+            stepAbsent(from, to, tileX, tileY + 1, hasSouth);
+            stepAbsent(from, to, tileX - 1, tileY - 1, (tile[0] & 1) != 0);
+            stepAbsent(from, to, tileX + 1, tileY - 1, (tile[0] >>> 63) != 0);
+            stepAbsent(from, to, tileX - 1, tileY + 1, (tile[TILE_SIZE - 1] & 1) != 0);
+            stepAbsent(from, to, tileX + 1, tileY + 1, (tile[TILE_SIZE - 1] >>> 63) != 0);
+        }
+    }
+
+    /** Calculates a neighbor tile without alive cells once
+     * if alive cells border it.
+     */
+    private void stepAbsent(LongTileMap from, LongTileMap to, int tileX, int tileY, boolean bordered) {
+        if (!bordered) {
+            return;
+        }
+        long key = LongTileMap.key(tileX, tileY);
+        if (from.get(key) != null || visited.get(key) != null) {
+            return;
+        }
+        visited.put(key, MARK);
+        stepTile(from, to, tileX, tileY);
+    }
+
+    /** Get a tile or the empty tile if absent. */
+    private static long[] tileOrEmpty(LongTileMap tiles, int tileX, int tileY) {
+        long[] tile = tiles.get(LongTileMap.key(tileX, tileY));
+        return tile != null ? tile : EMPTY;
+    }
+
+    /** Calculates the next generation of one tile and stores it if
+     * it contains alive cells.
+     */
+    private void stepTile(LongTileMap from, LongTileMap to, int tileX, int tileY) {
+        long[] nw = tileOrEmpty(from, tileX - 1, tileY - 1);
+        long[] n = tileOrEmpty(from, tileX, tileY - 1);
+        long[] ne = tileOrEmpty(from, tileX + 1, tileY - 1);
+        long[] w = tileOrEmpty(from, tileX - 1, tileY);
+        long[] c = tileOrEmpty(from, tileX, tileY);
+        long[] e = tileOrEmpty(from, tileX + 1, tileY);
+        long[] sw = tileOrEmpty(from, tileX - 1, tileY + 1);
+        long[] s = tileOrEmpty(from, tileX, tileY + 1);
+        long[] se = tileOrEmpty(from, tileX + 1, tileY + 1);
+
+        long[] out = pool.isEmpty() ? new long[TILE_SIZE] : pool.pop();
+        int last = TILE_SIZE - 1;
+        long any;
+
+        out[0] = PackedEngine.nextWord(rule,
+                nw[last], n[last], ne[last],
+                w[0], c[0], e[0],
+                w[1], c[1], e[1]);
+        any = out[0];
+        for (int r = 1; r < last; r++) {
+            out[r] = PackedEngine.nextWord(rule,
+                    w[r - 1], c[r - 1], e[r - 1],
+                    w[r], c[r], e[r],
+                    w[r + 1], c[r + 1], e[r + 1]);
+            any |= out[r];
+        }
+        out[last] = PackedEngine.nextWord(rule,
+                w[last - 1], c[last - 1], e[last - 1],
+                w[last], c[last], e[last],
+                sw[0], s[0], se[0]);
+        any |= out[last];
+
+        if (any != 0) {
+            to.put(LongTileMap.key(tileX, tileY), out);
+        } else {
+            pool.push(out);
+        }
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+/**
+ * Implementation of a field on an infinite plane storing only
+ * tiles that contain alive cells.
+ * A tile covers {@code 64 * 64} cells and is stored as 64 packed
+ * rows, one long per row.
+ * The field is a window of the size {@link #getDimensions()} into the
+ * plane, cells outside of the window can also be read and written.
+ * Neighbors outside of the window are counted like all other cells.
+ * @see SparseEngine
+ * @author Stephan Fuhrmann
+ */
+public class SparseFieldImpl implements Field {
+
+    /** The binary logarithm of the tile size. */
+    static final int TILE_SHIFT = 6;
+
+    /** The width and height of a tile in cells. */
+    static final int TILE_SIZE = 1 << TILE_SHIFT;
+
+    /** The width in cells. */
+    private final int width;
+
+    /** The height in cells. */
+    private final int height;
+
+    /** The tiles with alive cells by tile coordinates. */
+    private final LongTileMap tiles;
+
+    /**
+     * Creates a new instance.
+     * @param width the width of the window in cells.
+     * @param height the height of the window in cells.
+     */
+    public SparseFieldImpl(int width, int height) {
+        if (width <= 0) {
+            throw new IllegalArgumentException("width <= 0");
+        }
+        if (height <= 0) {
+            throw new IllegalArgumentException("height <= 0");
+        }
+        this.tiles = new LongTileMap();
+        this.width = width;
+        this.height = height;
+    }
+
+    /** Get the tiles. Tiles that are present contain at least one
+     * alive cell.
+     */
+    LongTileMap getTiles() {
+        return tiles;
+    }
+
+    /** Get the number of tiles holding alive cells.
+     * @return the number of stored tiles.
+     */
+    public int getTileCount() {
+        return tiles.size();
+    }
+
+    /** Get the number of alive cells in the whole plane.
+     * @return the number of alive cells including the cells outside
+     * of the window.
+     */
+    public long getPopulation() {
+        long result = 0;
+        for (int i = 0; i < tiles.capacity(); i++) {
+            long[] tile = tiles.valueAt(i);
+            if (tile != null) {
+                for (long row : tile) {
+                    result += Long.bitCount(row);
+                }
+            }
+        }
+        return result;
+    }
+
+    /** Checks whether all cells of a tile are dead. */
+    static boolean isEmpty(long[] tile) {
+        for (long row : tile) {
+            if (row != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    @Override
+    public boolean get(int x, int y) {
+        long[] tile = tiles.get(LongTileMap.key(x >> TILE_SHIFT, y >> TILE_SHIFT));
+        return tile != null && (tile[y & (TILE_SIZE - 1)] & (1L << (x & 0x3f))) != 0;
+    }
+
+    @Override
+    public void set(int x, int y, boolean set) {
+        long key = LongTileMap.key(x >> TILE_SHIFT, y >> TILE_SHIFT);
+        long[] tile = tiles.get(key);
+        int row = y & (TILE_SIZE - 1);
+        if (set) {
+            if (tile == null) {
+                tile = new long[TILE_SIZE];
+                tiles.put(key, tile);
+            }
+            tile[row] |= 1L << (x & 0x3f);
+        } else if (tile != null) {
+            tile[row] &= ~(1L << (x & 0x3f));
+            if (tile[row] == 0 && isEmpty(tile)) {
+                tiles.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public void getRow(int y, long[] dst) {
+        int words = getWordsPerRow();
+        int tileY = y >> TILE_SHIFT;
+        int row = y & (TILE_SIZE - 1);
+        for (int i = 0; i < words; i++) {
+            long[] tile = tiles.get(LongTileMap.key(i, tileY));
+            dst[i] = tile != null ? tile[row] : 0;
+        }
+        // cells right of the window may be alive
+        dst[words - 1] &= PackedEngine.lastWordMask(width);
+    }
+
+    @Override
+    public void setRow(int y, long[] src) {
+        int words = getWordsPerRow();
+        int tileY = y >> TILE_SHIFT;
+        int row = y & (TILE_SIZE - 1);
+        for (int i = 0; i < words; i++) {
+            long key = LongTileMap.key(i, tileY);
+            long[] tile = tiles.get(key);
+            long mask = i == words - 1 ? PackedEngine.lastWordMask(width) : -1L;
+            long old = tile != null ? tile[row] : 0;
+            long value = (old & ~mask) | (src[i] & mask);
+            if (value == old) {
+                continue;
+            }
+            if (tile == null) {
+                tile = new long[TILE_SIZE];
+                tiles.put(key, tile);
+            }
+            tile[row] = value;
+            if (value == 0 && isEmpty(tile)) {
+                tiles.remove(key);
+            }
+        }
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    @Override
+    public int getNeighborCount(int x, int y) {
+        int sum = 0;
+        for (int yi = -1; yi <= 1; yi++) {
+            for (int xi = -1; xi <= 1; xi++) {
+                if (xi == 0 && yi == 0) {
+                    // don't count cell itself
+                    continue;
+                }
+                if (get(x + xi, y + yi)) {
+                    sum++;
+                }
+            }
+        }
+        return sum;
+    }
+
+    /** Copy content to a field with possibly other dimensions.
+     * A sparse field gets the complete plane, including
+     * the cells outside of the window.
+     * @param target the field to copy to.
+     */
+    @Override
+    public void copyTo(Field target) {
+        if (target instanceof SparseFieldImpl) {
+            LongTileMap targetTiles = ((SparseFieldImpl) target).tiles;
+            targetTiles.clear();
+            for (int i = 0; i < tiles.capacity(); i++) {
+                long[] tile = tiles.valueAt(i);
+                if (tile != null) {
+                    targetTiles.put(tiles.keyAt(i), tile.clone());
+                }
+            }
+        } else {
+            Field.super.copyTo(target);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return toStringDefault();
+    }
+}
@@ -0,0 +1,30 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+/**
+ * How the cells at the border of a field see their neighbors.
+ * @see GameOfLife#GameOfLife(com.oneandone.gameoflife.Engine, com.oneandone.gameoflife.Topology)
+ * @author Stephan Fuhrmann
+ */
+public enum Topology {
+    /** The cells outside of the field are dead. */
+    BOUNDED,
+    /** The field wraps around, the left border is the neighbor of the
+     * right border and the top border is the neighbor of the bottom border.
+     */
+    TORUS
+}
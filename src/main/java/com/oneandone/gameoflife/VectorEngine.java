@@ -0,0 +1,37 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+/**
+ * Packed engine calculating multiple words per instruction with the
+ * Java Vector API.
+ * This is the version for Java runtimes without the Vector API,
+ * it calculates like the {@link PackedEngine}.
+ * The JAR file contains a version for Java 17 and later in
+ * {@code META-INF/versions/17} that uses the {@code jdk.incubator.vector}
+ * module if it was added with {@code --add-modules jdk.incubator.vector}.
+ * @author Stephan Fuhrmann
+ */
+public class VectorEngine extends PackedEngine {
+
+    /** Checks whether the Vector API is used.
+     * @return {@code true} if the words are calculated with the
+     * Vector API, {@code false} if the scalar packed engine is used.
+     */
+    public static boolean isAccelerated() {
+        return false;
+    }
+}
@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * The words of the packed rows that changed from one generation
+ * to the next. Each changed word is stored as the XOR of the
+ * word before and after, so its one bits are the births and deaths.
+ * Engines that calculate whole words record the changes while
+ * stepping, so the consumers like the {@link ChangeSet}, the
+ * {@link CycleDetector} and the {@link History} don't need to compare
+ * the generations.
+ * Rows can be recorded by multiple threads as long as each row is
+ * recorded by one thread only.
+ * @see Engine#step(com.oneandone.gameoflife.Field, com.oneandone.gameoflife.Field, com.oneandone.gameoflife.WordChanges)
+ * @author Stephan Fuhrmann
+ */
+public class WordChanges {
+
+    /** The number of words in a packed row. */
+    @Getter
+    private int wordsPerRow;
+
+    /** The number of rows. */
+    @Getter
+    private int height;
+
+    /** The number of bitmap words per row in {@link #changed}. */
+    private int bitmapWords;
+
+    /** One bit per word telling whether it changed,
+     * indexed by {@code y * bitmapWords + (i >> 6)}. */
+    private long[] changed = new long[0];
+
+    /** The XOR of the changed words, indexed by {@code y * wordsPerRow + i}.
+     * Only valid where the bit in {@link #changed} is set.
+     */
+    private long[] diffs = new long[0];
+
+    /** Receives a changed word.
+     * @see #forEach(com.oneandone.gameoflife.WordChanges.WordConsumer)
+     */
+    @FunctionalInterface
+    public interface WordConsumer {
+        /** Receives a changed word.
+         * @param y the row of the word.
+         * @param i the index of the word in the row.
+         * @param diff the XOR of the word before and after, never 0.
+         */
+        void accept(int y, int i, long diff);
+    }
+
+    /** Removes all changes and sets the dimensions.
+     * @param field the field whose changes are recorded next.
+     */
+    public void clear(Field field) {
+        clear(field.getWordsPerRow(), field.getHeight());
+    }
+
+    /** Removes all changes and sets the dimensions.
+     * @param wordsPerRow the number of words in a packed row.
+     * @param height the number of rows.
+     */
+    public void clear(int wordsPerRow, int height) {
+        if (wordsPerRow < 0 || height < 0) {
+            throw new IllegalArgumentException("Illegal size " + wordsPerRow + "x" + height);
+        }
+        if (wordsPerRow != this.wordsPerRow || height != this.height) {
+            this.wordsPerRow = wordsPerRow;
+            this.height = height;
+            this.bitmapWords = (wordsPerRow + 63) >> 6;
+            this.changed = new long[Math.multiplyExact(bitmapWords, height)];
+            this.diffs = new long[Math.multiplyExact(wordsPerRow, height)];
+        } else {
+            Arrays.fill(changed, 0);
+        }
+    }
+
+    /** Records a word of a row. Each word must be recorded once at most.
+     * @param y the row of the word.
+     * @param i the index of the word in the row.
+     * @param diff the XOR of the word before and after, nothing is
+     * recorded if it is 0.
+     */
+    public void add(int y, int i, long diff) {
+        if (diff != 0) {
+            diffs[y * wordsPerRow + i] = diff;
+            changed[y * bitmapWords + (i >> 6)] |= 1L << i;
+        }
+    }
+
+    /** Records the words of a row that differ.
+     * @param y the row.
+     * @param before the array containing the row before.
+     * @param beforeOffset the start index of the row before.
+     * @param after the array containing the row after.
+     * @param afterOffset the start index of the row after.
+     */
+    public void addRow(int y, long[] before, int beforeOffset, long[] after, int afterOffset) {
+        for (int i = 0; i < wordsPerRow; i++) {
+            add(y, i, before[beforeOffset + i] ^ after[afterOffset + i]);
+        }
+    }
+
+    /** Removes all changes and records the words that differ
+     * between two fields.
+     * @param before the field before the change.
+     * @param after the field after the change, with the dimensions of {@code before}.
+     */
+    public void compare(Field before, Field after) {
+        clear(before);
+        long[] rowBefore = new long[wordsPerRow];
+        long[] rowAfter = new long[wordsPerRow];
+        for (int y = 0; y < height; y++) {
+            before.getRow(y, rowBefore);
+            after.getRow(y, rowAfter);
+            addRow(y, rowBefore, 0, rowAfter, 0);
+        }
+    }
+
+    /** Get the number of changed words.
+     * @return the number of recorded words.
+     */
+    public int size() {
+        int count = 0;
+        for (long bits : changed) {
+            count += Long.bitCount(bits);
+        }
+        return count;
+    }
+
+    /** Checks whether no word changed.
+     * @return {@code true} if no word was recorded.
+     */
+    public boolean isEmpty() {
+        for (long bits : changed) {
+            if (bits != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /** Reports the changed words ordered by row and word.
+     * @param consumer the consumer receiving the words.
+     */
+    public void forEach(WordConsumer consumer) {
+        for (int y = 0; y < height; y++) {
+            int bitmapOffset = y * bitmapWords;
+            for (int b = 0; b < bitmapWords; b++) {
+                long bits = changed[bitmapOffset + b];
+                while (bits != 0) {
+                    int i = (b << 6) + Long.numberOfTrailingZeros(bits);
+                    consumer.accept(y, i, diffs[y * wordsPerRow + i]);
+                    bits &= bits - 1;
+                }
+            }
+        }
+    }
+
+    /** Copies the changed words ordered by row and word.
+     * @param indices the array receiving the index {@code y * wordsPerRow + i}
+     * of each word, at least {@link #size()} long.
+     * @param values the array receiving the XOR of each word, at
+     * least {@link #size()} long.
+     * @return the number of copied words.
+     */
+    public int copyTo(int[] indices, long[] values) {
+        int count = 0;
+        for (int y = 0; y < height; y++) {
+            int bitmapOffset = y * bitmapWords;
+            for (int b = 0; b < bitmapWords; b++) {
+                long bits = changed[bitmapOffset + b];
+                while (bits != 0) {
+                    int index = y * wordsPerRow + (b << 6) + Long.numberOfTrailingZeros(bits);
+                    indices[count] = index;
+                    values[count] = diffs[index];
+                    count++;
+                    bits &= bits - 1;
+                }
+            }
+        }
+        return count;
+    }
+}
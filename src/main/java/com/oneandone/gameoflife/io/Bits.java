@@ -0,0 +1,94 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.io;
+
+/**
+ * Operations on packed rows as returned by
+ * {@link com.oneandone.gameoflife.Field#getRow(int, long[])}.
+ * @author Stephan Fuhrmann
+ */
+final class Bits {
+
+    private Bits() {
+    }
+
+    /** Sets a range of bits.
+     * @param words the packed row.
+     * @param fromX the first bit to set, inclusive.
+     * @param toX the last bit to set, exclusive.
+     */
+    static void set(long[] words, int fromX, int toX) {
+        if (fromX >= toX) {
+            return;
+        }
+        for (int i = fromX >> 6; i <= (toX - 1) >> 6; i++) {
+            long mask = -1L;
+            if (i == fromX >> 6) {
+                mask &= -1L << (fromX & 0x3f);
+            }
+            if (i == (toX - 1) >> 6) {
+                mask &= -1L >>> (63 - ((toX - 1) & 0x3f));
+            }
+            words[i] |= mask;
+        }
+    }
+
+    /** Finds the next set bit.
+     * @param words the packed row.
+     * @param fromX the first bit to look at.
+     * @param width the number of bits in the row.
+     * @return the index of the next set bit or -1 if there is none.
+     */
+    static int nextSet(long[] words, int fromX, int width) {
+        if (fromX >= width) {
+            return -1;
+        }
+        int i = fromX >> 6;
+        long word = words[i] & (-1L << (fromX & 0x3f));
+        int wordCount = (width + 63) >> 6;
+        while (word == 0) {
+            if (++i == wordCount) {
+                return -1;
+            }
+            word = words[i];
+        }
+        int result = (i << 6) + Long.numberOfTrailingZeros(word);
+        return result < width ? result : -1;
+    }
+
+    /** Finds the next cleared bit.
+     * @param words the packed row.
+     * @param fromX the first bit to look at.
+     * @param width the number of bits in the row.
+     * @return the index of the next cleared bit or {@code width}
+     * if there is none.
+     */
+    static int nextClear(long[] words, int fromX, int width) {
+        if (fromX >= width) {
+            return width;
+        }
+        int i = fromX >> 6;
+        long word = ~words[i] & (-1L << (fromX & 0x3f));
+        int wordCount = (width + 63) >> 6;
+        while (word == 0) {
+            if (++i == wordCount) {
+                return width;
+            }
+            word = ~words[i];
+        }
+        return Math.min(width, (i << 6) + Long.numberOfTrailingZeros(word));
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.io;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Buffered reading of ASCII characters from a channel.
+ * Only the buffer is held in memory, regardless of the size of the input.
+ * @author Stephan Fuhrmann
+ */
+final class ChannelInput {
+
+    /** The size of the buffer in bytes. */
+    static final int BUFFER_BYTES = 1 << 16;
+
+    /** The channel to read from. */
+    private final ReadableByteChannel channel;
+
+    /** The buffer, ready to get bytes from. */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+    /** Whether the end of the channel was reached. */
+    private boolean eof;
+
+    /** The number of the current line, starting with 1. */
+    private long line = 1;
+
+    ChannelInput(ReadableByteChannel channel) {
+        this.channel = channel;
+        buffer.flip();
+    }
+
+    /** Get the number of the line the next character is in.
+     * @return the line number starting with 1.
+     */
+    long getLine() {
+        return line;
+    }
+
+    /** Get the next character without consuming it.
+     * @return the next character or -1 at the end of the input.
+     */
+    int peek() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        return buffer.get(buffer.position()) & 0xff;
+    }
+
+    /** Get and consume the next character.
+     * @return the next character or -1 at the end of the input.
+     */
+    int read() throws IOException {
+        if (!buffer.hasRemaining() && !fill()) {
+            return -1;
+        }
+        int c = buffer.get() & 0xff;
+        if (c == '\n') {
+            line++;
+        }
+        return c;
+    }
+
+    /** Reads the rest of the line without the line break.
+     * @return the line or {@code null} at the end of the input.
+     */
+    String readLine() throws IOException {
+        if (peek() == -1) {
+            return null;
+        }
+        StringBuilder result = new StringBuilder();
+        int c;
+        while ((c = read()) != -1 && c != '\n') {
+            if (c != '\r') {
+                result.append((char) c);
+            }
+        }
+        return result.toString();
+    }
+
+    /** Skips spaces and tabs.
+     * @return the next character or -1 at the end of the input.
+     */
+    int skipBlanks() throws IOException {
+        int c;
+        while ((c = peek()) == ' ' || c == '\t') {
+            read();
+        }
+        return c;
+    }
+
+    /** Reads a non-negative decimal number.
+     * @return the number.
+     * @throws IOException if there is no digit or the number is too big.
+     */
+    long readNumber() throws IOException {
+        int c = peek();
+        if (c < '0' || c > '9') {
+            throw error("Number expected");
+        }
+        long result = 0;
+        while ((c = peek()) >= '0' && c <= '9') {
+            read();
+            if (result > (Long.MAX_VALUE - 9) / 10) {
+                throw error("Number too big");
+            }
+            result = result * 10 + (c - '0');
+        }
+        return result;
+    }
+
+    /** Creates an exception for malformed input.
+     * @param message the description of the problem.
+     * @return the exception mentioning the line.
+     */
+    IOException error(String message) {
+        return new IOException(message + " in line " + line);
+    }
+
+    /** Reads the next bytes from the channel.
+     * @return {@code false} at the end of the channel.
+     */
+    private boolean fill() throws IOException {
+        if (eof) {
+            return false;
+        }
+        buffer.clear();
+        int read;
+        do {
+            read = channel.read(buffer);
+        } while (read == 0);
+        buffer.flip();
+        if (read < 0) {
+            eof = true;
+            return false;
+        }
+        return true;
+    }
+
+    /** Fails if the end of the input is reached.
+     * @param c the result of {@link #read()} or {@link #peek()}.
+     * @return the character.
+     */
+    int requireNotEof(int c) throws IOException {
+        if (c == -1) {
+            throw new EOFException("Unexpected end of input in line " + line);
+        }
+        return c;
+    }
+}
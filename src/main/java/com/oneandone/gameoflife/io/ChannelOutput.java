@@ -0,0 +1,80 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.io;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Buffered writing of ASCII characters to a channel.
+ * The output is never collected in memory beyond the buffer.
+ * @author Stephan Fuhrmann
+ */
+final class ChannelOutput {
+
+    /** The size of the buffer in bytes. */
+    static final int BUFFER_BYTES = 1 << 16;
+
+    /** The channel to write to. */
+    private final WritableByteChannel channel;
+
+    /** The buffer, ready to put bytes into. */
+    private final ByteBuffer buffer = ByteBuffer.allocate(BUFFER_BYTES);
+
+    /** The digits of a number in reverse order. */
+    private final byte[] digits = new byte[20];
+
+    ChannelOutput(WritableByteChannel channel) {
+        this.channel = channel;
+    }
+
+    /** Writes an ASCII character. */
+    void write(char c) throws IOException {
+        if (!buffer.hasRemaining()) {
+            flush();
+        }
+        buffer.put((byte) c);
+    }
+
+    /** Writes ASCII characters. */
+    void write(CharSequence ascii) throws IOException {
+        for (int i = 0; i < ascii.length(); i++) {
+            write(ascii.charAt(i));
+        }
+    }
+
+    /** Writes a non-negative decimal number without creating a string. */
+    void write(long number) throws IOException {
+        int count = 0;
+        do {
+            digits[count++] = (byte) ('0' + number % 10);
+            number /= 10;
+        } while (number != 0);
+        while (count > 0) {
+            write((char) digits[--count]);
+        }
+    }
+
+    /** Writes the buffered bytes to the channel. */
+    void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,296 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.io;
+
+import com.oneandone.gameoflife.Field;
+import com.oneandone.gameoflife.Rule;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import lombok.Getter;
+
+/**
+ * Reads a pattern in the Macrocell format of Golly.
+ * The file describes a quadtree whose nodes are numbered by their line.
+ * A node line is either an 8x8 leaf like {@code .*$..*$***$}
+ * or a level and the numbers of the four children like {@code 4 1 0 2 1},
+ * with 0 for an empty child. The last node is the root.
+ * The nodes are read when the reader is created and need memory
+ * proportional to the number of nodes, not to the area of the pattern.
+ * The cells are expanded row by row into the packed rows of a field.
+ * @see MacrocellWriter
+ * @author Stephan Fuhrmann
+ */
+public class MacrocellReader implements Closeable {
+
+    /** The first characters of a Macrocell file. */
+    static final String MAGIC = "[M2]";
+
+    /** The level of a leaf node with 8x8 cells. */
+    static final int LEAF_LEVEL = 3;
+
+    /** The highest supported level. */
+    private static final int LEVEL_MAX = 62;
+
+    /** The channel to read from. */
+    private final ReadableByteChannel channel;
+
+    /** The rule of the pattern, or {@code null} if the file doesn't
+     * name one.
+     */
+    @Getter
+    private Rule rule;
+
+    /** The generation of the pattern, 0 if the file doesn't name one. */
+    @Getter
+    private long generation;
+
+    /** The number of nodes including the empty node 0. */
+    private int nodeCount = 1;
+
+    /** The level of each node. */
+    private byte[] levels = new byte[1024];
+
+    /** Whether a node is an 8x8 leaf. */
+    private boolean[] leaves = new boolean[1024];
+
+    /** The cells of each leaf, bit {@code 8 * y + x}. */
+    private long[] leafCells = new long[1024];
+
+    /** The four children of each node, or the cells of a level 1 node. */
+    private int[] children = new int[4096];
+
+    /** Creates a reader and reads the nodes.
+     * @param channel the channel to read the pattern from.
+     * @throws IOException if reading fails or the nodes are malformed.
+     */
+    public MacrocellReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        ChannelInput input = new ChannelInput(channel);
+        String line = input.readLine();
+        if (line == null || !line.startsWith(MAGIC)) {
+            throw input.error("Not a Macrocell file");
+        }
+        while ((line = input.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.isEmpty()) {
+                continue;
+            }
+            char first = trimmed.charAt(0);
+            if (first == '#') {
+                readComment(input, trimmed);
+            } else if (first == '.' || first == '*' || first == '$') {
+                addLeaf(input, trimmed);
+            } else if (first >= '0' && first <= '9') {
+                addNode(input, trimmed);
+            } else {
+                throw input.error("Unexpected line");
+            }
+        }
+    }
+
+    /** Opens a file for reading and reads the nodes.
+     * @param path the file to read.
+     * @return the reader to close after reading.
+     * @throws IOException if reading fails or the nodes are malformed.
+     */
+    public static MacrocellReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new MacrocellReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private void readComment(ChannelInput input, String line) throws IOException {
+        if (line.startsWith("#R")) {
+            try {
+                rule = Rule.parse(line.substring(2).trim());
+            } catch (IllegalArgumentException e) {
+                throw input.error("Unsupported rule " + line.substring(2).trim());
+            }
+        } else if (line.startsWith("#G")) {
+            try {
+                generation = Long.parseLong(line.substring(2).trim());
+            } catch (NumberFormatException e) {
+                throw input.error("Malformed generation");
+            }
+        }
+    }
+
+    /** Makes room for one more node and returns its index. */
+    private int newNode() {
+        if (nodeCount == levels.length) {
+            int capacity = levels.length * 2;
+            levels = Arrays.copyOf(levels, capacity);
+            leaves = Arrays.copyOf(leaves, capacity);
+            leafCells = Arrays.copyOf(leafCells, capacity);
+            children = Arrays.copyOf(children, capacity * 4);
+        }
+        return nodeCount++;
+    }
+
+    private void addLeaf(ChannelInput input, String line) throws IOException {
+        long cells = 0;
+        int x = 0;
+        int y = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (c == '$') {
+                x = 0;
+                y++;
+            } else if (c == '.' || c == '*') {
+                if (x >= 8 || y >= 8) {
+                    throw input.error("Leaf bigger than 8x8");
+                }
+                if (c == '*') {
+                    cells |= 1L << (8 * y + x);
+                }
+                x++;
+            } else {
+                throw input.error("Unexpected character '" + c + "'");
+            }
+        }
+        int node = newNode();
+        levels[node] = LEAF_LEVEL;
+        leaves[node] = true;
+        leafCells[node] = cells;
+    }
+
+    private void addNode(ChannelInput input, String line) throws IOException {
+        String[] parts = line.split("\\s+");
+        if (parts.length != 5) {
+            throw input.error("Node needs a level and four children");
+        }
+        int[] values = new int[5];
+        try {
+            for (int i = 0; i < 5; i++) {
+                values[i] = Integer.parseInt(parts[i]);
+            }
+        } catch (NumberFormatException e) {
+            throw input.error("Malformed node");
+        }
+        int level = values[0];
+        if (level < 1 || level > LEVEL_MAX) {
+            throw input.error("Unsupported level " + level);
+        }
+        for (int i = 1; i < 5; i++) {
+            int child = values[i];
+            boolean valid = level == 1
+                    ? child == 0 || child == 1
+                    : child == 0 || (child < nodeCount && levels[child] == level - 1);
+            if (!valid) {
+                throw input.error("Illegal child " + child);
+            }
+        }
+        int node = newNode();
+        levels[node] = (byte) level;
+        System.arraycopy(values, 1, children, node * 4, 4);
+    }
+
+    /** Get the side length of the square the pattern is in.
+     * @return the side length in cells, 0 for a file without nodes.
+     */
+    public long getSize() {
+        return nodeCount > 1 ? 1L << levels[nodeCount - 1] : 0;
+    }
+
+    /** Reads the cells of the pattern into a field.
+     * The upper left corner of the root node is placed at the given offset.
+     * The alive cells are set, the other cells of
+     * the field are kept. Cells outside of the field are ignored.
+     * @param field the field to read the pattern into.
+     * @param x the x coordinate of the upper left corner of the pattern.
+     * @param y the y coordinate of the upper left corner of the pattern.
+     */
+    public void read(Field field, int x, int y) {
+        if (x < 0 || y < 0) {
+            throw new IllegalArgumentException("Negative offset");
+        }
+        if (nodeCount == 1) {
+            return;
+        }
+        int root = nodeCount - 1;
+        long rows = Math.min(getSize(), (long) field.getHeight() - y);
+        long[] cells = new long[field.getWordsPerRow()];
+        long[] row = new long[cells.length];
+        for (int rowInRoot = 0; rowInRoot < rows; rowInRoot++) {
+            Arrays.fill(cells, 0);
+            if (expandRow(root, x, rowInRoot, cells, field.getWidth())) {
+                field.getRow(y + rowInRoot, row);
+                for (int i = 0; i < row.length; i++) {
+                    row[i] |= cells[i];
+                }
+                field.setRow(y + rowInRoot, row);
+            }
+        }
+    }
+
+    /** Sets the alive cells of one row of a node in a packed row.
+     * @param node the node to expand.
+     * @param left the x coordinate of the left column of the node.
+     * @param rowInNode the row within the node.
+     * @param cells the packed row to set the cells in.
+     * @param width the width of the packed row.
+     * @return whether a cell was set.
+     */
+    private boolean expandRow(int node, long left, long rowInNode, long[] cells, int width) {
+        if (node == 0 || left >= width) {
+            return false;
+        }
+        if (leaves[node]) {
+            int bits = (int) (leafCells[node] >>> (8 * rowInNode)) & 0xff;
+            boolean result = false;
+            while (bits != 0) {
+                long x = left + Integer.numberOfTrailingZeros(bits);
+                if (x < width) {
+                    cells[(int) (x >> 6)] |= 1L << (x & 0x3f);
+                    result = true;
+                }
+                bits &= bits - 1;
+            }
+            return result;
+        }
+        int level = levels[node];
+        int first = node * 4 + (rowInNode < (1L << (level - 1)) ? 0 : 2);
+        if (level == 1) {
+            boolean result = false;
+            for (int i = 0; i < 2; i++) {
+                long x = left + i;
+                if (children[first + i] != 0 && x < width) {
+                    cells[(int) (x >> 6)] |= 1L << (x & 0x3f);
+                    result = true;
+                }
+            }
+            return result;
+        }
+        long half = 1L << (level - 1);
+        long childRow = rowInNode & (half - 1);
+        boolean result = expandRow(children[first], left, childRow, cells, width);
+        return expandRow(children[first + 1], left + half, childRow, cells, width) || result;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
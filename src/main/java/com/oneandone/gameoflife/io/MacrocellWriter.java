@@ -0,0 +1,254 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.io;
+
+import com.oneandone.gameoflife.Field;
+import com.oneandone.gameoflife.Rule;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Writes a field in the Macrocell format of Golly.
+ * The field is padded to a square with a power of two side length
+ * whose upper left corner is the upper left corner of the field.
+ * Equal nodes are written once, so repetitive patterns
+ * result in small files.
+ * The field is read in bands of eight rows that are combined
+ * with the bands above while the nodes are written, so besides the
+ * table of distinct nodes only one row of nodes per level is held in memory.
+ * @see MacrocellReader
+ * @author Stephan Fuhrmann
+ */
+public class MacrocellWriter implements Closeable {
+
+    /** A row of empty nodes. */
+    private static final int[] EMPTY = new int[0];
+
+    /** The channel to write to. */
+    private final WritableByteChannel channel;
+
+    /** The buffered output of the channel. */
+    private final ChannelOutput output;
+
+    /** The number of the written leaves. */
+    private final Map<Long, Integer> leafNumbers = new HashMap<>();
+
+    /** The number of the written nodes above the leaf level. */
+    private final Map<NodeKey, Integer> nodeNumbers = new HashMap<>();
+
+    /** The number of the last written node. */
+    private int lastNumber;
+
+    /** Creates a writer.
+     * @param channel the channel to write the pattern to.
+     */
+    public MacrocellWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.output = new ChannelOutput(channel);
+    }
+
+    /** Creates or replaces a file for writing.
+     * @param path the file to write.
+     * @return the writer to close after writing.
+     * @throws IOException if the file can not be opened.
+     */
+    public static MacrocellWriter create(Path path) throws IOException {
+        return new MacrocellWriter(FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE));
+    }
+
+    /** Writes the cells of a field.
+     * @param field the field to write.
+     * @param rule the rule to name in the file.
+     * @param generation the generation to name in the file.
+     * @throws IOException if writing fails.
+     */
+    public void write(Field field, Rule rule, long generation) throws IOException {
+        int rootLevel = MacrocellReader.LEAF_LEVEL;
+        while ((1L << rootLevel) < Math.max(field.getWidth(), field.getHeight())) {
+            rootLevel++;
+        }
+        // nodes right of the field are empty and not stored
+        int usedLeafColumns = Math.max(1, (field.getWidth() + 7) >> 3);
+
+        output.write(MacrocellReader.MAGIC);
+        output.write(" game-of-life\n#R ");
+        output.write(rule.toString());
+        output.write('\n');
+        if (generation > 0) {
+            output.write("#G ");
+            output.write(generation);
+            output.write('\n');
+        }
+
+        leafNumbers.clear();
+        nodeNumbers.clear();
+        lastNumber = 0;
+        // per level the upper row of nodes waiting for the row below
+        int[][] pending = new int[rootLevel + 1][];
+        long[][] rows = new long[8][field.getWordsPerRow()];
+
+        int height = field.getHeight();
+        for (long bandY = 0; bandY < height; bandY += 8) {
+            for (int i = 0; i < 8; i++) {
+                if (bandY + i < height) {
+                    field.getRow((int) bandY + i, rows[i]);
+                } else {
+                    Arrays.fill(rows[i], 0);
+                }
+            }
+            int[] band = new int[usedLeafColumns];
+            for (int column = 0; column < usedLeafColumns; column++) {
+                band[column] = leaf(rows, column);
+            }
+            int level = MacrocellReader.LEAF_LEVEL;
+            while (pending[level] != null) {
+                band = combine(level + 1, pending[level], band);
+                pending[level] = null;
+                level++;
+            }
+            pending[level] = band;
+        }
+        // the bands below the field are empty, complete the waiting rows with them
+        int[] lower = null;
+        for (int level = MacrocellReader.LEAF_LEVEL; level < rootLevel; level++) {
+            if (pending[level] != null) {
+                lower = combine(level + 1, pending[level], lower != null ? lower : EMPTY);
+            } else if (lower != null) {
+                lower = combine(level + 1, lower, EMPTY);
+            }
+        }
+        output.flush();
+    }
+
+    /** Writes a leaf if it is new.
+     * @return the number of the leaf, 0 if it is empty.
+     */
+    private int leaf(long[][] rows, int column) throws IOException {
+        int word = column >> 3;
+        int shift = (column & 7) << 3;
+        long cells = 0;
+        for (int y = 0; y < 8; y++) {
+            cells |= ((rows[y][word] >>> shift) & 0xff) << (8 * y);
+        }
+        if (cells == 0) {
+            return 0;
+        }
+        Integer number = leafNumbers.get(cells);
+        if (number == null) {
+            int lastRow = 7 - Long.numberOfLeadingZeros(cells) / 8;
+            for (int y = 0; y <= lastRow; y++) {
+                int bits = (int) (cells >>> (8 * y)) & 0xff;
+                for (int x = 0; bits >>> x != 0; x++) {
+                    output.write((bits >>> x & 1) != 0 ? '*' : '.');
+                }
+                output.write('$');
+            }
+            output.write('\n');
+            number = ++lastNumber;
+            leafNumbers.put(cells, number);
+        }
+        return number;
+    }
+
+    /** Combines two rows of nodes to the row of nodes of the next level.
+     * Nodes beyond the end of the rows are empty.
+     */
+    private int[] combine(int level, int[] upper, int[] lower) throws IOException {
+        int[] result = new int[(upper.length + 1) / 2];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = node(level,
+                    upper[2 * i], get(upper, 2 * i + 1),
+                    get(lower, 2 * i), get(lower, 2 * i + 1));
+        }
+        return result;
+    }
+
+    private static int get(int[] nodes, int index) {
+        return index < nodes.length ? nodes[index] : 0;
+    }
+
+    /** Writes a node above the leaf level if it is new.
+     * @return the number of the node, 0 if it is empty.
+     */
+    private int node(int level, int nw, int ne, int sw, int se) throws IOException {
+        if ((nw | ne | sw | se) == 0) {
+            return 0;
+        }
+        NodeKey key = new NodeKey(nw, ne, sw, se);
+        Integer number = nodeNumbers.get(key);
+        if (number == null) {
+            output.write(level);
+            output.write(' ');
+            output.write(nw);
+            output.write(' ');
+            output.write(ne);
+            output.write(' ');
+            output.write(sw);
+            output.write(' ');
+            output.write(se);
+            output.write('\n');
+            number = ++lastNumber;
+            nodeNumbers.put(key, number);
+        }
+        return number;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+
+    /** The children of a node. The numbers of non-empty children
+     * identify the level, so the level is not part of the key.
+     */
+    private static final class NodeKey {
+        private final int nw;
+        private final int ne;
+        private final int sw;
+        private final int se;
+
+        NodeKey(int nw, int ne, int sw, int se) {
+            this.nw = nw;
+            this.ne = ne;
+            this.sw = sw;
+            this.se = se;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof NodeKey)) {
+                return false;
+            }
+            NodeKey other = (NodeKey) o;
+            return nw == other.nw && ne == other.ne && sw == other.sw && se == other.se;
+        }
+
+        @Override
+        public int hashCode() {
+            return ((nw * 31 + ne) * 31 + sw) * 31 + se;
+        }
+    }
+}
@@ -0,0 +1,230 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.io;
+
+import com.oneandone.gameoflife.Field;
+import com.oneandone.gameoflife.Rule;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import lombok.Getter;
+
+/**
+ * Reads a pattern in the run length encoded (RLE) format.
+ * The header is read when the reader is created, the cells
+ * are read row by row into the packed rows of a field.
+ * Besides the field only a buffer and one packed row are held in memory.
+ * @see RleWriter
+ * @author Stephan Fuhrmann
+ */
+public class RleReader implements Closeable {
+
+    /** The channel to read from. */
+    private final ReadableByteChannel channel;
+
+    /** The buffered input of the channel. */
+    private final ChannelInput input;
+
+    /** The width of the pattern from the header. */
+    @Getter
+    private final int width;
+
+    /** The height of the pattern from the header. */
+    @Getter
+    private final int height;
+
+    /** The rule of the pattern, or {@code null} if the file doesn't
+     * name one.
+     */
+    @Getter
+    private final Rule rule;
+
+    /** Whether the cells were read. */
+    private boolean cellsRead;
+
+    /** Creates a reader and reads the header.
+     * @param channel the channel to read the pattern from.
+     * @throws IOException if reading fails or the header is malformed.
+     */
+    public RleReader(ReadableByteChannel channel) throws IOException {
+        this.channel = channel;
+        this.input = new ChannelInput(channel);
+
+        Rule commentRule = null;
+        String header = null;
+        String line;
+        while (header == null && (line = input.readLine()) != null) {
+            String trimmed = line.trim();
+            if (trimmed.startsWith("#r")) {
+                commentRule = parseRule(trimmed.substring(2));
+            } else if (!trimmed.isEmpty() && !trimmed.startsWith("#")) {
+                header = trimmed;
+            }
+        }
+        if (header == null) {
+            throw input.error("Missing header");
+        }
+
+        int headerWidth = -1;
+        int headerHeight = -1;
+        Rule headerRule = commentRule;
+        String previousKey = null;
+        for (String part : header.split(",")) {
+            String[] keyValue = part.split("=", 2);
+            if (keyValue.length != 2) {
+                // the bounded grid suffix of a rule like ":T100,100"
+                if ("rule".equals(previousKey)) {
+                    continue;
+                }
+                throw input.error("Malformed header");
+            }
+            String key = keyValue[0].trim();
+            String value = keyValue[1].trim();
+            previousKey = key;
+            switch (key) {
+                case "x":
+                    headerWidth = parseSize(value);
+                    break;
+                case "y":
+                    headerHeight = parseSize(value);
+                    break;
+                case "rule":
+                    headerRule = parseRule(value);
+                    break;
+                default:
+                    // ignore unknown keys
+                    break;
+            }
+        }
+        if (headerWidth < 0 || headerHeight < 0) {
+            throw input.error("Header needs x and y");
+        }
+        this.width = headerWidth;
+        this.height = headerHeight;
+        this.rule = headerRule;
+    }
+
+    /** Opens a file for reading and reads the header.
+     * @param path the file to read.
+     * @return the reader to close after reading.
+     * @throws IOException if reading fails or the header is malformed.
+     */
+    public static RleReader open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new RleReader(channel);
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    private int parseSize(String value) throws IOException {
+        try {
+            int result = Integer.parseInt(value);
+            if (result < 0) {
+                throw input.error("Negative size");
+            }
+            return result;
+        } catch (NumberFormatException e) {
+            throw input.error("Malformed size " + value);
+        }
+    }
+
+    private Rule parseRule(String value) throws IOException {
+        // strip the bounded grid suffix like ":T100,100"
+        String rulestring = value.trim();
+        int colon = rulestring.indexOf(':');
+        if (colon >= 0) {
+            rulestring = rulestring.substring(0, colon);
+        }
+        try {
+            return Rule.parse(rulestring);
+        } catch (IllegalArgumentException e) {
+            throw input.error("Unsupported rule " + value);
+        }
+    }
+
+    /** Reads the cells of the pattern into a field.
+     * The alive cells are set at the given offset, the other cells of
+     * the field are kept. Cells outside of the field are ignored.
+     * @param field the field to read the pattern into.
+     * @param x the x coordinate of the upper left corner of the pattern.
+     * @param y the y coordinate of the upper left corner of the pattern.
+     * @throws IOException if reading fails or the cells are malformed.
+     * @throws IllegalStateException if the cells were already read.
+     */
+    public void read(Field field, int x, int y) throws IOException {
+        if (x < 0 || y < 0) {
+            throw new IllegalArgumentException("Negative offset");
+        }
+        if (cellsRead) {
+            throw new IllegalStateException("Cells already read");
+        }
+        cellsRead = true;
+
+        long[] row = new long[field.getWordsPerRow()];
+        boolean rowLoaded = false;
+        long fieldY = y;
+        long fieldX = x;
+
+        int c;
+        while ((c = input.peek()) != -1 && c != '!') {
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                input.read();
+                continue;
+            }
+            long count = 1;
+            if (c >= '0' && c <= '9') {
+                count = input.readNumber();
+                c = input.requireNotEof(input.skipBlanks());
+            }
+            input.read();
+            if (c == '$') {
+                if (rowLoaded) {
+                    field.setRow((int) fieldY, row);
+                    rowLoaded = false;
+                }
+                fieldY += count;
+                fieldX = x;
+            } else if (c == 'b' || c == '.') {
+                fieldX += count;
+            } else if ((c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z')) {
+                if (fieldY < field.getHeight() && fieldX < field.getWidth()) {
+                    if (!rowLoaded) {
+                        field.getRow((int) fieldY, row);
+                        rowLoaded = true;
+                    }
+                    Bits.set(row, (int) fieldX, (int) Math.min(field.getWidth(), fieldX + count));
+                }
+                fieldX += count;
+            } else {
+                throw input.error("Unexpected character '" + (char) c + "'");
+            }
+        }
+        if (rowLoaded) {
+            field.setRow((int) fieldY, row);
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
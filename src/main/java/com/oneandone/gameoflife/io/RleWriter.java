@@ -0,0 +1,173 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.io;
+
+import com.oneandone.gameoflife.Field;
+import com.oneandone.gameoflife.Rule;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Writes a field in the run length encoded (RLE) format.
+ * Only the bounding box of the alive cells is written.
+ * The runs are found on the packed rows of the field and written
+ * through a buffer, so the text is never held in memory.
+ * @see RleReader
+ * @author Stephan Fuhrmann
+ */
+public class RleWriter implements Closeable {
+
+    /** The maximum length of a line of cells. */
+    static final int LINE_LENGTH = 70;
+
+    /** The channel to write to. */
+    private final WritableByteChannel channel;
+
+    /** The buffered output of the channel. */
+    private final ChannelOutput output;
+
+    /** The number of characters in the current line. */
+    private int column;
+
+    /** The tag of the run not written yet. */
+    private char runTag;
+
+    /** The length of the run not written yet, 0 if there is none. */
+    private long runLength;
+
+    /** Creates a writer.
+     * @param channel the channel to write the pattern to.
+     */
+    public RleWriter(WritableByteChannel channel) {
+        this.channel = channel;
+        this.output = new ChannelOutput(channel);
+    }
+
+    /** Creates or replaces a file for writing.
+     * @param path the file to write.
+     * @return the writer to close after writing.
+     * @throws IOException if the file can not be opened.
+     */
+    public static RleWriter create(Path path) throws IOException {
+        return new RleWriter(FileChannel.open(path,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE));
+    }
+
+    /** Writes the alive cells of a field.
+     * @param field the field to write.
+     * @param rule the rule to name in the header.
+     * @throws IOException if writing fails.
+     */
+    public void write(Field field, Rule rule) throws IOException {
+        long[] row = new long[field.getWordsPerRow()];
+
+        // the bounding box of the alive cells
+        int minX = Integer.MAX_VALUE;
+        int maxX = -1;
+        int minY = -1;
+        int maxY = -1;
+        for (int y = 0; y < field.getHeight(); y++) {
+            field.getRow(y, row);
+            for (int i = 0; i < row.length; i++) {
+                if (row[i] != 0) {
+                    minX = Math.min(minX, (i << 6) + Long.numberOfTrailingZeros(row[i]));
+                    maxX = Math.max(maxX, (i << 6) + 63 - Long.numberOfLeadingZeros(row[i]));
+                    if (minY < 0) {
+                        minY = y;
+                    }
+                    maxY = y;
+                }
+            }
+        }
+
+        output.write("x = ");
+        output.write(minY < 0 ? 0 : maxX - minX + 1);
+        output.write(", y = ");
+        output.write(minY < 0 ? 0 : maxY - minY + 1);
+        output.write(", rule = ");
+        output.write(rule.toString());
+        output.write('\n');
+        column = 0;
+        runLength = 0;
+
+        for (int y = minY; minY >= 0 && y <= maxY; y++) {
+            if (y > minY) {
+                run('$', 1);
+            }
+            field.getRow(y, row);
+            int x = minX;
+            int alive;
+            while ((alive = Bits.nextSet(row, x, field.getWidth())) >= 0) {
+                int dead = Bits.nextClear(row, alive, field.getWidth());
+                run('b', alive - x);
+                run('o', dead - alive);
+                x = dead;
+            }
+        }
+        run('!', 1);
+        flushRun();
+        output.write('\n');
+        output.flush();
+    }
+
+    /** Appends a run, joining it with the previous run of the same tag. */
+    private void run(char tag, long length) throws IOException {
+        if (length == 0) {
+            return;
+        }
+        if (tag == runTag && runLength > 0) {
+            runLength += length;
+            return;
+        }
+        flushRun();
+        runTag = tag;
+        runLength = length;
+    }
+
+    /** Writes the pending run, starting a new line if the line gets too long. */
+    private void flushRun() throws IOException {
+        if (runLength == 0) {
+            return;
+        }
+        int tokenLength = 1;
+        if (runLength > 1) {
+            for (long rest = runLength; rest > 0; rest /= 10) {
+                tokenLength++;
+            }
+        }
+        if (column + tokenLength > LINE_LENGTH) {
+            output.write('\n');
+            column = 0;
+        }
+        if (runLength > 1) {
+            output.write(runLength);
+        }
+        output.write(runTag);
+        column += tokenLength;
+        runLength = 0;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
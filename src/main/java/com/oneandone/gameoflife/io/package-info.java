@@ -0,0 +1,4 @@
+/**
+ * Reading and writing of pattern files.
+ */
+package com.oneandone.gameoflife.io;
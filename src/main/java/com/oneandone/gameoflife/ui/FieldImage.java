@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.ui;
+
+import com.oneandone.gameoflife.DensityPyramid;
+import com.oneandone.gameoflife.Field;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+
+/**
+ * An image of the visible part of a field with the size of the view.
+ * The pixels are written directly into the {@code int[]} of the
+ * image raster, so rendering doesn't need a draw call per cell.
+ * When a pixel shows a single cell, the cell is read from the field.
+ * When a pixel covers many cells, the density of the block of a
+ * {@link DensityPyramid} is shown as a mix of the alive and the
+ * dead color. Only the visible pixels are rendered, so the time
+ * depends on the size of the view and not the size of the field.
+ * The image is reused as long as the size of the view doesn't change.
+ * @author Stephan Fuhrmann
+ */
+class FieldImage {
+
+    /** The number of mixed colors between dead and alive. */
+    private static final int SHADES = 256;
+
+    /** The image, {@code null} before the first rendering. */
+    private BufferedImage image;
+
+    /** The pixels of the {@link #image} raster. */
+    private int[] pixels;
+
+    /** The colors from dead to alive, indexed by the density. */
+    private final int[] palette = new int[SHADES];
+
+    /** The color of the area outside of the field. */
+    private int outside;
+
+    /** Creates an image with white alive and black dead cells. */
+    FieldImage() {
+        setColors(Color.WHITE, Color.BLACK, Color.DARK_GRAY);
+    }
+
+    /** Sets the colors to render with.
+     * @param aliveColor the color of alive cells.
+     * @param deadColor the color of dead cells.
+     * @param outsideColor the color outside of the field.
+     */
+    final void setColors(Color aliveColor, Color deadColor, Color outsideColor) {
+        for (int i = 0; i < SHADES; i++) {
+            palette[i] = 0xff000000
+                    | mix(deadColor.getRed(), aliveColor.getRed(), i) << 16
+                    | mix(deadColor.getGreen(), aliveColor.getGreen(), i) << 8
+                    | mix(deadColor.getBlue(), aliveColor.getBlue(), i);
+        }
+        outside = outsideColor.getRGB();
+    }
+
+    /** Mixes a color component.
+     * @param dead the component of the dead color.
+     * @param alive the component of the alive color.
+     * @param shade the weight of the alive color from 0 to {@code SHADES - 1}.
+     * @return the mixed component.
+     */
+    private static int mix(int dead, int alive, int shade) {
+        return dead + (alive - dead) * shade / (SHADES - 1);
+    }
+
+    /** Gets the image, reallocating it if the size doesn't match.
+     * @param width the width of the view.
+     * @param height the height of the view.
+     * @return the image of the given size.
+     */
+    BufferedImage getImage(int width, int height) {
+        if (image == null || image.getWidth() != width || image.getHeight() != height) {
+            image = new BufferedImage(Math.max(1, width), Math.max(1, height), BufferedImage.TYPE_INT_RGB);
+            pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        }
+        return image;
+    }
+
+    /** Renders a rectangle of the view into the image.
+     * @param field the field to render.
+     * @param pyramid the population of the field for zoomed out views.
+     * @param viewport the visible part of the field.
+     * @param x the left pixel of the rectangle.
+     * @param y the top pixel of the rectangle.
+     * @param width the width of the rectangle in pixels.
+     * @param height the height of the rectangle in pixels.
+     */
+    void render(Field field, DensityPyramid pyramid, Viewport viewport, int x, int y, int width, int height) {
+        int imageWidth = image.getWidth();
+        int fromX = Math.max(0, x);
+        int toX = Math.min(imageWidth, x + width);
+        int fromY = Math.max(0, y);
+        int toY = Math.min(image.getHeight(), y + height);
+        if (fromX >= toX) {
+            return;
+        }
+        int level = Math.min(viewport.level(), pyramid.getMaxLevel());
+        if (level > 0 && level < DensityPyramid.BASE_LEVEL) {
+            // less than a base block per pixel, sample the cells
+            level = 0;
+        }
+        long previousKey = Long.MIN_VALUE;
+        for (int yi = fromY; yi < toY; yi++) {
+            int offset = yi * imageWidth;
+            long cellY = viewport.cellY(yi);
+            long key = cellY >> level;
+            if (key == previousKey) {
+                // same cell row or block row as the pixel row above
+                System.arraycopy(pixels, offset - imageWidth + fromX, pixels, offset + fromX, toX - fromX);
+                continue;
+            }
+            previousKey = key;
+            if (cellY < 0 || cellY >= field.getHeight()) {
+                Arrays.fill(pixels, offset + fromX, offset + toX, outside);
+            } else if (level == 0) {
+                renderCells(field, viewport, (int) cellY, offset, fromX, toX);
+            } else {
+                renderBlocks(field, pyramid, viewport, level, (int) cellY, offset, fromX, toX);
+            }
+        }
+    }
+
+    /** Renders a pixel row showing single cells. */
+    private void renderCells(Field field, Viewport viewport, int cellY, int offset, int fromX, int toX) {
+        long previousX = Long.MIN_VALUE;
+        int color = outside;
+        for (int xi = fromX; xi < toX; xi++) {
+            long cellX = viewport.cellX(xi);
+            if (cellX != previousX) {
+                previousX = cellX;
+                if (cellX < 0 || cellX >= field.getWidth()) {
+                    color = outside;
+                } else {
+                    color = palette[field.get((int) cellX, cellY) ? SHADES - 1 : 0];
+                }
+            }
+            pixels[offset + xi] = color;
+        }
+    }
+
+    /** Renders a pixel row showing the density of blocks. */
+    private void renderBlocks(Field field, DensityPyramid pyramid, Viewport viewport, int level,
+            int cellY, int offset, int fromX, int toX) {
+        int blockY = cellY >> level;
+        long blockArea = 1L << (2 * level);
+        for (int xi = fromX; xi < toX; xi++) {
+            long cellX = viewport.cellX(xi);
+            if (cellX < 0 || cellX >= field.getWidth()) {
+                pixels[offset + xi] = outside;
+                continue;
+            }
+            int population = pyramid.getPopulation(level, (int) (cellX >> level), blockY);
+            // a single cell stays visible
+            int shade = population == 0 ? 0 : 1 + (int) (population * (SHADES - 2) / blockArea);
+            pixels[offset + xi] = palette[shade];
+        }
+    }
+}
@@ -15,15 +15,24 @@
  */
 package com.oneandone.gameoflife.ui;
 
+import com.oneandone.gameoflife.ChangeSet;
+import com.oneandone.gameoflife.DensityPyramid;
+import com.oneandone.gameoflife.Edit;
 import com.oneandone.gameoflife.Field;
 import com.oneandone.gameoflife.IntFieldImpl;
+import com.oneandone.gameoflife.Snapshot;
+import com.oneandone.gameoflife.SnapshotRing;
 import java.awt.Color;
-import java.awt.Dimension;
 import java.awt.Graphics;
+import java.awt.Point;
 import java.awt.Rectangle;
+import java.awt.event.MouseAdapter;
 import java.awt.event.MouseEvent;
-import java.awt.event.MouseListener;
+import java.awt.event.MouseWheelEvent;
+import java.awt.image.BufferedImage;
+import java.util.function.Consumer;
 import javax.swing.JPanel;
+import javax.swing.Timer;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -32,62 +41,138 @@ import lombok.Setter;
  * filled rectangle cells. The cells are painted
  * in either {@linkplain #aliveColor} or
  * {@linkplain #deadColor}.
+ * The canvas shows a {@link Viewport} of the field that can be
+ * zoomed with the mouse wheel and moved by dragging. Only the
+ * visible cells are read; when zoomed out, the density of
+ * blocks of a {@link DensityPyramid} is shown instead of the cells.
+ * Only the screen bounds of the {@link ChangeSet changes} reported with
+ * {@link #update(com.oneandone.gameoflife.Field, com.oneandone.gameoflife.ChangeSet)}
+ * are repainted.
+ * With a {@link SnapshotRing}, the canvas takes the newest generation
+ * from the ring at the screen rate and renders the snapshot while
+ * the next generations are calculated.
  * The canvas is clickable and can be painted with
- * mouse clicks.
+ * mouse clicks. The clicks are passed as {@link Edit edits} to the
+ * edit consumer if there is one, so they can be applied between
+ * two generations.
  * @author Stephan Fuhrmann
  */
 public class LifeContentCanvas extends JPanel {
-    
+
+    /** The color of the area outside of the field. */
+    private static final Color OUTSIDE_COLOR = Color.DARK_GRAY;
+
+    /** The milliseconds between two polls of the snapshot ring. */
+    private static final int POLL_MILLIS = 16;
+
+    /** The zoom factor of one mouse wheel notch. */
+    private static final double ZOOM_STEP = 1.25;
+
     /** The field we're rendering. */
     @Getter
     private Field field;
 
     /** The color of alive cells. */
-    @Getter @Setter
+    @Getter
     private Color aliveColor;
     
     /** The color of dead cells. */
-    @Getter @Setter
+    @Getter
     private Color deadColor;
 
-    /** The mouse listener for changing the pixels in the {@link #field}.
+    /** The image the visible cells are rendered to. */
+    private final FieldImage fieldImage = new FieldImage();
+
+    /** Guards the {@link #field} and the {@link #pyramid},
+     * which are updated from the calculating thread.
+     * Held while a frame is rendered, so the calculating thread
+     * can not change the pyramid or step into the field meanwhile.
+     */
+    private final Object lock = new Object();
+
+    /** The population of the {@link #field} in blocks. */
+    private DensityPyramid pyramid;
+
+    /** The visible part of the field. */
+    private volatile Viewport viewport = new Viewport(0, 0, 1);
+
+    /** Whether the viewport follows the size of the canvas to
+     * show the whole field. Cleared by zooming and panning.
+     */
+    private volatile boolean fitted = true;
+
+    /** Polls the {@link #snapshotRing}, {@code null} without a ring. */
+    private Timer pollTimer;
+
+    /** The ring to take the generations from, or {@code null}. */
+    private SnapshotRing snapshotRing;
+
+    /** The snapshot shown, retained until the next one is shown. */
+    private Snapshot shown;
+
+    /** Receives the edits of mouse clicks, or {@code null} to
+     * change the field directly.
      */
-    private final MouseListener mouseListener = new MouseListener() {
+    @Setter
+    private Consumer<Edit> editConsumer;
+
+    /** The mouse listener for changing the pixels in the {@link #field}
+     * and for zooming and panning.
+     */
+    private final MouseAdapter mouseListener = new MouseAdapter() {
+            /** The last position while dragging. */
+            private Point dragStart;
+
             @Override
             public void mouseClicked(MouseEvent e) {
-                int x = e.getX();
-                int y = e.getY();
-                
-                float pixelWidth = pixelWidth();
-                float pixelHeight = pixelHeight();
-                
-                int xIndex = (int)(x / pixelWidth);
-                int yIndex = (int)(y / pixelHeight);
-                
-                boolean oldValue = field.get(xIndex, yIndex);
-                boolean newValue = !oldValue;
-                field.set(xIndex, yIndex, newValue);
-                repaint(new Rectangle(
-                        Math.round(pixelWidth * xIndex), 
-                        Math.round(pixelHeight * yIndex),
-                        Math.round(pixelWidth),
-                        Math.round(pixelHeight)));
+                Viewport current = viewport;
+                long xIndex = current.cellX(e.getX());
+                long yIndex = current.cellY(e.getY());
+                if (editConsumer != null) {
+                    if (xIndex == (int) xIndex && yIndex == (int) yIndex) {
+                        editConsumer.accept(Edit.toggle((int) xIndex, (int) yIndex));
+                    }
+                    return;
+                }
+                if (snapshotRing != null) {
+                    // snapshots must not be changed
+                    return;
+                }
+                synchronized (lock) {
+                    if (xIndex < 0 || xIndex >= field.getWidth() || yIndex < 0 || yIndex >= field.getHeight()) {
+                        return;
+                    }
+                    boolean oldValue = field.get((int) xIndex, (int) yIndex);
+                    boolean newValue = !oldValue;
+                    field.set((int) xIndex, (int) yIndex, newValue);
+                    ChangeSet changes = new ChangeSet(field.getWidth(), field.getHeight());
+                    changes.add((int) xIndex, (int) yIndex);
+                    pyramid.update(field, changes);
+                }
+                repaint(screenBounds(current, xIndex, yIndex, 1, 1));
             }
 
             @Override
             public void mousePressed(MouseEvent e) {
+                dragStart = e.getPoint();
             }
 
             @Override
-            public void mouseReleased(MouseEvent e) {
-            }
-
-            @Override
-            public void mouseEntered(MouseEvent e) {
+            public void mouseDragged(MouseEvent e) {
+                if (dragStart != null) {
+                    viewport = viewport.pan(e.getX() - dragStart.x, e.getY() - dragStart.y);
+                    fitted = false;
+                    dragStart = e.getPoint();
+                    repaint();
+                }
             }
 
             @Override
-            public void mouseExited(MouseEvent e) {
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                double factor = Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation());
+                viewport = viewport.zoom(factor, e.getX(), e.getY());
+                fitted = false;
+                repaint();
             }
         };
     
@@ -97,10 +182,40 @@ public class LifeContentCanvas extends JPanel {
     
     public LifeContentCanvas(Field field) {
         this.field = field;
+        this.pyramid = DensityPyramid.of(field);
         aliveColor = Color.WHITE;
         deadColor = Color.BLACK;
+        fieldImage.setColors(aliveColor, deadColor, OUTSIDE_COLOR);
         
         super.addMouseListener(mouseListener);
+        super.addMouseMotionListener(mouseListener);
+        super.addMouseWheelListener(mouseListener);
+    }
+
+    /** Sets the color of alive cells.
+     * @param aliveColor the new color.
+     */
+    public void setAliveColor(Color aliveColor) {
+        this.aliveColor = aliveColor;
+        fieldImage.setColors(aliveColor, deadColor, OUTSIDE_COLOR);
+        repaint();
+    }
+
+    /** Sets the color of dead cells.
+     * @param deadColor the new color.
+     */
+    public void setDeadColor(Color deadColor) {
+        this.deadColor = deadColor;
+        fieldImage.setColors(aliveColor, deadColor, OUTSIDE_COLOR);
+        repaint();
+    }
+
+    /** Shows the whole field and keeps showing it when the
+     * canvas is resized, until the view is zoomed or moved.
+     */
+    public void fit() {
+        fitted = true;
+        repaint();
     }
     
     /** Sets the rendered field to the given instance and repaints
@@ -108,49 +223,122 @@ public class LifeContentCanvas extends JPanel {
      * @param f the field to render.
      */
     public void setField(Field f) {
-        this.field = f;
+        DensityPyramid newPyramid = DensityPyramid.of(f);
+        synchronized (lock) {
+            this.field = f;
+            this.pyramid = newPyramid;
+        }
         repaint();
     }
-    
-    /** Width of a cell in pixels. */
-    private float pixelWidth() {
-        float pixelWidth = (float)(getWidth() / field.getDimensions().getWidth());
-        return pixelWidth;
+
+    /** Shows the generations published to a ring.
+     * The ring is polled on the event dispatch thread.
+     * Must be called on the event dispatch thread.
+     * @param ring the ring to take the generations from, or
+     * {@code null} to stop polling.
+     */
+    public void setSnapshotRing(SnapshotRing ring) {
+        if (pollTimer != null) {
+            pollTimer.stop();
+            pollTimer = null;
+        }
+        if (shown != null) {
+            shown.release();
+            shown = null;
+        }
+        snapshotRing = ring;
+        if (ring != null) {
+            pollTimer = new Timer(POLL_MILLIS, e -> poll());
+            pollTimer.start();
+        }
     }
-    
-    /** Height of a cell in pixels. */
-    private float pixelHeight() {
-        float pixelHeight = (float)(getHeight() / field.getDimensions().getHeight());
-        return pixelHeight;
+
+    /** Shows the newest snapshot of the {@link #snapshotRing} if
+     * there is a new one.
+     */
+    private void poll() {
+        Snapshot next = snapshotRing.acquire();
+        if (next == null) {
+            return;
+        }
+        if (shown != null && next.getSequence() == shown.getSequence()) {
+            next.release();
+            return;
+        }
+        update(next.getField(), next.changesSince(shown != null ? shown.getSequence() : 0));
+        if (shown != null) {
+            shown.release();
+        }
+        shown = next;
+    }
+
+    /** Sets the rendered field to the next generation and repaints
+     * the visible changed tiles.
+     * @param f the field to render.
+     * @param changes the tiles that changed since the last update.
+     */
+    public void update(Field f, ChangeSet changes) {
+        boolean sameSize;
+        synchronized (lock) {
+            sameSize = f.getWidth() == pyramid.getWidth() && f.getHeight() == pyramid.getHeight()
+                    && changes.getWidth() == pyramid.getWidth() && changes.getHeight() == pyramid.getHeight();
+            this.field = f;
+            if (sameSize) {
+                pyramid.update(f, changes);
+            } else {
+                pyramid = DensityPyramid.of(f);
+            }
+        }
+        if (!sameSize) {
+            repaint();
+            return;
+        }
+        Viewport current = viewport;
+        Rectangle visible = new Rectangle(0, 0, getWidth(), getHeight());
+        Rectangle bounds = new Rectangle(0, 0, -1, -1);
+        changes.forEachRegion((x, y, width, height) -> {
+            Rectangle region = screenBounds(current, x, y, width, height).intersection(visible);
+            if (!region.isEmpty()) {
+                bounds.add(region);
+            }
+        });
+        // the repaint manager merges the bounds of several updates
+        if (!bounds.isEmpty()) {
+            repaint(bounds);
+        }
+    }
+
+    /** The pixels showing a rectangle of cells.
+     * @param view the viewport to map with.
+     * @param x the left cell.
+     * @param y the top cell.
+     * @param width the width in cells.
+     * @param height the height in cells.
+     * @return the screen rectangle, may be outside of the canvas.
+     */
+    private static Rectangle screenBounds(Viewport view, long x, long y, long width, long height) {
+        double left = Math.max(Integer.MIN_VALUE / 2, Math.floor(view.pixelX(x)));
+        double top = Math.max(Integer.MIN_VALUE / 2, Math.floor(view.pixelY(y)));
+        double right = Math.min(Integer.MAX_VALUE / 2, Math.ceil(view.pixelX(x + width)));
+        double bottom = Math.min(Integer.MAX_VALUE / 2, Math.ceil(view.pixelY(y + height)));
+        return new Rectangle((int) left, (int) top, (int) (right - left) + 1, (int) (bottom - top) + 1);
     }
 
     @Override
-    public void paintComponent(Graphics g) {       
+    public void paintComponent(Graphics g) {
         super.paintComponent(g);
-        Dimension dimension = field.getDimensions();
-        float pixelWidth = pixelWidth();
-        float pixelHeight = pixelHeight();
-        
-        for (int y = 0; y < dimension.getHeight(); y++) {
-            for (int x = 0; x < dimension.getWidth(); x++) {
-                float pixelX = x * pixelWidth;
-                float pixelY = y * pixelHeight;
-                
-                boolean alive = field.get(x, y);
-                Color color;
-                if (alive) {
-                    color = aliveColor;
-                } else {
-                    color = deadColor;
-                }
-                
-                g.setColor(color);
-                g.fillRect(
-                        Math.round(pixelX), 
-                        Math.round(pixelY),
-                        1 + Math.round(pixelWidth), 
-                        1 + Math.round(pixelHeight));
+        Rectangle clip = g.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        }
+        BufferedImage image = fieldImage.getImage(getWidth(), getHeight());
+        // an update waits for the frame, so field and pyramid stay consistent
+        synchronized (lock) {
+            if (fitted) {
+                viewport = Viewport.fit(field.getWidth(), field.getHeight(), getWidth(), getHeight());
             }
+            fieldImage.render(field, pyramid, viewport, clip.x, clip.y, clip.width, clip.height);
         }
+        g.drawImage(image, 0, 0, null);
     }
 }
@@ -16,11 +16,15 @@
 package com.oneandone.gameoflife.ui;
 
 import java.util.Random;
-import javax.swing.SwingUtilities;
-import com.oneandone.gameoflife.Field;
+import javax.swing.Timer;
+import com.oneandone.gameoflife.Edit;
 import com.oneandone.gameoflife.GameOfLife;
 import com.oneandone.gameoflife.LifeControl;
+import com.oneandone.gameoflife.LifeMetrics;
 import com.oneandone.gameoflife.LifeRunnable;
+import com.oneandone.gameoflife.Pacing;
+import com.oneandone.gameoflife.Snapshot;
+import com.oneandone.gameoflife.SnapshotRing;
 import lombok.Getter;
 import lombok.Setter;
 
@@ -30,24 +34,58 @@ import lombok.Setter;
  * @author Stephan Fuhrmann
  */
 public class LifeControlPanel extends javax.swing.JPanel {
-    
+
+    /** The number of buffers for the generations shown while running. */
+    private static final int SNAPSHOT_BUFFERS = 4;
+
+    /** The generations between two snapshots without delay. */
+    private static final int UNTHROTTLED_BATCH = 16;
+
+    /** The milliseconds between two updates of the iteration. */
+    private static final int ITERATION_MILLIS = 100;
+
     /** The game of life being run. */
     @Getter
     @Setter
     private GameOfLife gameOfLife;
     
     /** The canvas for painting. */
-    @Setter
     private LifeContentCanvas lifeContentCanvas;
     
+    /** The metrics the runs are recorded in, or {@code null}. */
+    @Setter
+    private LifeMetrics metrics;
+
+    /** The pacing of the {@link #lifeRunnable}. */
+    private LifeControl lifeControl;
+
     /** Runnable for running the {@link #gameOfLife}. */
     private LifeRunnable lifeRunnable;
 
+    /** The thread running the {@link #lifeRunnable}. */
+    private Thread lifeThread;
+
+    /** Shows the iteration of the newest generation while running. */
+    private Timer iterationTimer;
+
     /**
      * Creates new form LifePanel
      */
     public LifeControlPanel() {
         initComponents();        
+        // the delay can be changed while running
+        jFormattedTextFieldDelay.addPropertyChangeListener("value", e -> updatePacing());
+    }
+
+    /** Sets the pacing of the running game from the delay field. */
+    private void updatePacing() {
+        if (lifeControl == null) {
+            return;
+        }
+        double intervalDouble = ((Number)jFormattedTextFieldDelay.getValue()).doubleValue();
+        int interval = (int)(1000 * intervalDouble);
+        lifeControl.setIntervalMillis(Math.max(0, interval));
+        lifeControl.setPacing(interval > 0 ? Pacing.CATCH_UP : Pacing.UNTHROTTLED);
     }
 
     /**
@@ -200,22 +238,29 @@ public class LifeControlPanel extends javax.swing.JPanel {
         
         boolean selected =jToggleButtonRun.isSelected();
         if (lifeRunnable != null) {
-            lifeRunnable.setRun(false);
+            stopRunnable();
         }
         if (selected) {
             
-            int interval;
-            Double intervalDouble = ((Number)jFormattedTextFieldDelay.getValue()).doubleValue();
-            interval = (int)(1000 * intervalDouble);
-            
-            lifeRunnable = new LifeRunnable(new LifeControl(interval), gameOfLife);
-            lifeRunnable.setRepaintConsumer(lifeContentCanvas::setField);
-            lifeRunnable.setIterationConsumer(iter -> {
-                Runnable r = () -> jTextFieldIteration.setText(iter.toString());
-                SwingUtilities.invokeLater(r);
+            lifeControl = new LifeControl(0);
+            lifeControl.setBatchGenerations(UNTHROTTLED_BATCH);
+            updatePacing();
+
+            SnapshotRing snapshotRing = new SnapshotRing(SNAPSHOT_BUFFERS);
+            lifeRunnable = new LifeRunnable(lifeControl, gameOfLife);
+            lifeRunnable.setMetrics(metrics);
+            lifeRunnable.setSnapshotRing(snapshotRing);
+            lifeContentCanvas.setSnapshotRing(snapshotRing);
+            iterationTimer = new Timer(ITERATION_MILLIS, e -> {
+                Snapshot snapshot = snapshotRing.acquire();
+                if (snapshot != null) {
+                    jTextFieldIteration.setText(Integer.toString(snapshot.getIteration()));
+                    snapshot.release();
+                }
             });
-            Thread t = new Thread(lifeRunnable, "Life Runnable");
-            t.start();
+            iterationTimer.start();
+            lifeThread = new Thread(lifeRunnable, "Life Runnable");
+            lifeThread.start();
         }
     }//GEN-LAST:event_jToggleButtonRunActionPerformed
 
@@ -228,27 +273,61 @@ public class LifeControlPanel extends javax.swing.JPanel {
     }//GEN-LAST:event_jSpinnerHeightStateChanged
 
     private void jButtonRandomInitActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButtonRandomInitActionPerformed
-        Random r = new Random();
-        Field field = gameOfLife.getActiveField();
-        field.set(() -> r.nextBoolean());
-        gameOfLife.setIteration(0);
-        jTextFieldIteration.setText("0");
-        lifeContentCanvas.repaint();
+        edit(Edit.random(new Random().nextLong(), 0.5));
+        edit(Edit.iteration(0));
     }//GEN-LAST:event_jButtonRandomInitActionPerformed
 
     private void jButtonClearActionPerformed(java.awt.event.ActionEvent evt) {//GEN-FIRST:event_jButtonClearActionPerformed
-        Field field = gameOfLife.getActiveField();
-        field.set(() -> false);
-        gameOfLife.setIteration(0);
-        jTextFieldIteration.setText("0");
-        lifeContentCanvas.repaint();
+        edit(Edit.clear());
+        edit(Edit.iteration(0));
     }//GEN-LAST:event_jButtonClearActionPerformed
 
+    /** Stops the calculation and shows the active field again. */
+    private void stopRunnable() {
+        lifeRunnable.setRun(false);
+        lifeThread.interrupt();
+        try {
+            lifeThread.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        iterationTimer.stop();
+        gameOfLife.applyEdits();
+        lifeContentCanvas.setSnapshotRing(null);
+        lifeContentCanvas.setField(gameOfLife.getActiveField());
+        jTextFieldIteration.setText(Integer.toString(gameOfLife.getIteration()));
+        lifeRunnable = null;
+        lifeControl = null;
+    }
+
     /** Update the game to a new field size. */
     private void resizeUpdate() {
-        gameOfLife.setSize((int)jSpinnerWidth.getValue(), (int)jSpinnerHeight.getValue());
-        lifeContentCanvas.setField(gameOfLife.getActiveField());
-        lifeContentCanvas.repaint();        
+        edit(Edit.resize((int)jSpinnerWidth.getValue(), (int)jSpinnerHeight.getValue()));
+    }
+
+    /** Changes the game. While running, the edit is applied by the
+     * calculating thread before the next generation, otherwise
+     * it is applied and shown right away.
+     * @param edit the edit to apply.
+     */
+    private void edit(Edit edit) {
+        gameOfLife.enqueue(edit);
+        if (lifeThread == null || !lifeThread.isAlive()) {
+            gameOfLife.setTrackChanges(true);
+            gameOfLife.applyEdits();
+            lifeContentCanvas.update(gameOfLife.getActiveField(), gameOfLife.getChanges());
+            gameOfLife.getChanges().clear();
+            jTextFieldIteration.setText(Integer.toString(gameOfLife.getIteration()));
+        }
+    }
+
+    /** Sets the canvas for painting. Clicks on the canvas are
+     * applied as edits of the game.
+     * @param lifeContentCanvas the canvas to paint the game on.
+     */
+    public void setLifeContentCanvas(LifeContentCanvas lifeContentCanvas) {
+        this.lifeContentCanvas = lifeContentCanvas;
+        lifeContentCanvas.setEditConsumer(this::edit);
     }
 
     // Variables declaration - do not modify//GEN-BEGIN:variables
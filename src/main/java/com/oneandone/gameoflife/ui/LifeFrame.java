@@ -16,6 +16,10 @@
 package com.oneandone.gameoflife.ui;
 
 import com.oneandone.gameoflife.GameOfLife;
+import com.oneandone.gameoflife.LifeMetrics;
+import com.oneandone.gameoflife.PackedEngine;
+import com.oneandone.gameoflife.Rule;
+import com.oneandone.gameoflife.Topology;
 
 /**
  * The frame containing the control and game canvas.
@@ -30,14 +34,32 @@ public class LifeFrame extends javax.swing.JFrame {
      * Creates new form LifeFrame
      */
     public LifeFrame() {
+        this(Rule.CONWAY, Topology.BOUNDED);
+    }
+
+    /**
+     * Creates new form LifeFrame calculating with the given rule.
+     * The fields of both topologies are calculated by the {@link PackedEngine}.
+     * @param rule the rule to calculate the generations with.
+     * @param topology what the border cells see as neighbors.
+     */
+    public LifeFrame(Rule rule, Topology topology) {
         initComponents();
-        gameOfLife = new GameOfLife();
+        gameOfLife = new GameOfLife(new PackedEngine(), topology);
+        gameOfLife.setRule(rule);
         
         lifeContentCanvas1.setField(gameOfLife.getActiveField());
         lifeControlPanel1.setGameOfLife(gameOfLife);
         lifeControlPanel1.setLifeContentCanvas(lifeContentCanvas1);
     }
 
+    /** Records the runs of the game in metrics.
+     * @param metrics the metrics to record in, or {@code null}.
+     */
+    public void setMetrics(LifeMetrics metrics) {
+        lifeControlPanel1.setMetrics(metrics);
+    }
+
     /**
      * This method is called from within the constructor to initialize the form.
      * WARNING: Do NOT modify this code. The content of this method is always
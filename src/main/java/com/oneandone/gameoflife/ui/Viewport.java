@@ -0,0 +1,150 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.ui;
+
+import com.oneandone.gameoflife.DensityPyramid;
+import lombok.Getter;
+
+/**
+ * The visible part of a field, given by the cell at the top left
+ * pixel and the number of pixels per cell.
+ * Viewports are immutable, zooming and panning return new instances.
+ * @author Stephan Fuhrmann
+ */
+final class Viewport {
+
+    /** The smallest number of pixels per cell. */
+    static final double MIN_SCALE = 1.0 / (1 << 20);
+
+    /** The largest number of pixels per cell. */
+    static final double MAX_SCALE = 256;
+
+    /** The x coordinate of the cell at the left of the view. */
+    @Getter
+    private final double x;
+
+    /** The y coordinate of the cell at the top of the view. */
+    @Getter
+    private final double y;
+
+    /** The number of pixels per cell. */
+    @Getter
+    private final double scale;
+
+    /** Creates a viewport.
+     * @param x the x coordinate of the cell at the left of the view.
+     * @param y the y coordinate of the cell at the top of the view.
+     * @param scale the number of pixels per cell.
+     */
+    Viewport(double x, double y, double scale) {
+        if (!(scale > 0)) {
+            throw new IllegalArgumentException("Illegal scale " + scale);
+        }
+        this.x = x;
+        this.y = y;
+        this.scale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale));
+    }
+
+    /** Creates a viewport showing the whole field centered.
+     * @param fieldWidth the width of the field in cells.
+     * @param fieldHeight the height of the field in cells.
+     * @param viewWidth the width of the view in pixels.
+     * @param viewHeight the height of the view in pixels.
+     * @return the viewport fitting the field into the view.
+     */
+    static Viewport fit(int fieldWidth, int fieldHeight, int viewWidth, int viewHeight) {
+        double scale = Math.min((double) viewWidth / fieldWidth, (double) viewHeight / fieldHeight);
+        if (!(scale > 0)) {
+            scale = 1;
+        }
+        return new Viewport(
+                (fieldWidth - viewWidth / scale) / 2,
+                (fieldHeight - viewHeight / scale) / 2,
+                scale);
+    }
+
+    /** Zooms keeping the cell under a pixel in place.
+     * @param factor the factor to multiply the scale with.
+     * @param pixelX the x coordinate of the fixed pixel.
+     * @param pixelY the y coordinate of the fixed pixel.
+     * @return the zoomed viewport.
+     */
+    Viewport zoom(double factor, int pixelX, int pixelY) {
+        double newScale = Math.max(MIN_SCALE, Math.min(MAX_SCALE, scale * factor));
+        double cellX = x + pixelX / scale;
+        double cellY = y + pixelY / scale;
+        return new Viewport(cellX - pixelX / newScale, cellY - pixelY / newScale, newScale);
+    }
+
+    /** Moves the view by a distance in pixels.
+     * @param dx the pixels to move the content to the right.
+     * @param dy the pixels to move the content down.
+     * @return the moved viewport.
+     */
+    Viewport pan(int dx, int dy) {
+        return new Viewport(x - dx / scale, y - dy / scale, scale);
+    }
+
+    /** The column of the cell shown at a pixel.
+     * @param pixelX the x coordinate of the pixel.
+     * @return the x coordinate of the cell, may be outside of the field.
+     */
+    long cellX(int pixelX) {
+        return (long) Math.floor(x + (pixelX + 0.5) / scale);
+    }
+
+    /** The row of the cell shown at a pixel.
+     * @param pixelY the y coordinate of the pixel.
+     * @return the y coordinate of the cell, may be outside of the field.
+     */
+    long cellY(int pixelY) {
+        return (long) Math.floor(y + (pixelY + 0.5) / scale);
+    }
+
+    /** The pixel of the left edge of a cell column.
+     * @param cellX the x coordinate of the cell.
+     * @return the x coordinate of the pixel, may be outside of the view.
+     */
+    double pixelX(double cellX) {
+        return (cellX - x) * scale;
+    }
+
+    /** The pixel of the top edge of a cell row.
+     * @param cellY the y coordinate of the cell.
+     * @return the y coordinate of the pixel, may be outside of the view.
+     */
+    double pixelY(double cellY) {
+        return (cellY - y) * scale;
+    }
+
+    /** The level of the density pyramid to render from.
+     * A block of the level covers at least a pixel.
+     * @return 0 if cells are at least as large as a pixel, otherwise
+     * the binary logarithm of the cells per pixel rounded up.
+     * @see DensityPyramid#getPopulation(int, int, int)
+     */
+    int level() {
+        if (scale >= 1) {
+            return 0;
+        }
+        return 64 - Long.numberOfLeadingZeros((long) Math.ceil(1 / scale) - 1);
+    }
+
+    @Override
+    public String toString() {
+        return "Viewport at " + x + "," + y + " with scale " + scale;
+    }
+}
@@ -0,0 +1,87 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * Packed engine calculating multiple words per instruction with the
+ * Java Vector API.
+ * This is the version for Java 17 and later. The Vector API is
+ * only used if the {@code jdk.incubator.vector} module was added
+ * with {@code --add-modules jdk.incubator.vector}, otherwise the
+ * engine calculates like the {@link PackedEngine}. Fields with the
+ * {@link Topology#TORUS} topology are calculated with the scalar kernel
+ * of the {@link PackedEngine}, which wraps the borders.
+ * @author Stephan Fuhrmann
+ */
+@Slf4j
+public class VectorEngine extends PackedEngine {
+
+    /** Whether the Vector API can be used. */
+    private static final boolean ACCELERATED = initAccelerated();
+
+    /** Checks whether the vector kernel can be loaded. */
+    private static boolean initAccelerated() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            log.debug("Module jdk.incubator.vector not present, using scalar kernel");
+            return false;
+        }
+        try {
+            log.debug("Using vector kernel with {} lanes", VectorKernel.lanes());
+            return true;
+        } catch (LinkageError e) {
+            log.warn("Vector kernel not available, using scalar kernel", e);
+            return false;
+        }
+    }
+
+    /** Checks whether the Vector API is used.
+     * @return {@code true} if the words are calculated with the
+     * Vector API, {@code false} if the scalar packed engine is used.
+     */
+    public static boolean isAccelerated() {
+        return ACCELERATED;
+    }
+
+    @Override
+    void stepRows(LongFieldImpl from, LongFieldImpl to, int fromRow, int toRow, WordChanges changes) {
+        if (!ACCELERATED || isTorus(from)) {
+            super.stepRows(from, to, fromRow, toRow, changes);
+            return;
+        }
+        int words = from.getWordsPerRow();
+        int height = from.getHeight();
+        long lastWordMask = lastWordMask(from.getWidth());
+        long[] src = from.getWords();
+        long[] dst = to.getWords();
+        long[] empty = new long[words];
+        Rule rule = getRule();
+
+        for (int y = fromRow; y < toRow; y++) {
+            int rowOffset = y * words;
+            long[] above = y > 0 ? src : empty;
+            int aboveOffset = y > 0 ? rowOffset - words : 0;
+            long[] below = y < height - 1 ? src : empty;
+            int belowOffset = y < height - 1 ? rowOffset + words : 0;
+            VectorKernel.stepRow(rule, above, aboveOffset, src, rowOffset, below, belowOffset,
+                    dst, rowOffset, words, lastWordMask);
+            if (changes != null) {
+                changes.addRow(y, src, rowOffset, dst, rowOffset);
+            }
+        }
+    }
+}
@@ -0,0 +1,165 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * The row kernel of the {@link VectorEngine}. Does the same
+ * calculation as {@link PackedEngine#nextWord(com.oneandone.gameoflife.Rule, long, long, long, long, long, long, long, long, long)}
+ * on all lanes of a vector.
+ * Must only be loaded if the {@code jdk.incubator.vector} module is present.
+ * @author Stephan Fuhrmann
+ */
+final class VectorKernel {
+
+    /** The preferred vector shape of the platform. */
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    private VectorKernel() {
+    }
+
+    /** Get the number of words calculated per vector. */
+    static int lanes() {
+        return SPECIES.length();
+    }
+
+    /** Calculates the next generation of one packed row.
+     * The parameters are the same as for
+     * {@link PackedEngine#stepRow(com.oneandone.gameoflife.Rule, long[], int, long[], int, long[], int, long[], int, int, long, boolean, com.oneandone.gameoflife.WordChanges, int)}
+     * without the torus and the changes.
+     */
+    static void stepRow(Rule rule, long[] above, int aboveOffset,
+            long[] row, int rowOffset,
+            long[] below, int belowOffset,
+            long[] out, int outOffset,
+            int words, long lastWordMask) {
+        int lanes = SPECIES.length();
+
+        out[outOffset] = scalarWord(rule, above, aboveOffset, row, rowOffset, below, belowOffset, 0, words);
+        int i = 1;
+        // the vectors read the words from i - 1 to i + lanes
+        for (; i + lanes < words; i += lanes) {
+            vectorWords(rule, above, aboveOffset + i, row, rowOffset + i, below, belowOffset + i)
+                    .intoArray(out, outOffset + i);
+        }
+        for (; i < words; i++) {
+            out[outOffset + i] = scalarWord(rule, above, aboveOffset, row, rowOffset, below, belowOffset, i, words);
+        }
+        out[outOffset + words - 1] &= lastWordMask;
+    }
+
+    /** Calculates a single word with the scalar kernel. */
+    private static long scalarWord(Rule rule, long[] above, int aboveOffset,
+            long[] row, int rowOffset,
+            long[] below, int belowOffset,
+            int i, int words) {
+        boolean hasPrevious = i > 0;
+        boolean hasNext = i + 1 < words;
+        return PackedEngine.nextWord(rule,
+                hasPrevious ? above[aboveOffset + i - 1] : 0,
+                above[aboveOffset + i],
+                hasNext ? above[aboveOffset + i + 1] : 0,
+                hasPrevious ? row[rowOffset + i - 1] : 0,
+                row[rowOffset + i],
+                hasNext ? row[rowOffset + i + 1] : 0,
+                hasPrevious ? below[belowOffset + i - 1] : 0,
+                below[belowOffset + i],
+                hasNext ? below[belowOffset + i + 1] : 0);
+    }
+
+    /** Calculates the words starting at the given offsets. The word
+     * before and after the vector must be inside of the arrays.
+     */
+    private static LongVector vectorWords(Rule rule, long[] above, int aboveOffset,
+            long[] row, int rowOffset,
+            long[] below, int belowOffset) {
+        LongVector a1 = LongVector.fromArray(SPECIES, above, aboveOffset);
+        LongVector b1 = LongVector.fromArray(SPECIES, row, rowOffset);
+        LongVector c1 = LongVector.fromArray(SPECIES, below, belowOffset);
+
+        LongVector aL = left(a1, LongVector.fromArray(SPECIES, above, aboveOffset - 1));
+        LongVector aR = right(a1, LongVector.fromArray(SPECIES, above, aboveOffset + 1));
+        LongVector bL = left(b1, LongVector.fromArray(SPECIES, row, rowOffset - 1));
+        LongVector bR = right(b1, LongVector.fromArray(SPECIES, row, rowOffset + 1));
+        LongVector cL = left(c1, LongVector.fromArray(SPECIES, below, belowOffset - 1));
+        LongVector cR = right(c1, LongVector.fromArray(SPECIES, below, belowOffset + 1));
+
+        LongVector aX = xor(aL, a1);
+        LongVector aSum = xor(aX, aR);
+        LongVector aCarry = aL.and(a1).or(aR.and(aX));
+        LongVector cX = xor(cL, c1);
+        LongVector cSum = xor(cX, cR);
+        LongVector cCarry = cL.and(c1).or(cR.and(cX));
+        LongVector bSum = xor(bL, bR);
+        LongVector bCarry = bL.and(bR);
+
+        LongVector onesX = xor(aSum, cSum);
+        LongVector ones = xor(onesX, bSum);
+        LongVector onesCarry = aSum.and(cSum).or(bSum.and(onesX));
+
+        LongVector twosX = xor(aCarry, cCarry);
+        LongVector twosSum = xor(twosX, bCarry);
+        LongVector twosCarry = aCarry.and(cCarry).or(bCarry.and(twosX));
+        LongVector twos = xor(twosSum, onesCarry);
+        LongVector foursCarry = twosSum.and(onesCarry);
+
+        LongVector fours = xor(twosCarry, foursCarry);
+        LongVector eights = twosCarry.and(foursCarry);
+
+        if (rule.isConway()) {
+            return eights.not().and(fours.not()).and(twos).and(ones.or(b1));
+        }
+        // the same as Rule.next(long, long, long, long, long)
+        LongVector notOnes = ones.not();
+        LongVector notTwos = twos.not();
+        LongVector mod0 = notTwos.and(notOnes);
+        LongVector mod1 = notTwos.and(ones);
+        LongVector mod2 = twos.and(notOnes);
+        LongVector mod3 = twos.and(ones);
+        LongVector low = fours.not().and(eights.not());
+        LongVector born = select(rule.getBirthMasks(), mod0, mod1, mod2, mod3, low, fours, eights);
+        LongVector survives = select(rule.getSurvivalMasks(), mod0, mod1, mod2, mod3, low, fours, eights);
+        return b1.and(survives).or(b1.not().and(born));
+    }
+
+    /** Selects the cells whose neighbor count is in the masks. */
+    private static LongVector select(long[] masks,
+            LongVector mod0, LongVector mod1, LongVector mod2, LongVector mod3,
+            LongVector low, LongVector fours, LongVector eights) {
+        return low.and(mod0.and(masks[0]).or(mod1.and(masks[1])).or(mod2.and(masks[2])).or(mod3.and(masks[3])))
+                .or(fours.and(mod0.and(masks[4]).or(mod1.and(masks[5])).or(mod2.and(masks[6])).or(mod3.and(masks[7]))))
+                .or(eights.and(masks[8]));
+    }
+
+    /** Moves the neighbors at x-1 to the bit position of x. */
+    private static LongVector left(LongVector words, LongVector previous) {
+        return words.lanewise(VectorOperators.LSHL, 1)
+                .or(previous.lanewise(VectorOperators.LSHR, 63));
+    }
+
+    /** Moves the neighbors at x+1 to the bit position of x. */
+    private static LongVector right(LongVector words, LongVector next) {
+        return words.lanewise(VectorOperators.LSHR, 1)
+                .or(next.lanewise(VectorOperators.LSHL, 63));
+    }
+
+    private static LongVector xor(LongVector a, LongVector b) {
+        return a.lanewise(VectorOperators.XOR, b);
+    }
+}
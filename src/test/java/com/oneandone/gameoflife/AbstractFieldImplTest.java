@@ -187,4 +187,73 @@ public abstract class AbstractFieldImplTest {
                 + "000\n"
                 + "000\n", str);
     }
+
+    @Test
+    public void testGetRow() {
+        Field fieldImpl = newField(70, 2);
+        fieldImpl.set(0, 1, true);
+        fieldImpl.set(63, 1, true);
+        fieldImpl.set(69, 1, true);
+
+        long[] row = new long[fieldImpl.getWordsPerRow()];
+        assertEquals(2, row.length);
+        fieldImpl.getRow(1, row);
+        assertArrayEquals(new long[] {1L | 1L << 63, 1L << 5}, row);
+        fieldImpl.getRow(0, row);
+        assertArrayEquals(new long[] {0, 0}, row);
+    }
+
+    @Test
+    public void testSetRow() {
+        Field fieldImpl = newField(70, 2);
+        // bits right of the last column are ignored
+        fieldImpl.setRow(0, new long[] {1L << 63, -1L << 5});
+        assertFalse(fieldImpl.get(62, 0));
+        assertTrue(fieldImpl.get(63, 0));
+        assertFalse(fieldImpl.get(68, 0));
+        assertTrue(fieldImpl.get(69, 0));
+
+        long[] row = new long[2];
+        fieldImpl.getRow(0, row);
+        assertArrayEquals(new long[] {1L << 63, 1L << 5}, row);
+        fieldImpl.getRow(1, row);
+        assertArrayEquals(new long[] {0, 0}, row);
+    }
+
+    @Test
+    public void testFill() {
+        Field fieldImpl = newField(4, 3);
+        fieldImpl.fill(1, 1, 10, 10, true);
+        fieldImpl.fill(2, 2, 1, 1, false);
+
+        assertEquals(
+                  "0000\n"
+                + "0111\n"
+                + "0101\n", fieldImpl.toString());
+    }
+
+    @Test
+    public void testCountAlive() {
+        Field fieldImpl = newField(130, 3);
+        assertEquals(0, fieldImpl.countAlive());
+        fieldImpl.fill(60, 1, 70, 2, true);
+        assertEquals(140, fieldImpl.countAlive());
+    }
+
+    @Test
+    public void testCopyToWithWiderTarget() {
+        Field fieldImpl = newField(3, 3);
+        fieldImpl.set(0, 0, true);
+
+        Field copy = new BooleanFieldImpl(70, 2);
+        copy.set(1, 0, true);
+        copy.set(69, 0, true);
+
+        fieldImpl.copyTo(copy);
+
+        assertTrue(copy.get(0, 0));
+        // the cells of the field are copied, the others kept
+        assertFalse(copy.get(1, 0));
+        assertTrue(copy.get(69, 0));
+    }
 }
@@ -0,0 +1,71 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for ActivityEngine.
+ * @author Stephan Fuhrmann
+ */
+public class ActivityEngineTest {
+
+    @Test
+    public void testSameAsCellEngineWithEdits() {
+        Random random = new Random(5);
+        GameOfLife expected = new GameOfLife(new CellEngine());
+        GameOfLife actual = new GameOfLife(new ActivityEngine());
+        expected.setSize(200, 150);
+        actual.setSize(200, 150);
+        expected.getActiveField().set(() -> random.nextInt(4) == 0);
+        expected.getActiveField().copyTo(actual.getActiveField());
+
+        for (int i = 0; i < 200; i++) {
+            if (i % 50 == 25) {
+                // edit a settled area between two generations
+                expected.getActiveField().set(100, 100, true);
+                actual.getActiveField().set(100, 100, true);
+            }
+            expected.doIteration();
+            actual.doIteration();
+            assertEquals("Generation " + i,
+                    expected.getActiveField().toString(),
+                    actual.getActiveField().toString());
+        }
+    }
+
+    @Test
+    public void testStillLifeIsSkipped() {
+        ActivityEngine engine = new ActivityEngine();
+        GameOfLife gameOfLife = new GameOfLife(engine);
+        gameOfLife.setSize(640, 640);
+        Field field = gameOfLife.getActiveField();
+        field.set(300, 300, true);
+        field.set(301, 300, true);
+        field.set(300, 301, true);
+        field.set(301, 301, true);
+
+        gameOfLife.doIteration();
+        assertEquals(100, engine.getCalculatedTiles());
+        gameOfLife.doIteration();
+        assertEquals(0, engine.getCalculatedTiles());
+        gameOfLife.doIteration();
+        assertEquals(0, engine.getCalculatedTiles());
+        assertTrue(gameOfLife.getActiveField().get(301, 301));
+    }
+}
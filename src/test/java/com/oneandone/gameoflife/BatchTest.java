@@ -0,0 +1,132 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import com.oneandone.gameoflife.io.RleReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Test for Batch.
+ * @author Stephan Fuhrmann
+ */
+public class BatchTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static String run(String... args) throws IOException {
+        Params params = Params.parse(args);
+        assertNotNull(params);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        new Batch(params, new PrintStream(bytes, true, "UTF-8")).run();
+        return new String(bytes.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private static String value(String output, String key) {
+        for (String line : output.split("\n")) {
+            if (line.startsWith(key + ": ")) {
+                return line.substring(key.length() + 2);
+            }
+        }
+        throw new AssertionError("Missing " + key + " in " + output);
+    }
+
+    @Test
+    public void testRandomSameForEngines() throws IOException {
+        String expected = null;
+        for (EngineType engine : EngineType.values()) {
+            if (engine == EngineType.SPARSE || engine == EngineType.HASHLIFE) {
+                // calculate the unbounded plane
+                continue;
+            }
+            String output = run("-headless", "-engine", engine.name(), "-threads", "2",
+                    "-seed", "42", "-density", "0.3", "-width", "100", "-height", "80", "-generations", "25");
+            assertEquals("25", value(output, "generations"));
+            assertEquals(engine.name(), value(output, "engine"));
+            String alive = value(output, "alive cells after");
+            if (expected == null) {
+                expected = alive;
+            }
+            assertEquals(engine.name(), expected, alive);
+        }
+    }
+
+    @Test
+    public void testPatternAndOutput() throws IOException {
+        Path pattern = folder.getRoot().toPath().resolve("blinker.rle");
+        Files.write(pattern, "x = 3, y = 1\n3o!\n".getBytes(StandardCharsets.US_ASCII));
+        Path output = folder.getRoot().toPath().resolve("out.rle");
+
+        String result = run("-headless", "-pattern", pattern.toString(), "-output", output.toString(),
+                "-width", "9", "-height", "9", "-generations", "3");
+
+        assertEquals("3", value(result, "alive cells before"));
+        assertEquals("3", value(result, "alive cells after"));
+        try (RleReader reader = RleReader.open(output)) {
+            assertEquals(1, reader.getWidth());
+            assertEquals(3, reader.getHeight());
+        }
+    }
+
+    @Test
+    public void testSoups() throws IOException {
+        String[] args = {"-headless", "-soups", "40", "-soupSize", "8", "-seed", "3",
+                "-threads", "2", "-generations", "500"};
+        String output = run(args);
+        assertEquals("40", value(output, "soups"));
+        long stabilized = Long.parseLong(value(output, "stabilized"));
+        long unstabilized = Long.parseLong(value(output, "unstabilized"));
+        assertEquals(40, stabilized + unstabilized);
+        assertEquals(value(output, "generations"), value(run(args), "generations"));
+    }
+
+    @Test
+    public void testZeroGenerations() throws IOException {
+        String output = run("-headless", "-seed", "1", "-width", "10", "-height", "10", "-generations", "0");
+        assertEquals("0", value(output, "generations"));
+        assertEquals("-", value(output, "generations per second"));
+        assertEquals("1", value(output, "seed"));
+    }
+
+    @Test
+    public void testIllegalDensity() {
+        assertNull(Params.parse(new String[] {"-headless", "-density", "2"}));
+    }
+
+    @Test
+    public void testTorus() throws IOException {
+        String output = run("-headless", "-topology", "TORUS", "-seed", "5", "-density", "0.3",
+                "-width", "70", "-height", "20", "-generations", "10");
+        assertEquals("TORUS", value(output, "topology"));
+        assertEquals(value(output, "alive cells after"), value(run("-headless", "-topology", "TORUS",
+                "-engine", "HALO", "-seed", "5", "-density", "0.3", "-width", "70", "-height", "20",
+                "-generations", "10"), "alive cells after"));
+    }
+
+    @Test
+    public void testTorusNotSupportedByEngine() {
+        assertNull(Params.parse(new String[] {"-headless", "-engine", "SPARSE", "-topology", "TORUS"}));
+    }
+}
@@ -0,0 +1,178 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for ChangeSet.
+ * @author Stephan Fuhrmann
+ */
+public class ChangeSetTest {
+
+    private static List<int[]> regions(ChangeSet changes) {
+        List<int[]> result = new ArrayList<>();
+        changes.forEachRegion((x, y, width, height) -> result.add(new int[] {x, y, width, height}));
+        return result;
+    }
+
+    @Test
+    public void testEmpty() {
+        ChangeSet changes = new ChangeSet(100, 100);
+        assertTrue(changes.isEmpty());
+        assertTrue(regions(changes).isEmpty());
+    }
+
+    @Test
+    public void testAddWordChanges() {
+        WordChanges wordChanges = new WordChanges();
+        wordChanges.clear(4, 100);
+        wordChanges.add(10, 1, 1L);
+        wordChanges.add(99, 3, 1L);
+
+        ChangeSet changes = new ChangeSet(200, 100);
+        changes.add(wordChanges);
+
+        assertEquals(2, changes.getTileCount());
+        List<int[]> regions = regions(changes);
+        assertArrayEquals(new int[] {64, 0, 64, 64}, regions.get(0));
+        assertArrayEquals(new int[] {192, 64, 8, 36}, regions.get(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddWordChangesOtherSize() {
+        WordChanges wordChanges = new WordChanges();
+        wordChanges.clear(3, 100);
+        new ChangeSet(200, 100).add(wordChanges);
+    }
+
+    @Test
+    public void testAddFields() {
+        Field before = new LongFieldImpl(200, 100);
+        Field after = new LongFieldImpl(200, 100);
+        before.copyTo(after);
+        after.set(70, 10, true);
+        after.set(199, 99, true);
+
+        ChangeSet changes = new ChangeSet(200, 100);
+        changes.add(before, after);
+
+        assertEquals(2, changes.getTileCount());
+        List<int[]> regions = regions(changes);
+        assertEquals(2, regions.size());
+        assertArrayEquals(new int[] {64, 0, 64, 64}, regions.get(0));
+        // clipped to the field
+        assertArrayEquals(new int[] {192, 64, 8, 36}, regions.get(1));
+    }
+
+    @Test
+    public void testAddUnchanged() {
+        Field field = new LongFieldImpl(100, 100);
+        field.set(50, 50, true);
+        ChangeSet changes = new ChangeSet(100, 100);
+        changes.add(field, field);
+        assertTrue(changes.isEmpty());
+    }
+
+    @Test
+    public void testNeighborTilesAreOneRegion() {
+        ChangeSet changes = new ChangeSet(300, 10);
+        changes.add(0, 0);
+        changes.add(100, 5);
+        changes.add(250, 0);
+
+        List<int[]> regions = regions(changes);
+        assertEquals(2, regions.size());
+        assertArrayEquals(new int[] {0, 0, 128, 10}, regions.get(0));
+        assertArrayEquals(new int[] {192, 0, 64, 10}, regions.get(1));
+    }
+
+    @Test
+    public void testAddAll() {
+        ChangeSet changes = new ChangeSet(130, 70);
+        changes.addAll();
+        assertEquals(6, changes.getTileCount());
+        List<int[]> regions = regions(changes);
+        assertArrayEquals(new int[] {0, 0, 130, 64}, regions.get(0));
+        assertArrayEquals(new int[] {0, 64, 130, 6}, regions.get(1));
+    }
+
+    @Test
+    public void testMergeAndClear() {
+        ChangeSet first = new ChangeSet(200, 200);
+        first.add(0, 0);
+        ChangeSet second = new ChangeSet(200, 200);
+        second.add(199, 199);
+
+        first.merge(second);
+        assertEquals(2, first.getTileCount());
+
+        first.clear();
+        assertTrue(first.isEmpty());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testMergeOtherSize() {
+        new ChangeSet(10, 10).merge(new ChangeSet(20, 10));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testAddOtherSize() {
+        new ChangeSet(10, 10).add(new LongFieldImpl(10, 10), new LongFieldImpl(20, 10));
+    }
+
+    @Test
+    public void testGameOfLifeTracksChanges() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(256, 256);
+        gameOfLife.setTrackChanges(true);
+        assertEquals(16, gameOfLife.getChanges().getTileCount());
+        gameOfLife.getChanges().clear();
+
+        // blinker in the tile at 1,2
+        Field field = gameOfLife.getActiveField();
+        field.set(99, 150, true);
+        field.set(100, 150, true);
+        field.set(101, 150, true);
+        gameOfLife.doIteration();
+
+        List<int[]> regions = regions(gameOfLife.getChanges());
+        assertEquals(1, regions.size());
+        assertArrayEquals(new int[] {64, 128, 64, 64}, regions.get(0));
+
+        gameOfLife.setTrackChanges(false);
+        assertNull(gameOfLife.getChanges());
+    }
+
+    @Test
+    public void testLifeRunnableChangeConsumer() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(128, 128);
+        List<Integer> tileCounts = new ArrayList<>();
+        LifeRunnable runnable = new LifeRunnable(new LifeControl(0, 0, CycleAction.CONTINUE, 3), gameOfLife);
+        runnable.setChangeConsumer((field, changes) -> tileCounts.add(changes.getTileCount()));
+        runnable.run();
+
+        // all tiles are changed when tracking starts, the empty field doesn't change
+        assertEquals(3, tileCounts.size());
+        assertEquals(4, (int) tileCounts.get(0));
+        assertEquals(0, (int) tileCounts.get(1));
+        assertEquals(0, (int) tileCounts.get(2));
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for CycleDetector.
+ * @author Stephan Fuhrmann
+ */
+public class CycleDetectorTest {
+
+    private static GameOfLife blinker() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(10, 10);
+        Field field = gameOfLife.getActiveField();
+        field.set(4, 5, true);
+        field.set(5, 5, true);
+        field.set(6, 5, true);
+        return gameOfLife;
+    }
+
+    @Test
+    public void testUpdateSameAsHash() {
+        Random random = new Random(1);
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(100, 50);
+        gameOfLife.getActiveField().set(() -> random.nextInt(3) == 0);
+        long hash = CycleDetector.hash(gameOfLife.getActiveField());
+
+        for (int i = 0; i < 10; i++) {
+            Field before = gameOfLife.getActiveField();
+            gameOfLife.doIteration();
+            hash = CycleDetector.update(hash, before, gameOfLife.getActiveField());
+            assertEquals(CycleDetector.hash(gameOfLife.getActiveField()), hash);
+        }
+    }
+
+    @Test
+    public void testUpdateWordChangesSameAsHash() {
+        Random random = new Random(1);
+        PackedEngine engine = new PackedEngine();
+        Field active = engine.newField(130, 50);
+        Field passive = engine.newField(130, 50);
+        active.set(() -> random.nextInt(3) == 0);
+        long hash = CycleDetector.hash(active);
+        WordChanges changes = new WordChanges();
+
+        for (int i = 0; i < 10; i++) {
+            changes.clear(active);
+            engine.step(active, passive, changes);
+            hash = CycleDetector.update(hash, changes);
+            assertEquals(CycleDetector.hash(passive), hash);
+            Field swap = active;
+            active = passive;
+            passive = swap;
+        }
+    }
+
+    @Test
+    public void testEmptyHash() {
+        assertEquals(0, CycleDetector.hash(new LongFieldImpl(10, 10)));
+    }
+
+    @Test
+    public void testAdd() {
+        CycleDetector detector = new CycleDetector(3);
+        assertNull(detector.add(1, 0));
+        assertNull(detector.add(2, 1));
+        assertNull(detector.add(3, 2));
+        Cycle cycle = detector.add(2, 3);
+        assertEquals(2, cycle.getPeriod());
+        assertEquals(1, cycle.getFirstIteration());
+        assertEquals(3, cycle.getIteration());
+    }
+
+    @Test
+    public void testAddOutsideOfWindow() {
+        CycleDetector detector = new CycleDetector(2);
+        detector.add(1, 0);
+        detector.add(2, 1);
+        detector.add(3, 2);
+        assertNull(detector.add(1, 3));
+    }
+
+    private static WordChanges changes(int index, long diff) {
+        WordChanges changes = new WordChanges();
+        changes.clear(2, 2);
+        changes.add(index >> 1, index & 1, diff);
+        return changes;
+    }
+
+    @Test
+    public void testCollisionIsNoCycle() {
+        CycleDetector detector = new CycleDetector(4);
+        detector.add(1, 0);
+        assertNull(detector.add(2, 1, changes(0, 1)));
+        // the same hash, but the words differ from generation 0
+        assertNull(detector.add(1, 2, changes(3, 1)));
+        assertNull(detector.add(2, 3, changes(0, 3)));
+    }
+
+    @Test
+    public void testChangesCancelOut() {
+        CycleDetector detector = new CycleDetector(4);
+        detector.add(1, 0);
+        assertNull(detector.add(2, 1, changes(0, 3)));
+        assertNull(detector.add(3, 2, changes(2, 1)));
+        WordChanges back = changes(0, 3);
+        back.add(1, 0, 1);
+        Cycle cycle = detector.add(1, 3, back);
+        assertEquals(3, cycle.getPeriod());
+        assertEquals(0, cycle.getFirstIteration());
+        // the same again, the sum was cleared after confirming
+        cycle = detector.add(2, 4, changes(0, 3));
+        assertEquals(3, cycle.getPeriod());
+    }
+
+    @Test
+    public void testChangesOverBudget() {
+        CycleDetector detector = new CycleDetector(4, 1);
+        detector.add(1, 0);
+        assertNull(detector.add(2, 1, changes(0, 1)));
+        // the changes of generation 1 were dropped
+        assertNull(detector.add(1, 2, changes(0, 1)));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalBudget() {
+        new CycleDetector(4, 0);
+    }
+
+    @Test
+    public void testBlinker() {
+        GameOfLife gameOfLife = blinker();
+        gameOfLife.setCycleWindow(8);
+        gameOfLife.doIteration();
+        assertNull(gameOfLife.getCycle());
+        gameOfLife.doIteration();
+
+        Cycle cycle = gameOfLife.getCycle();
+        assertEquals(2, cycle.getPeriod());
+        assertEquals(0, cycle.getFirstIteration());
+        assertEquals(2, cycle.getIteration());
+    }
+
+    @Test
+    public void testDeathIsStillLife() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.getActiveField().set(5, 5, true);
+        gameOfLife.setCycleWindow(8);
+        gameOfLife.doIteration();
+        assertNull(gameOfLife.getCycle());
+        gameOfLife.doIteration();
+
+        assertEquals(1, gameOfLife.getCycle().getPeriod());
+        assertEquals(1, gameOfLife.getCycle().getFirstIteration());
+    }
+
+    @Test
+    public void testEditBetweenIterations() {
+        GameOfLife gameOfLife = blinker();
+        gameOfLife.setCycleWindow(8);
+        gameOfLife.doIteration();
+        // a block far away, not announced with resetCycleDetection()
+        gameOfLife.getActiveField().set(0, 0, true);
+        gameOfLife.getActiveField().set(1, 0, true);
+        gameOfLife.getActiveField().set(0, 1, true);
+        gameOfLife.getActiveField().set(1, 1, true);
+
+        for (int i = 0; i < 6 && gameOfLife.getCycle() == null; i++) {
+            gameOfLife.doIteration();
+        }
+
+        Cycle cycle = gameOfLife.getCycle();
+        assertEquals(2, cycle.getPeriod());
+        // the true hash of the detected generation was seen before
+        assertEquals(CycleDetector.hash(gameOfLife.getActiveField()),
+                CycleDetector.hash(blinkerWithBlock(cycle.getIteration() % 2)));
+    }
+
+    private static Field blinkerWithBlock(int phase) {
+        GameOfLife gameOfLife = blinker();
+        for (int i = 0; i < phase; i++) {
+            gameOfLife.doIteration();
+        }
+        Field field = gameOfLife.getActiveField();
+        field.set(0, 0, true);
+        field.set(1, 0, true);
+        field.set(0, 1, true);
+        field.set(1, 1, true);
+        return field;
+    }
+
+    @Test
+    public void testFastForward() {
+        GameOfLife gameOfLife = blinker();
+        gameOfLife.setCycleWindow(8);
+        gameOfLife.doIteration();
+        gameOfLife.doIteration();
+        String field = gameOfLife.getActiveField().toString();
+
+        gameOfLife.fastForward(1001);
+
+        assertEquals(1000, gameOfLife.getIteration());
+        assertEquals(field, gameOfLife.getActiveField().toString());
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testFastForwardWithoutCycle() {
+        blinker().fastForward(1000);
+    }
+}
@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for DensityPyramid.
+ * @author Stephan Fuhrmann
+ */
+public class DensityPyramidTest {
+
+    /** Counts the alive cells of a block directly. */
+    private static int count(Field field, int level, int blockX, int blockY) {
+        int result = 0;
+        for (int y = blockY << level; y < Math.min(field.getHeight(), (blockY + 1) << level); y++) {
+            for (int x = blockX << level; x < Math.min(field.getWidth(), (blockX + 1) << level); x++) {
+                if (field.get(x, y)) {
+                    result++;
+                }
+            }
+        }
+        return result;
+    }
+
+    private static void assertPyramid(Field field, DensityPyramid pyramid) {
+        for (int level = DensityPyramid.BASE_LEVEL; level <= pyramid.getMaxLevel(); level++) {
+            for (int blockY = 0; blockY < pyramid.levelHeight(level); blockY++) {
+                for (int blockX = 0; blockX < pyramid.levelWidth(level); blockX++) {
+                    assertEquals("level " + level + " block " + blockX + "," + blockY,
+                            count(field, level, blockX, blockY),
+                            pyramid.getPopulation(level, blockX, blockY));
+                }
+            }
+        }
+    }
+
+    private static Field randomField(int width, int height, long seed) {
+        Random random = new Random(seed);
+        Field field = new LongFieldImpl(width, height);
+        field.set(() -> random.nextInt(4) == 0);
+        return field;
+    }
+
+    @Test
+    public void testLevels() {
+        DensityPyramid pyramid = new DensityPyramid(200, 100);
+        assertEquals(25, pyramid.levelWidth(3));
+        assertEquals(13, pyramid.levelHeight(3));
+        assertEquals(8, pyramid.getMaxLevel());
+        assertEquals(1, pyramid.levelWidth(8));
+        assertEquals(1, pyramid.levelHeight(8));
+    }
+
+    @Test
+    public void testOf() {
+        Field field = randomField(200, 100, 1);
+        DensityPyramid pyramid = DensityPyramid.of(field);
+        assertPyramid(field, pyramid);
+        assertEquals(field.countAlive(), pyramid.getPopulation(pyramid.getMaxLevel(), 0, 0));
+    }
+
+    @Test
+    public void testSmallField() {
+        Field field = new LongFieldImpl(5, 3);
+        field.set(4, 2, true);
+        DensityPyramid pyramid = DensityPyramid.of(field);
+        assertEquals(DensityPyramid.BASE_LEVEL, pyramid.getMaxLevel());
+        assertEquals(1, pyramid.getPopulation(DensityPyramid.BASE_LEVEL, 0, 0));
+    }
+
+    @Test
+    public void testUpdate() {
+        Field before = randomField(300, 150, 2);
+        DensityPyramid pyramid = DensityPyramid.of(before);
+        Field after = new LongFieldImpl(300, 150);
+        before.copyTo(after);
+        after.set(0, 0, !after.get(0, 0));
+        after.set(299, 149, !after.get(299, 149));
+        after.fill(100, 70, 20, 20, true);
+
+        ChangeSet changes = new ChangeSet(300, 150);
+        changes.add(before, after);
+        pyramid.update(after, changes);
+
+        assertPyramid(after, pyramid);
+    }
+
+    @Test
+    public void testUpdateReadsRowsOncePerTileRow() {
+        int[] reads = new int[1];
+        Field before = randomField(64 * 40, 130, 4);
+        Field after = new LongFieldImpl(64 * 40, 130) {
+            @Override
+            public void getRow(int y, long[] dst) {
+                reads[0]++;
+                super.getRow(y, dst);
+            }
+        };
+        before.copyTo(after);
+        DensityPyramid pyramid = DensityPyramid.of(before);
+        ChangeSet changes = new ChangeSet(64 * 40, 130);
+        // 20 separate regions in each of the three tile rows
+        for (int x = 0; x < 64 * 40; x += 128) {
+            after.set(x + 5, 3, !after.get(x + 5, 3));
+            after.set(x + 70, 129, true);
+            changes.add(x + 5, 3);
+            changes.add(x, 70);
+            changes.add(x + 70, 129);
+        }
+        reads[0] = 0;
+        pyramid.update(after, changes);
+
+        assertEquals(130, reads[0]);
+        assertPyramid(after, pyramid);
+    }
+
+    @Test
+    public void testUpdateWithEngine() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(200, 200);
+        Random random = new Random(3);
+        gameOfLife.getActiveField().set(() -> random.nextBoolean());
+        gameOfLife.setTrackChanges(true);
+        DensityPyramid pyramid = DensityPyramid.of(gameOfLife.getActiveField());
+        for (int i = 0; i < 10; i++) {
+            gameOfLife.doIteration();
+            pyramid.update(gameOfLife.getActiveField(), gameOfLife.getChanges());
+            gameOfLife.getChanges().clear();
+        }
+        assertPyramid(gameOfLife.getActiveField(), pyramid);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalLevel() {
+        new DensityPyramid(100, 100).getPopulation(2, 0, 0);
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for Edit and the edit queue of GameOfLife.
+ * @author Stephan Fuhrmann
+ */
+public class EditTest {
+
+    private static GameOfLife game(int width, int height) {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(width, height);
+        return gameOfLife;
+    }
+
+    @Test
+    public void testToggle() {
+        GameOfLife gameOfLife = game(10, 10);
+        gameOfLife.enqueue(Edit.toggle(3, 4));
+        gameOfLife.enqueue(Edit.toggle(5, 5));
+        gameOfLife.enqueue(Edit.toggle(5, 5));
+        // outside of the field
+        gameOfLife.enqueue(Edit.toggle(10, 5));
+
+        assertFalse(gameOfLife.getActiveField().get(3, 4));
+        assertEquals(4, gameOfLife.applyEdits());
+        assertTrue(gameOfLife.getActiveField().get(3, 4));
+        assertFalse(gameOfLife.getActiveField().get(5, 5));
+        assertEquals(0, gameOfLife.applyEdits());
+    }
+
+    @Test
+    public void testFillClipped() {
+        GameOfLife gameOfLife = game(10, 10);
+        gameOfLife.enqueue(Edit.fill(8, -1, 5, 3, true));
+        gameOfLife.applyEdits();
+        assertEquals(4, gameOfLife.getActiveField().countAlive());
+        assertTrue(gameOfLife.getActiveField().get(9, 1));
+    }
+
+    @Test
+    public void testClear() {
+        GameOfLife gameOfLife = game(100, 100);
+        gameOfLife.getActiveField().fill(0, 0, 100, 100, true);
+        gameOfLife.enqueue(Edit.clear());
+        gameOfLife.applyEdits();
+        assertEquals(0, gameOfLife.getActiveField().countAlive());
+    }
+
+    @Test
+    public void testRandom() {
+        GameOfLife first = game(100, 100);
+        GameOfLife second = game(100, 100);
+        first.enqueue(Edit.random(42, 0.3));
+        second.enqueue(Edit.random(42, 0.3));
+        first.applyEdits();
+        second.applyEdits();
+
+        long alive = first.getActiveField().countAlive();
+        assertTrue(alive > 2500 && alive < 3500);
+        assertEquals(first.getActiveField().toString(), second.getActiveField().toString());
+    }
+
+    @Test
+    public void testStamp() {
+        Field glider = new LongFieldImpl(3, 3);
+        glider.set(1, 0, true);
+        glider.set(2, 1, true);
+        glider.set(0, 2, true);
+        glider.set(1, 2, true);
+        glider.set(2, 2, true);
+        GameOfLife gameOfLife = game(10, 10);
+        gameOfLife.getActiveField().fill(0, 0, 10, 10, true);
+
+        gameOfLife.enqueue(Edit.stamp(glider, 8, 8));
+        gameOfLife.applyEdits();
+
+        Field field = gameOfLife.getActiveField();
+        assertFalse(field.get(8, 8));
+        assertTrue(field.get(9, 8));
+        assertFalse(field.get(8, 9));
+        assertFalse(field.get(9, 9));
+        assertTrue(field.get(7, 7));
+    }
+
+    @Test
+    public void testResizeAndIteration() {
+        GameOfLife gameOfLife = game(10, 10);
+        gameOfLife.doIteration();
+        gameOfLife.enqueue(Edit.resize(20, 30));
+        gameOfLife.enqueue(Edit.iteration(0));
+        gameOfLife.applyEdits();
+        assertEquals(20, gameOfLife.getActiveField().getWidth());
+        assertEquals(30, gameOfLife.getActiveField().getHeight());
+        assertEquals(0, gameOfLife.getIteration());
+    }
+
+    @Test
+    public void testAppliedBeforeIteration() {
+        GameOfLife gameOfLife = game(10, 10);
+        // blinker
+        gameOfLife.enqueue(Edit.fill(4, 5, 3, 1, true));
+        gameOfLife.doIteration();
+        Field field = gameOfLife.getActiveField();
+        assertTrue(field.get(5, 4));
+        assertTrue(field.get(5, 6));
+        assertFalse(field.get(4, 5));
+    }
+
+    @Test
+    public void testEditMarksChangesAndResetsCycle() {
+        GameOfLife gameOfLife = game(256, 256);
+        gameOfLife.setCycleWindow(4);
+        gameOfLife.doIteration();
+        gameOfLife.doIteration();
+        assertNotNull(gameOfLife.getCycle());
+
+        gameOfLife.setTrackChanges(true);
+        gameOfLife.getChanges().clear();
+        gameOfLife.enqueue(Edit.fill(100, 100, 2, 2, true));
+        gameOfLife.applyEdits();
+
+        assertNull(gameOfLife.getCycle());
+        assertEquals(1, gameOfLife.getChanges().getTileCount());
+    }
+
+    @Test(timeout = 30_000)
+    public void testEditWhileRunning() throws InterruptedException {
+        GameOfLife gameOfLife = game(120, 120);
+        LifeRunnable runnable = new LifeRunnable(new LifeControl(0), gameOfLife);
+        Thread lifeThread = new Thread(runnable);
+        lifeThread.start();
+
+        // blocks are still lifes, so they survive in any generation
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            int row = p * 30;
+            Thread producer = new Thread(() -> {
+                for (int i = 0; i < 20; i++) {
+                    for (int j = 0; j < 5; j++) {
+                        gameOfLife.enqueue(Edit.fill(i * 6, row + j * 6, 2, 2, true));
+                    }
+                }
+            });
+            producers.add(producer);
+            producer.start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        runnable.setRun(false);
+        lifeThread.join();
+        gameOfLife.applyEdits();
+
+        assertEquals(4 * 20 * 5 * 4, gameOfLife.getActiveField().countAlive());
+    }
+}
@@ -0,0 +1,42 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for EngineType.
+ * @author Stephan Fuhrmann
+ */
+public class EngineTypeTest {
+
+    @Test
+    public void testSupportsSameAsEngine() throws Exception {
+        for (EngineType type : EngineType.values()) {
+            Engine engine = type.newEngine(2);
+            for (Topology topology : Topology.values()) {
+                assertEquals(type + " " + topology, engine.supports(topology), type.supports(topology));
+                if (type.supports(topology)) {
+                    assertNotNull(new GameOfLife(engine, topology).getActiveField());
+                }
+            }
+            if (engine instanceof AutoCloseable) {
+                ((AutoCloseable) engine).close();
+            }
+        }
+    }
+}
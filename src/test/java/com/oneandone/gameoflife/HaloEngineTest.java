@@ -0,0 +1,101 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for HaloEngine.
+ * @author Stephan Fuhrmann
+ */
+public class HaloEngineTest {
+
+    /** Compares some generations of both engines on a random field. */
+    private void assertSameAsCellEngine(Topology topology, Rule rule) {
+        Random random = new Random(3);
+        GameOfLife expected = new GameOfLife(new CellEngine(), topology);
+        GameOfLife actual = new GameOfLife(new HaloEngine(), topology);
+        expected.setRule(rule);
+        actual.setRule(rule);
+        expected.setSize(37, 23);
+        actual.setSize(37, 23);
+        expected.getActiveField().set(() -> random.nextInt(3) == 0);
+        expected.getActiveField().copyTo(actual.getActiveField());
+
+        for (int i = 0; i < 50; i++) {
+            expected.doIteration();
+            actual.doIteration();
+            assertEquals(topology + " generation " + i,
+                    expected.getActiveField().toString(),
+                    actual.getActiveField().toString());
+        }
+    }
+
+    @Test
+    public void testSameAsCellEngine() {
+        for (Topology topology : Topology.values()) {
+            assertSameAsCellEngine(topology, Rule.CONWAY);
+            assertSameAsCellEngine(topology, Rule.parse("B36/S23"));
+        }
+    }
+
+    @Test
+    public void testGliderOnTorus() {
+        GameOfLife gameOfLife = new GameOfLife(new HaloEngine(), Topology.TORUS);
+        gameOfLife.setSize(8, 8);
+        Field field = gameOfLife.getActiveField();
+        field.set(1, 0, true);
+        field.set(2, 1, true);
+        field.set(0, 2, true);
+        field.set(1, 2, true);
+        field.set(2, 2, true);
+        String start = field.toString();
+
+        // a glider moves one cell diagonally every 4 generations
+        for (int i = 0; i < 4 * 8; i++) {
+            gameOfLife.doIteration();
+        }
+
+        assertEquals(start, gameOfLife.getActiveField().toString());
+    }
+
+    @Test
+    public void testGliderOnBoundedDies() {
+        GameOfLife gameOfLife = new GameOfLife(new HaloEngine());
+        gameOfLife.setSize(8, 8);
+        Field field = gameOfLife.getActiveField();
+        field.set(1, 0, true);
+        field.set(2, 1, true);
+        field.set(0, 2, true);
+        field.set(1, 2, true);
+        field.set(2, 2, true);
+
+        for (int i = 0; i < 4 * 8; i++) {
+            gameOfLife.doIteration();
+        }
+
+        // the glider turned into a block in the corner
+        assertTrue(gameOfLife.getActiveField().get(7, 7));
+        assertFalse(gameOfLife.getActiveField().get(1, 0));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testTorusNotSupported() {
+        new GameOfLife(new SparseEngine(), Topology.TORUS);
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for HaloFieldImpl.
+ * @author Stephan Fuhrmann
+ */
+public class HaloFieldImplTest extends AbstractFieldImplTest {
+
+    @Override
+    protected Field newField(int width, int height) {
+        return new HaloFieldImpl(width, height, Topology.BOUNDED);
+    }
+
+    @Test
+    public void testTorusNeighborCountAtCorner() {
+        Field field = new HaloFieldImpl(10, 10, Topology.TORUS);
+        field.set(9, 9, true);
+        field.set(9, 0, true);
+        field.set(0, 9, true);
+
+        assertEquals(3, field.getNeighborCount(0, 0));
+        assertEquals(2, field.getNeighborCount(9, 9));
+    }
+
+    @Test
+    public void testTorusNeighborCountAfterChange() {
+        Field field = new HaloFieldImpl(10, 10, Topology.TORUS);
+        field.set(9, 5, true);
+        assertEquals(1, field.getNeighborCount(0, 5));
+        field.set(9, 5, false);
+        assertEquals(0, field.getNeighborCount(0, 5));
+    }
+
+    @Test
+    public void testBoundedNeighborCountAtCorner() {
+        Field field = new HaloFieldImpl(10, 10, Topology.BOUNDED);
+        field.set(9, 9, true);
+        field.set(9, 0, true);
+        field.set(0, 9, true);
+
+        assertEquals(0, field.getNeighborCount(0, 0));
+    }
+}
@@ -0,0 +1,209 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for HashLifeEngine.
+ * @author Stephan Fuhrmann
+ */
+public class HashLifeEngineTest {
+
+    /** Puts a random soup into the center of the active field. */
+    private static void randomSoup(GameOfLife gameOfLife, int size, long seed) {
+        Random random = new Random(seed);
+        Field field = gameOfLife.getActiveField();
+        int offset = (field.getDimensions().width - size) / 2;
+        for (int y = 0; y < size; y++) {
+            for (int x = 0; x < size; x++) {
+                field.set(offset + x, offset + y, random.nextBoolean());
+            }
+        }
+    }
+
+    @Test
+    public void testSameAsCellEngine() {
+        GameOfLife expected = new GameOfLife(new CellEngine());
+        GameOfLife actual = new GameOfLife(new HashLifeEngine());
+        expected.setSize(128, 128);
+        actual.setSize(128, 128);
+        randomSoup(expected, 32, 1);
+        randomSoup(actual, 32, 1);
+
+        for (int i = 0; i < 40; i++) {
+            expected.doIteration();
+            actual.doIteration();
+            assertEquals("Generation " + i,
+                    expected.getActiveField().toString(),
+                    actual.getActiveField().toString());
+        }
+    }
+
+    @Test
+    public void testDoIterationsSameAsSingleSteps() {
+        GameOfLife expected = new GameOfLife(new HashLifeEngine());
+        GameOfLife actual = new GameOfLife(new HashLifeEngine());
+        expected.setSize(256, 256);
+        actual.setSize(256, 256);
+        randomSoup(expected, 32, 2);
+        randomSoup(actual, 32, 2);
+
+        for (int i = 0; i < 64; i++) {
+            expected.doIteration();
+        }
+        actual.doIterations(6);
+
+        assertEquals(64, actual.getIteration());
+        assertEquals(expected.getActiveField().toString(),
+                actual.getActiveField().toString());
+    }
+
+    @Test
+    public void testCyclePeriodAfterJumps() {
+        GameOfLife gameOfLife = new GameOfLife(new HashLifeEngine());
+        gameOfLife.setSize(64, 64);
+        gameOfLife.setCycleWindow(16);
+        Field field = gameOfLife.getActiveField();
+        // a blinker has period 2, the jumps only see every 8th generation
+        field.set(30, 31, true);
+        field.set(31, 31, true);
+        field.set(32, 31, true);
+        gameOfLife.resetCycleDetection();
+
+        for (int i = 0; i < 3 && gameOfLife.getCycle() == null; i++) {
+            gameOfLife.doIterations(3);
+        }
+
+        Cycle cycle = gameOfLife.getCycle();
+        assertNotNull(cycle);
+        assertEquals(2, cycle.getPeriod());
+        assertEquals(0, cycle.getFirstIteration());
+        assertEquals(8, cycle.getIteration());
+    }
+
+    @Test
+    public void testGliderLeavesWindow() {
+        GameOfLife gameOfLife = new GameOfLife(new HashLifeEngine());
+        Field field = gameOfLife.getActiveField();
+        field.set(1, 0, true);
+        field.set(2, 1, true);
+        field.set(0, 2, true);
+        field.set(1, 2, true);
+        field.set(2, 2, true);
+
+        gameOfLife.doIterations(10);
+
+        HashLifeField result = (HashLifeField) gameOfLife.getActiveField();
+        assertEquals(5, result.getPopulation());
+        // the glider moved 256 cells down and right
+        assertTrue(result.get(257, 256));
+        assertTrue(result.get(258, 257));
+        assertTrue(result.get(256, 258));
+    }
+
+    @Test
+    public void testCollectWithSmallMemoryLimit() {
+        HashLifeEngine engine = new HashLifeEngine(1);
+        GameOfLife expected = new GameOfLife(new HashLifeEngine());
+        GameOfLife actual = new GameOfLife(engine);
+        expected.setSize(256, 256);
+        actual.setSize(256, 256);
+        randomSoup(expected, 64, 3);
+        randomSoup(actual, 64, 3);
+
+        for (int i = 0; i < 100; i++) {
+            expected.doIteration();
+            actual.doIteration();
+        }
+
+        assertTrue(engine.getCollections() > 0);
+        assertEquals(expected.getActiveField().toString(),
+                actual.getActiveField().toString());
+    }
+
+    @Test
+    public void testCollectWithinJump() {
+        HashLifeEngine engine = new HashLifeEngine(1);
+        GameOfLife expected = new GameOfLife(new HashLifeEngine(Long.MAX_VALUE));
+        GameOfLife actual = new GameOfLife(engine);
+        expected.setSize(512, 512);
+        actual.setSize(512, 512);
+        randomSoup(expected, 128, 5);
+        randomSoup(actual, 128, 5);
+
+        // one jump creating more nodes than the limit allows
+        long before = engine.getCollections();
+        expected.doIterations(9);
+        actual.doIterations(9);
+
+        // more than the one collection before the jump
+        assertTrue(engine.getCollections() - before > 1);
+        assertEquals(expected.getActiveField().toString(),
+                actual.getActiveField().toString());
+    }
+
+    @Test
+    public void testCollectWhileSetting() {
+        HashLifeEngine engine = new HashLifeEngine(1);
+        GameOfLife gameOfLife = new GameOfLife(engine);
+        gameOfLife.setSize(1024, 1024);
+        Field field = gameOfLife.getActiveField();
+        Field expected = new LongFieldImpl(1024, 1024);
+        Random random = new Random(9);
+        for (int i = 0; i < 200_000; i++) {
+            int x = random.nextInt(1024);
+            int y = random.nextInt(1024);
+            boolean alive = random.nextBoolean();
+            field.set(x, y, alive);
+            expected.set(x, y, alive);
+        }
+
+        assertTrue(engine.getCollections() > 0);
+        // the live tree is far below the threshold
+        assertTrue(engine.getNodeCount() < 4 * 65536);
+        assertEquals(expected.toString(), field.toString());
+    }
+
+    @Test
+    public void testRuleChangeDropsResults() {
+        GameOfLife expected = new GameOfLife(new SparseEngine());
+        GameOfLife actual = new GameOfLife(new HashLifeEngine());
+        expected.setSize(256, 256);
+        actual.setSize(256, 256);
+        randomSoup(expected, 64, 7);
+        randomSoup(actual, 64, 7);
+
+        for (int i = 0; i < 40; i++) {
+            if (i == 20) {
+                expected.setRule(Rule.parse("B36/S23"));
+                actual.setRule(Rule.parse("B36/S23"));
+            }
+            expected.doIteration();
+            actual.doIteration();
+            assertEquals("Generation " + i,
+                    expected.getActiveField().toString(),
+                    actual.getActiveField().toString());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBirthWithoutNeighbors() {
+        new HashLifeEngine().setRule(Rule.parse("B0/S8"));
+    }
+}
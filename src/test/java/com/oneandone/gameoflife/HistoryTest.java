@@ -0,0 +1,201 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for History.
+ * @author Stephan Fuhrmann
+ */
+public class HistoryTest {
+
+    private static GameOfLife random(long seed) {
+        Random random = new Random(seed);
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(130, 70);
+        gameOfLife.getActiveField().set(() -> random.nextInt(4) == 0);
+        return gameOfLife;
+    }
+
+    @Test
+    public void testSeek() {
+        GameOfLife gameOfLife = random(1);
+        gameOfLife.setHistory(new History(8, Long.MAX_VALUE));
+        List<String> generations = new ArrayList<>();
+        generations.add(gameOfLife.getActiveField().toString());
+        for (int i = 0; i < 50; i++) {
+            gameOfLife.doIteration();
+            generations.add(gameOfLife.getActiveField().toString());
+        }
+
+        History history = gameOfLife.getHistory();
+        assertEquals(51, history.size());
+        assertEquals(0, history.getFirstIteration());
+        assertEquals(50, history.getLastIteration());
+        for (int i : new int[] {0, 7, 8, 9, 33, 50, 1}) {
+            LongFieldImpl field = new LongFieldImpl(130, 70);
+            history.seek(i, field);
+            assertEquals("Iteration " + i, generations.get(i), field.toString());
+        }
+    }
+
+    @Test
+    public void testSeekAndContinue() {
+        GameOfLife gameOfLife = random(2);
+        gameOfLife.setHistory(new History(4, Long.MAX_VALUE));
+        for (int i = 0; i < 20; i++) {
+            gameOfLife.doIteration();
+        }
+        String expected = gameOfLife.getActiveField().toString();
+
+        gameOfLife.seek(5);
+        assertEquals(5, gameOfLife.getIteration());
+        for (int i = 0; i < 15; i++) {
+            gameOfLife.doIteration();
+        }
+
+        assertEquals(expected, gameOfLife.getActiveField().toString());
+        assertEquals(21, gameOfLife.getHistory().size());
+        LongFieldImpl field = new LongFieldImpl(130, 70);
+        gameOfLife.getHistory().seek(20, field);
+        assertEquals(expected, field.toString());
+    }
+
+    @Test
+    public void testAddWordChanges() {
+        Random random = new Random(5);
+        PackedEngine engine = new PackedEngine();
+        Field active = engine.newField(130, 70);
+        Field passive = engine.newField(130, 70);
+        active.set(() -> random.nextInt(4) == 0);
+        History history = new History(3, Long.MAX_VALUE);
+        history.add(active, null, 0);
+        List<String> expected = new ArrayList<>();
+        expected.add(active.toString());
+        WordChanges changes = new WordChanges();
+        for (int i = 1; i <= 10; i++) {
+            changes.clear(active);
+            engine.step(active, passive, changes);
+            history.add(passive, changes, i);
+            expected.add(passive.toString());
+            Field swap = active;
+            active = passive;
+            passive = swap;
+        }
+
+        assertEquals(11, history.size());
+        Field field = engine.newField(130, 70);
+        for (int i = 0; i <= 10; i++) {
+            history.seek(i, field);
+            assertEquals(expected.get(i), field.toString());
+        }
+    }
+
+    @Test
+    public void testAddWordChangesAfterTruncate() {
+        Random random = new Random(6);
+        PackedEngine engine = new PackedEngine();
+        Field active = engine.newField(130, 70);
+        Field passive = engine.newField(130, 70);
+        active.set(() -> random.nextInt(4) == 0);
+        History history = new History(100, Long.MAX_VALUE);
+        history.add(active, 0);
+        engine.step(active, passive);
+        history.add(passive, 1);
+        history.truncate(0);
+
+        // the changes are relative to generation 1, which was dropped
+        WordChanges changes = new WordChanges();
+        changes.clear(passive);
+        engine.step(passive, active, changes);
+        history.add(active, changes, 2);
+
+        Field field = engine.newField(130, 70);
+        history.seek(2, field);
+        assertEquals(active.toString(), field.toString());
+    }
+
+    @Test
+    public void testEditIsStored() {
+        GameOfLife gameOfLife = random(3);
+        gameOfLife.setHistory(new History(100, Long.MAX_VALUE));
+        gameOfLife.doIteration();
+        gameOfLife.getActiveField().fill(0, 0, 10, 10, true);
+        gameOfLife.doIteration();
+        String expected = gameOfLife.getActiveField().toString();
+        gameOfLife.doIteration();
+
+        gameOfLife.seek(2);
+        assertEquals(expected, gameOfLife.getActiveField().toString());
+    }
+
+    @Test
+    public void testBudget() {
+        GameOfLife gameOfLife = random(4);
+        History history = new History(10, 20_000);
+        gameOfLife.setHistory(history);
+        for (int i = 0; i < 200; i++) {
+            gameOfLife.doIteration();
+            assertTrue(history.getMemoryUsage() <= history.getMemoryBudget());
+        }
+        assertEquals(200, history.getLastIteration());
+        assertTrue(history.getFirstIteration() > 0);
+        assertEquals(0, history.getFirstIteration() % 10);
+        assertFalse(history.contains(0));
+    }
+
+    @Test
+    public void testStableFieldIsSmall() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(1000, 1000);
+        gameOfLife.getActiveField().fill(10, 10, 2, 2, true);
+        History history = new History(1000, Long.MAX_VALUE);
+        gameOfLife.setHistory(history);
+        for (int i = 0; i < 5000; i++) {
+            gameOfLife.doIteration();
+        }
+        assertEquals(5001, history.size());
+        assertTrue(history.getMemoryUsage() < 1_000_000);
+    }
+
+    @Test
+    public void testResizeClears() {
+        GameOfLife gameOfLife = random(5);
+        gameOfLife.setHistory(new History(10, Long.MAX_VALUE));
+        gameOfLife.doIteration();
+        gameOfLife.setSize(50, 50);
+        gameOfLife.doIteration();
+        assertEquals(1, gameOfLife.getHistory().size());
+        assertEquals(2, gameOfLife.getHistory().getFirstIteration());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testSeekMissing() {
+        GameOfLife gameOfLife = random(6);
+        gameOfLife.setHistory(new History(10, Long.MAX_VALUE));
+        gameOfLife.seek(1);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSeekWithoutHistory() {
+        random(7).seek(0);
+    }
+}
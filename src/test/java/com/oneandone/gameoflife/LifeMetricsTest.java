@@ -0,0 +1,128 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.lang.management.ManagementFactory;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for LifeMetrics.
+ * @author Stephan Fuhrmann
+ */
+public class LifeMetricsTest {
+
+    @Test
+    public void testAddGenerations() {
+        LifeMetrics metrics = new LifeMetrics("test");
+        metrics.addGenerations(1, 100, 2_000);
+        metrics.addGenerations(3, 100, 6_000);
+        metrics.addConsumerTime(4_000);
+        metrics.addConsumerTime(2_000);
+
+        assertEquals(4, metrics.getGenerations());
+        assertEquals(400, metrics.getCellUpdates());
+        assertEquals(2.0, metrics.getAverageStepMicros(), 1e-9);
+        // the consumers run once per step, not per generation
+        assertEquals(3.0, metrics.getAverageConsumerMicros(), 1e-9);
+    }
+
+    @Test
+    public void testSampledWhileAdding() {
+        LifeMetrics metrics = new LifeMetrics("test");
+        long start = System.nanoTime();
+        metrics.addGenerations(10, 100, 1_000, start);
+        metrics.addGenerations(100, 100, 1_000, start + 500_000_000L);
+        assertEquals(0, metrics.getGenerationsPerSecond(), 1e-9);
+
+        metrics.addGenerations(100, 100, 1_000, start + 1_000_000_000L);
+        metrics.addGenerations(1_000, 100, 1_000, start + 1_500_000_000L);
+
+        // the sample after one second covers the generations until then
+        assertEquals(200, metrics.getGenerationsPerSecond(), 1e-9);
+        assertEquals(20_000, metrics.getCellUpdatesPerSecond(), 1e-9);
+    }
+
+    @Test
+    public void testAddSleepOvershoot() {
+        LifeMetrics metrics = new LifeMetrics("test");
+        metrics.addSleepOvershoot(500_000);
+        metrics.addSleepOvershoot(100_000);
+        // waking up early is no overshoot
+        metrics.addSleepOvershoot(-100_000);
+
+        assertEquals(200.0, metrics.getAverageSleepOvershootMicros(), 1e-9);
+        assertEquals(500, metrics.getMaxSleepOvershootMicros());
+    }
+
+    @Test
+    public void testPopulation() {
+        LifeMetrics metrics = new LifeMetrics("test");
+        assertEquals(-1, metrics.getPopulation());
+        assertTrue(metrics.isPopulationDue(0));
+
+        metrics.setPopulation(42, 0);
+        assertEquals(42, metrics.getPopulation());
+        assertFalse(metrics.isPopulationDue(1_000));
+        assertTrue(metrics.isPopulationDue(2_000_000_000L));
+    }
+
+    @Test
+    public void testReset() {
+        LifeMetrics metrics = new LifeMetrics("test");
+        metrics.addGenerations(1, 100, 2_000);
+        metrics.addSleepOvershoot(500_000);
+        metrics.reset();
+
+        assertEquals(0, metrics.getGenerations());
+        assertEquals(0, metrics.getCellUpdates());
+        assertEquals(0, metrics.getMaxSleepOvershootMicros());
+    }
+
+    @Test
+    public void testRegister() throws JMException {
+        LifeMetrics metrics = new LifeMetrics("register \"test\"");
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        metrics.register();
+        try {
+            metrics.addGenerations(5, 10, 1_000);
+            assertEquals(5L, server.getAttribute(metrics.getObjectName(), "Generations"));
+        } finally {
+            metrics.unregister();
+        }
+        assertFalse(server.isRegistered(metrics.getObjectName()));
+    }
+
+    @Test
+    public void testLifeRunnable() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(10, 10);
+        Field field = gameOfLife.getActiveField();
+        field.set(4, 5, true);
+        field.set(5, 5, true);
+        field.set(6, 5, true);
+        LifeMetrics metrics = new LifeMetrics("test");
+        LifeRunnable runnable = new LifeRunnable(new LifeControl(0, 0, CycleAction.CONTINUE, 10), gameOfLife);
+        runnable.setMetrics(metrics);
+        runnable.run();
+
+        assertEquals(10, metrics.getGenerations());
+        assertEquals(1000, metrics.getCellUpdates());
+        assertEquals(3, metrics.getPopulation());
+    }
+}
@@ -0,0 +1,77 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for LifeRunnable.
+ * @author Stephan Fuhrmann
+ */
+public class LifeRunnableTest {
+
+    private static GameOfLife blinker() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(10, 10);
+        Field field = gameOfLife.getActiveField();
+        field.set(4, 5, true);
+        field.set(5, 5, true);
+        field.set(6, 5, true);
+        return gameOfLife;
+    }
+
+    @Test
+    public void testMaxIterations() {
+        GameOfLife gameOfLife = blinker();
+        new LifeRunnable(new LifeControl(0, 0, CycleAction.CONTINUE, 10), gameOfLife).run();
+        assertEquals(10, gameOfLife.getIteration());
+    }
+
+    @Test
+    public void testStopOnCycle() {
+        GameOfLife gameOfLife = blinker();
+        List<Cycle> cycles = new ArrayList<>();
+        LifeRunnable runnable = new LifeRunnable(new LifeControl(0, 4, CycleAction.STOP, 0), gameOfLife);
+        runnable.setCycleConsumer(cycles::add);
+        runnable.run();
+
+        assertEquals(2, gameOfLife.getIteration());
+        assertEquals(1, cycles.size());
+        assertEquals(2, cycles.get(0).getPeriod());
+    }
+
+    @Test
+    public void testFastForwardOnCycle() {
+        GameOfLife gameOfLife = blinker();
+        List<Integer> iterations = new ArrayList<>();
+        LifeRunnable runnable = new LifeRunnable(new LifeControl(0, 4, CycleAction.FAST_FORWARD, 1_000_001), gameOfLife);
+        runnable.setIterationConsumer(iterations::add);
+        runnable.run();
+
+        assertEquals(1_000_001, gameOfLife.getIteration());
+        assertTrue(iterations.size() < 10);
+        assertTrue(gameOfLife.getActiveField().get(5, 4));
+        assertFalse(gameOfLife.getActiveField().get(4, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFastForwardWithoutMaxIterations() {
+        new LifeControl(0, 4, CycleAction.FAST_FORWARD, 0);
+    }
+}
@@ -0,0 +1,64 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for LookupTableEngine.
+ * @author Stephan Fuhrmann
+ */
+public class LookupTableEngineTest {
+
+    @Test
+    public void testTable() {
+        byte[] table = LookupTableEngine.buildTable(Rule.CONWAY);
+        assertEquals(0, table[0]);
+        // horizontal blinker in row 1 turns into a vertical one in column 1
+        int blinker = 0b0111 << 4;
+        assertEquals(0b0101, table[blinker]);
+        // a block stays
+        int block = 0b0110 << 4 | 0b0110 << 8;
+        assertEquals(0b1111, table[block]);
+    }
+
+    @Test
+    public void testSameAsCellEngine() {
+        int[] widths = {1, 2, 3, 63, 64, 65, 130};
+        int[] heights = {1, 2, 17, 18};
+        for (int width : widths) {
+            for (int height : heights) {
+                Random random = new Random(width * 31 + height);
+                GameOfLife expected = new GameOfLife(new CellEngine());
+                GameOfLife actual = new GameOfLife(new LookupTableEngine());
+                expected.setSize(width, height);
+                actual.setSize(width, height);
+                expected.getActiveField().set(() -> random.nextInt(3) == 0);
+                expected.getActiveField().copyTo(actual.getActiveField());
+
+                for (int i = 0; i < 20; i++) {
+                    expected.doIteration();
+                    actual.doIteration();
+                    assertEquals(width + "x" + height + " generation " + i,
+                            expected.getActiveField().toString(),
+                            actual.getActiveField().toString());
+                }
+            }
+        }
+    }
+}
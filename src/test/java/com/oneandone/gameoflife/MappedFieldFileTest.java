@@ -0,0 +1,153 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ReadOnlyBufferException;
+import java.nio.file.Path;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+/**
+ * Test for MappedFieldFile.
+ * @author Stephan Fuhrmann
+ */
+public class MappedFieldFileTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private Path newPath() throws IOException {
+        File file = folder.newFile();
+        return file.toPath();
+    }
+
+    @Test
+    public void testCreate() throws IOException {
+        Path path = newPath();
+        try (MappedFieldFile file = MappedFieldFile.create(path, 70, 5)) {
+            assertEquals(70, file.getActiveField().getDimensions().width);
+            assertEquals(5, file.getActiveField().getDimensions().height);
+            assertEquals(0, file.getActiveIndex());
+            assertEquals(0, file.getGeneration());
+            assertFalse(file.getActiveField().get(69, 4));
+        }
+        assertEquals(MappedFieldFile.fileSize(70, 5), path.toFile().length());
+    }
+
+    @Test
+    public void testReopen() throws IOException {
+        Path path = newPath();
+        String expected;
+        try (MappedFieldFile file = MappedFieldFile.create(path, 10, 10)) {
+            GameOfLife gameOfLife = new GameOfLife(new PackedEngine(), file);
+            Field field = gameOfLife.getActiveField();
+            field.set(1, 2, true);
+            field.set(2, 2, true);
+            field.set(3, 2, true);
+            gameOfLife.doIteration();
+            expected = gameOfLife.getActiveField().toString();
+        }
+
+        try (MappedFieldFile file = MappedFieldFile.open(path)) {
+            assertEquals(1, file.getActiveIndex());
+            assertEquals(1, file.getGeneration());
+            GameOfLife gameOfLife = new GameOfLife(new PackedEngine(), file);
+            assertEquals(1, gameOfLife.getIteration());
+            assertEquals(expected, gameOfLife.getActiveField().toString());
+        }
+    }
+
+    @Test
+    public void testReadOnlyViewer() throws IOException {
+        Path path = newPath();
+        try (MappedFieldFile file = MappedFieldFile.create(path, 10, 10);
+                MappedFieldFile viewer = MappedFieldFile.openReadOnly(path)) {
+            GameOfLife gameOfLife = new GameOfLife(new PackedEngine(), file);
+            gameOfLife.getActiveField().set(1, 2, true);
+            gameOfLife.getActiveField().set(2, 2, true);
+            gameOfLife.getActiveField().set(3, 2, true);
+            gameOfLife.doIteration();
+
+            assertEquals(1, viewer.getGeneration());
+            assertEquals(gameOfLife.getActiveField().toString(),
+                    viewer.getActiveField().toString());
+        }
+    }
+
+    @Test
+    public void testState() throws IOException {
+        try (MappedFieldFile file = MappedFieldFile.create(newPath(), 10, 10)) {
+            file.setState(1, MappedFieldFile.MAX_GENERATION);
+            assertEquals(1, file.getActiveIndex());
+            assertEquals(MappedFieldFile.MAX_GENERATION, file.getGeneration());
+            file.setState(0, 5);
+            assertEquals(0, file.getActiveIndex());
+            assertEquals(5, file.getGeneration());
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalGeneration() throws IOException {
+        try (MappedFieldFile file = MappedFieldFile.create(newPath(), 10, 10)) {
+            file.setState(0, -1);
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testGenerationTooLargeForGame() throws IOException {
+        try (MappedFieldFile file = MappedFieldFile.create(newPath(), 10, 10)) {
+            file.setState(0, Integer.MAX_VALUE + 1L);
+            new GameOfLife(new PackedEngine(), file);
+        }
+    }
+
+    @Test
+    public void testNullFile() {
+        try {
+            new GameOfLife(new PackedEngine(), (MappedFieldFile) null);
+            fail();
+        } catch (NullPointerException e) {
+            assertEquals("fieldFile", e.getMessage());
+        }
+    }
+
+    @Test(expected = ReadOnlyBufferException.class)
+    public void testReadOnlyWrite() throws IOException {
+        Path path = newPath();
+        MappedFieldFile.create(path, 10, 10).close();
+        try (MappedFieldFile viewer = MappedFieldFile.openReadOnly(path)) {
+            viewer.getActiveField().set(0, 0, true);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenWrongFormat() throws IOException {
+        Path path = newPath();
+        java.nio.file.Files.write(path, new byte[MappedFieldFile.HEADER_BYTES]);
+        MappedFieldFile.open(path);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testSetSize() throws IOException {
+        try (MappedFieldFile file = MappedFieldFile.create(newPath(), 10, 10)) {
+            new GameOfLife(new PackedEngine(), file).setSize(20, 20);
+        }
+    }
+}
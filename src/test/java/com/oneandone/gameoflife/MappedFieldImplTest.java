@@ -0,0 +1,40 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import org.junit.Rule;
+import org.junit.rules.TemporaryFolder;
+
+/**
+ * Test for MappedFieldImpl.
+ * @author Stephan Fuhrmann
+ */
+public class MappedFieldImplTest extends AbstractFieldImplTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Override
+    protected Field newField(int width, int height) {
+        try {
+            return MappedFieldFile.create(folder.newFile().toPath(), width, height).getActiveField();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for OffHeapFieldImpl.
+ * @author Stephan Fuhrmann
+ */
+public class OffHeapFieldImplTest extends AbstractFieldImplTest {
+
+    @Override
+    protected Field newField(int width, int height) {
+        return new OffHeapFieldImpl(width, height);
+    }
+
+    @Test
+    public void testChunkSizes() {
+        assertArrayEquals(new int[] {1}, AbstractBufferFieldImpl.chunkSizes(1));
+        assertArrayEquals(new int[] {AbstractBufferFieldImpl.CHUNK_WORDS, 1},
+                AbstractBufferFieldImpl.chunkSizes(AbstractBufferFieldImpl.CHUNK_WORDS + 1L));
+    }
+
+    @Test
+    public void testCloseTwice() {
+        OffHeapFieldImpl field = new OffHeapFieldImpl(100, 100);
+        field.close();
+        field.close();
+    }
+
+    @Test
+    public void testSameAsLongFieldImpl() {
+        Random random = new Random(1);
+        GameOfLife expected = new GameOfLife(new PackedEngine());
+        GameOfLife actual = new GameOfLife(new PackedEngine(OffHeapFieldImpl::new));
+        expected.setSize(130, 70);
+        actual.setSize(130, 70);
+        expected.getActiveField().set(() -> random.nextInt(3) == 0);
+        expected.getActiveField().copyTo(actual.getActiveField());
+
+        for (int i = 0; i < 20; i++) {
+            expected.doIteration();
+            actual.doIteration();
+            assertEquals("Generation " + i,
+                    expected.getActiveField().toString(),
+                    actual.getActiveField().toString());
+        }
+    }
+
+    @Test
+    public void testParallelSameAsLongFieldImpl() {
+        Random random = new Random(2);
+        GameOfLife expected = new GameOfLife(new PackedEngine());
+        try (ParallelEngine engine = new ParallelEngine(4, OffHeapFieldImpl::new)) {
+            GameOfLife actual = new GameOfLife(engine);
+            expected.setSize(100, 200);
+            actual.setSize(100, 200);
+            expected.getActiveField().set(() -> random.nextInt(3) == 0);
+            expected.getActiveField().copyTo(actual.getActiveField());
+
+            for (int i = 0; i < 10; i++) {
+                expected.doIteration();
+                actual.doIteration();
+            }
+            assertEquals(expected.getActiveField().toString(),
+                    actual.getActiveField().toString());
+        }
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for Pacer.
+ * @author Stephan Fuhrmann
+ */
+public class PacerTest {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private static LifeControl control(int intervalMillis, Pacing pacing) {
+        LifeControl control = new LifeControl(intervalMillis);
+        control.setPacing(pacing);
+        return control;
+    }
+
+    @Test
+    public void testOnSchedule() {
+        Pacer pacer = new Pacer(control(10, Pacing.CATCH_UP));
+        assertEquals(1, pacer.due(0));
+        assertEquals(10 * MS, pacer.getDeadline());
+        assertEquals(0, pacer.due(5 * MS));
+        assertEquals(1, pacer.due(10 * MS));
+        // the time of the generation doesn't shift the schedule
+        assertEquals(20 * MS, pacer.getDeadline());
+    }
+
+    @Test
+    public void testCatchUp() {
+        Pacer pacer = new Pacer(control(10, Pacing.CATCH_UP));
+        pacer.due(0);
+        // the generations at 10, 20 and 30 ms are due
+        assertEquals(3, pacer.due(35 * MS));
+        assertEquals(40 * MS, pacer.getDeadline());
+    }
+
+    @Test
+    public void testCatchUpLimit() {
+        Pacer pacer = new Pacer(control(1, Pacing.CATCH_UP));
+        pacer.due(0);
+        assertEquals(Pacer.MAX_CATCH_UP, pacer.due(200 * MS));
+        // too far behind, starts over
+        assertEquals(1, pacer.due(2000 * MS));
+        assertEquals(2001 * MS, pacer.getDeadline());
+    }
+
+    @Test
+    public void testSkip() {
+        Pacer pacer = new Pacer(control(10, Pacing.SKIP));
+        pacer.due(0);
+        assertEquals(1, pacer.due(35 * MS));
+        assertEquals(45 * MS, pacer.getDeadline());
+        // a little late keeps the schedule
+        assertEquals(1, pacer.due(47 * MS));
+        assertEquals(55 * MS, pacer.getDeadline());
+    }
+
+    @Test
+    public void testUnthrottled() {
+        LifeControl control = control(10, Pacing.UNTHROTTLED);
+        control.setBatchGenerations(100);
+        Pacer pacer = new Pacer(control);
+        assertEquals(100, pacer.due(0));
+        assertEquals(100, pacer.due(0));
+    }
+
+    @Test
+    public void testRateChange() {
+        LifeControl control = control(100, Pacing.CATCH_UP);
+        Pacer pacer = new Pacer(control);
+        pacer.due(0);
+        assertEquals(0, pacer.due(20 * MS));
+
+        control.setGenerationsPerSecond(50);
+        // due 20 ms after the last generation instead of 100 ms
+        assertEquals(1, pacer.due(20 * MS));
+        assertEquals(40 * MS, pacer.getDeadline());
+    }
+
+    @Test
+    public void testLifeControl() {
+        LifeControl control = new LifeControl(0);
+        assertEquals(Pacing.UNTHROTTLED, control.getPacing());
+        assertEquals(Double.POSITIVE_INFINITY, control.getGenerationsPerSecond(), 0);
+
+        control.setGenerationsPerSecond(250);
+        assertEquals(4 * MS, control.getIntervalNanos());
+        assertEquals(4, control.getIntervalMillis());
+        assertEquals(Pacing.CATCH_UP, new LifeControl(10).getPacing());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalRate() {
+        new LifeControl(0).setGenerationsPerSecond(0);
+    }
+
+    @Test(timeout = 10_000)
+    public void testRunnableKeepsRate() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(10, 10);
+        LifeControl control = new LifeControl(0, 0, CycleAction.CONTINUE, 20);
+        control.setGenerationsPerSecond(100);
+        control.setPacing(Pacing.CATCH_UP);
+
+        long start = System.nanoTime();
+        new LifeRunnable(control, gameOfLife).run();
+        long millis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+
+        assertEquals(20, gameOfLife.getIteration());
+        // the first generation is due right away
+        assertTrue("took " + millis, millis >= 185);
+    }
+
+    @Test(timeout = 10_000)
+    public void testUnthrottledBatches() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(10, 10);
+        LifeControl control = new LifeControl(0, 0, CycleAction.CONTINUE, 1000);
+        control.setBatchGenerations(100);
+        List<Integer> iterations = new ArrayList<>();
+        LifeRunnable runnable = new LifeRunnable(control, gameOfLife);
+        runnable.setIterationConsumer(iterations::add);
+        runnable.run();
+
+        assertEquals(10, iterations.size());
+        assertEquals(100, (int) iterations.get(0));
+        assertEquals(1000, (int) iterations.get(9));
+    }
+
+    @Test(timeout = 10_000)
+    public void testRateChangeWhileRunning() throws InterruptedException {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(10, 10);
+        LifeControl control = new LifeControl(0, 0, CycleAction.CONTINUE, 1000);
+        control.setGenerationsPerSecond(1);
+        control.setPacing(Pacing.CATCH_UP);
+        Thread thread = new Thread(new LifeRunnable(control, gameOfLife));
+        thread.start();
+
+        Thread.sleep(100);
+        control.setPacing(Pacing.UNTHROTTLED);
+        thread.join();
+        assertEquals(1000, gameOfLife.getIteration());
+    }
+
+    @Test(timeout = 5_000)
+    public void testSleepWokenByRateChange() throws InterruptedException {
+        LifeControl control = control(0, Pacing.CATCH_UP);
+        control.setGenerationsPerSecond(0.1);
+        Pacer pacer = new Pacer(control);
+        pacer.due(System.nanoTime());
+
+        Thread changer = new Thread(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException e) {
+                return;
+            }
+            control.setGenerationsPerSecond(1000);
+        });
+        changer.start();
+        // the deadline is ten seconds away
+        assertFalse(pacer.sleep());
+        changer.join();
+        assertEquals(1, pacer.due(System.nanoTime()));
+    }
+
+    @Test(timeout = 5_000)
+    public void testSlowRateChangeWhileRunning() throws InterruptedException {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(10, 10);
+        LifeControl control = new LifeControl(0, 0, CycleAction.CONTINUE, 20);
+        control.setGenerationsPerSecond(0.1);
+        control.setPacing(Pacing.CATCH_UP);
+        Thread thread = new Thread(new LifeRunnable(control, gameOfLife));
+        thread.start();
+
+        Thread.sleep(100);
+        control.setGenerationsPerSecond(1000);
+        thread.join();
+        assertEquals(20, gameOfLife.getIteration());
+    }
+}
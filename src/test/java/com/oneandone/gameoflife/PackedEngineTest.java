@@ -0,0 +1,158 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for PackedEngine.
+ * @author Stephan Fuhrmann
+ */
+public class PackedEngineTest {
+
+    /** Compares some generations of both engines on a random field. */
+    private void assertSameAsCellEngine(Engine engine, int width, int height) {
+        assertSameAsCellEngine(engine, width, height, Topology.BOUNDED);
+    }
+
+    /** Compares some generations of both engines on a random field. */
+    private void assertSameAsCellEngine(Engine engine, int width, int height, Topology topology) {
+        Random random = new Random(width * 31 + height);
+        GameOfLife expected = new GameOfLife(new CellEngine(), topology);
+        GameOfLife actual = new GameOfLife(engine, topology);
+        expected.setRule(engine.getRule());
+        expected.setSize(width, height);
+        actual.setSize(width, height);
+        expected.getActiveField().set(() -> random.nextInt(3) == 0);
+        expected.getActiveField().copyTo(actual.getActiveField());
+
+        for (int i = 0; i < 20; i++) {
+            expected.doIteration();
+            actual.doIteration();
+            assertEquals(topology + " " + width + "x" + height + " generation " + i,
+                    expected.getActiveField().toString(),
+                    actual.getActiveField().toString());
+        }
+    }
+
+    @Test
+    public void testBlinker() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(3, 3);
+        Field field = gameOfLife.getActiveField();
+        field.set(0, 1, true);
+        field.set(1, 1, true);
+        field.set(2, 1, true);
+
+        gameOfLife.doIteration();
+
+        assertEquals(
+                  "010\n"
+                + "010\n"
+                + "010\n", gameOfLife.getActiveField().toString());
+    }
+
+    @Test
+    public void testSameAsCellEngine() {
+        int[] sizes = {1, 3, 63, 64, 65, 130};
+        for (int width : sizes) {
+            assertSameAsCellEngine(new PackedEngine(), width, 17);
+        }
+    }
+
+    @Test
+    public void testOtherRulesSameAsCellEngine() {
+        String[] rules = {"B36/S23", "B3678/S34678", "B2/S", "B0/S8", "B012345678/S"};
+        for (String rulestring : rules) {
+            Rule rule = Rule.parse(rulestring);
+            Engine[] engines = {new PackedEngine(), new ActivityEngine(),
+                new LookupTableEngine(), new VectorEngine()};
+            for (Engine engine : engines) {
+                engine.setRule(rule);
+                assertSameAsCellEngine(engine, 130, 17);
+            }
+            try (ParallelEngine engine = new ParallelEngine(2)) {
+                engine.setRule(rule);
+                assertSameAsCellEngine(engine, 100, 70);
+            }
+        }
+    }
+
+    @Test
+    public void testTorusSameAsCellEngine() {
+        int[] widths = {1, 2, 3, 63, 64, 65, 127, 128, 130};
+        int[] heights = {1, 2, 3, 17};
+        for (int width : widths) {
+            for (int height : heights) {
+                assertSameAsCellEngine(new PackedEngine(), width, height, Topology.TORUS);
+            }
+        }
+    }
+
+    @Test
+    public void testTorusOtherEnginesSameAsCellEngine() {
+        for (String rulestring : new String[] {"B3/S23", "B36/S23"}) {
+            Rule rule = Rule.parse(rulestring);
+            Engine[] engines = {new PackedEngine(), new ActivityEngine(),
+                new LookupTableEngine(), new VectorEngine()};
+            for (Engine engine : engines) {
+                engine.setRule(rule);
+                assertSameAsCellEngine(engine, 130, 17, Topology.TORUS);
+                assertSameAsCellEngine(engine, 64, 70, Topology.TORUS);
+            }
+            try (ParallelEngine engine = new ParallelEngine(3)) {
+                engine.setRule(rule);
+                assertSameAsCellEngine(engine, 65, 100, Topology.TORUS);
+            }
+        }
+    }
+
+    @Test
+    public void testGliderOnTorus() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine(), Topology.TORUS);
+        gameOfLife.setSize(70, 8);
+        Field field = gameOfLife.getActiveField();
+        field.set(1, 0, true);
+        field.set(2, 1, true);
+        field.set(0, 2, true);
+        field.set(1, 2, true);
+        field.set(2, 2, true);
+        String start = field.toString();
+
+        // a glider moves one cell diagonally every 4 generations
+        for (int i = 0; i < 4 * 8 * 35; i++) {
+            gameOfLife.doIteration();
+        }
+
+        assertEquals(start, gameOfLife.getActiveField().toString());
+    }
+
+    @Test
+    public void testTorusWithFieldFactory() {
+        PackedEngine engine = new PackedEngine(OffHeapFieldImpl::new);
+        assertTrue(engine.supports(Topology.BOUNDED));
+        assertFalse(engine.supports(Topology.TORUS));
+        assertTrue(new PackedEngine().supports(Topology.TORUS));
+        try {
+            engine.newField(10, 10, Topology.TORUS);
+            fail();
+        } catch (IllegalArgumentException e) {
+            assertTrue(e.getMessage().contains("TORUS"));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for ParallelEngine.
+ * @author Stephan Fuhrmann
+ */
+public class ParallelEngineTest {
+
+    /** Compares the generations of a parallel engine with the serial cell engine. */
+    private static void assertSameAsCellEngine(int threads, int width, int height, Rule rule) {
+        Random random = new Random(width * 31 + height);
+        try (ParallelEngine engine = new ParallelEngine(threads)) {
+            GameOfLife expected = new GameOfLife(new CellEngine());
+            GameOfLife actual = new GameOfLife(engine);
+            expected.setRule(rule);
+            actual.setRule(rule);
+            expected.setSize(width, height);
+            actual.setSize(width, height);
+            expected.getActiveField().set(() -> random.nextInt(3) == 0);
+            expected.getActiveField().copyTo(actual.getActiveField());
+
+            for (int i = 0; i < 20; i++) {
+                expected.doIteration();
+                actual.doIteration();
+                assertEquals(threads + " threads, " + width + "x" + height + ", generation " + i,
+                        expected.getActiveField().toString(),
+                        actual.getActiveField().toString());
+            }
+        }
+    }
+
+    @Test
+    public void testOneThread() {
+        assertSameAsCellEngine(1, 130, 100, Rule.CONWAY);
+    }
+
+    @Test
+    public void testMoreThreadsThanRows() {
+        assertSameAsCellEngine(16, 70, 5, Rule.CONWAY);
+        assertSameAsCellEngine(64, 10, 1, Rule.CONWAY);
+    }
+
+    @Test
+    public void testUnevenBands() {
+        // the band rows don't divide the height
+        assertSameAsCellEngine(2, 65, 67, Rule.CONWAY);
+        assertSameAsCellEngine(3, 100, 1001, Rule.CONWAY);
+        assertSameAsCellEngine(5, 129, 333, Rule.parse("B36/S23"));
+    }
+
+    @Test
+    public void testSameAsPackedEngine() {
+        Random random = new Random(6);
+        try (ParallelEngine engine = new ParallelEngine(4)) {
+            GameOfLife expected = new GameOfLife(new PackedEngine());
+            GameOfLife actual = new GameOfLife(engine);
+            expected.setSize(300, 257);
+            actual.setSize(300, 257);
+            expected.getActiveField().set(() -> random.nextInt(3) == 0);
+            expected.getActiveField().copyTo(actual.getActiveField());
+
+            for (int i = 0; i < 30; i++) {
+                expected.doIteration();
+                actual.doIteration();
+                assertEquals("Generation " + i,
+                        expected.getActiveField().toString(),
+                        actual.getActiveField().toString());
+            }
+        }
+    }
+}
@@ -0,0 +1,92 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for Rule.
+ * @author Stephan Fuhrmann
+ */
+public class RuleTest {
+
+    @Test
+    public void testParseConway() {
+        assertEquals(Rule.CONWAY, Rule.parse("B3/S23"));
+        assertEquals(Rule.CONWAY, Rule.parse("b3/s23"));
+        assertEquals(Rule.CONWAY, Rule.parse("S23/B3"));
+        assertEquals(Rule.CONWAY, Rule.parse("23/3"));
+    }
+
+    @Test
+    public void testParseSeeds() {
+        Rule seeds = Rule.parse("B2/S");
+        assertEquals(1 << 2, seeds.getBirth());
+        assertEquals(0, seeds.getSurvival());
+        assertEquals("B2/S", seeds.toString());
+    }
+
+    @Test
+    public void testToString() {
+        assertEquals("B3/S23", Rule.CONWAY.toString());
+        assertEquals("B3678/S34678", Rule.parse("B3678/S34678").toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseIllegalCount() {
+        Rule.parse("B39/S23");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testParseMissingPart() {
+        Rule.parse("B3");
+    }
+
+    @Test
+    public void testNextSameAsCalculateAliveStatusFor() {
+        for (int n = 0; n <= 8; n++) {
+            assertEquals(GameOfLife.calculateAliveStatusFor(false, n), Rule.CONWAY.next(false, n));
+            assertEquals(GameOfLife.calculateAliveStatusFor(true, n), Rule.CONWAY.next(true, n));
+        }
+    }
+
+    /** Compares the bit plane evaluation with the single cell evaluation. */
+    @Test
+    public void testNextOfBitPlanes() {
+        Random random = new Random(1);
+        for (int i = 0; i < 200; i++) {
+            Rule rule = i == 0 ? Rule.CONWAY : Rule.of(random.nextInt(1 << 9), random.nextInt(1 << 9));
+            long alive = random.nextLong();
+            int[] counts = new int[64];
+            long ones = 0, twos = 0, fours = 0, eights = 0;
+            for (int bit = 0; bit < 64; bit++) {
+                int count = random.nextInt(9);
+                counts[bit] = count;
+                ones |= (long) (count & 1) << bit;
+                twos |= (long) ((count >> 1) & 1) << bit;
+                fours |= (long) ((count >> 2) & 1) << bit;
+                eights |= (long) ((count >> 3) & 1) << bit;
+            }
+            long next = rule.next(alive, ones, twos, fours, eights);
+            for (int bit = 0; bit < 64; bit++) {
+                boolean expected = rule.next((alive & 1L << bit) != 0, counts[bit]);
+                assertEquals(rule + " bit " + bit, expected, (next & 1L << bit) != 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,228 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for SnapshotRing.
+ * @author Stephan Fuhrmann
+ */
+public class SnapshotRingTest {
+
+    private static GameOfLife randomGame(int width, int height, long seed) {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(width, height);
+        Random random = new Random(seed);
+        gameOfLife.getActiveField().set(() -> random.nextInt(3) == 0);
+        gameOfLife.setTrackChanges(true);
+        return gameOfLife;
+    }
+
+    private static void publish(SnapshotRing ring, GameOfLife gameOfLife) {
+        ring.publish(gameOfLife.getActiveField(), gameOfLife.getIteration(), gameOfLife.getChanges());
+        gameOfLife.getChanges().clear();
+    }
+
+    @Test
+    public void testAcquireEmpty() {
+        assertNull(new SnapshotRing(2).acquire());
+    }
+
+    @Test
+    public void testPublishAndAcquire() {
+        GameOfLife gameOfLife = randomGame(100, 70, 1);
+        SnapshotRing ring = new SnapshotRing(2);
+        publish(ring, gameOfLife);
+
+        Snapshot snapshot = ring.acquire();
+        assertEquals(1, snapshot.getSequence());
+        assertEquals(0, snapshot.getIteration());
+        assertEquals(gameOfLife.getActiveField().toString(), snapshot.getField().toString());
+        snapshot.release();
+    }
+
+    @Test
+    public void testRecycledBuffersStayEqual() {
+        GameOfLife gameOfLife = randomGame(200, 130, 2);
+        SnapshotRing ring = new SnapshotRing(3);
+        for (int i = 0; i < 50; i++) {
+            gameOfLife.doIteration();
+            publish(ring, gameOfLife);
+            Snapshot snapshot = ring.acquire();
+            assertEquals(gameOfLife.getIteration(), snapshot.getIteration());
+            assertEquals(gameOfLife.getActiveField().toString(), snapshot.getField().toString());
+            snapshot.release();
+        }
+        assertEquals(50, ring.getPublished());
+        assertEquals(0, ring.getSkipped());
+    }
+
+    @Test
+    public void testHeldSnapshotIsNotChanged() {
+        GameOfLife gameOfLife = randomGame(100, 100, 3);
+        SnapshotRing ring = new SnapshotRing(3);
+        publish(ring, gameOfLife);
+        Snapshot held = ring.acquire();
+        String content = held.getField().toString();
+
+        for (int i = 0; i < 5; i++) {
+            gameOfLife.doIteration();
+            publish(ring, gameOfLife);
+        }
+
+        assertEquals(content, held.getField().toString());
+        held.release();
+        Snapshot newest = ring.acquire();
+        assertEquals(5, newest.getIteration());
+        newest.release();
+    }
+
+    @Test
+    public void testSkipWhenAllBuffersHeld() {
+        GameOfLife gameOfLife = randomGame(100, 100, 4);
+        SnapshotRing ring = new SnapshotRing(2);
+        publish(ring, gameOfLife);
+        Snapshot first = ring.acquire();
+        gameOfLife.doIteration();
+        publish(ring, gameOfLife);
+        Snapshot second = ring.acquire();
+
+        gameOfLife.doIteration();
+        assertFalse(ring.publish(gameOfLife.getActiveField(), gameOfLife.getIteration(), gameOfLife.getChanges()));
+        gameOfLife.getChanges().clear();
+        assertEquals(1, ring.getSkipped());
+
+        // the changes of the skipped generation are copied later
+        first.release();
+        gameOfLife.doIteration();
+        publish(ring, gameOfLife);
+        second.release();
+        Snapshot third = ring.acquire();
+        assertEquals(3, third.getIteration());
+        assertEquals(gameOfLife.getActiveField().toString(), third.getField().toString());
+        third.release();
+    }
+
+    @Test
+    public void testChangesSince() {
+        GameOfLife gameOfLife = new GameOfLife(new PackedEngine());
+        gameOfLife.setSize(256, 256);
+        gameOfLife.setTrackChanges(true);
+        SnapshotRing ring = new SnapshotRing(3);
+        publish(ring, gameOfLife);
+
+        gameOfLife.getActiveField().set(10, 10, true);
+        gameOfLife.getChanges().add(10, 10);
+        publish(ring, gameOfLife);
+        gameOfLife.getActiveField().set(200, 200, true);
+        gameOfLife.getChanges().add(200, 200);
+        publish(ring, gameOfLife);
+
+        Snapshot snapshot = ring.acquire();
+        assertEquals(3, snapshot.getSequence());
+        assertEquals(16, snapshot.changesSince(0).getTileCount());
+        assertEquals(2, snapshot.changesSince(1).getTileCount());
+        assertEquals(1, snapshot.changesSince(2).getTileCount());
+        assertTrue(snapshot.changesSince(3).isEmpty());
+        snapshot.release();
+    }
+
+    @Test
+    public void testResize() {
+        SnapshotRing ring = new SnapshotRing(2);
+        ring.publish(new LongFieldImpl(10, 10), 0, null);
+        Field larger = new LongFieldImpl(100, 20);
+        larger.set(99, 19, true);
+        ring.publish(larger, 1, null);
+
+        Snapshot snapshot = ring.acquire();
+        assertEquals(100, snapshot.getField().getWidth());
+        assertTrue(snapshot.getField().get(99, 19));
+        snapshot.release();
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testReleaseTwice() {
+        SnapshotRing ring = new SnapshotRing(2);
+        ring.publish(new LongFieldImpl(10, 10), 0, null);
+        Snapshot snapshot = ring.acquire();
+        snapshot.release();
+        // the ring still holds the snapshot
+        snapshot.release();
+        snapshot.release();
+    }
+
+    @Test(timeout = 30_000)
+    public void testConcurrentReadersSeeWholeGenerations() throws InterruptedException {
+        GameOfLife gameOfLife = randomGame(300, 300, 5);
+        SnapshotRing ring = new SnapshotRing(4);
+        Map<Integer, Long> hashes = new ConcurrentHashMap<>();
+        AtomicReference<String> failure = new AtomicReference<>();
+        int generations = 300;
+
+        Thread[] readers = new Thread[2];
+        for (int r = 0; r < readers.length; r++) {
+            readers[r] = new Thread(() -> {
+                int last = -1;
+                while (last < generations) {
+                    Snapshot snapshot = ring.acquire();
+                    if (snapshot == null) {
+                        continue;
+                    }
+                    long hash = CycleDetector.hash(snapshot.getField());
+                    if (hash != hashes.get(snapshot.getIteration())) {
+                        failure.set("Torn snapshot of iteration " + snapshot.getIteration());
+                    }
+                    last = snapshot.getIteration();
+                    snapshot.release();
+                }
+            });
+            readers[r].start();
+        }
+        hashes.put(0, CycleDetector.hash(gameOfLife.getActiveField()));
+        publish(ring, gameOfLife);
+        for (int i = 0; i < generations; i++) {
+            gameOfLife.doIteration();
+            hashes.put(gameOfLife.getIteration(), CycleDetector.hash(gameOfLife.getActiveField()));
+            publish(ring, gameOfLife);
+        }
+        for (Thread reader : readers) {
+            reader.join();
+        }
+        assertNull(failure.get());
+    }
+
+    @Test
+    public void testLifeRunnablePublishes() {
+        GameOfLife gameOfLife = randomGame(100, 100, 6);
+        SnapshotRing ring = new SnapshotRing(2);
+        LifeRunnable runnable = new LifeRunnable(new LifeControl(0, 0, CycleAction.CONTINUE, 10), gameOfLife);
+        runnable.setSnapshotRing(ring);
+        runnable.run();
+
+        assertEquals(11, ring.getPublished());
+        Snapshot snapshot = ring.acquire();
+        assertEquals(10, snapshot.getIteration());
+        assertEquals(gameOfLife.getActiveField().toString(), snapshot.getField().toString());
+        snapshot.release();
+    }
+}
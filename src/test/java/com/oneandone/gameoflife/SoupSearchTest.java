@@ -0,0 +1,115 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.SortedMap;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for SoupSearch.
+ * @author Stephan Fuhrmann
+ */
+public class SoupSearchTest {
+
+    private static SoupSearch newSearch() {
+        SoupSearch search = new SoupSearch(Rule.CONWAY, Topology.BOUNDED, 16, 64);
+        search.setMaxGenerations(2000);
+        return search;
+    }
+
+    @Test
+    public void testSameForThreads() {
+        SoupCensus single = newSearch().search(7, 200, 1);
+        SoupCensus parallel = newSearch().search(7, 200, 4);
+
+        assertEquals(200, single.getSoups());
+        assertEquals(single.getStabilized(), parallel.getStabilized());
+        assertEquals(single.getDied(), parallel.getDied());
+        assertEquals(single.getGenerations(), parallel.getGenerations());
+        assertEquals(single.getAliveCells(), parallel.getAliveCells());
+        assertEquals(single.getPeriods(), parallel.getPeriods());
+    }
+
+    @Test
+    public void testCensus() {
+        SoupCensus census = newSearch().search(1, 100, 2);
+
+        SortedMap<Integer, Long> periods = census.getPeriods();
+        long stabilized = periods.values().stream().mapToLong(Long::longValue).sum();
+        assertEquals(census.getStabilized(), stabilized);
+        assertEquals(100, census.getStabilized() + census.getUnstabilized());
+        // most soups end in still lifes and blinkers
+        assertTrue(periods.toString(), periods.getOrDefault(1, 0L) + periods.getOrDefault(2, 0L) > 50);
+        assertTrue(census.getAverageStabilization() > 0);
+    }
+
+    @Test
+    public void testEmptySoups() {
+        SoupSearch search = newSearch();
+        search.setDensity(0);
+        SoupCensus census = search.search(1, 10, 1);
+
+        assertEquals(10, census.getDied());
+        assertEquals(10, census.getStabilized());
+        assertEquals(Long.valueOf(10), census.getPeriods().get(1));
+        // the empty field repeats right after the first generation
+        assertEquals(10, census.getGenerations());
+        assertEquals(0, census.getAverageStabilization(), 0);
+    }
+
+    @Test
+    public void testGamesReused() {
+        SoupSearch search = newSearch();
+        search.search(1, 200, 2);
+        search.search(2, 200, 2);
+        assertTrue(search.getGameCount() <= 2);
+    }
+
+    @Test
+    public void testUnstabilized() {
+        SoupSearch search = newSearch();
+        search.setMaxGenerations(1);
+        SoupCensus census = search.search(1, 10, 1);
+        assertEquals(10, census.getUnstabilized());
+        assertEquals(10, census.getGenerations());
+    }
+
+    @Test
+    public void testSoupSeed() {
+        assertNotEquals(SoupSearch.soupSeed(1, 0), SoupSearch.soupSeed(1, 1));
+        assertNotEquals(SoupSearch.soupSeed(1, 0), SoupSearch.soupSeed(2, 0));
+        assertEquals(SoupSearch.soupSeed(1, 5), SoupSearch.soupSeed(1, 5));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testFieldTooSmall() {
+        new SoupSearch(Rule.CONWAY, Topology.BOUNDED, 16, 8);
+    }
+
+    @Test
+    public void testTorus() {
+        SoupSearch search = new SoupSearch(Rule.CONWAY, Topology.TORUS, 16, 32);
+        search.setMaxGenerations(2000);
+        SoupCensus single = search.search(7, 50, 1);
+        SoupCensus parallel = search.search(7, 50, 2);
+
+        assertEquals(50, single.getStabilized() + single.getUnstabilized());
+        assertEquals(single.getGenerations(), parallel.getGenerations());
+        assertEquals(single.getPeriods(), parallel.getPeriods());
+        assertNotEquals(newSearch().search(7, 50, 1).getGenerations(), single.getGenerations());
+    }
+}
@@ -0,0 +1,110 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for SparseEngine.
+ * @author Stephan Fuhrmann
+ */
+public class SparseEngineTest {
+
+    @Test
+    public void testSameAsHashLifeEngine() {
+        GameOfLife expected = new GameOfLife(new HashLifeEngine());
+        GameOfLife actual = new GameOfLife(new SparseEngine());
+        expected.setSize(200, 200);
+        actual.setSize(200, 200);
+        Random random = new Random(4);
+        // soup crossing tile borders and the origin
+        for (int y = -20; y < 20; y++) {
+            for (int x = 40; x < 90; x++) {
+                boolean alive = random.nextBoolean();
+                expected.getActiveField().set(x, y, alive);
+                actual.getActiveField().set(x, y, alive);
+            }
+        }
+
+        for (int i = 0; i < 100; i++) {
+            expected.doIteration();
+            actual.doIteration();
+            assertEquals("Generation " + i,
+                    expected.getActiveField().toString(),
+                    actual.getActiveField().toString());
+            assertEquals("Generation " + i,
+                    ((HashLifeField) expected.getActiveField()).getPopulation(),
+                    ((SparseFieldImpl) actual.getActiveField()).getPopulation());
+        }
+    }
+
+    @Test
+    public void testHighLifeSameAsHashLifeEngine() {
+        GameOfLife expected = new GameOfLife(new HashLifeEngine());
+        GameOfLife actual = new GameOfLife(new SparseEngine());
+        expected.setRule(Rule.parse("B36/S23"));
+        actual.setRule(Rule.parse("B36/S23"));
+        expected.setSize(200, 200);
+        actual.setSize(200, 200);
+        Random random = new Random(6);
+        for (int y = 60; y < 100; y++) {
+            for (int x = 60; x < 100; x++) {
+                boolean alive = random.nextBoolean();
+                expected.getActiveField().set(x, y, alive);
+                actual.getActiveField().set(x, y, alive);
+            }
+        }
+
+        for (int i = 0; i < 100; i++) {
+            expected.doIteration();
+            actual.doIteration();
+            assertEquals("Generation " + i,
+                    ((HashLifeField) expected.getActiveField()).getPopulation(),
+                    ((SparseFieldImpl) actual.getActiveField()).getPopulation());
+        }
+        assertEquals(expected.getActiveField().toString(),
+                actual.getActiveField().toString());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBirthWithoutNeighbors() {
+        new SparseEngine().setRule(Rule.parse("B0/S"));
+    }
+
+    @Test
+    public void testGliderLeavesWindow() {
+        GameOfLife gameOfLife = new GameOfLife(new SparseEngine());
+        Field field = gameOfLife.getActiveField();
+        field.set(1, 0, true);
+        field.set(2, 1, true);
+        field.set(0, 2, true);
+        field.set(1, 2, true);
+        field.set(2, 2, true);
+
+        for (int i = 0; i < 1024; i++) {
+            gameOfLife.doIteration();
+        }
+
+        SparseFieldImpl result = (SparseFieldImpl) gameOfLife.getActiveField();
+        assertEquals(5, result.getPopulation());
+        assertEquals(1, result.getTileCount());
+        assertTrue(result.get(257, 256));
+        assertTrue(result.get(258, 257));
+        assertTrue(result.get(256, 258));
+    }
+}
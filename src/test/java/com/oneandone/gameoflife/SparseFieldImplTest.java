@@ -0,0 +1,57 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for SparseFieldImpl.
+ * @author Stephan Fuhrmann
+ */
+public class SparseFieldImplTest extends AbstractFieldImplTest {
+
+    @Override
+    protected Field newField(int width, int height) {
+        return new SparseFieldImpl(width, height);
+    }
+
+    @Test
+    public void testSetOutsideOfWindow() {
+        SparseFieldImpl fieldImpl = new SparseFieldImpl(10, 10);
+        fieldImpl.set(-1, -1, true);
+        fieldImpl.set(1000, -70, true);
+
+        assertTrue(fieldImpl.get(-1, -1));
+        assertTrue(fieldImpl.get(1000, -70));
+        assertEquals(1, fieldImpl.getNeighborCount(0, 0));
+        assertEquals(2, fieldImpl.getTileCount());
+        assertEquals(2, fieldImpl.getPopulation());
+    }
+
+    @Test
+    public void testClearRemovesTile() {
+        SparseFieldImpl fieldImpl = new SparseFieldImpl(10, 10);
+        fieldImpl.set(5, 5, true);
+        fieldImpl.set(6, 5, true);
+        assertEquals(1, fieldImpl.getTileCount());
+
+        fieldImpl.set(5, 5, false);
+        assertEquals(1, fieldImpl.getTileCount());
+        fieldImpl.set(6, 5, false);
+        assertEquals(0, fieldImpl.getTileCount());
+    }
+}
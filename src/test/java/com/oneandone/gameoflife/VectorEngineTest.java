@@ -0,0 +1,100 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.Arrays;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for VectorEngine.
+ * The Java 17 profile runs this test a second time against the
+ * multi-release classes with the {@code jdk.incubator.vector} module
+ * and sets {@code gameoflife.vector.expected}, so the vector kernel
+ * is tested, too.
+ * @author Stephan Fuhrmann
+ */
+public class VectorEngineTest {
+
+    /** Compares some generations with the cell engine on a random field. */
+    private static void assertSameAsCellEngine(Rule rule, int width, int height) {
+        Random random = new Random(width * 31 + height);
+        GameOfLife expected = new GameOfLife(new CellEngine());
+        GameOfLife actual = new GameOfLife(new VectorEngine());
+        expected.setRule(rule);
+        actual.setRule(rule);
+        expected.setSize(width, height);
+        actual.setSize(width, height);
+        expected.getActiveField().set(() -> random.nextInt(3) == 0);
+        expected.getActiveField().copyTo(actual.getActiveField());
+
+        for (int i = 0; i < 20; i++) {
+            expected.doIteration();
+            actual.doIteration();
+            assertEquals(rule + ", width " + width + ", generation " + i,
+                    expected.getActiveField().toString(),
+                    actual.getActiveField().toString());
+        }
+    }
+
+    @Test
+    public void testAccelerated() {
+        assertEquals(Boolean.getBoolean("gameoflife.vector.expected"), VectorEngine.isAccelerated());
+    }
+
+    @Test
+    public void testSameAsCellEngine() {
+        // widths below, at and between multiples of the vector lanes
+        int[] widths = {1, 63, 64, 65, 128, 129, 192, 320, 513, 1000};
+        String[] rules = {"B3/S23", "B36/S23", "B3678/S34678", "B2/S", "B0/S8"};
+        for (String rulestring : rules) {
+            Rule rule = Rule.parse(rulestring);
+            for (int width : widths) {
+                assertSameAsCellEngine(rule, width, 9);
+            }
+        }
+    }
+
+    @Test
+    public void testRecordsChanges() {
+        VectorEngine engine = new VectorEngine();
+        for (int width : new int[] {1, 65, 320, 1000}) {
+            Random random = new Random(width);
+            Field active = engine.newField(width, 9);
+            Field passive = engine.newField(width, 9);
+            active.set(() -> random.nextInt(3) == 0);
+            WordChanges recorded = new WordChanges();
+            WordChanges compared = new WordChanges();
+            for (int i = 0; i < 5; i++) {
+                recorded.clear(active);
+                engine.step(active, passive, recorded);
+                compared.compare(active, passive);
+                assertEquals("width " + width + ", generation " + i, toString(compared), toString(recorded));
+                Field swap = active;
+                active = passive;
+                passive = swap;
+            }
+        }
+    }
+
+    private static String toString(WordChanges changes) {
+        int[] indices = new int[changes.size()];
+        long[] values = new long[indices.length];
+        changes.copyTo(indices, values);
+        return Arrays.toString(indices) + Arrays.toString(values);
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for WordChanges.
+ * @author Stephan Fuhrmann
+ */
+public class WordChangesTest {
+
+    private static String toString(WordChanges changes) {
+        int[] indices = new int[changes.size()];
+        long[] values = new long[indices.length];
+        assertEquals(indices.length, changes.copyTo(indices, values));
+        return Arrays.toString(indices) + Arrays.toString(values);
+    }
+
+    @Test
+    public void testAdd() {
+        WordChanges changes = new WordChanges();
+        changes.clear(70, 3);
+        assertTrue(changes.isEmpty());
+        changes.add(2, 69, 5L);
+        changes.add(0, 1, 0L);
+        changes.add(0, 3, -1L);
+        changes.add(2, 64, 1L << 63);
+
+        assertFalse(changes.isEmpty());
+        assertEquals(3, changes.size());
+        assertEquals("[3, 204, 209][-1, " + (1L << 63) + ", 5]", toString(changes));
+        List<String> words = new ArrayList<>();
+        changes.forEach((y, i, diff) -> words.add(y + ":" + i + ":" + diff));
+        assertEquals(Arrays.asList("0:3:-1", "2:64:" + (1L << 63), "2:69:5"), words);
+
+        changes.clear(70, 3);
+        assertTrue(changes.isEmpty());
+        assertEquals(0, changes.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testIllegalSize() {
+        new WordChanges().clear(-1, 3);
+    }
+
+    @Test
+    public void testCompare() {
+        Field before = new LongFieldImpl(130, 20);
+        Field after = new LongFieldImpl(130, 20);
+        before.set(0, 0, true);
+        before.set(129, 19, true);
+        after.set(129, 19, true);
+        after.set(64, 1, true);
+        after.set(65, 1, true);
+
+        WordChanges changes = new WordChanges();
+        changes.compare(before, after);
+
+        assertEquals("[0, 4][1, 3]", toString(changes));
+    }
+
+    @Test
+    public void testEnginesRecordChanges() throws Exception {
+        for (EngineType type : EngineType.values()) {
+            assertRecordsChanges(type.name(), type.newEngine(3));
+        }
+        assertRecordsChanges("off heap", new PackedEngine(OffHeapFieldImpl::new));
+        assertRecordsChanges("parallel off heap", new ParallelEngine(3, OffHeapFieldImpl::new));
+    }
+
+    /** Steps with an engine and compares the recorded changes with the
+     * compared fields. */
+    private static void assertRecordsChanges(String message, Engine engine) throws Exception {
+        SplittableRandom random = new SplittableRandom(3);
+        Field active = engine.newField(300, 150);
+        Field passive = engine.newField(300, 150);
+        active.set(() -> random.nextInt(3) == 0);
+        WordChanges recorded = new WordChanges();
+        WordChanges compared = new WordChanges();
+        for (int i = 0; i < 5; i++) {
+            recorded.clear(active);
+            engine.step(active, passive, recorded);
+            compared.compare(active, passive);
+            assertFalse(message, compared.isEmpty());
+            assertEquals(message + " step " + i, toString(compared), toString(recorded));
+
+            Field swap = active;
+            active = passive;
+            passive = swap;
+        }
+        if (engine instanceof AutoCloseable) {
+            ((AutoCloseable) engine).close();
+        }
+        for (Field field : new Field[] {active, passive}) {
+            if (field instanceof AutoCloseable) {
+                ((AutoCloseable) field).close();
+            }
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.io;
+
+import com.oneandone.gameoflife.Field;
+import com.oneandone.gameoflife.LongFieldImpl;
+import com.oneandone.gameoflife.Rule;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for MacrocellReader.
+ * @author Stephan Fuhrmann
+ */
+public class MacrocellReaderTest {
+
+    static MacrocellReader reader(String text) throws IOException {
+        return new MacrocellReader(Channels.newChannel(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    @Test
+    public void testNodes() throws IOException {
+        Field field = new LongFieldImpl(20, 20);
+        try (MacrocellReader reader = reader("[M2] (golly 4.0)\n#R B3/S23\n#G 42\n"
+                + ".*$..*$***$\n"
+                + "4 0 1 1 0\n")) {
+            assertEquals(Rule.CONWAY, reader.getRule());
+            assertEquals(42, reader.getGeneration());
+            assertEquals(16, reader.getSize());
+            reader.read(field, 2, 0);
+        }
+        assertTrue(field.get(11, 0));
+        assertTrue(field.get(12, 1));
+        assertTrue(field.get(10, 2));
+        assertTrue(field.get(12, 2));
+        assertTrue(field.get(3, 8));
+        assertTrue(field.get(4, 10));
+        assertFalse(field.get(3, 0));
+        assertFalse(field.get(11, 8));
+    }
+
+    @Test
+    public void testLevelOne() throws IOException {
+        Field field = new LongFieldImpl(4, 4);
+        try (MacrocellReader reader = reader("[M2]\n1 1 0 0 1\n2 0 1 1 0\n")) {
+            reader.read(field, 0, 0);
+        }
+        assertEquals(
+                "0010\n" +
+                "0001\n" +
+                "1000\n" +
+                "0100\n", field.toString());
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        try (MacrocellReader reader = reader("[M2]\n")) {
+            assertEquals(0, reader.getSize());
+            reader.read(new LongFieldImpl(4, 4), 0, 0);
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void testNoMagic() throws IOException {
+        reader("x = 1, y = 1\no!\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void testForwardReference() throws IOException {
+        reader("[M2]\n$*$\n4 1 2 0 0\n");
+    }
+}
@@ -0,0 +1,109 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.io;
+
+import com.oneandone.gameoflife.Field;
+import com.oneandone.gameoflife.LongFieldImpl;
+import com.oneandone.gameoflife.Rule;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for MacrocellWriter.
+ * @author Stephan Fuhrmann
+ */
+public class MacrocellWriterTest {
+
+    static String write(Field field) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (MacrocellWriter writer = new MacrocellWriter(Channels.newChannel(bytes))) {
+            writer.write(field, Rule.CONWAY, 7);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    private static Field readBack(String text, int width, int height) throws IOException {
+        Field copy = new LongFieldImpl(width, height);
+        try (MacrocellReader reader = MacrocellReaderTest.reader(text)) {
+            assertEquals(Rule.CONWAY, reader.getRule());
+            assertEquals(7, reader.getGeneration());
+            reader.read(copy, 0, 0);
+        }
+        return copy;
+    }
+
+    @Test
+    public void testGlider() throws IOException {
+        Field field = new LongFieldImpl(16, 16);
+        field.set(1, 8, true);
+        field.set(2, 9, true);
+        field.set(0, 10, true);
+        field.set(1, 10, true);
+        field.set(2, 10, true);
+        assertEquals("[M2] game-of-life\n#R B3/S23\n#G 7\n"
+                + ".*$..*$***$\n"
+                + "4 0 0 1 0\n", write(field));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Random random = new Random(1);
+        Field field = new LongFieldImpl(300, 70);
+        field.set(() -> random.nextInt(3) == 0);
+        assertEquals(field.toString(), readBack(write(field), 300, 70).toString());
+    }
+
+    @Test
+    public void testRepetitionIsSmall() throws IOException {
+        Field field = new LongFieldImpl(1024, 1024);
+        for (int y = 0; y < 1024; y += 8) {
+            for (int x = 0; x < 1024; x += 8) {
+                field.fill(x, y, 2, 2, true);
+            }
+        }
+        String text = write(field);
+        // one leaf and one node per level
+        assertEquals(3 + 1 + 7, text.split("\n").length);
+        assertEquals(field.toString(), readBack(text, 1024, 1024).toString());
+    }
+
+    @Test(timeout = 10_000)
+    public void testWideAndShort() throws IOException {
+        Field field = new LongFieldImpl(1_000_000, 8);
+        field.fill(0, 0, 3, 1, true);
+        field.fill(999_990, 7, 10, 1, true);
+        String text = write(field);
+        // the root is at level 20, reached with empty lower halves
+        String[] lines = text.split("\n");
+        assertTrue(lines[lines.length - 1], lines[lines.length - 1].startsWith("20 "));
+        Field copy = readBack(text, 1_000_000, 8);
+        assertEquals(13, copy.countAlive());
+        assertTrue(copy.get(999_999, 7));
+    }
+
+    @Test
+    public void testHeightNotPowerOfTwo() throws IOException {
+        Random random = new Random(2);
+        Field field = new LongFieldImpl(20, 41);
+        field.set(() -> random.nextInt(3) == 0);
+        assertEquals(field.toString(), readBack(write(field), 20, 41).toString());
+    }
+}
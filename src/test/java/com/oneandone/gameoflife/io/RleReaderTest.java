@@ -0,0 +1,105 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.io;
+
+import com.oneandone.gameoflife.Field;
+import com.oneandone.gameoflife.LongFieldImpl;
+import com.oneandone.gameoflife.Rule;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for RleReader.
+ * @author Stephan Fuhrmann
+ */
+public class RleReaderTest {
+
+    static RleReader reader(String text) throws IOException {
+        return new RleReader(Channels.newChannel(
+                new ByteArrayInputStream(text.getBytes(StandardCharsets.US_ASCII))));
+    }
+
+    @Test
+    public void testGlider() throws IOException {
+        Field field = new LongFieldImpl(5, 5);
+        try (RleReader reader = reader("#N Glider\n#C comment\nx = 3, y = 3, rule = B3/S23\nbob$2bo$3o!\n")) {
+            assertEquals(3, reader.getWidth());
+            assertEquals(3, reader.getHeight());
+            assertEquals(Rule.CONWAY, reader.getRule());
+            reader.read(field, 1, 1);
+        }
+        assertEquals(
+                "00000\n" +
+                "00100\n" +
+                "00010\n" +
+                "01110\n" +
+                "00000\n", field.toString());
+    }
+
+    @Test
+    public void testWithoutRule() throws IOException {
+        try (RleReader reader = reader("x=1,y=1\no!")) {
+            assertNull(reader.getRule());
+        }
+    }
+
+    @Test
+    public void testOtherRule() throws IOException {
+        try (RleReader reader = reader("x = 1, y = 1, rule = 23/36:T10,10\no!")) {
+            assertEquals(Rule.parse("B36/S23"), reader.getRule());
+        }
+    }
+
+    @Test
+    public void testLongRunsAndEmptyRows() throws IOException {
+        Field field = new LongFieldImpl(200, 10);
+        try (RleReader reader = reader("x = 150, y = 5\n70b\n80o3$\n\n2o!")) {
+            reader.read(field, 0, 0);
+        }
+        for (int x = 0; x < 200; x++) {
+            assertEquals("x=" + x, x >= 70 && x < 150, field.get(x, 0));
+            assertEquals("x=" + x, x < 2, field.get(x, 3));
+        }
+    }
+
+    @Test
+    public void testClipAndKeep() throws IOException {
+        Field field = new LongFieldImpl(4, 2);
+        field.set(0, 0, true);
+        try (RleReader reader = reader("x = 5, y = 5\n5o$5o$5o!")) {
+            reader.read(field, 2, 1);
+        }
+        assertEquals(
+                "1000\n" +
+                "0011\n", field.toString());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingHeader() throws IOException {
+        reader("#C only a comment\n");
+    }
+
+    @Test(expected = IOException.class)
+    public void testIllegalCharacter() throws IOException {
+        try (RleReader reader = reader("x = 3, y = 3\nbo?!")) {
+            reader.read(new LongFieldImpl(3, 3), 0, 0);
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.io;
+
+import com.oneandone.gameoflife.Field;
+import com.oneandone.gameoflife.LongFieldImpl;
+import com.oneandone.gameoflife.Rule;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.Random;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for RleWriter.
+ * @author Stephan Fuhrmann
+ */
+public class RleWriterTest {
+
+    static String write(Field field, Rule rule) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (RleWriter writer = new RleWriter(Channels.newChannel(bytes))) {
+            writer.write(field, rule);
+        }
+        return new String(bytes.toByteArray(), StandardCharsets.US_ASCII);
+    }
+
+    @Test
+    public void testGlider() throws IOException {
+        Field field = new LongFieldImpl(10, 10);
+        field.set(4, 3, true);
+        field.set(5, 4, true);
+        field.set(3, 5, true);
+        field.set(4, 5, true);
+        field.set(5, 5, true);
+        assertEquals("x = 3, y = 3, rule = B3/S23\nbo$2bo$3o!\n", write(field, Rule.CONWAY));
+    }
+
+    @Test
+    public void testEmptyRows() throws IOException {
+        Field field = new LongFieldImpl(100, 10);
+        field.fill(0, 0, 70, 1, true);
+        field.set(99, 9, true);
+        assertEquals("x = 100, y = 10, rule = B36/S23\n70o9$99bo!\n", write(field, Rule.parse("B36/S23")));
+    }
+
+    @Test
+    public void testEmpty() throws IOException {
+        assertEquals("x = 0, y = 0, rule = B3/S23\n!\n", write(new LongFieldImpl(10, 10), Rule.CONWAY));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        Random random = new Random(1);
+        Field field = new LongFieldImpl(300, 200);
+        field.set(() -> random.nextInt(3) == 0);
+        String text = write(field, Rule.CONWAY);
+        for (String line : text.split("\n")) {
+            assertTrue(line.length() <= RleWriter.LINE_LENGTH);
+        }
+
+        Field copy = new LongFieldImpl(300, 200);
+        try (RleReader reader = RleReaderTest.reader(text)) {
+            reader.read(copy, 0, 0);
+        }
+        assertEquals(field.toString(), copy.toString());
+    }
+}
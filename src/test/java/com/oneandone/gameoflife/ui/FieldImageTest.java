@@ -0,0 +1,143 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.ui;
+
+import com.oneandone.gameoflife.DensityPyramid;
+import com.oneandone.gameoflife.Field;
+import com.oneandone.gameoflife.LongFieldImpl;
+import java.awt.Color;
+import java.awt.image.BufferedImage;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for FieldImage.
+ * @author Stephan Fuhrmann
+ */
+public class FieldImageTest {
+
+    private static final int ALIVE = Color.WHITE.getRGB();
+    private static final int DEAD = Color.BLACK.getRGB();
+    private static final int OUTSIDE = Color.DARK_GRAY.getRGB();
+
+    private static BufferedImage render(Field field, Viewport viewport, int width, int height) {
+        FieldImage fieldImage = new FieldImage();
+        BufferedImage image = fieldImage.getImage(width, height);
+        fieldImage.render(field, DensityPyramid.of(field), viewport, 0, 0, width, height);
+        return image;
+    }
+
+    @Test
+    public void testRenderCells() {
+        Field field = new LongFieldImpl(130, 3);
+        field.set(0, 0, true);
+        field.set(63, 1, true);
+        field.set(64, 1, true);
+        field.set(129, 2, true);
+
+        BufferedImage image = render(field, new Viewport(0, 0, 1), 130, 3);
+
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 130; x++) {
+                assertEquals("x=" + x + ", y=" + y, field.get(x, y) ? ALIVE : DEAD, image.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    public void testZoomedIn() {
+        Field field = new LongFieldImpl(10, 10);
+        field.set(5, 5, true);
+
+        // cells 4 to 7 with 4 pixels each
+        BufferedImage image = render(field, new Viewport(4, 4, 4), 16, 16);
+
+        assertEquals(DEAD, image.getRGB(3, 3));
+        assertEquals(ALIVE, image.getRGB(4, 4));
+        assertEquals(ALIVE, image.getRGB(7, 7));
+        assertEquals(DEAD, image.getRGB(8, 8));
+    }
+
+    @Test
+    public void testOutside() {
+        Field field = new LongFieldImpl(10, 10);
+        BufferedImage image = render(field, new Viewport(-2, -2, 1), 14, 14);
+
+        assertEquals(OUTSIDE, image.getRGB(0, 5));
+        assertEquals(OUTSIDE, image.getRGB(5, 1));
+        assertEquals(DEAD, image.getRGB(2, 2));
+        assertEquals(OUTSIDE, image.getRGB(12, 12));
+    }
+
+    @Test
+    public void testDensity() {
+        Field field = new LongFieldImpl(1024, 1024);
+        // full, half full, single cell and empty 256 blocks
+        field.fill(0, 0, 256, 256, true);
+        field.fill(256, 0, 128, 256, true);
+        field.set(600, 100, true);
+
+        // 256 cells per pixel
+        BufferedImage image = render(field, new Viewport(0, 0, 1.0 / 256), 4, 4);
+
+        assertEquals(ALIVE, image.getRGB(0, 0));
+        int half = image.getRGB(1, 0) & 0xff;
+        assertTrue(half > 100 && half < 155);
+        int single = image.getRGB(2, 0) & 0xff;
+        assertTrue(single > 0 && single < 5);
+        assertEquals(DEAD, image.getRGB(3, 0));
+        assertEquals(DEAD, image.getRGB(0, 1));
+    }
+
+    @Test
+    public void testRenderRectangle() {
+        Field field = new LongFieldImpl(10, 10);
+        FieldImage fieldImage = new FieldImage();
+        BufferedImage image = fieldImage.getImage(10, 10);
+        DensityPyramid pyramid = DensityPyramid.of(field);
+        Viewport viewport = new Viewport(0, 0, 1);
+        fieldImage.render(field, pyramid, viewport, 0, 0, 10, 10);
+
+        field.set(1, 1, true);
+        field.set(8, 8, true);
+        fieldImage.render(field, pyramid, viewport, 0, 0, 5, 5);
+
+        assertEquals(ALIVE, image.getRGB(1, 1));
+        // outside of the rendered rectangle
+        assertEquals(DEAD, image.getRGB(8, 8));
+    }
+
+    @Test
+    public void testColors() {
+        Field field = new LongFieldImpl(10, 10);
+        field.set(0, 0, true);
+        FieldImage fieldImage = new FieldImage();
+        fieldImage.setColors(Color.RED, Color.BLUE, Color.GREEN);
+        BufferedImage image = fieldImage.getImage(10, 10);
+        fieldImage.render(field, DensityPyramid.of(field), new Viewport(0, 0, 1), 0, 0, 10, 10);
+
+        assertEquals(Color.RED.getRGB(), image.getRGB(0, 0));
+        assertEquals(Color.BLUE.getRGB(), image.getRGB(1, 0));
+    }
+
+    @Test
+    public void testReuseImage() {
+        FieldImage fieldImage = new FieldImage();
+        BufferedImage first = fieldImage.getImage(10, 10);
+        assertSame(first, fieldImage.getImage(10, 10));
+        assertNotSame(first, fieldImage.getImage(20, 10));
+    }
+}
@@ -0,0 +1,82 @@
+/*
+ * Copyright 2018 1&1 Internet SE.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.oneandone.gameoflife.ui;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+/**
+ * Test for Viewport.
+ * @author Stephan Fuhrmann
+ */
+public class ViewportTest {
+
+    @Test
+    public void testFit() {
+        Viewport viewport = Viewport.fit(100, 50, 400, 400);
+        assertEquals(4, viewport.getScale(), 1e-9);
+        assertEquals(0, viewport.cellX(0));
+        assertEquals(99, viewport.cellX(399));
+        // centered vertically
+        assertEquals(-25, viewport.cellY(0));
+        assertEquals(-1, viewport.cellY(99));
+        assertEquals(0, viewport.cellY(100));
+        assertEquals(49, viewport.cellY(299));
+        assertEquals(50, viewport.cellY(300));
+    }
+
+    @Test
+    public void testZoomKeepsCellUnderPixel() {
+        Viewport viewport = new Viewport(10, 20, 2);
+        long cellX = viewport.cellX(100);
+        long cellY = viewport.cellY(60);
+        Viewport zoomed = viewport.zoom(4, 100, 60);
+
+        assertEquals(8, zoomed.getScale(), 1e-9);
+        assertEquals(cellX, zoomed.cellX(100));
+        assertEquals(cellY, zoomed.cellY(60));
+    }
+
+    @Test
+    public void testZoomLimits() {
+        Viewport viewport = new Viewport(0, 0, 1);
+        assertEquals(Viewport.MAX_SCALE, viewport.zoom(1e9, 0, 0).getScale(), 1e-9);
+        assertEquals(Viewport.MIN_SCALE, viewport.zoom(1e-9, 0, 0).getScale(), 1e-15);
+    }
+
+    @Test
+    public void testPan() {
+        Viewport viewport = new Viewport(10, 20, 2).pan(20, -40);
+        assertEquals(0, viewport.getX(), 1e-9);
+        assertEquals(40, viewport.getY(), 1e-9);
+    }
+
+    @Test
+    public void testPixel() {
+        Viewport viewport = new Viewport(10, 20, 2);
+        assertEquals(0, viewport.pixelX(10), 1e-9);
+        assertEquals(10, viewport.pixelY(25), 1e-9);
+    }
+
+    @Test
+    public void testLevel() {
+        assertEquals(0, new Viewport(0, 0, 4).level());
+        assertEquals(0, new Viewport(0, 0, 1).level());
+        assertEquals(1, new Viewport(0, 0, 0.5).level());
+        assertEquals(2, new Viewport(0, 0, 0.3).level());
+        assertEquals(10, new Viewport(0, 0, 1.0 / 1024).level());
+    }
+}